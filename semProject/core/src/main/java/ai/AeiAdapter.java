@@ -0,0 +1,324 @@
+package ai;
+
+import logic.Board;
+import logic.Notation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+import utils.LongCountMap;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Arimaa Engine Interface (AEI) command loop over stdin/stdout, so the engine can run as a separate process under a
+ * tournament manager.
+ * <p>The loop reads commands on the calling thread and runs every search on a single worker thread, so
+ * {@code isready}, {@code stop} and {@code quit} are answered while the engine is thinking. Moves use the
+ * {@link logic.Notation} format written in saved games ("Ra2n", "Ed4n&gt;c5", "Ed4n&lt;d3", captures "Ch3x" are
+ * ignored). Setup moves are lists of pieces like "Ra1 Rb1 ...".</p>
+ *
+ * <pre>
+ * aei, isready, newgame, quit
+ * setposition g|s [64 chars, a8..h8, a7..h1, ' ' for empty]
+ * setoption name tcmove|tcreserve|tcmax|tcturntime|greserve|sreserve|moveused|depth|nodes value N
+ * makemove Ra2n Ra3n ... | Ra1 Rb1 ...
+ * go [ponder|infinite], stop
+ * </pre>
+ */
+public class AeiAdapter {
+    private static final Logger log = LoggerFactory.getLogger(AeiAdapter.class);
+
+    public static final String ENGINE_NAME = "JavaGame Arimaa";
+
+    //Used when the controller sends no time control
+    private static final long DEFAULT_MOVE_TIME_MS = 5000;
+    //Part of the time budget kept back for communication
+    private static final double SAFETY = 0.9;
+
+    private static final String DEFAULT_GOLD_SETUP =
+            "Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ha2 Db2 Cc2 Md2 Ee2 Cf2 Dg2 Hh2";
+
+    private final BufferedReader in;
+    private final PrintStream out;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "aei-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Search search = new Search(new Evaluator());
+
+    private EngineBoard board = new EngineBoard();
+    //End-of-turn positions of the current game, for the repetition rule
+    private final LongCountMap positions = new LongCountMap();
+    private int setupsPlayed;
+    private Future<?> running;
+    //Stop flag of the running search, created before it is submitted so an early stop is not lost
+    private AtomicBoolean stopFlag;
+
+    //Time control options, in seconds as sent by the controller
+    private long tcMove, tcReserve, tcMax, tcTurnTime, goldReserve, silverReserve, moveUsed;
+    private int depth;
+    private long nodes;
+
+    /**
+     * @param in  command input
+     * @param out response output
+     */
+    public AeiAdapter(BufferedReader in, PrintStream out) {
+        this.in = in;
+        this.out = out;
+        search.setTablebase(Tablebase.getDefault());
+        search.setListener(this::sendInfo);
+        search.setHistory(positions);
+    }
+
+    /**
+     * Reads and executes commands until {@code quit} or the end of the input.
+     *
+     * @throws IOException if reading the input fails
+     */
+    public void run() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) continue;
+            log.debug("AEI < {}", line);
+            try {
+                if (!execute(line)) break;
+            } catch (IllegalArgumentException | IllegalStateException ex) {
+                send("log Error: " + ex.getMessage());
+            }
+        }
+        stopSearch();
+        worker.shutdown();
+    }
+
+    /**
+     * Executes one command.
+     *
+     * @return false if the loop should end
+     */
+    boolean execute(String line) {
+        String[] parts = line.split("\\s+", 2);
+        String args = parts.length > 1 ? parts[1] : "";
+        switch (parts[0]) {
+            case "aei" -> {
+                send("protocol-version 1");
+                send("id name " + ENGINE_NAME);
+                send("id author JavaGame");
+                send("aeiok");
+            }
+            case "isready" -> send("readyok");
+            case "newgame" -> {
+                stopSearch();
+                board = new EngineBoard();
+                positions.clear();
+                setupsPlayed = 0;
+            }
+            case "setposition" -> {
+                stopSearch();
+                setPosition(args);
+            }
+            case "setoption" -> setOption(args);
+            case "makemove" -> {
+                stopSearch();
+                makeMove(args);
+            }
+            case "go" -> go(args.equals("ponder") || args.equals("infinite"));
+            case "stop" -> {
+                if (stopFlag != null) stopFlag.set(true);
+            }
+            case "quit" -> {
+                return false;
+            }
+            default -> send("log Warning: unknown command " + parts[0]);
+        }
+        return true;
+    }
+
+    private void setPosition(String args) {
+        int open = args.indexOf('[');
+        int close = args.lastIndexOf(']');
+        if (args.isEmpty() || open < 0 || close - open - 1 != EngineBoard.SQUARES) {
+            throw new IllegalArgumentException("Position must be 'g|s [64 squares]'");
+        }
+        EngineBoard b = new EngineBoard();
+        for (int sq = 0; sq < EngineBoard.SQUARES; sq++) {
+            char c = args.charAt(open + 1 + sq);
+            if (c == ' ' || c == '.' || c == 'x' || c == 'X') continue;
+            FigureType type = FigureType.fromLetter("" + c);
+            b.put(EngineBoard.kind(Character.isUpperCase(c) ? EngineBoard.GOLD : EngineBoard.SILVER, type.ordinal()), sq);
+        }
+        b.setSideToMove(args.charAt(0) == 's' || args.charAt(0) == 'b' ? EngineBoard.SILVER : EngineBoard.GOLD);
+        board = b;
+        positions.clear();
+        setupsPlayed = 2;
+    }
+
+    private void setOption(String args) {
+        String[] p = args.split("\\s+");
+        if (p.length != 4 || !p[0].equals("name") || !p[2].equals("value")) {
+            throw new IllegalArgumentException("Option must be 'name <id> value <value>'");
+        }
+        long value;
+        try {
+            value = Long.parseLong(p[3]);
+        } catch (NumberFormatException ex) {
+            //Options this engine does not use may have other values
+            log.debug("Ignoring option {}={}", p[1], p[3]);
+            return;
+        }
+        switch (p[1]) {
+            case "tcmove" -> tcMove = value;
+            case "tcreserve" -> tcReserve = value;
+            case "tcmax" -> tcMax = value;
+            case "tcturntime" -> tcTurnTime = value;
+            case "greserve" -> goldReserve = value;
+            case "sreserve" -> silverReserve = value;
+            case "moveused" -> moveUsed = value;
+            case "depth" -> depth = (int) value;
+            case "nodes" -> nodes = value;
+            default -> log.debug("Ignoring option {}={}", p[1], value);
+        }
+    }
+
+    private void makeMove(String move) {
+        String[] tokens = move.split("\\s+");
+        if (setupsPlayed < 2) {
+            for (String t : tokens) {
+                if (t.length() != 3) throw new IllegalArgumentException("Invalid setup piece " + t);
+                FigureType type = FigureType.fromLetter("" + t.charAt(0));
+                int side = Character.isUpperCase(t.charAt(0)) ? EngineBoard.GOLD : EngineBoard.SILVER;
+                board.put(EngineBoard.kind(side, type.ordinal()), Notation.parseSquare(t, 1));
+            }
+            setupsPlayed++;
+            board.setSideToMove(setupsPlayed == 1 ? EngineBoard.SILVER : EngineBoard.GOLD);
+            return;
+        }
+        int played = 0;
+        for (String t : tokens) {
+            if (t.equals("-") || t.endsWith("x")) continue;
+            int step = board.parseStep(t);
+            if (step == -1) {
+                for (int i = 0; i < played; i++) board.undo();
+                throw new IllegalArgumentException("Illegal step " + t);
+            }
+            board.makeStep(step);
+            played++;
+        }
+        board.endTurn();
+        positions.increment(board.hash());
+        moveUsed = 0;
+    }
+
+    private void go(boolean infinite) {
+        if (running != null && !running.isDone()) {
+            throw new IllegalStateException("Search already running");
+        }
+        if (setupsPlayed < 2) {
+            running = worker.submit(() -> send("bestmove " + setupMove()));
+            return;
+        }
+        long timeMs = infinite ? 0 : moveTimeMs();
+        SearchLimits limits = new SearchLimits(depth, nodes, timeMs);
+        EngineBoard root = new EngineBoard(board);
+        AtomicBoolean stop = new AtomicBoolean();
+        stopFlag = stop;
+        running = worker.submit(() -> {
+            SearchResult result = search.search(root, limits, stop);
+            log.info("AEI search: {}", result);
+            send(result.best == null ? "log Error: no legal move" : "bestmove " + result.notation);
+        });
+    }
+
+    /**
+     * Computes the search time from the AEI time control: the per-move time plus a share of the reserve,
+     * capped by the turn limits, minus the time already used on this move.
+     */
+    long moveTimeMs() {
+        long reserve = board.sideToMove() == EngineBoard.GOLD ? goldReserve : silverReserve;
+        if (reserve == 0) reserve = tcReserve;
+        if (tcMove == 0 && reserve == 0) {
+            return depth > 0 || nodes > 0 ? 0 : DEFAULT_MOVE_TIME_MS;
+        }
+        double seconds = tcMove + reserve / 10.0;
+        if (tcMax > 0) seconds = Math.min(seconds, tcMax);
+        if (tcTurnTime > 0) seconds = Math.min(seconds, tcTurnTime);
+        seconds -= moveUsed;
+        return Math.max(100, (long) (seconds * 1000 * SAFETY));
+    }
+
+    /**
+     * Chooses a setup: the opening book, otherwise a fixed gold setup or the {@link SetupOptimizer} for silver.
+     */
+    private String setupMove() {
+        boolean gold = board.sideToMove() == EngineBoard.GOLD;
+        OpeningBook book = OpeningBook.getDefault();
+        Board b = board.toBoard();
+        if (book != null && book.applySetup(b, gold, new Random())) {
+            return setupTokens(EngineBoard.from(b, gold), gold);
+        }
+        if (gold) return DEFAULT_GOLD_SETUP;
+        long budget = tcMove > 0 ? Math.max(100, (long) (tcMove * 1000 * SAFETY)) : SetupOptimizer.DEFAULT_BUDGET_MS;
+        new SetupOptimizer(budget).placeSilver(b);
+        return setupTokens(EngineBoard.from(b, false), false);
+    }
+
+    private static String setupTokens(EngineBoard b, boolean gold) {
+        List<String> tokens = new ArrayList<>();
+        long own = b.occupied(gold ? EngineBoard.GOLD : EngineBoard.SILVER);
+        while (own != 0) {
+            int sq = Long.numberOfTrailingZeros(own);
+            own &= own - 1;
+            tokens.add("" + EngineBoard.pieceChar(b.pieceAt(sq)) + EngineBoard.squareName(sq));
+        }
+        return String.join(" ", tokens);
+    }
+
+    private void sendInfo(SearchResult r) {
+        send("info depth " + r.depth);
+        send("info score " + r.score);
+        send("info nodes " + r.nodes);
+        send("info time " + r.timeMs / 1000);
+        send("info pv " + r.notation);
+    }
+
+    private void stopSearch() {
+        if (running == null) return;
+        if (stopFlag != null) stopFlag.set(true);
+        try {
+            running.get(10, TimeUnit.SECONDS);
+        } catch (Exception ex) {
+            log.warn("Search did not finish cleanly: {}", ex.toString());
+        }
+        running = null;
+        stopFlag = null;
+    }
+
+    private void send(String message) {
+        log.debug("AEI > {}", message);
+        synchronized (out) {
+            out.println(message);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs the command loop on stdin/stdout. Start with {@code -Dgame.logging=WARN} so logging does not mix
+     * with the protocol output.
+     */
+    public static void main(String[] args) throws IOException {
+        new AeiAdapter(new BufferedReader(new InputStreamReader(System.in)), System.out).run();
+    }
+}
@@ -0,0 +1,55 @@
+package ai;
+
+import logic.Game;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Command line review of a saved game: prints the best few turns of the side to move with scores and principal
+ * variations after every completed search iteration.
+ */
+public class Analysis {
+
+    private Analysis() {
+    }
+
+    /**
+     * Command line entry point: {@code Analysis <savedGame.txt> [lines] [seconds]}, 3 lines and 10 seconds by default.
+     * Start with {@code -Dgame.logging=WARN} to keep the game log out of the output.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Analysis <savedGame.txt> [lines] [seconds]");
+            return;
+        }
+        int lines = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        long seconds = args.length > 2 ? Long.parseLong(args[2]) : 10;
+
+        EngineBoard board = EngineBoard.from(Game.loadFromFile(args[0], GameMode.CLASSIC));
+        //A loaded game stops after the last recorded turn; analyse the next one
+        if (board.stepsTaken() == Game.MAX_TURNS_STEPS) board.endTurn();
+        System.out.println(board);
+
+        Search search = new Search(new Evaluator());
+        search.setTablebase(Tablebase.getDefault());
+        List<SearchResult> results = search.analyze(board, new SearchLimits(0, 0, seconds * 1000), lines,
+                Analysis::print);
+        if (results.isEmpty()) {
+            System.out.println("No legal turn");
+        } else {
+            System.out.println("Final:");
+            print(results);
+        }
+    }
+
+    private static void print(List<SearchResult> results) {
+        SearchResult first = results.get(0);
+        System.out.printf("depth %d, %d nodes, %d ms%n", first.depth, first.nodes, first.timeMs);
+        for (int i = 0; i < results.size(); i++) {
+            SearchResult r = results.get(i);
+            System.out.printf("  %d. %6d  %s%n", i + 1, r.score, String.join(" | ", r.pv));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package ai;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares the throughput of {@link Evaluator#evaluate(EngineBoard)} called per position with the scalar and the
+ * Vector API loops of {@link BatchEvaluator} on the same random positions. Run with
+ * {@code --add-modules jdk.incubator.vector} to include the vectorized loop.
+ */
+public class BatchBenchmark {
+    private static final int[] ARMY = {0, 1, 2, 2, 3, 3, 4, 4, EngineBoard.RABBIT, EngineBoard.RABBIT,
+            EngineBoard.RABBIT, EngineBoard.RABBIT, EngineBoard.RABBIT, EngineBoard.RABBIT, EngineBoard.RABBIT,
+            EngineBoard.RABBIT};
+
+    private BatchBenchmark() {
+    }
+
+    /**
+     * Fills a batch with positions of full armies placed at random from a fixed seed.
+     */
+    static BatchEvaluator.Batch randomBatch(int size, long seed) {
+        Random random = new Random(seed);
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(size);
+        for (int i = 0; i < size; i++) batch.add(randomPosition(random));
+        return batch;
+    }
+
+    static EngineBoard randomPosition(Random random) {
+        EngineBoard b = new EngineBoard();
+        for (int side = EngineBoard.GOLD; side <= EngineBoard.SILVER; side++) {
+            //Drop a few pieces so the material differs between positions
+            for (int type : ARMY) {
+                if (random.nextInt(4) == 0) continue;
+                int sq;
+                do {
+                    sq = random.nextInt(EngineBoard.SQUARES);
+                } while (b.pieceAt(sq) != EngineBoard.EMPTY);
+                b.put(EngineBoard.kind(side, type), sq);
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Command line entry point: {@code BatchBenchmark [positions] [rounds]}, 4096 positions and 2000 rounds by
+     * default. Prints positions per second of each variant.
+     */
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        BatchEvaluator.Batch batch = randomBatch(size, 1);
+        Random random = new Random(1);
+        EngineBoard[] boards = new EngineBoard[size];
+        for (int i = 0; i < size; i++) boards[i] = randomPosition(random);
+
+        Evaluator evaluator = new Evaluator();
+        long checksum = 0;
+        int evaluatorRounds = Math.max(1, rounds / 20);
+        long start = System.nanoTime();
+        for (int r = 0; r < evaluatorRounds; r++) {
+            for (EngineBoard b : boards) checksum += evaluator.evaluate(b);
+        }
+        report("Evaluator", (long) size * evaluatorRounds, System.nanoTime() - start);
+
+        int[] scalarScores = new int[size];
+        int[] vectorScores = new int[size];
+        BatchEvaluator scalar = new BatchEvaluator(Evaluator.startupWeights(), false);
+        BatchEvaluator vector = new BatchEvaluator(Evaluator.startupWeights(), true);
+        for (BatchEvaluator e : vector.isVectorized() ? new BatchEvaluator[]{scalar, vector}
+                : new BatchEvaluator[]{scalar}) {
+            int[] scores = e == scalar ? scalarScores : vectorScores;
+            //Warm-up, then timed rounds
+            for (int r = 0; r < rounds / 10; r++) e.evaluate(batch, scores);
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                e.evaluate(batch, scores);
+                checksum += scores[r % size];
+            }
+            report(e.isVectorized() ? "batch vector" : "batch scalar", (long) size * rounds,
+                    System.nanoTime() - start);
+        }
+        if (vector.isVectorized()) {
+            System.out.println(Arrays.equals(scalarScores, vectorScores)
+                    ? "scalar and vector scores agree" : "ERROR: scalar and vector scores differ");
+        } else {
+            System.out.println("Vector API not available, run with --add-modules jdk.incubator.vector");
+        }
+        System.out.println("checksum " + checksum);
+    }
+
+    private static void report(String name, long positions, long ns) {
+        System.out.printf("%-13s %12d positions %8.3f s %14.0f positions/s%n", name, positions, ns / 1e9,
+                positions * 1e9 / Math.max(1, ns));
+    }
+}
@@ -0,0 +1,172 @@
+package ai;
+
+import logic.Board;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Evaluates many positions per call with masked popcount features, for playouts and tuning runs where calling
+ * {@link Evaluator#evaluate(EngineBoard)} per position is too slow.
+ * <p>Positions are held in structure-of-arrays form ({@link Batch}): one array of bitboards per piece kind, indexed by
+ * board. The score of a board is a sum of terms {@code coefficient * bitCount(pieces[kind] & mask)}: the linear
+ * material sum ({@link Evaluator#PIECE_VALUE}), rabbit advancement per row, piece strength next to the traps and the
+ * distance of elephants and camels from the centre, with the positional terms scaled by the weights like in
+ * {@link Evaluator}. The frozen-piece term needs neighbour tests and is left out.</p>
+ * <p>The scalar loop runs every term over all boards, which the JIT compiler already turns into SIMD code. The
+ * explicit Vector API loop ({@link VectorBatchKernel}) is opt-in and needs the {@code jdk.incubator.vector} module
+ * (run with {@code --add-modules jdk.incubator.vector}); without it the scalar loop is used. Both give the same
+ * scores; {@link BatchBenchmark} compares their throughput.</p>
+ */
+public class BatchEvaluator {
+    private static final Logger log = LoggerFactory.getLogger(BatchEvaluator.class);
+
+    /**
+     * True if the Vector API module is loaded
+     */
+    public static final boolean VECTOR_AVAILABLE = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    //Coefficients are in hundredths, the sum is divided once per board
+    private static final int SCALE = 100;
+    private static final int[] RABBIT_ADVANCE = {0, 0, 5, 12, 25, 45, 80, 0};
+    private static final int KINDS = 2 * EngineBoard.TYPES;
+    private static final long TRAP_NEIGHBORS = EngineBoard.NEIGHBORS[18] | EngineBoard.NEIGHBORS[21]
+            | EngineBoard.NEIGHBORS[42] | EngineBoard.NEIGHBORS[45];
+
+    private final int[] termKind;
+    private final long[] termMask;
+    private final long[] termCoef;
+    private final boolean vectorized;
+
+    /**
+     * Structure-of-arrays positions: {@code pieces[kind][board]}
+     */
+    public static final class Batch {
+        final long[][] pieces;
+        private int size;
+
+        /**
+         * @param capacity maximum number of boards
+         */
+        public Batch(int capacity) {
+            pieces = new long[KINDS][capacity];
+        }
+
+        /**
+         * Appends the piece placement of a position.
+         *
+         * @throws IllegalStateException if the batch is full
+         */
+        public void add(EngineBoard b) {
+            if (size == pieces[0].length) throw new IllegalStateException("Batch is full");
+            for (int kind = 0; kind < KINDS; kind++) pieces[kind][size] = b.pieces(kind);
+            size++;
+        }
+
+        /**
+         * Removes all boards.
+         */
+        public void clear() {
+            size = 0;
+        }
+
+        /**
+         * @return number of boards
+         */
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Creates an evaluator with the {@link Evaluator#startupWeights()} and the scalar loop.
+     */
+    public BatchEvaluator() {
+        this(Evaluator.startupWeights(), false);
+    }
+
+    /**
+     * @param weights   positional weights indexed by the {@code Evaluator.W_*} constants
+     * @param vectorize use the Vector API if it is available, otherwise always the scalar loop
+     */
+    public BatchEvaluator(int[] weights, boolean vectorize) {
+        if (weights.length != Evaluator.WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Expected " + Evaluator.WEIGHT_COUNT + " weights, got " + weights.length);
+        }
+        List<long[]> terms = new ArrayList<>();
+        for (int side = EngineBoard.GOLD; side <= EngineBoard.SILVER; side++) {
+            int sign = side == EngineBoard.GOLD ? 1 : -1;
+            for (int type = 0; type < EngineBoard.TYPES; type++) {
+                int kind = EngineBoard.kind(side, type);
+                terms.add(new long[]{kind, -1L, (long) sign * Evaluator.PIECE_VALUE[type] * SCALE});
+                //A piece next to a trap adds its strength to its side's control and removes it from the enemy's
+                terms.add(new long[]{kind, TRAP_NEIGHBORS,
+                        (long) sign * 8 * EngineBoard.strength(kind) * weights[Evaluator.W_TRAP_CONTROL]});
+            }
+            for (int row = 0; row < Board.SIZE; row++) {
+                int bonus = RABBIT_ADVANCE[side == EngineBoard.GOLD ? Board.SIZE - 1 - row : row];
+                if (bonus == 0) continue;
+                terms.add(new long[]{EngineBoard.kind(side, EngineBoard.RABBIT), 0xFFL << (row * Board.SIZE),
+                        (long) sign * bonus * weights[Evaluator.W_RABBIT_ADVANCE]});
+            }
+            for (int type : new int[]{FigureType.ELEPHANT.ordinal(), FigureType.CAMEL.ordinal()}) {
+                for (int dist = 2; dist <= 14; dist += 2) {
+                    terms.add(new long[]{EngineBoard.kind(side, type), centreDistanceMask(dist),
+                            (long) -sign * 3 * dist * weights[Evaluator.W_CENTRALITY]});
+                }
+            }
+        }
+        termKind = new int[terms.size()];
+        termMask = new long[terms.size()];
+        termCoef = new long[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            termKind[i] = (int) terms.get(i)[0];
+            termMask[i] = terms.get(i)[1];
+            termCoef[i] = terms.get(i)[2];
+        }
+        this.vectorized = vectorize && VECTOR_AVAILABLE;
+        log.debug("Batch evaluator with {} terms, vectorized={}", termKind.length, vectorized);
+    }
+
+    /**
+     * @return squares whose distance {@code |2 row - 7| + |2 col - 7|} from the centre equals {@code dist}
+     */
+    private static long centreDistanceMask(int dist) {
+        long mask = 0;
+        for (int sq = 0; sq < EngineBoard.SQUARES; sq++) {
+            int row = sq / Board.SIZE, col = sq % Board.SIZE;
+            if (Math.abs(2 * row - 7) + Math.abs(2 * col - 7) == dist) mask |= 1L << sq;
+        }
+        return mask;
+    }
+
+    /**
+     * @return true if batches are evaluated with the Vector API
+     */
+    public boolean isVectorized() {
+        return vectorized;
+    }
+
+    /**
+     * Scores every board of a batch.
+     *
+     * @param batch  positions
+     * @param scores receives the score of board {@code i} at index {@code i}, from gold's point of view
+     * @throws IllegalArgumentException if {@code scores} is shorter than the batch
+     */
+    public void evaluate(Batch batch, int[] scores) {
+        int n = batch.size();
+        if (scores.length < n) throw new IllegalArgumentException("Score array shorter than the batch");
+        long[] total = new long[n];
+        int done = vectorized ? VectorBatchKernel.sum(batch.pieces, n, termKind, termMask, termCoef, total) : 0;
+        for (int t = 0; t < termKind.length; t++) {
+            long[] pieces = batch.pieces[termKind[t]];
+            long mask = termMask[t], coef = termCoef[t];
+            for (int i = done; i < n; i++) total[i] += coef * Long.bitCount(pieces[i] & mask);
+        }
+        for (int i = 0; i < n; i++) scores[i] = (int) (total[i] / SCALE);
+    }
+}
@@ -0,0 +1,636 @@
+package ai;
+
+import figures.Figure;
+import logic.Board;
+import logic.Game;
+import logic.PositionSnapshot;
+import logic.Zobrist;
+import utils.FigureType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Mutable bitboard position used by the engine and the analysis tools.
+ * <p>Follows the same rules as {@link Game}: steps to adjacent empty squares (rabbits never backwards), push and
+ * pull of an adjacent enemy when the mover plus its adjacent friends is stronger than the victim plus its friends,
+ * frozen pieces cannot move, unsupported pieces on traps are captured after every step, and a turn has at most
+ * {@link Game#MAX_TURNS_STEPS} steps.</p>
+ * <p>Piece kinds use the {@link Zobrist#kind(boolean, FigureType)} numbering so {@link #hash()} equals
+ * {@link Game#getPositionHash()} for the same position. Every change is recorded on an internal stack and can be
+ * reverted with {@link #undo()}.</p>
+ */
+public class EngineBoard {
+    public static final int GOLD = 0;
+    public static final int SILVER = 1;
+    public static final int NONE = -1;
+    public static final int EMPTY = -1;
+
+    public static final int SQUARES = Board.SIZE * Board.SIZE;
+    public static final int TYPES = FigureType.values().length;
+    public static final int RABBIT = FigureType.RABBIT.ordinal();
+
+    /**
+     * Upper bound of steps {@link #generateSteps(int[])} can return
+     */
+    public static final int MAX_STEPS = 512;
+
+    static final long FILE_A = 0x0101010101010101L;
+    static final long FILE_H = FILE_A << 7;
+    static final long TRAPS = (1L << 18) | (1L << 21) | (1L << 42) | (1L << 45);
+    static final long GOLD_GOAL = 0xFFL;
+    static final long SILVER_GOAL = 0xFFL << 56;
+
+    static final int[] STRENGTH = new int[2 * TYPES];
+    static final long[] NEIGHBORS = new long[SQUARES];
+
+    static {
+        for (FigureType t : FigureType.values()) {
+            STRENGTH[t.ordinal()] = t.getStrength();
+            STRENGTH[TYPES + t.ordinal()] = t.getStrength();
+        }
+        for (int sq = 0; sq < SQUARES; sq++) {
+            NEIGHBORS[sq] = neighbors(1L << sq);
+        }
+    }
+
+    final long[] pieces = new long[2 * TYPES];
+    final long[] occupied = new long[2];
+    final byte[] squares = new byte[SQUARES];
+    private long hash;
+    private long mirrorHash;
+    //MaterialTable keys per side, and the number of pieces beyond a legal army
+    private final int[] materialKeys = new int[2];
+    private int extraPieces;
+    private int sideToMove = GOLD;
+    private int stepsTaken;
+
+    private int undoTop;
+    private int[] undoSteps = new int[64];
+    private long[] undoCaptures = new long[64];
+    private int[] undoStepsTaken = new int[64];
+
+    /**
+     * Creates an empty board with gold to move
+     */
+    public EngineBoard() {
+        Arrays.fill(squares, (byte) EMPTY);
+    }
+
+    /**
+     * Copies the position of another board (the undo history is not copied).
+     *
+     * @param other board to copy
+     */
+    public EngineBoard(EngineBoard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.occupied, 0, occupied, 0, 2);
+        System.arraycopy(other.squares, 0, squares, 0, SQUARES);
+        hash = other.hash;
+        mirrorHash = other.mirrorHash;
+        materialKeys[GOLD] = other.materialKeys[GOLD];
+        materialKeys[SILVER] = other.materialKeys[SILVER];
+        extraPieces = other.extraPieces;
+        sideToMove = other.sideToMove;
+        stepsTaken = other.stepsTaken;
+    }
+
+    /**
+     * Builds an engine board from a game board.
+     *
+     * @param board      source board
+     * @param goldToMove true if gold is on turn
+     * @return new engine board at the start of a turn
+     */
+    public static EngineBoard from(Board board, boolean goldToMove) {
+        EngineBoard b = new EngineBoard();
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Figure f = board.getFigureAt(row, col);
+                if (f != null) b.put(Zobrist.kind(f.isGold(), f.getType()), row * Board.SIZE + col);
+            }
+        }
+        b.setSideToMove(goldToMove ? GOLD : SILVER);
+        return b;
+    }
+
+    /**
+     * Builds an engine board from a published position, e.g. on an analysis thread while the game goes on.
+     *
+     * @param snapshot source position
+     * @return new engine board with the snapshot's side to move and steps taken
+     */
+    public static EngineBoard from(PositionSnapshot snapshot) {
+        EngineBoard b = new EngineBoard();
+        for (int kind = 0; kind < Zobrist.PIECE_KINDS; kind++) {
+            for (long bb = snapshot.pieces(kind); bb != 0; bb &= bb - 1) b.put(kind, Long.numberOfTrailingZeros(bb));
+        }
+        b.setSideToMove(snapshot.goldToMove ? GOLD : SILVER);
+        b.stepsTaken = snapshot.stepsTaken;
+        return b;
+    }
+
+    /**
+     * Builds an engine board from the current position of a game (steps already taken in the turn are kept).
+     *
+     * @param game source game
+     * @return new engine board
+     */
+    public static EngineBoard from(Game game) {
+        EngineBoard b = from(game.getBoard(), game.getCurrentPlayer().isGold());
+        b.stepsTaken = Game.MAX_TURNS_STEPS - game.getTurnsSteps();
+        return b;
+    }
+
+    /**
+     * @return a new game board with the same piece placement
+     */
+    public Board toBoard() {
+        Board board = new Board();
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int k = squares[sq];
+            if (k != EMPTY) {
+                board.setFigureAt(sq / Board.SIZE, sq % Board.SIZE, new Figure(FigureType.values()[k % TYPES], k < TYPES));
+            }
+        }
+        return board;
+    }
+
+    /**
+     * @return a new board with the left-right mirror image of the placement and the same side to move, at the start
+     * of a turn; its {@link #hash()} is this board's {@link #mirrorHash()}
+     */
+    public EngineBoard mirror() {
+        EngineBoard b = new EngineBoard();
+        for (int sq = 0; sq < SQUARES; sq++) {
+            if (squares[sq] != EMPTY) b.put(squares[sq], Zobrist.mirror(sq));
+        }
+        b.setSideToMove(sideToMove);
+        return b;
+    }
+
+    /**
+     * Places a piece on an empty square.
+     *
+     * @param kind piece kind (0–5 gold, 6–11 silver)
+     * @param sq   square index
+     */
+    public void put(int kind, int sq) {
+        long bit = 1L << sq;
+        pieces[kind] |= bit;
+        occupied[kind / TYPES] |= bit;
+        squares[sq] = (byte) kind;
+        hash ^= Zobrist.key(kind, sq);
+        mirrorHash ^= Zobrist.key(kind, Zobrist.mirror(sq));
+        int type = kind % TYPES;
+        materialKeys[kind / TYPES] += MaterialTable.RADIX[type];
+        if (Long.bitCount(pieces[kind]) > MaterialTable.MAX_COUNT[type]) extraPieces++;
+    }
+
+    /**
+     * Removes the piece from a square.
+     *
+     * @param sq square index
+     * @return kind of the removed piece
+     */
+    public int remove(int sq) {
+        int kind = squares[sq];
+        long bit = 1L << sq;
+        int type = kind % TYPES;
+        if (Long.bitCount(pieces[kind]) > MaterialTable.MAX_COUNT[type]) extraPieces--;
+        materialKeys[kind / TYPES] -= MaterialTable.RADIX[type];
+        pieces[kind] &= ~bit;
+        occupied[kind / TYPES] &= ~bit;
+        squares[sq] = EMPTY;
+        hash ^= Zobrist.key(kind, sq);
+        mirrorHash ^= Zobrist.key(kind, Zobrist.mirror(sq));
+        return kind;
+    }
+
+    /**
+     * @param side {@link #GOLD} or {@link #SILVER}
+     * @return {@link MaterialTable} key of the side's pieces; only valid if {@link #hasLegalArmies()}
+     */
+    public int materialKey(int side) {
+        return materialKeys[side];
+    }
+
+    /**
+     * @return true if neither side has more pieces of a type than a legal army
+     */
+    public boolean hasLegalArmies() {
+        return extraPieces == 0;
+    }
+
+    /**
+     * @return kind of the piece on the square or {@link #EMPTY}
+     */
+    public int pieceAt(int sq) {
+        return squares[sq];
+    }
+
+    /**
+     * @return bitboard of all pieces of one kind
+     */
+    public long pieces(int kind) {
+        return pieces[kind];
+    }
+
+    /**
+     * @return bitboard of all pieces of one side
+     */
+    public long occupied(int side) {
+        return occupied[side];
+    }
+
+    /**
+     * @return Zobrist hash of the position including the side to move
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * @return Zobrist hash of the left-right mirror image, with the same side to move
+     */
+    public long mirrorHash() {
+        return mirrorHash;
+    }
+
+    /**
+     * @return key shared by this position and its mirror image, see {@link Zobrist#canonical(long, long)}
+     */
+    public long canonicalHash() {
+        return Zobrist.canonical(hash, mirrorHash);
+    }
+
+    /**
+     * @return {@link #GOLD} or {@link #SILVER}
+     */
+    public int sideToMove() {
+        return sideToMove;
+    }
+
+    /**
+     * Sets the side to move and starts a fresh turn.
+     *
+     * @param side {@link #GOLD} or {@link #SILVER}
+     */
+    public void setSideToMove(int side) {
+        if (side != sideToMove) {
+            hash ^= Zobrist.SILVER_TO_MOVE;
+            mirrorHash ^= Zobrist.SILVER_TO_MOVE;
+        }
+        sideToMove = side;
+        stepsTaken = 0;
+    }
+
+    /**
+     * @return steps already taken in the current turn
+     */
+    public int stepsTaken() {
+        return stepsTaken;
+    }
+
+    /**
+     * Sets the number of steps already taken in the current turn (used by tools enumerating mid-turn states).
+     *
+     * @param steps steps taken, 0 to {@link Game#MAX_TURNS_STEPS}
+     */
+    public void setStepsTaken(int steps) {
+        this.stepsTaken = steps;
+    }
+
+    /**
+     * @return total number of pieces on the board
+     */
+    public int pieceCount() {
+        return Long.bitCount(occupied[GOLD] | occupied[SILVER]);
+    }
+
+    /**
+     * @return side owning a piece kind
+     */
+    public static int sideOf(int kind) {
+        return kind / TYPES;
+    }
+
+    /**
+     * @return kind index of a side's figure type ordinal
+     */
+    public static int kind(int side, int type) {
+        return side * TYPES + type;
+    }
+
+    /**
+     * @return strength of a piece kind
+     */
+    public static int strength(int kind) {
+        return STRENGTH[kind];
+    }
+
+    /**
+     * Shifts a bitboard one square in all four orthogonal directions.
+     *
+     * @param b set of squares
+     * @return all squares orthogonally adjacent to the set
+     */
+    public static long neighbors(long b) {
+        return ((b << 1) & ~FILE_A) | ((b >>> 1) & ~FILE_H) | (b << 8) | (b >>> 8);
+    }
+
+    /**
+     * @return number of adjacent friendly pieces of the piece on the square
+     */
+    public int friends(int sq) {
+        return Long.bitCount(NEIGHBORS[sq] & occupied[squares[sq] / TYPES]);
+    }
+
+    /**
+     * Checks if the piece on a square is frozen: a stronger enemy is adjacent and no friend is.
+     *
+     * @param sq occupied square
+     * @return true if frozen
+     */
+    public boolean isFrozen(int sq) {
+        int kind = squares[sq];
+        int side = kind / TYPES;
+        long around = NEIGHBORS[sq];
+        if ((around & occupied[side]) != 0) return false;
+        long enemies = around & occupied[1 - side];
+        while (enemies != 0) {
+            int e = Long.numberOfTrailingZeros(enemies);
+            if (STRENGTH[squares[e]] > STRENGTH[kind]) return true;
+            enemies &= enemies - 1;
+        }
+        return false;
+    }
+
+    /**
+     * Generates all legal steps of the side to move into a buffer.
+     *
+     * @param out buffer of at least {@link #MAX_STEPS} elements
+     * @return number of generated steps
+     */
+    public int generateSteps(int[] out) {
+        int left = Game.MAX_TURNS_STEPS - stepsTaken;
+        if (left <= 0) return 0;
+        int us = sideToMove;
+        int them = 1 - us;
+        long empty = ~(occupied[GOLD] | occupied[SILVER]);
+        int n = 0;
+        long mine = occupied[us];
+        while (mine != 0) {
+            int sq = Long.numberOfTrailingZeros(mine);
+            mine &= mine - 1;
+            if (isFrozen(sq)) continue;
+            int kind = squares[sq];
+            long targets = NEIGHBORS[sq] & empty;
+            if (kind % TYPES == RABBIT) {
+                //Rabbits cannot step backwards: south for gold, north for silver
+                int back = us == GOLD ? sq + Board.SIZE : sq - Board.SIZE;
+                if (back >= 0 && back < SQUARES) targets &= ~(1L << back);
+            }
+            while (targets != 0) {
+                int to = Long.numberOfTrailingZeros(targets);
+                targets &= targets - 1;
+                out[n++] = Step.simple(sq, to);
+            }
+            if (left < 2) continue;
+            long enemies = NEIGHBORS[sq] & occupied[them];
+            while (enemies != 0) {
+                int victim = Long.numberOfTrailingZeros(enemies);
+                enemies &= enemies - 1;
+                if (STRENGTH[kind] + friends(sq) <= STRENGTH[squares[victim]] + friends(victim)) continue;
+                long pushTo = NEIGHBORS[victim] & empty;
+                while (pushTo != 0) {
+                    int d = Long.numberOfTrailingZeros(pushTo);
+                    pushTo &= pushTo - 1;
+                    out[n++] = Step.push(sq, victim, d);
+                }
+                long pullTo = NEIGHBORS[sq] & empty;
+                while (pullTo != 0) {
+                    int d = Long.numberOfTrailingZeros(pullTo);
+                    pullTo &= pullTo - 1;
+                    out[n++] = Step.pull(sq, d, victim);
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Performs a step generated by {@link #generateSteps(int[])} and resolves trap captures.
+     *
+     * @param step encoded step
+     */
+    public void makeStep(int step) {
+        int moverFrom = Step.from(step);
+        int moverKind = remove(moverFrom);
+        if (Step.type(step) != Step.SIMPLE) {
+            int victimKind = remove(Step.victimFrom(step));
+            put(victimKind, Step.victimTo(step));
+        }
+        put(moverKind, Step.to(step));
+        pushUndo(step, captureUnsupported());
+        stepsTaken += Step.cost(step);
+    }
+
+    /**
+     * Ends the current turn: switches the side to move and resets the step counter.
+     */
+    public void endTurn() {
+        pushUndo(Step.END_TURN, 0L);
+        sideToMove = 1 - sideToMove;
+        stepsTaken = 0;
+        hash ^= Zobrist.SILVER_TO_MOVE;
+        mirrorHash ^= Zobrist.SILVER_TO_MOVE;
+    }
+
+    /**
+     * Reverts the last {@link #makeStep(int)} or {@link #endTurn()}.
+     */
+    public void undo() {
+        undoTop--;
+        int step = undoSteps[undoTop];
+        stepsTaken = undoStepsTaken[undoTop];
+        if (step == Step.END_TURN) {
+            sideToMove = 1 - sideToMove;
+            hash ^= Zobrist.SILVER_TO_MOVE;
+            mirrorHash ^= Zobrist.SILVER_TO_MOVE;
+            return;
+        }
+        long captures = undoCaptures[undoTop];
+        int count = (int) (captures >>> 60);
+        for (int i = 0; i < count; i++) {
+            int rec = (int) (captures >>> (i * 10)) & 1023;
+            put(rec >>> 6, rec & 63);
+        }
+        int moverKind = remove(Step.to(step));
+        if (Step.type(step) != Step.SIMPLE) {
+            int victimKind = remove(Step.victimTo(step));
+            put(victimKind, Step.victimFrom(step));
+        }
+        put(moverKind, Step.from(step));
+    }
+
+    /**
+     * @return number of changes that can currently be reverted with {@link #undo()}
+     */
+    public int undoDepth() {
+        return undoTop;
+    }
+
+    /**
+     * Determines the game result after a turn has ended, in the order of the official rules:
+     * the mover's goal, the opponent's goal, the opponent without rabbits, the mover without rabbits.
+     *
+     * @return winning side, or {@link #NONE} if the game goes on
+     */
+    public int winner() {
+        int mover = 1 - sideToMove;
+        int opponent = sideToMove;
+        if (reachedGoal(mover)) return mover;
+        if (reachedGoal(opponent)) return opponent;
+        if (pieces[kind(opponent, RABBIT)] == 0) return mover;
+        if (pieces[kind(mover, RABBIT)] == 0) return opponent;
+        return NONE;
+    }
+
+    /**
+     * @return true if a rabbit of the side stands on its goal row
+     */
+    public boolean reachedGoal(int side) {
+        return side == GOLD
+                ? (pieces[kind(GOLD, RABBIT)] & GOLD_GOAL) != 0
+                : (pieces[kind(SILVER, RABBIT)] & SILVER_GOAL) != 0;
+    }
+
+    /**
+     * Formats a step in the notation used by {@link Game} and {@link logic.Notation} ("Ra2n", "Ed4n&gt;c5",
+     * "Ed4n&lt;d3"). Must be called before the step is made.
+     *
+     * @param step encoded step
+     * @return step token
+     */
+    public String stepToString(int step) {
+        int from = Step.from(step);
+        StringBuilder sb = new StringBuilder(7);
+        sb.append(pieceChar(squares[from])).append(squareName(from));
+        if (Step.type(step) == Step.SIMPLE) {
+            return sb.append(direction(from, Step.to(step))).toString();
+        }
+        sb.append(direction(from, Step.victimFrom(step)));
+        if (Step.type(step) == Step.PUSH) {
+            return sb.append('>').append(squareName(Step.victimTo(step))).toString();
+        }
+        return sb.append('<').append(squareName(Step.to(step))).toString();
+    }
+
+    /**
+     * Formats the captures caused by the last {@link #makeStep(int)} ("Ch3x"), as recorded in the game history.
+     *
+     * @return capture tokens, empty if the step captured nothing
+     */
+    public List<String> captureTokens() {
+        List<String> tokens = new ArrayList<>(2);
+        if (undoTop == 0 || undoSteps[undoTop - 1] == Step.END_TURN) return tokens;
+        long captures = undoCaptures[undoTop - 1];
+        int count = (int) (captures >>> 60);
+        for (int i = 0; i < count; i++) {
+            int rec = (int) (captures >>> (i * 10)) & 1023;
+            tokens.add("" + pieceChar(rec >>> 6) + squareName(rec & 63) + 'x');
+        }
+        return tokens;
+    }
+
+    /**
+     * Finds the legal step matching a notation token; the piece letter is not checked.
+     *
+     * @param token step token as produced by {@link #stepToString(int)}
+     * @return encoded step, or -1 if no legal step matches
+     */
+    public int parseStep(String token) {
+        int[] buf = new int[MAX_STEPS];
+        int n = generateSteps(buf);
+        String key = token.substring(1);
+        for (int i = 0; i < n; i++) {
+            if (stepToString(buf[i]).substring(1).equals(key)) return buf[i];
+        }
+        return -1;
+    }
+
+    /**
+     * @return notation letter of a piece kind, upper case for gold
+     */
+    public static char pieceChar(int kind) {
+        char c = FigureType.values()[kind % TYPES].getCode();
+        return kind < TYPES ? Character.toUpperCase(c) : c;
+    }
+
+    /**
+     * @return square name in algebraic notation, e.g. "a8" for square 0
+     */
+    public static String squareName(int sq) {
+        return "" + (char) ('a' + sq % Board.SIZE) + (char) ('1' + (Board.SIZE - 1 - sq / Board.SIZE));
+    }
+
+    private static char direction(int from, int to) {
+        int d = to - from;
+        if (d == -Board.SIZE) return 'n';
+        if (d == Board.SIZE) return 's';
+        if (d == 1) return 'e';
+        return 'w';
+    }
+
+    /**
+     * Removes unsupported pieces from the traps.
+     *
+     * @return packed capture records: up to four (kind, square) pairs of 10 bits, count in the top 4 bits
+     */
+    private long captureUnsupported() {
+        long packed = 0L;
+        int count = 0;
+        long onTraps = TRAPS & (occupied[GOLD] | occupied[SILVER]);
+        while (onTraps != 0) {
+            int sq = Long.numberOfTrailingZeros(onTraps);
+            onTraps &= onTraps - 1;
+            if ((NEIGHBORS[sq] & occupied[squares[sq] / TYPES]) == 0) {
+                int kind = remove(sq);
+                packed |= (long) ((kind << 6) | sq) << (count * 10);
+                count++;
+            }
+        }
+        return packed | ((long) count << 60);
+    }
+
+    private void pushUndo(int step, long captures) {
+        if (undoTop == undoSteps.length) {
+            int size = undoTop * 2;
+            undoSteps = Arrays.copyOf(undoSteps, size);
+            undoCaptures = Arrays.copyOf(undoCaptures, size);
+            undoStepsTaken = Arrays.copyOf(undoStepsTaken, size);
+        }
+        undoSteps[undoTop] = step;
+        undoCaptures[undoTop] = captures;
+        undoStepsTaken[undoTop] = stepsTaken;
+        undoTop++;
+    }
+
+    /**
+     * @return the position as a printable 8x8 diagram, rank 8 first
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                int k = squares[row * Board.SIZE + col];
+                sb.append(k == EMPTY ? '.' : pieceChar(k));
+            }
+            sb.append('\n');
+        }
+        return sb.append(sideToMove == GOLD ? "gold" : "silver").append(" to move, steps taken ").append(stepsTaken).toString();
+    }
+}
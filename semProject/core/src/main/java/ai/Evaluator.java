@@ -0,0 +1,252 @@
+package ai;
+
+import logic.Board;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Static evaluation of engine positions, in centipawn-like units from the point of view of the side to move.
+ * <p>The score is the material balance looked up in the {@link MaterialTable}, plus the gold total minus the silver
+ * total of: rabbit advancement, control of the four traps, centralisation of the strong pieces and a penalty for
+ * frozen pieces. The positional terms are scaled by the {@link #weights()} so they can be tuned without touching the
+ * code. Boards with more pieces than a legal army fall back to summing {@link #PIECE_VALUE}.</p>
+ */
+public class Evaluator {
+    private static final Logger log = LoggerFactory.getLogger(Evaluator.class);
+
+    /**
+     * Score of a won game; anything above {@link #WIN_THRESHOLD} is a forced win
+     */
+    public static final int WIN = 100_000;
+    public static final int WIN_THRESHOLD = WIN - 10_000;
+
+    public static final int W_RABBIT_ADVANCE = 0;
+    public static final int W_TRAP_CONTROL = 1;
+    public static final int W_CENTRALITY = 2;
+    public static final int W_FROZEN = 3;
+    public static final int WEIGHT_COUNT = 4;
+
+    /**
+     * Default positional weights, in percent of the raw feature value
+     */
+    public static final int[] DEFAULT_WEIGHTS = {100, 100, 100, 100};
+
+    /**
+     * Keys of the weights in a weights file, indexed by the {@code W_*} constants
+     */
+    public static final String[] WEIGHT_NAMES = {"rabbitAdvance", "trapControl", "centrality", "frozen"};
+
+    private static int[] startupWeights;
+
+    /**
+     * Material value per {@link FigureType} ordinal (ELEPHANT, CAMEL, HORSE, DOG, CAT, RABBIT), following the
+     * strengths used by the rules
+     */
+    static final int[] PIECE_VALUE = {1000, 700, 350, 450, 250, 100};
+
+    //Bonus per row a rabbit has advanced from its home row
+    private static final int[] RABBIT_ADVANCE = {0, 0, 5, 12, 25, 45, 80, 0};
+
+    private static final int[] TRAP_SQUARES = {18, 21, 42, 45};
+
+    private final int[] weights;
+    private final MaterialTable materialTable = MaterialTable.getDefault();
+
+    /**
+     * Creates an evaluator with the {@link #startupWeights()}
+     */
+    public Evaluator() {
+        this(startupWeights());
+    }
+
+    /**
+     * @param weights positional weights indexed by the {@code W_*} constants
+     */
+    public Evaluator(int[] weights) {
+        if (weights.length != WEIGHT_COUNT) {
+            throw new IllegalArgumentException("Expected " + WEIGHT_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Returns the weights read from the file named by the {@code game.weights} system property (default
+     * {@code evaluator.weights} in the working directory), as written by {@link Tuner}. The file is read on first
+     * use; without a readable file the weights are {@link #DEFAULT_WEIGHTS}.
+     *
+     * @return a copy of the startup weights
+     */
+    public static synchronized int[] startupWeights() {
+        if (startupWeights == null) {
+            startupWeights = DEFAULT_WEIGHTS;
+            Path path = Paths.get(System.getProperty("game.weights", "evaluator.weights"));
+            if (Files.isRegularFile(path)) {
+                try {
+                    startupWeights = loadWeights(path);
+                    log.info("Evaluation weights {} loaded from {}", Arrays.toString(startupWeights), path);
+                } catch (IOException | IllegalArgumentException ex) {
+                    log.warn("Cannot read evaluation weights {}: {}", path, ex.getMessage());
+                }
+            } else {
+                log.debug("No evaluation weights at {}", path);
+            }
+        }
+        return startupWeights.clone();
+    }
+
+    /**
+     * Reads a weights file: one {@code name=value} line per {@link #WEIGHT_NAMES} entry, {@code #} comments allowed.
+     * Weights missing from the file keep their {@link #DEFAULT_WEIGHTS} value.
+     *
+     * @param path weights file
+     * @return weights indexed by the {@code W_*} constants
+     * @throws IOException              if the file cannot be read
+     * @throws IllegalArgumentException if a key is unknown or a value is not an integer
+     */
+    public static int[] loadWeights(Path path) throws IOException {
+        Properties p = new Properties();
+        try (Reader reader = Files.newBufferedReader(path)) {
+            p.load(reader);
+        }
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        for (String key : p.stringPropertyNames()) {
+            int i = Arrays.asList(WEIGHT_NAMES).indexOf(key);
+            if (i < 0) throw new IllegalArgumentException("Unknown weight " + key);
+            try {
+                weights[i] = Integer.parseInt(p.getProperty(key).trim());
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Weight " + key + " is not an integer: " + p.getProperty(key));
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * Writes weights in the format read by {@link #loadWeights(Path)}.
+     *
+     * @param path    output file
+     * @param weights weights indexed by the {@code W_*} constants
+     * @param comment first comment line, or null
+     * @throws IOException if writing fails
+     */
+    public static void saveWeights(Path path, int[] weights, String comment) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path)) {
+            if (comment != null) writer.write("# " + comment + "\n");
+            for (int i = 0; i < WEIGHT_COUNT; i++) {
+                writer.write(WEIGHT_NAMES[i] + "=" + weights[i] + "\n");
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the positional weights
+     */
+    public int[] weights() {
+        return weights.clone();
+    }
+
+    /**
+     * Evaluates a position.
+     *
+     * @param b position to evaluate
+     * @return score from the point of view of the side to move
+     */
+    public int evaluate(EngineBoard b) {
+        int score = materialBalance(b);
+        score += positional(b, EngineBoard.GOLD) - positional(b, EngineBoard.SILVER);
+        return b.sideToMove() == EngineBoard.GOLD ? score : -score;
+    }
+
+    /**
+     * Computes the raw (unweighted) positional features of one side.
+     *
+     * @param b    position
+     * @param side {@link EngineBoard#GOLD} or {@link EngineBoard#SILVER}
+     * @return feature values indexed by the {@code W_*} constants
+     */
+    public int[] features(EngineBoard b, int side) {
+        int[] f = new int[WEIGHT_COUNT];
+        long rabbits = b.pieces(EngineBoard.kind(side, EngineBoard.RABBIT));
+        while (rabbits != 0) {
+            int sq = Long.numberOfTrailingZeros(rabbits);
+            rabbits &= rabbits - 1;
+            int row = sq / Board.SIZE;
+            f[W_RABBIT_ADVANCE] += RABBIT_ADVANCE[side == EngineBoard.GOLD ? Board.SIZE - 1 - row : row];
+        }
+
+        for (int trap : TRAP_SQUARES) {
+            long around = EngineBoard.NEIGHBORS[trap];
+            int own = strengthSum(b, around & b.occupied(side));
+            int enemy = strengthSum(b, around & b.occupied(1 - side));
+            f[W_TRAP_CONTROL] += 4 * (own - enemy);
+        }
+
+        long mine = b.occupied(side);
+        while (mine != 0) {
+            int sq = Long.numberOfTrailingZeros(mine);
+            mine &= mine - 1;
+            int kind = b.pieceAt(sq);
+            int type = kind % EngineBoard.TYPES;
+            if (type == FigureType.ELEPHANT.ordinal() || type == FigureType.CAMEL.ordinal()) {
+                int row = sq / Board.SIZE, col = sq % Board.SIZE;
+                int dist = Math.abs(2 * row - 7) + Math.abs(2 * col - 7);
+                f[W_CENTRALITY] -= 3 * dist;
+            }
+            if (b.isFrozen(sq)) {
+                f[W_FROZEN] -= PIECE_VALUE[type] / 10;
+            }
+        }
+        return f;
+    }
+
+    /**
+     * @return material balance from gold's point of view, as used by {@link #evaluate(EngineBoard)}
+     */
+    public int materialBalance(EngineBoard b) {
+        return b.hasLegalArmies()
+                ? materialTable.balance(b.materialKey(EngineBoard.GOLD), b.materialKey(EngineBoard.SILVER))
+                : material(b, EngineBoard.GOLD) - material(b, EngineBoard.SILVER);
+    }
+
+    /**
+     * @return material value of a side's pieces as the plain sum of {@link #PIECE_VALUE}, used to rank captures
+     */
+    public int material(EngineBoard b, int side) {
+        int sum = 0;
+        for (int type = 0; type < EngineBoard.TYPES; type++) {
+            sum += PIECE_VALUE[type] * Long.bitCount(b.pieces(EngineBoard.kind(side, type)));
+        }
+        return sum;
+    }
+
+    private int positional(EngineBoard b, int side) {
+        int[] f = features(b, side);
+        int sum = 0;
+        for (int i = 0; i < WEIGHT_COUNT; i++) sum += f[i] * weights[i] / 100;
+        return sum;
+    }
+
+    private static int strengthSum(EngineBoard b, long squares) {
+        int sum = 0;
+        while (squares != 0) {
+            sum += EngineBoard.strength(b.pieceAt(Long.numberOfTrailingZeros(squares)));
+            squares &= squares - 1;
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return "Evaluator" + Arrays.toString(weights);
+    }
+}
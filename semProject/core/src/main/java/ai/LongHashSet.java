@@ -0,0 +1,65 @@
+package ai;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open-addressing set of {@code long} keys (Zobrist hashes) without boxing.
+ * Linear probing, the table doubles when it is half full.
+ */
+class LongHashSet {
+    private long[] keys;
+    private boolean[] used;
+    private int size;
+
+    /**
+     * @param capacity initial number of slots, rounded up to a power of two
+     */
+    LongHashSet(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        keys = new long[cap];
+        used = new boolean[cap];
+    }
+
+    /**
+     * @return true if the key was not present before
+     */
+    boolean add(long key) {
+        if (2 * (size + 1) > keys.length) grow();
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (used[i]) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        used[i] = true;
+        keys[i] = key;
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        if (size == 0) return;
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        boolean[] oldUsed = used;
+        keys = new long[oldKeys.length * 2];
+        used = new boolean[oldKeys.length * 2];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) add(oldKeys[i]);
+        }
+    }
+
+    static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,139 @@
+package ai;
+
+import utils.FigureType;
+
+/**
+ * Precomputed material balance for every combination of the pieces both sides have left.
+ * <p>A side's material is described by its piece counts per {@link FigureType}, packed into a mixed-radix key
+ * ({@link #RADIX}) that {@link EngineBoard} keeps up to date as pieces are placed and captured. The table holds the
+ * balance from gold's point of view for every pair of keys, so scoring material is one array lookup.</p>
+ * <p>The values follow the HarLog formula: an officer is worth more the fewer enemy officers are stronger than it,
+ * and the rabbits are valued by the logarithm of rabbits times pieces, so each lost rabbit costs more than the one
+ * before. One early rabbit is worth about 100.</p>
+ */
+public final class MaterialTable {
+    /**
+     * Largest piece count per type ordinal in a legal army
+     */
+    static final int[] MAX_COUNT = new int[EngineBoard.TYPES];
+    /**
+     * Key increment of one piece per type ordinal
+     */
+    static final int[] RADIX = new int[EngineBoard.TYPES];
+    /**
+     * Number of distinct keys of one side
+     */
+    public static final int SIDE_KEYS;
+
+    //HarLog constants and the scale to evaluation units
+    private static final double Q = 1.447530126;
+    private static final double G = 0.6314442034;
+    private static final double SCALE = 800;
+
+    private static volatile MaterialTable defaultTable;
+
+    static {
+        int radix = 1;
+        for (FigureType t : FigureType.values()) {
+            MAX_COUNT[t.ordinal()] = t == FigureType.RABBIT ? 8
+                    : t == FigureType.ELEPHANT || t == FigureType.CAMEL ? 1 : 2;
+            RADIX[t.ordinal()] = radix;
+            radix *= MAX_COUNT[t.ordinal()] + 1;
+        }
+        SIDE_KEYS = radix;
+    }
+
+    private final int[] balance = new int[SIDE_KEYS * SIDE_KEYS];
+
+    private MaterialTable() {
+        int[] gold = new int[EngineBoard.TYPES];
+        int[] silver = new int[EngineBoard.TYPES];
+        for (int g = 0; g < SIDE_KEYS; g++) {
+            counts(g, gold);
+            for (int s = 0; s < SIDE_KEYS; s++) {
+                counts(s, silver);
+                balance[g * SIDE_KEYS + s] = (int) Math.round(SCALE * harlog(gold, silver));
+            }
+        }
+    }
+
+    /**
+     * @return the shared table, built on first use
+     */
+    public static MaterialTable getDefault() {
+        MaterialTable table = defaultTable;
+        if (table == null) {
+            synchronized (MaterialTable.class) {
+                if (defaultTable == null) defaultTable = new MaterialTable();
+                table = defaultTable;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @param goldKey   material key of gold
+     * @param silverKey material key of silver
+     * @return material balance from gold's point of view
+     */
+    public int balance(int goldKey, int silverKey) {
+        return balance[goldKey * SIDE_KEYS + silverKey];
+    }
+
+    /**
+     * Packs piece counts into a material key.
+     *
+     * @param counts pieces per type ordinal, within {@link #MAX_COUNT}
+     * @return key
+     */
+    public static int key(int[] counts) {
+        int key = 0;
+        for (int t = 0; t < EngineBoard.TYPES; t++) {
+            if (counts[t] < 0 || counts[t] > MAX_COUNT[t]) {
+                throw new IllegalArgumentException("Too many pieces of type " + FigureType.values()[t]);
+            }
+            key += counts[t] * RADIX[t];
+        }
+        return key;
+    }
+
+    /**
+     * Unpacks a material key.
+     *
+     * @param key material key
+     * @param out receives the piece counts per type ordinal
+     */
+    public static void counts(int key, int[] out) {
+        for (int t = 0; t < EngineBoard.TYPES; t++) {
+            out[t] = key / RADIX[t] % (MAX_COUNT[t] + 1);
+        }
+    }
+
+    /**
+     * HarLog material score of gold against silver.
+     */
+    static double harlog(int[] gold, int[] silver) {
+        return officers(gold, silver) - officers(silver, gold) + G * (rabbitTerm(gold) - rabbitTerm(silver));
+    }
+
+    private static double officers(int[] own, int[] enemy) {
+        double sum = 0;
+        for (FigureType t : FigureType.values()) {
+            if (t == FigureType.RABBIT || own[t.ordinal()] == 0) continue;
+            int stronger = 0;
+            for (FigureType u : FigureType.values()) {
+                if (u != FigureType.RABBIT && u.getStrength() > t.getStrength()) stronger += enemy[u.ordinal()];
+            }
+            sum += own[t.ordinal()] * (stronger == 0 ? 2 / Q : 1 / (Q + stronger));
+        }
+        return sum;
+    }
+
+    private static double rabbitTerm(int[] counts) {
+        int rabbits = counts[EngineBoard.RABBIT];
+        int pieces = 0;
+        for (int c : counts) pieces += c;
+        //Without rabbits the game is lost anyway; keep the value finite and below a single rabbit
+        return Math.log(Math.max(rabbits, 0.5) * Math.max(pieces, 1));
+    }
+}
@@ -0,0 +1,317 @@
+package ai;
+
+import figures.Figure;
+import logic.Board;
+import logic.Notation;
+import logic.Zobrist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Read-only opening book mapped into memory with {@link FileChannel#map}.
+ * <p>The book is a sorted table of Zobrist keys, each pointing to a list of weighted entries. An entry is either a turn
+ * ("Ra2n Rb2n Ra3e -") for game positions, or a setup ("ra8 rb8 ...") keyed by {@link #setupKey(Board, boolean)}.
+ * Nothing is loaded onto the heap on open; lookups binary-search the mapped index.</p>
+ * <p>A symmetric book (version 2) stores a position and its left-right mirror image once, under the smaller of their two
+ * hashes (see {@link Zobrist#canonical(long, long)}), with the entry texts written for the orientation whose hash is
+ * the key.
+ * {@link #pick(Board, boolean, Random)} and {@link #applySetup} mirror the texts back for the other orientation.</p>
+ *
+ * <pre>
+ * header : int magic, int version, int keyCount
+ * index  : keyCount x (long key, int dataOffset, int entryCount), sorted by key
+ * data   : per entry (int weight, short length, byte[length] UTF-8 text), sorted by weight descending
+ * </pre>
+ */
+public class OpeningBook {
+    private static final Logger log = LoggerFactory.getLogger(OpeningBook.class);
+
+    static final int MAGIC = 0x4152424B; // "ARBK"
+    static final int VERSION = 1;
+    static final int SYMMETRIC_VERSION = 2;
+    static final int HEADER_SIZE = 12;
+    static final int INDEX_RECORD_SIZE = 16;
+
+    /**
+     * Key used for silver setups when no setup was recorded against the exact gold setup
+     */
+    static final long ANY_SILVER_SETUP = Zobrist.SILVER_TO_MOVE ^ 0x5E7C0FFEEL;
+
+    private static OpeningBook defaultBook;
+    private static boolean defaultLoaded = false;
+
+    private final MappedByteBuffer buffer;
+    private final int keyCount;
+    private final boolean symmetric;
+
+    /**
+     * A single weighted book move or setup
+     */
+    public static class Entry {
+        public final String move;
+        public final int weight;
+
+        /**
+         * @param move   turn or setup text, tokens separated by spaces
+         * @param weight how often the entry was played in the source games
+         */
+        public Entry(String move, int weight) {
+            this.move = move;
+            this.weight = weight;
+        }
+
+        @Override
+        public String toString() {
+            return move + " (" + weight + ")";
+        }
+    }
+
+    private OpeningBook(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not an opening book file");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION && version != SYMMETRIC_VERSION) {
+            throw new IllegalArgumentException("Unsupported opening book version " + version);
+        }
+        this.symmetric = version == SYMMETRIC_VERSION;
+        this.keyCount = buffer.getInt(8);
+    }
+
+    /**
+     * Maps a book file into memory. The channel is closed right away, the mapping stays valid.
+     *
+     * @param path book file written by {@link OpeningBookBuilder}
+     * @return opened book
+     * @throws IOException if the file cannot be mapped
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            OpeningBook book = new OpeningBook(buffer);
+            log.info("Opening book {} mapped: {} positions", path, book.keyCount);
+            return book;
+        }
+    }
+
+    /**
+     * Returns the book configured by the {@code game.book} system property (default {@code arimaa.book} in the working
+     * directory). The file is mapped on first use.
+     *
+     * @return the default book, or null if there is none
+     */
+    public static synchronized OpeningBook getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            Path path = Paths.get(System.getProperty("game.book", "arimaa.book"));
+            if (Files.isRegularFile(path)) {
+                try {
+                    defaultBook = open(path);
+                } catch (IOException | IllegalArgumentException ex) {
+                    log.warn("Cannot open opening book {}: {}", path, ex.getMessage());
+                }
+            } else {
+                log.debug("No opening book at {}", path);
+            }
+        }
+        return defaultBook;
+    }
+
+    /**
+     * @return number of distinct positions in the book
+     */
+    public int size() {
+        return keyCount;
+    }
+
+    /**
+     * @return true if positions and their mirror images share entries
+     */
+    public boolean isSymmetric() {
+        return symmetric;
+    }
+
+    /**
+     * Computes the key under which setups are stored: the hash of the board the setup is placed on,
+     * with the placing side to move.
+     *
+     * @param board  board before the setup (empty for gold, gold pieces placed for silver)
+     * @param isGold side placing its pieces
+     * @return book key
+     */
+    public static long setupKey(Board board, boolean isGold) {
+        return board.getHash() ^ (isGold ? 0L : Zobrist.SILVER_TO_MOVE);
+    }
+
+    /**
+     * Looks up all entries stored for a position.
+     *
+     * @param key position hash
+     * @return entries sorted by weight descending, empty if the position is not in the book
+     */
+    public List<Entry> lookup(long key) {
+        int idx = find(key);
+        if (idx < 0) return List.of();
+        int record = HEADER_SIZE + idx * INDEX_RECORD_SIZE;
+        int offset = buffer.getInt(record + 8);
+        int count = buffer.getInt(record + 12);
+        List<Entry> entries = new ArrayList<>(count);
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset);
+        for (int i = 0; i < count; i++) {
+            int weight = data.getInt();
+            byte[] text = new byte[data.getShort()];
+            data.get(text);
+            entries.add(new Entry(new String(text, StandardCharsets.UTF_8), weight));
+        }
+        return entries;
+    }
+
+    /**
+     * Checks whether a position is stored as its mirror image in a symmetric book.
+     *
+     * @param board      position
+     * @param goldToMove side to move
+     * @return true if the entry texts of the position must be mirrored
+     */
+    static boolean flipped(Board board, boolean goldToMove) {
+        long side = goldToMove ? 0L : Zobrist.SILVER_TO_MOVE;
+        return (board.getMirrorHash() ^ side) < (board.getHash() ^ side);
+    }
+
+    /**
+     * @param board      position
+     * @param goldToMove side to move
+     * @param symmetric  whether the key is shared with the mirror image
+     * @return key of the position in a plain or symmetric book
+     */
+    static long positionKey(Board board, boolean goldToMove, boolean symmetric) {
+        long side = goldToMove ? 0L : Zobrist.SILVER_TO_MOVE;
+        long hash = board.getHash() ^ side;
+        return symmetric ? Zobrist.canonical(hash, board.getMirrorHash() ^ side) : hash;
+    }
+
+    /**
+     * Mirrors every token of an entry text, see {@link Notation#mirror(String)}.
+     */
+    static String mirrorText(String text) {
+        String[] tokens = text.split(" ");
+        for (int i = 0; i < tokens.length; i++) tokens[i] = Notation.mirror(tokens[i]);
+        return String.join(" ", tokens);
+    }
+
+    /**
+     * Picks a turn for a game position, in the orientation of the board. Works for plain and symmetric books.
+     *
+     * @param board      current position
+     * @param goldToMove side to move
+     * @param random     source of randomness
+     * @return chosen entry, or null if the position is not in the book
+     */
+    public Entry pick(Board board, boolean goldToMove, Random random) {
+        Entry e = pick(positionKey(board, goldToMove, symmetric), random);
+        return e != null && symmetric && flipped(board, goldToMove) ? new Entry(mirrorText(e.move), e.weight) : e;
+    }
+
+    /**
+     * Picks one entry at random, proportionally to the entry weights.
+     *
+     * @param key    position hash
+     * @param random source of randomness
+     * @return chosen entry, or null if the position is not in the book
+     */
+    public Entry pick(long key, Random random) {
+        List<Entry> entries = lookup(key);
+        if (entries.isEmpty()) return null;
+        long total = 0;
+        for (Entry e : entries) total += e.weight;
+        long r = (long) (random.nextDouble() * total);
+        for (Entry e : entries) {
+            r -= e.weight;
+            if (r < 0) return e;
+        }
+        return entries.get(0);
+    }
+
+    /**
+     * Places a book setup for the given side on the board. For silver, setups recorded against the exact gold
+     * setup are preferred, otherwise any recorded silver setup is used.
+     *
+     * @param board  board to place the pieces on
+     * @param isGold side to set up
+     * @param random source of randomness for the weighted choice
+     * @return true if a setup was found and placed, false if the board was left unchanged, also when the book
+     * setup is malformed
+     */
+    public boolean applySetup(Board board, boolean isGold, Random random) {
+        Entry e = pick(board, isGold, random);
+        if (e == null && !isGold) e = pick(ANY_SILVER_SETUP, random);
+        if (e == null) return false;
+        String[] tokens = e.move.split(" ");
+        int[] kinds = new int[tokens.length];
+        int[] squares = new int[tokens.length];
+        //Every token is checked before the first piece is placed
+        long used = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            String token = tokens[i];
+            kinds[i] = token.length() == 3 ? Notation.kind(token.charAt(0)) : -1;
+            if (kinds[i] < 0 || (kinds[i] < FigureType.values().length) != isGold) {
+                return rejectSetup(isGold, e.move, token);
+            }
+            try {
+                squares[i] = Notation.parseSquare(token, 1);
+            } catch (IllegalArgumentException ex) {
+                return rejectSetup(isGold, e.move, token);
+            }
+            //Gold sets up on rows 6 and 7, silver on rows 0 and 1
+            int row = squares[i] / Board.SIZE;
+            if ((isGold ? row < Board.SIZE - 2 : row >= 2) || (used & 1L << squares[i]) != 0) {
+                return rejectSetup(isGold, e.move, token);
+            }
+            used |= 1L << squares[i];
+        }
+        for (int i = 0; i < tokens.length; i++) {
+            FigureType type = FigureType.values()[kinds[i] % FigureType.values().length];
+            board.setFigureAt(squares[i] / Board.SIZE, squares[i] % Board.SIZE, new Figure(type, isGold));
+        }
+        log.info("Book setup for {}: {}", isGold ? "gold" : "silver", e.move);
+        return true;
+    }
+
+    private static boolean rejectSetup(boolean isGold, String setup, String token) {
+        log.warn("Book setup for {} rejected at {}: {}", isGold ? "gold" : "silver", token, setup);
+        return false;
+    }
+
+    /**
+     * Binary search over the sorted key index.
+     *
+     * @return index record number or -1 if absent
+     */
+    private int find(long key) {
+        int lo = 0, hi = keyCount - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            long k = buffer.getLong(HEADER_SIZE + mid * INDEX_RECORD_SIZE);
+            if (k < key) lo = mid + 1;
+            else if (k > key) hi = mid - 1;
+            else return mid;
+        }
+        return -1;
+    }
+}
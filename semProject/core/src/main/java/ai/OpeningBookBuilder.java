@@ -0,0 +1,190 @@
+package ai;
+
+import logic.Board;
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.GameMode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Compiles an {@link OpeningBook} from a directory of game records written by {@link Game#saveHistoryToFile(String)}.
+ * <p>Every game is replayed with the regular rules; the position hash before each of the first turns is recorded
+ * together with the turn played, and setups are recorded against the board they were placed on.
+ * Entry weights are the number of games in which the entry was played. In symmetric mode mirrored positions are
+ * merged, see {@link OpeningBook}.</p>
+ */
+public class OpeningBookBuilder {
+    private static final Logger log = LoggerFactory.getLogger(OpeningBookBuilder.class);
+
+    public static final int DEFAULT_MAX_TURNS = 12;
+
+    private final int maxTurns;
+    private final Map<Long, Map<String, Integer>> positions = new HashMap<>();
+    private int games = 0;
+    private boolean symmetric;
+
+    /**
+     * @param maxTurns number of turn lines (after the setups) recorded per game
+     */
+    public OpeningBookBuilder(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * Writes a symmetric book in which a position and its mirror image share their entries (off by default).
+     */
+    public void setSymmetric(boolean symmetric) {
+        this.symmetric = symmetric;
+    }
+
+    /**
+     * Adds all {@code .txt} game records found in a directory.
+     *
+     * @param dir directory with saved games
+     * @throws IOException if the directory cannot be listed or a file cannot be read
+     */
+    public void addDirectory(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> s = Files.list(dir)) {
+            files = s.filter(p -> p.toString().endsWith(".txt")).sorted().toList();
+        }
+        for (Path file : files) {
+            addGame(Files.readAllLines(file), file.toString());
+        }
+    }
+
+    /**
+     * Replays a single game record and adds its setups and first turns to the book.
+     * Replay stops at the first illegal or malformed turn, the turns before it are kept.
+     *
+     * @param lines  lines of the game record
+     * @param source name used in log messages
+     */
+    public void addGame(List<String> lines, String source) {
+        Game game = new Game(GameMode.CLASSIC);
+        int turns = 0;
+        boolean goldSetupSeen = false;
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty()) continue;
+            String[] parts = line.split("\\s+");
+
+            if (line.startsWith("1g") || line.startsWith("1s")) {
+                boolean isGold = line.startsWith("1g");
+                String setup = String.join(" ", Arrays.asList(parts).subList(1, parts.length));
+                add(game.getBoard(), isGold, setup);
+                if (!isGold && goldSetupSeen) add(OpeningBook.ANY_SILVER_SETUP, setup);
+                game.addSetupMove(Arrays.asList(parts).subList(1, parts.length), isGold);
+                goldSetupSeen |= isGold;
+                continue;
+            }
+            if (!line.matches("^\\d+[gs].*") || turns >= maxTurns) break;
+
+            boolean isGoldLine = parts[0].endsWith("g");
+            if (game.getCurrentPlayer().isGold() != isGoldLine) {
+                game.switchPlayer();
+            }
+            long key = OpeningBook.positionKey(game.getBoard(), isGoldLine, symmetric);
+            boolean flip = symmetric && OpeningBook.flipped(game.getBoard(), isGoldLine);
+            List<String> steps = new ArrayList<>();
+            try {
+                for (int i = 1; i < parts.length; i++) {
+                    String token = parts[i];
+                    if (token.equals("-") || token.endsWith("x")) continue;
+                    game.playToken(token);
+                    steps.add(token);
+                }
+            } catch (IllegalArgumentException ex) {
+                log.warn("{}: stopping at turn {}: {}", source, parts[0], ex.getMessage());
+                break;
+            }
+            if (!steps.isEmpty()) {
+                String turn = String.join(" ", steps);
+                add(key, flip ? OpeningBook.mirrorText(turn) : turn);
+            }
+            game.switchPlayer();
+            turns++;
+        }
+        games++;
+    }
+
+    private void add(Board board, boolean goldToMove, String move) {
+        long key = OpeningBook.positionKey(board, goldToMove, symmetric);
+        add(key, symmetric && OpeningBook.flipped(board, goldToMove) ? OpeningBook.mirrorText(move) : move);
+    }
+
+    private void add(long key, String move) {
+        positions.computeIfAbsent(key, k -> new HashMap<>()).merge(move, 1, Integer::sum);
+    }
+
+    /**
+     * Writes the collected positions as a book file.
+     *
+     * @param out output path
+     * @throws IOException if writing fails
+     */
+    public void write(Path out) throws IOException {
+        TreeMap<Long, List<OpeningBook.Entry>> sorted = new TreeMap<>();
+        for (Map.Entry<Long, Map<String, Integer>> p : positions.entrySet()) {
+            List<OpeningBook.Entry> entries = new ArrayList<>();
+            p.getValue().forEach((move, weight) -> entries.add(new OpeningBook.Entry(move, weight)));
+            entries.sort((a, b) -> b.weight != a.weight ? Integer.compare(b.weight, a.weight) : a.move.compareTo(b.move));
+            sorted.put(p.getKey(), entries);
+        }
+
+        try (DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(out)))) {
+            dos.writeInt(OpeningBook.MAGIC);
+            dos.writeInt(symmetric ? OpeningBook.SYMMETRIC_VERSION : OpeningBook.VERSION);
+            dos.writeInt(sorted.size());
+
+            int offset = OpeningBook.HEADER_SIZE + sorted.size() * OpeningBook.INDEX_RECORD_SIZE;
+            for (Map.Entry<Long, List<OpeningBook.Entry>> p : sorted.entrySet()) {
+                dos.writeLong(p.getKey());
+                dos.writeInt(offset);
+                dos.writeInt(p.getValue().size());
+                for (OpeningBook.Entry e : p.getValue()) {
+                    offset += 6 + e.move.getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+            for (List<OpeningBook.Entry> entries : sorted.values()) {
+                for (OpeningBook.Entry e : entries) {
+                    byte[] text = e.move.getBytes(StandardCharsets.UTF_8);
+                    dos.writeInt(e.weight);
+                    dos.writeShort(text.length);
+                    dos.write(text);
+                }
+            }
+        }
+        log.info("Opening book written to {}: {} games, {} positions", out, games, sorted.size());
+    }
+
+    /**
+     * Command line entry point: {@code OpeningBookBuilder <gamesDir> <out.book> [maxTurns] [symmetric]}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBookBuilder <gamesDir> <out.book> [maxTurns] [symmetric]");
+            return;
+        }
+        int maxTurns = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_MAX_TURNS;
+        OpeningBookBuilder builder = new OpeningBookBuilder(maxTurns);
+        builder.setSymmetric(args.length > 3 && args[3].equals("symmetric"));
+        builder.addDirectory(Paths.get(args[0]));
+        builder.write(Paths.get(args[1]));
+    }
+}
@@ -0,0 +1,269 @@
+package ai;
+
+import logic.Board;
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Move generation counter ("perft") for validating and benchmarking {@link EngineBoard} and {@link TurnGenerator}.
+ * <p>Step perft walks single steps: every legal step, plus ending the turn once at least one step was taken and the
+ * position changed. Turn perft walks the distinct turns of {@link TurnGenerator}. A node ending the game is not
+ * expanded. Both counts can run on one thread or split over the fork-join pool; they must agree.</p>
+ * <p>{@link #verify(int)} compares the generated steps of every node with {@link Game#legalStepTokens()}, which uses
+ * the rule checks of the game itself.</p>
+ */
+public class Perft {
+    private static final Logger log = LoggerFactory.getLogger(Perft.class);
+
+    //Forked subtrees below this depth are counted sequentially
+    private static final int SPLIT_DEPTH = 3;
+
+    private final EngineBoard root;
+
+    /**
+     * @param root position to count from, not modified
+     */
+    public Perft(EngineBoard root) {
+        this.root = new EngineBoard(root);
+    }
+
+    /**
+     * Counts step sequences of the given length on the calling thread.
+     *
+     * @param depth number of steps and turn ends
+     * @return leaf count
+     */
+    public long steps(int depth) {
+        EngineBoard b = new EngineBoard(root);
+        return countSteps(b, depth, b.hash(), new int[depth + 1][EngineBoard.MAX_STEPS]);
+    }
+
+    /**
+     * Counts step sequences of the given length on the common fork-join pool.
+     *
+     * @param depth number of steps and turn ends
+     * @return leaf count, equal to {@link #steps(int)}
+     */
+    public long stepsParallel(int depth) {
+        return ForkJoinPool.commonPool().invoke(new StepTask(new EngineBoard(root), depth, root.hash()));
+    }
+
+    /**
+     * Counts distinct turn sequences of the given length on the calling thread.
+     *
+     * @param depth number of turns
+     * @return leaf count
+     */
+    public long turns(int depth) {
+        return countTurns(new EngineBoard(root), depth, new TurnGenerator());
+    }
+
+    /**
+     * Counts distinct turn sequences of the given length, splitting the root turns over the fork-join pool.
+     *
+     * @param depth number of turns
+     * @return leaf count, equal to {@link #turns(int)}
+     */
+    public long turnsParallel(int depth) {
+        if (depth == 0) return 1;
+        List<Turn> turns = new TurnGenerator().generate(new EngineBoard(root));
+        return ForkJoinPool.commonPool().submit(() -> turns.parallelStream().mapToLong(t -> {
+            EngineBoard b = new EngineBoard(root);
+            t.play(b);
+            return b.winner() != EngineBoard.NONE ? (depth == 1 ? 1 : 0) : countTurns(b, depth - 1, new TurnGenerator());
+        }).sum()).join();
+    }
+
+    /**
+     * Compares the steps generated at every node up to the given depth with the game's own rule checks.
+     *
+     * @param depth number of steps and turn ends to walk
+     * @return number of nodes whose step lists differ
+     */
+    public int verify(int depth) {
+        EngineBoard b = new EngineBoard(root);
+        return verify(b, depth, b.hash());
+    }
+
+    private int verify(EngineBoard b, int depth, long turnStart) {
+        int[] buf = new int[EngineBoard.MAX_STEPS];
+        int n = b.generateSteps(buf);
+        Set<String> engine = new HashSet<>();
+        for (int i = 0; i < n; i++) engine.add(b.stepToString(buf[i]).substring(1));
+
+        //Same position in the game, then drop the steps that do not fit into the rest of the turn
+        Game game = new Game(GameMode.CLASSIC, b.toBoard());
+        if (b.sideToMove() == EngineBoard.SILVER) game.switchPlayer();
+        Set<String> rules = new HashSet<>();
+        boolean twoSteps = b.stepsTaken() + 2 <= Game.MAX_TURNS_STEPS;
+        if (b.stepsTaken() < Game.MAX_TURNS_STEPS) {
+            for (String token : game.legalStepTokens()) {
+                boolean pushPull = token.contains(">") || token.contains("<");
+                if (!pushPull || twoSteps) rules.add(token.substring(1));
+            }
+        }
+
+        int mismatches = 0;
+        if (!engine.equals(rules)) {
+            mismatches++;
+            Set<String> missing = new HashSet<>(rules);
+            missing.removeAll(engine);
+            Set<String> extra = new HashSet<>(engine);
+            extra.removeAll(rules);
+            log.warn("Step mismatch, missing {} extra {} in position\n{}", missing, extra, b);
+        }
+        if (depth <= 1) return mismatches;
+
+        for (int i = 0; i < n; i++) {
+            b.makeStep(buf[i]);
+            mismatches += verify(b, depth - 1, turnStart);
+            b.undo();
+        }
+        if (b.stepsTaken() > 0 && b.hash() != turnStart) {
+            b.endTurn();
+            if (b.winner() == EngineBoard.NONE) mismatches += verify(b, depth - 1, b.hash());
+            b.undo();
+        }
+        return mismatches;
+    }
+
+    private static long countSteps(EngineBoard b, int depth, long turnStart, int[][] buffers) {
+        if (depth == 0) return 1;
+        int[] buf = buffers[depth];
+        int n = b.generateSteps(buf);
+        if (depth == 1) {
+            return n + (b.stepsTaken() > 0 && b.hash() != turnStart ? 1 : 0);
+        }
+        long count = 0;
+        for (int i = 0; i < n; i++) {
+            b.makeStep(buf[i]);
+            count += countSteps(b, depth - 1, turnStart, buffers);
+            b.undo();
+        }
+        if (b.stepsTaken() > 0 && b.hash() != turnStart) {
+            b.endTurn();
+            if (b.winner() == EngineBoard.NONE) count += countSteps(b, depth - 1, b.hash(), buffers);
+            b.undo();
+        }
+        return count;
+    }
+
+    private static long countTurns(EngineBoard b, int depth, TurnGenerator generator) {
+        if (depth == 0) return 1;
+        List<Turn> turns = generator.generate(b);
+        if (depth == 1) return turns.size();
+        long count = 0;
+        for (Turn t : turns) {
+            t.play(b);
+            if (b.winner() == EngineBoard.NONE) count += countTurns(b, depth - 1, generator);
+            t.undo(b);
+        }
+        return count;
+    }
+
+    /**
+     * Counts one subtree of the step perft, forking the children while the remaining depth is large.
+     */
+    @SuppressWarnings("serial")
+    private static class StepTask extends RecursiveTask<Long> {
+        private final EngineBoard b;
+        private final int depth;
+        private final long turnStart;
+
+        StepTask(EngineBoard b, int depth, long turnStart) {
+            this.b = b;
+            this.depth = depth;
+            this.turnStart = turnStart;
+        }
+
+        @Override
+        protected Long compute() {
+            if (depth <= SPLIT_DEPTH) {
+                return countSteps(b, depth, turnStart, new int[depth + 1][EngineBoard.MAX_STEPS]);
+            }
+            int[] buf = new int[EngineBoard.MAX_STEPS];
+            int n = b.generateSteps(buf);
+            List<StepTask> tasks = new ArrayList<>(n + 1);
+            for (int i = 0; i < n; i++) {
+                EngineBoard child = new EngineBoard(b);
+                child.makeStep(buf[i]);
+                tasks.add(new StepTask(child, depth - 1, turnStart));
+            }
+            if (b.stepsTaken() > 0 && b.hash() != turnStart) {
+                EngineBoard child = new EngineBoard(b);
+                child.endTurn();
+                if (child.winner() == EngineBoard.NONE) tasks.add(new StepTask(child, depth - 1, child.hash()));
+            }
+            long count = 0;
+            for (StepTask t : invokeAll(tasks)) count += t.join();
+            return count;
+        }
+    }
+
+    /**
+     * Command line entry point: {@code Perft <depth> [steps|turns|verify] [savedGame.txt]}.
+     * Without a game file the count starts from a fixed symmetric setup with gold to move.
+     * Prints the count of the single-threaded and the parallel run with their speed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Perft <depth> [steps|turns|verify] [savedGame.txt]");
+            return;
+        }
+        int depth = Integer.parseInt(args[0]);
+        String mode = args.length > 1 ? args[1] : "steps";
+        EngineBoard board = args.length > 2
+                ? EngineBoard.from(Game.loadFromFile(args[2], GameMode.CLASSIC))
+                : startPosition();
+        //A loaded game stops after the last recorded turn; count from the next one
+        if (board.stepsTaken() == Game.MAX_TURNS_STEPS) board.endTurn();
+        Perft perft = new Perft(board);
+        System.out.println(board);
+
+        if (mode.equals("verify")) {
+            int mismatches = perft.verify(depth);
+            System.out.println(mismatches == 0 ? "OK: steps match the game rules" : mismatches + " nodes differ");
+            return;
+        }
+        boolean turns = mode.equals("turns");
+        long start = System.nanoTime();
+        long single = turns ? perft.turns(depth) : perft.steps(depth);
+        long singleNs = System.nanoTime() - start;
+        start = System.nanoTime();
+        long parallel = turns ? perft.turnsParallel(depth) : perft.stepsParallel(depth);
+        long parallelNs = System.nanoTime() - start;
+
+        System.out.printf("%s perft(%d) = %d, 1 thread: %.3f s (%.0f nodes/s)%n", mode, depth, single,
+                singleNs / 1e9, single * 1e9 / Math.max(1, singleNs));
+        System.out.printf("%s perft(%d) = %d, %d threads: %.3f s (%.0f nodes/s)%n", mode, depth, parallel,
+                ForkJoinPool.getCommonPoolParallelism(), parallelNs / 1e9, parallel * 1e9 / Math.max(1, parallelNs));
+        if (single != parallel) System.out.println("ERROR: parallel count differs");
+    }
+
+    /**
+     * @return a fixed setup (gold and its mirror for silver) with gold to move
+     */
+    static EngineBoard startPosition() {
+        EngineBoard b = new EngineBoard();
+        FigureType[] back = {FigureType.HORSE, FigureType.DOG, FigureType.CAT, FigureType.CAMEL,
+                FigureType.ELEPHANT, FigureType.CAT, FigureType.DOG, FigureType.HORSE};
+        for (int col = 0; col < Board.SIZE; col++) {
+            b.put(EngineBoard.kind(EngineBoard.GOLD, back[col].ordinal()), 6 * Board.SIZE + col);
+            b.put(EngineBoard.kind(EngineBoard.GOLD, EngineBoard.RABBIT), 7 * Board.SIZE + col);
+            b.put(EngineBoard.kind(EngineBoard.SILVER, back[col].ordinal()), Board.SIZE + col);
+            b.put(EngineBoard.kind(EngineBoard.SILVER, EngineBoard.RABBIT), col);
+        }
+        return b;
+    }
+}
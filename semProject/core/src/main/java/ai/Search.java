@@ -0,0 +1,771 @@
+package ai;
+
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import utils.LongCountMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Iterative-deepening alpha-beta (negamax) search over whole turns.
+ * <p>Each node generates the distinct turns of the side to move with {@link TurnGenerator}; a turn that wins or
+ * loses the game at its end is scored immediately, an immobilised side loses. Leaves are scored by the
+ * {@link Tablebase} when one covers the position, otherwise by the {@link Evaluator}. Results are cached in a
+ * {@link TranspositionTable} whose best turn is searched first.</p>
+ * <p>At depth 0 a quiescence search continues with capturing and goal-reaching turns while {@link Tactics} detects
+ * such a threat, at most {@link #QS_MAX_PLY} turns deep and {@link #QS_MAX_TURNS} turns per node; the side to move
+ * may always stand pat on the static score.</p>
+ * <p>The node-saving techniques are {@link Feature}s that can be switched off one by one: principal variation search
+ * with null-window re-searches, aspiration windows at the root, late-move reductions of quiet, low-ordered turns and
+ * null-move pruning (the side to move passes), which is skipped where zugzwang or a goal threat makes it unsafe.
+ * {@link #statistics()} counts what each of them did.</p>
+ * <p>{@link #analyze} scores the best few root turns exactly instead of one (multi-PV) for game review; the principal
+ * variations of all lines are read back from the shared transposition table.</p>
+ * <p>A Search instance is single-threaded; {@link #stop()} may be called from another thread.</p>
+ */
+public class Search {
+    private static final Logger log = LoggerFactory.getLogger(Search.class);
+
+    /**
+     * Optional search features, which can be switched off to measure their effect
+     */
+    public enum Feature {
+        /**
+         * Extend leaves with capturing and goal-reaching turns
+         */
+        QUIESCENCE,
+        /**
+         * Search all but the first turn of a node with a null window, re-search when one beats alpha
+         */
+        PVS,
+        /**
+         * Start each root iteration with a window around the previous score, widen it when the score falls outside
+         */
+        ASPIRATION,
+        /**
+         * Search quiet turns late in the order one turn shallower, re-search when one beats alpha
+         */
+        LMR,
+        /**
+         * Let the side to move pass at reduced depth; if that still fails high, cut the node off
+         */
+        NULL_MOVE
+    }
+
+    /**
+     * Counters of the last search.
+     */
+    public static class Statistics {
+        public final long nodes;
+        public final long quiescenceNodes;
+        public final long pvsResearches;
+        public final long aspirationFailures;
+        public final long lmrReductions;
+        public final long lmrResearches;
+        public final long nullMoveTries;
+        public final long nullMoveCutoffs;
+
+        public Statistics(long nodes, long quiescenceNodes, long pvsResearches, long aspirationFailures,
+                          long lmrReductions, long lmrResearches, long nullMoveTries, long nullMoveCutoffs) {
+            this.nodes = nodes;
+            this.quiescenceNodes = quiescenceNodes;
+            this.pvsResearches = pvsResearches;
+            this.aspirationFailures = aspirationFailures;
+            this.lmrReductions = lmrReductions;
+            this.lmrResearches = lmrResearches;
+            this.nullMoveTries = nullMoveTries;
+            this.nullMoveCutoffs = nullMoveCutoffs;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("nodes=%d qnodes=%d pvsResearches=%d aspirationFailures=%d lmr=%d/%d null=%d/%d",
+                    nodes, quiescenceNodes, pvsResearches, aspirationFailures, lmrResearches, lmrReductions,
+                    nullMoveCutoffs, nullMoveTries);
+        }
+    }
+
+    public static final int INFINITY = Evaluator.WIN + 1;
+
+    /**
+     * Score of a tablebase win before subtracting its distance; below the mate range, above any evaluation
+     */
+    static final int TB_WIN = Evaluator.WIN_THRESHOLD - 1000;
+
+    private static final int CHECK_INTERVAL = 255;
+
+    /**
+     * Maximum number of turns the quiescence search adds after the nominal depth
+     */
+    public static final int QS_MAX_PLY = 2;
+    /**
+     * Maximum number of tactical turns searched per quiescence node, the largest material gains first
+     */
+    public static final int QS_MAX_TURNS = 6;
+
+    /**
+     * Half width of the root aspiration window
+     */
+    public static final int ASPIRATION_WINDOW = 150;
+    //Late-move reductions start at this remaining depth and this position in the turn order
+    private static final int LMR_MIN_DEPTH = 2;
+    private static final int LMR_MIN_INDEX = 6;
+    //Null-move pruning: extra depth reduction, and non-rabbit pieces the side to move needs to avoid zugzwang
+    private static final int NULL_REDUCTION = 1;
+    private static final int NULL_MIN_PIECES = 3;
+
+    //Returned by searchTurn for a turn that repeats a position too often
+    private static final int ILLEGAL = Integer.MIN_VALUE;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable tt;
+    private final TurnGenerator generator = new TurnGenerator();
+    private Tablebase tablebase;
+    private Consumer<SearchResult> listener;
+    private LongCountMap positions = new LongCountMap();
+    private final EnumSet<Feature> features = EnumSet.allOf(Feature.class);
+    private boolean symmetricHashing;
+
+    private long nodes;
+    private int rootScore;
+    private long quiescenceNodes;
+    private long pvsResearches;
+    private long aspirationFailures;
+    private long lmrReductions;
+    private long lmrResearches;
+    private long nullMoveTries;
+    private long nullMoveCutoffs;
+    private long deadline;
+    private long maxNodes;
+    private boolean aborted;
+    //Stop flag of the running search, owned by its caller
+    private volatile AtomicBoolean stopRequested = new AtomicBoolean();
+
+    /**
+     * Creates a search with a 2^20 entry transposition table.
+     *
+     * @param evaluator static evaluation for the leaves
+     */
+    public Search(Evaluator evaluator) {
+        this(evaluator, 20);
+    }
+
+    /**
+     * @param evaluator  static evaluation for the leaves
+     * @param ttSizeLog2 log2 of the transposition table entries
+     */
+    public Search(Evaluator evaluator, int ttSizeLog2) {
+        this.evaluator = evaluator;
+        this.tt = new TranspositionTable(ttSizeLog2);
+    }
+
+    /**
+     * Sets the tablebase probed at the leaves (null to disable).
+     */
+    public void setTablebase(Tablebase tablebase) {
+        this.tablebase = tablebase;
+    }
+
+    /**
+     * Sets the end-of-turn positions of the game so far. A turn reaching a position for the
+     * {@link logic.Game#MAX_REPETITIONS}th time is illegal, a position seen before is scored as a draw.
+     * The search adds the positions of its current line to the map and removes them again before returning.
+     *
+     * @param positions occurrence counts by position hash (including the side to move), null for none
+     */
+    public void setHistory(LongCountMap positions) {
+        this.positions = positions == null ? new LongCountMap() : positions;
+    }
+
+    /**
+     * Keys the transposition table by {@link EngineBoard#canonicalHash()} (off by default), so a position and its
+     * left-right mirror image share one entry. Stored scores apply to both; the stored best turn only to the
+     * orientation it was found in.
+     */
+    public void setSymmetricHashing(boolean symmetricHashing) {
+        this.symmetricHashing = symmetricHashing;
+    }
+
+    /**
+     * Enables or disables an optional search feature; all are enabled by default.
+     */
+    public void setEnabled(Feature feature, boolean enabled) {
+        if (enabled) features.add(feature);
+        else features.remove(feature);
+    }
+
+    /**
+     * @return true if the feature is enabled
+     */
+    public boolean isEnabled(Feature feature) {
+        return features.contains(feature);
+    }
+
+    /**
+     * Sets a listener called after every completed iteration with the best turn so far (null to disable).
+     * It runs on the searching thread.
+     */
+    public void setListener(Consumer<SearchResult> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Asks a running search to return as soon as possible. A search that has not started yet is not affected; pass
+     * a stop flag to {@link #search(EngineBoard, SearchLimits, AtomicBoolean)} to stop that one too.
+     */
+    public void stop() {
+        stopRequested.set(true);
+    }
+
+    /**
+     * Searches the best turn for the side to move.
+     *
+     * @param root   position at the start of a turn, restored on return
+     * @param limits depth, node and time limits
+     * @return best turn and statistics
+     */
+    public SearchResult search(EngineBoard root, SearchLimits limits) {
+        return search(root, limits, new AtomicBoolean());
+    }
+
+    /**
+     * Searches the best turn until the limits are reached or {@code stop} is set, even if it was set before the
+     * search started.
+     *
+     * @param root   position at the start of a turn, restored on return
+     * @param limits depth, node and time limits
+     * @param stop   flag another thread sets to end the search
+     * @return best turn and statistics
+     */
+    public SearchResult search(EngineBoard root, SearchLimits limits, AtomicBoolean stop) {
+        long start = System.currentTimeMillis();
+        int maxDepth = begin(start, limits, stop);
+
+        List<Turn> turns = rootTurns(root);
+        if (turns.isEmpty()) {
+            return new SearchResult(null, null, -Evaluator.WIN, 0, 1, System.currentTimeMillis() - start);
+        }
+        int[] order = new int[turns.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+
+        int bestIdx = 0;
+        int bestScore = -INFINITY;
+        int completedDepth = 0;
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            int alpha = -INFINITY;
+            int beta = INFINITY;
+            if (features.contains(Feature.ASPIRATION) && depth > 1 && Math.abs(bestScore) < Evaluator.WIN_THRESHOLD) {
+                alpha = bestScore - ASPIRATION_WINDOW;
+                beta = bestScore + ASPIRATION_WINDOW;
+            }
+            int iterationBest;
+            while (true) {
+                iterationBest = searchRoot(root, turns, order, depth, alpha, beta);
+                if (aborted) break;
+                if (rootScore <= alpha && alpha > -INFINITY) {
+                    alpha = -INFINITY;
+                } else if (rootScore >= beta && beta < INFINITY) {
+                    beta = INFINITY;
+                } else {
+                    break;
+                }
+                aspirationFailures++;
+            }
+            if (aborted && iterationBest < 0) break;
+            if (iterationBest >= 0) {
+                //Keep the best turn first for the next iteration
+                int idx = order[iterationBest];
+                System.arraycopy(order, 0, order, 1, iterationBest);
+                order[0] = idx;
+                bestIdx = idx;
+                bestScore = rootScore;
+            }
+            if (aborted) break;
+            completedDepth = depth;
+            log.debug("Depth {} best {} score {} nodes {}", depth, bestIdx, bestScore, nodes);
+            if (listener != null) {
+                listener.accept(result(root, turns.get(bestIdx), bestScore, depth, start));
+            }
+            if (Math.abs(bestScore) > Evaluator.WIN_THRESHOLD) break;
+        }
+
+        SearchResult result = result(root, turns.get(bestIdx), bestScore, completedDepth, start);
+        log.debug("Search finished: {}", result);
+        return result;
+    }
+
+    /**
+     * Searches the root turns in the given order within a window.
+     *
+     * @return position in {@code order} of the best turn scoring above alpha, or -1; its score is left in
+     * {@link #rootScore} (alpha if none)
+     */
+    private int searchRoot(EngineBoard root, List<Turn> turns, int[] order, int depth, int alpha, int beta) {
+        int best = -1;
+        rootScore = alpha;
+        for (int i = 0; i < order.length; i++) {
+            Turn t = turns.get(order[i]);
+            int score = i == 0 ? searchTurn(root, t, depth, -beta, -alpha, 0)
+                    : searchLate(root, t, i, -1, depth, alpha, beta, 0);
+            if (aborted) break;
+            if (score > alpha) {
+                alpha = score;
+                best = i;
+                rootScore = score;
+                if (alpha >= beta) break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Scores the best root turns exactly (multi-PV analysis).
+     * <p>Each iteration searches the root turns in the order of the previous one; a turn only has to beat the
+     * currently {@code lines}-th best score to be scored exactly, the others are cut off. All lines share the
+     * transposition table, which also supplies their principal variations.</p>
+     *
+     * @param root     position at the start of a turn, restored on return
+     * @param limits   depth, node and time limits
+     * @param lines    number of turns to score
+     * @param progress called after every completed iteration with the current lines (null for none)
+     * @return up to {@code lines} results, best first; empty if the side to move has no legal turn
+     */
+    public List<SearchResult> analyze(EngineBoard root, SearchLimits limits, int lines,
+                                      Consumer<List<SearchResult>> progress) {
+        if (lines < 1) {
+            throw new IllegalArgumentException("At least one line must be analysed");
+        }
+        long start = System.currentTimeMillis();
+        int maxDepth = begin(start, limits, new AtomicBoolean());
+        List<Turn> turns = rootTurns(root);
+        int n = turns.size();
+        lines = Math.min(lines, n);
+
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) order[i] = i;
+        int[] scores = new int[n];
+        List<SearchResult> results = List.of();
+        for (int depth = 1; depth <= maxDepth && n > 0; depth++) {
+            //Exact scores of this iteration, best first
+            int[] top = new int[lines];
+            int found = 0;
+            int searched = 0;
+            for (int i = 0; i < n; i++) {
+                int floor = found < lines ? -INFINITY : top[lines - 1];
+                int score = searchTurn(root, turns.get(order[i]), depth, -INFINITY, -floor, 0);
+                if (aborted) break;
+                scores[order[i]] = score;
+                searched++;
+                if (score > floor) {
+                    int j = Math.min(found, lines - 1);
+                    while (j > 0 && top[j - 1] < score) {
+                        top[j] = top[j - 1];
+                        j--;
+                    }
+                    top[j] = score;
+                    if (found < lines) found++;
+                }
+            }
+            if (searched == 0) break;
+
+            //Searched turns by score, the rest keep their previous order behind them
+            long[] keyed = new long[searched];
+            for (int i = 0; i < searched; i++) {
+                keyed[i] = ((long) -scores[order[i]] << 32) | i;
+            }
+            Arrays.sort(keyed);
+            int[] sorted = order.clone();
+            for (int i = 0; i < searched; i++) sorted[i] = order[(int) keyed[i]];
+            order = sorted;
+
+            if (aborted && !results.isEmpty()) break;
+            int completed = aborted ? depth - 1 : depth;
+            List<SearchResult> current = new ArrayList<>(found);
+            for (int i = 0; i < Math.min(found, searched); i++) {
+                current.add(result(root, turns.get(order[i]), scores[order[i]], completed, start));
+            }
+            results = List.copyOf(current);
+            if (aborted) break;
+            log.debug("Depth {} lines {} nodes {}", depth, results.size(), nodes);
+            if (progress != null) progress.accept(results);
+            if (Math.abs(top[0]) > Evaluator.WIN_THRESHOLD) break;
+        }
+        return results;
+    }
+
+    /**
+     * Resets the counters and limits for a new search.
+     *
+     * @param stop stop flag of the search; it is not cleared, so a stop requested before the start is kept
+     * @return maximum depth
+     */
+    private int begin(long start, SearchLimits limits, AtomicBoolean stop) {
+        nodes = 0;
+        quiescenceNodes = 0;
+        pvsResearches = 0;
+        aspirationFailures = 0;
+        lmrReductions = 0;
+        lmrResearches = 0;
+        nullMoveTries = 0;
+        nullMoveCutoffs = 0;
+        aborted = false;
+        stopRequested = stop;
+        deadline = limits.timeMs > 0 ? start + limits.timeMs : Long.MAX_VALUE;
+        maxNodes = limits.nodes > 0 ? limits.nodes : Long.MAX_VALUE;
+        return limits.depth > 0 ? limits.depth : 64;
+    }
+
+    /**
+     * @return the legal root turns, without those repeating a position too often
+     */
+    private List<Turn> rootTurns(EngineBoard root) {
+        List<Turn> turns = generator.generate(root);
+        turns.removeIf(t -> positions.count(t.hash()) >= Game.MAX_REPETITIONS - 1);
+        return turns;
+    }
+
+    private SearchResult result(EngineBoard root, Turn best, int score, int depth, long start) {
+        return new SearchResult(best, best.toNotation(root), score, depth, nodes,
+                System.currentTimeMillis() - start, principalVariation(root, best, Math.max(1, depth)));
+    }
+
+    /**
+     * Follows the best turns stored in the transposition table after the first turn.
+     *
+     * @param root      position before the first turn, left unchanged
+     * @param first     first turn of the line
+     * @param maxLength maximum number of turns
+     * @return notation of the turns in the line
+     */
+    List<String> principalVariation(EngineBoard root, Turn first, int maxLength) {
+        EngineBoard b = new EngineBoard(root);
+        List<String> pv = new ArrayList<>(maxLength);
+        LongHashSet visited = new LongHashSet(4);
+        Turn t = first;
+        while (true) {
+            pv.add(t.toNotation(b));
+            t.play(b);
+            if (pv.size() >= maxLength || b.winner() != EngineBoard.NONE || !visited.add(b.hash())) break;
+            int slot = tt.find(ttKey(b));
+            if (slot < 0) break;
+            int move = ttMove(slot, b);
+            List<Turn> turns = generator.generate(b);
+            if (move < 0 || move >= turns.size()) break;
+            t = turns.get(move);
+        }
+        return pv;
+    }
+
+    /**
+     * Plays a turn and scores the resulting position from the mover's point of view.
+     *
+     * @return the score, or {@link #ILLEGAL} if the turn repeats a position too often
+     */
+    private int searchTurn(EngineBoard b, Turn t, int depth, int alpha, int beta, int ply) {
+        int seen = positions.count(t.hash());
+        if (seen >= Game.MAX_REPETITIONS - 1) return ILLEGAL;
+        int mover = b.sideToMove();
+        t.play(b);
+        int winner = b.winner();
+        int score;
+        if (winner != EngineBoard.NONE) {
+            score = winner == mover ? Evaluator.WIN - ply - 1 : -(Evaluator.WIN - ply - 1);
+        } else if (seen > 0) {
+            score = 0;
+        } else {
+            positions.increment(t.hash());
+            score = -negamax(b, depth - 1, alpha, beta, ply + 1, true);
+            positions.decrement(t.hash());
+        }
+        t.undo(b);
+        return score;
+    }
+
+    private int negamax(EngineBoard b, int depth, int alpha, int beta, int ply, boolean allowNull) {
+        if ((++nodes & CHECK_INTERVAL) == 0) checkLimits();
+        if (aborted) return 0;
+        if (depth == 0) return quiesce(b, alpha, beta, ply, 0);
+
+        int alphaOrig = alpha;
+        int ttMove = -1;
+        int slot = tt.find(ttKey(b));
+        if (slot >= 0) {
+            ttMove = ttMove(slot, b);
+            if (tt.depth(slot) >= depth) {
+                int s = fromTT(tt.score(slot), ply);
+                int flag = tt.flag(slot);
+                if (flag == TranspositionTable.EXACT) return s;
+                if (flag == TranspositionTable.LOWER) alpha = Math.max(alpha, s);
+                else beta = Math.min(beta, s);
+                if (alpha >= beta) return s;
+            }
+        }
+
+        if (allowNull && nullMoveSafe(b, beta)) {
+            nullMoveTries++;
+            b.endTurn();
+            int score = -negamax(b, Math.max(0, depth - 1 - NULL_REDUCTION), -beta, -beta + 1, ply + 1, false);
+            b.undo();
+            if (aborted) return 0;
+            if (score >= beta) {
+                nullMoveCutoffs++;
+                return beta;
+            }
+        }
+
+        List<Turn> turns = generator.generate(b);
+        if (turns.isEmpty()) return -(Evaluator.WIN - ply);
+        int[] order = order(b, turns, ttMove, depth);
+
+        int best = -INFINITY;
+        int bestIdx = -1;
+        for (int k = 0; k < order.length; k++) {
+            int idx = order[k];
+            Turn t = turns.get(idx);
+            int score = bestIdx < 0 ? searchTurn(b, t, depth, -beta, -alpha, ply)
+                    : searchLate(b, t, k, ttMove == idx ? idx : -1, depth, alpha, beta, ply);
+            if (aborted) return 0;
+            if (score == ILLEGAL) continue;
+            if (score > best) {
+                best = score;
+                bestIdx = idx;
+            }
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+
+        //Only repetitions left: the side to move loses
+        if (bestIdx < 0) return -(Evaluator.WIN - ply);
+
+        int flag = best <= alphaOrig ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        tt.store(ttKey(b), depth, toTT(best, ply), flag, bestIdx << 1 | orientation(b));
+        return best;
+    }
+
+    /**
+     * Searches a turn after the first one of a node: with a null window if {@link Feature#PVS} is on, one turn
+     * shallower if {@link Feature#LMR} applies, and again with the full window and depth when it beats alpha.
+     *
+     * @param index  position of the turn in the search order
+     * @param ttMove index of the turn if it is the transposition table move, otherwise -1
+     */
+    private int searchLate(EngineBoard b, Turn t, int index, int ttMove, int depth, int alpha, int beta, int ply) {
+        boolean pvs = features.contains(Feature.PVS);
+        boolean reduce = features.contains(Feature.LMR) && depth >= LMR_MIN_DEPTH && index >= LMR_MIN_INDEX
+                && ttMove < 0 && quiet(b, t);
+        if (!pvs && !reduce) return searchTurn(b, t, depth, -beta, -alpha, ply);
+
+        if (reduce) lmrReductions++;
+        int score = searchTurn(b, t, reduce ? depth - 1 : depth, -alpha - 1, -alpha, ply);
+        if (reduce && !aborted && score > alpha) {
+            lmrResearches++;
+            score = pvs ? searchTurn(b, t, depth, -alpha - 1, -alpha, ply) : searchTurn(b, t, depth, -beta, -alpha, ply);
+        }
+        if (pvs && !aborted && score > alpha && score < beta) {
+            pvsResearches++;
+            score = searchTurn(b, t, depth, -beta, -alpha, ply);
+        }
+        return score;
+    }
+
+    /**
+     * @return the transposition table key: the position hash, or with symmetric hashing the canonical hash
+     */
+    private long ttKey(EngineBoard b) {
+        return symmetricHashing ? b.canonicalHash() : b.hash();
+    }
+
+    /**
+     * @return 1 if the table entry of the position is stored from its mirror image, otherwise 0
+     */
+    private int orientation(EngineBoard b) {
+        return symmetricHashing && b.mirrorHash() < b.hash() ? 1 : 0;
+    }
+
+    /**
+     * Turn indexes follow the generation order of one orientation, so a move stored from the mirror image is unused.
+     *
+     * @return index of the stored best turn, or -1
+     */
+    private int ttMove(int slot, EngineBoard b) {
+        int move = tt.move(slot);
+        return (move & 1) == orientation(b) ? move >> 1 : -1;
+    }
+
+    /**
+     * Null-move pruning is tried outside of mate windows when the static score already reaches beta, the side to
+     * move has enough pieces besides rabbits that passing is not a zugzwang escape, and the opponent has no rabbit
+     * near its goal that a pass would let run in.
+     */
+    private boolean nullMoveSafe(EngineBoard b, int beta) {
+        if (!features.contains(Feature.NULL_MOVE) || Math.abs(beta) >= Evaluator.WIN_THRESHOLD) return false;
+        int us = b.sideToMove();
+        long officers = b.occupied(us) & ~b.pieces(EngineBoard.kind(us, EngineBoard.RABBIT));
+        if (Long.bitCount(officers) < NULL_MIN_PIECES || Tactics.goalThreat(b, 1 - us) != 0) return false;
+        return evaluator.evaluate(b) >= beta;
+    }
+
+    /**
+     * @return true if the turn neither captures a piece nor ends the game
+     */
+    private static boolean quiet(EngineBoard b, Turn t) {
+        int pieces = b.pieceCount();
+        t.play(b);
+        boolean quiet = b.pieceCount() == pieces && b.winner() == EngineBoard.NONE;
+        t.undo(b);
+        return quiet;
+    }
+
+    /**
+     * Orders turns: the transposition table move first, then (for interior nodes) by static evaluation after the turn.
+     */
+    private int[] order(EngineBoard b, List<Turn> turns, int ttMove, int depth) {
+        int n = turns.size();
+        int[] order = new int[n];
+        if (depth < 2) {
+            for (int i = 0; i < n; i++) order[i] = i;
+        } else {
+            long[] keyed = new long[n];
+            for (int i = 0; i < n; i++) {
+                Turn t = turns.get(i);
+                t.play(b);
+                int score = -evaluator.evaluate(b);
+                t.undo(b);
+                //Sort descending by score, ties by index
+                keyed[i] = ((long) -score << 32) | i;
+            }
+            Arrays.sort(keyed);
+            for (int i = 0; i < n; i++) order[i] = (int) keyed[i];
+        }
+        if (ttMove >= 0 && ttMove < n) {
+            for (int i = 0; i < n; i++) {
+                if (order[i] == ttMove) {
+                    System.arraycopy(order, 0, order, 1, i);
+                    order[0] = ttMove;
+                    break;
+                }
+            }
+        }
+        return order;
+    }
+
+    /**
+     * Scores a leaf from the side to move's point of view: the tablebase value if it covers the position, otherwise
+     * the best of the static score and the tactical turns.
+     */
+    private int quiesce(EngineBoard b, int alpha, int beta, int ply, int qply) {
+        if (tablebase != null && b.pieceCount() <= Tablebase.MAX_PIECES) {
+            int v = tablebase.probe(b);
+            if (v != Tablebase.MISSING) {
+                if (v > 0) return TB_WIN - v;
+                if (v < 0) return -TB_WIN - v;
+                return 0;
+            }
+        }
+        int best = evaluator.evaluate(b);
+        if (!features.contains(Feature.QUIESCENCE) || qply >= QS_MAX_PLY || best >= beta) return best;
+        int us = b.sideToMove();
+        long movers = Tactics.captureThreat(b, us) | Tactics.goalThreat(b, us);
+        if (movers == 0) return best;
+        if (best > alpha) alpha = best;
+        for (Turn t : tacticalTurns(b, movers)) {
+            t.play(b);
+            int winner = b.winner();
+            int score;
+            if (winner != EngineBoard.NONE) {
+                score = winner == us ? Evaluator.WIN - ply - 1 : -(Evaluator.WIN - ply - 1);
+            } else {
+                quiescenceNodes++;
+                if ((++nodes & CHECK_INTERVAL) == 0) checkLimits();
+                score = aborted ? 0 : -quiesce(b, -beta, -alpha, ply + 1, qply + 1);
+            }
+            t.undo(b);
+            if (aborted) return 0;
+            if (score > best) best = score;
+            if (score > alpha) alpha = score;
+            if (alpha >= beta) break;
+        }
+        return best;
+    }
+
+    /**
+     * @param movers squares of the pieces that may move
+     * @return up to {@link #QS_MAX_TURNS} turns that win the game or capture enemy material, largest gain first
+     */
+    private List<Turn> tacticalTurns(EngineBoard b, long movers) {
+        int us = b.sideToMove();
+        int ownBefore = evaluator.material(b, us);
+        int enemyBefore = evaluator.material(b, 1 - us);
+        List<Turn> turns = generator.generate(b, movers);
+        long[] keyed = new long[turns.size()];
+        int n = 0;
+        for (int i = 0; i < turns.size(); i++) {
+            Turn t = turns.get(i);
+            t.play(b);
+            int gain;
+            if (b.winner() == us) {
+                gain = Evaluator.WIN;
+            } else {
+                int captured = enemyBefore - evaluator.material(b, 1 - us);
+                gain = captured > 0 ? captured - (ownBefore - evaluator.material(b, us)) : Integer.MIN_VALUE;
+            }
+            t.undo(b);
+            if (gain != Integer.MIN_VALUE) keyed[n++] = ((long) -gain << 32) | i;
+        }
+        Arrays.sort(keyed, 0, n);
+        List<Turn> tactical = new ArrayList<>(Math.min(n, QS_MAX_TURNS));
+        for (int i = 0; i < Math.min(n, QS_MAX_TURNS); i++) tactical.add(turns.get((int) keyed[i]));
+        return tactical;
+    }
+
+    private void checkLimits() {
+        if (stopRequested.get() || nodes >= maxNodes || System.currentTimeMillis() >= deadline) {
+            aborted = true;
+        }
+    }
+
+    /**
+     * Mate scores are stored relative to the node so they stay valid when reached at another ply.
+     */
+    private static int toTT(int score, int ply) {
+        if (score > Evaluator.WIN_THRESHOLD) return score + ply;
+        if (score < -Evaluator.WIN_THRESHOLD) return score - ply;
+        return score;
+    }
+
+    private static int fromTT(int score, int ply) {
+        if (score > Evaluator.WIN_THRESHOLD) return score - ply;
+        if (score < -Evaluator.WIN_THRESHOLD) return score + ply;
+        return score;
+    }
+
+    /**
+     * @return positions visited by the last search
+     */
+    public long nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return counters of the last search
+     */
+    public Statistics statistics() {
+        return new Statistics(nodes, quiescenceNodes, pvsResearches, aspirationFailures, lmrReductions,
+                lmrResearches, nullMoveTries, nullMoveCutoffs);
+    }
+
+    /**
+     * @return positions of the last search visited by the quiescence search, included in {@link #nodes()}
+     */
+    public long quiescenceNodes() {
+        return quiescenceNodes;
+    }
+}
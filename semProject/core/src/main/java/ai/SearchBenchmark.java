@@ -0,0 +1,121 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures the node savings of the optional {@link Search.Feature}s on a fixed position suite: every configuration
+ * searches the same positions to the same depth, without any node-saving feature, with each one alone and with all.
+ */
+public class SearchBenchmark {
+    private static final int SUITE_SIZE = 6;
+    private static final int[] ARMY = {0, 1, 2, 3, 4, EngineBoard.RABBIT, EngineBoard.RABBIT, EngineBoard.RABBIT,
+            EngineBoard.RABBIT};
+
+    //Features that only prune or reorder; quiescence changes the scores and stays on in every run
+    private static final Set<Search.Feature> SAVERS = EnumSet.of(Search.Feature.PVS, Search.Feature.ASPIRATION,
+            Search.Feature.LMR, Search.Feature.NULL_MOVE);
+
+    private SearchBenchmark() {
+    }
+
+    /**
+     * Builds the position suite: middle-game positions with reduced armies (elephant, camel, horse, dog, cat and four
+     * rabbits per side) placed at random from fixed seeds, so every run searches the same positions and a full-width
+     * baseline still finishes at depth 2.
+     *
+     * @return positions at the start of a turn, gold to move
+     */
+    static List<EngineBoard> suite() {
+        List<EngineBoard> suite = new ArrayList<>();
+        for (int seed = 1; suite.size() < SUITE_SIZE; seed++) {
+            Random random = new Random(seed);
+            EngineBoard b = new EngineBoard();
+            for (int side = EngineBoard.GOLD; side <= EngineBoard.SILVER; side++) {
+                for (int type : ARMY) place(b, EngineBoard.kind(side, type), random);
+            }
+            //Skip positions where either side can win or capture right away
+            if (Tactics.goalThreat(b, EngineBoard.GOLD) == 0 && Tactics.goalThreat(b, EngineBoard.SILVER) == 0
+                    && Tactics.captureThreat(b, EngineBoard.GOLD) == 0
+                    && Tactics.captureThreat(b, EngineBoard.SILVER) == 0) {
+                suite.add(b);
+            }
+        }
+        return suite;
+    }
+
+    private static void place(EngineBoard b, int kind, Random random) {
+        while (true) {
+            int sq = random.nextInt(EngineBoard.SQUARES);
+            if (b.pieceAt(sq) != EngineBoard.EMPTY || (EngineBoard.TRAPS & (1L << sq)) != 0) continue;
+            b.put(kind, sq);
+            return;
+        }
+    }
+
+    /**
+     * Searches every position of the suite with a fresh search.
+     *
+     * @param disabled features to switch off
+     * @return per position statistics
+     */
+    static List<Search.Statistics> run(List<EngineBoard> suite, SearchLimits limits, Set<Search.Feature> disabled) {
+        List<Search.Statistics> stats = new ArrayList<>();
+        for (EngineBoard position : suite) {
+            Search search = new Search(new Evaluator(), 18);
+            for (Search.Feature f : disabled) search.setEnabled(f, false);
+            search.search(new EngineBoard(position), limits);
+            stats.add(search.statistics());
+        }
+        return stats;
+    }
+
+    /**
+     * Command line entry point: {@code SearchBenchmark [depth]}, depth 2 by default.
+     * Prints the total nodes and time of each configuration and the saving against the run without any of them.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        List<EngineBoard> suite = suite();
+        SearchLimits limits = SearchLimits.depth(depth);
+
+        List<String> names = new ArrayList<>();
+        List<Set<Search.Feature>> configs = new ArrayList<>();
+        names.add("none");
+        configs.add(SAVERS);
+        for (Search.Feature f : SAVERS) {
+            names.add("only " + f.name().toLowerCase());
+            Set<Search.Feature> disabled = EnumSet.copyOf(SAVERS);
+            disabled.remove(f);
+            configs.add(disabled);
+        }
+        names.add("all");
+        configs.add(EnumSet.noneOf(Search.Feature.class));
+
+        System.out.printf("%d positions, depth %d%n", suite.size(), depth);
+        long baseline = 0;
+        for (int c = 0; c < configs.size(); c++) {
+            long start = System.nanoTime();
+            List<Search.Statistics> stats = run(suite, limits, configs.get(c));
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            long nodes = 0, pvs = 0, aspiration = 0, lmr = 0, lmrResearch = 0, nullTries = 0, nullCuts = 0;
+            for (Search.Statistics s : stats) {
+                nodes += s.nodes;
+                pvs += s.pvsResearches;
+                aspiration += s.aspirationFailures;
+                lmr += s.lmrReductions;
+                lmrResearch += s.lmrResearches;
+                nullTries += s.nullMoveTries;
+                nullCuts += s.nullMoveCutoffs;
+            }
+            if (c == 0) baseline = nodes;
+            System.out.printf("%-16s %10d nodes %7d ms %6.1f%% saved | pvs re-searches %d, aspiration fails %d, "
+                            + "lmr %d/%d re-searched, null cutoffs %d/%d%n", names.get(c), nodes, ms,
+                    100.0 * (baseline - nodes) / Math.max(1, baseline), pvs, aspiration, lmrResearch, lmr,
+                    nullCuts, nullTries);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package ai;
+
+/**
+ * Limits of a single search. A limit of 0 means unlimited; the search stops at whichever limit is reached first
+ * and returns the best turn of the last completed iteration.
+ */
+public class SearchLimits {
+    public final int depth;
+    public final long nodes;
+    public final long timeMs;
+
+    /**
+     * @param depth  maximum depth in turns (0 = unlimited)
+     * @param nodes  maximum number of visited positions (0 = unlimited)
+     * @param timeMs maximum search time in milliseconds (0 = unlimited)
+     */
+    public SearchLimits(int depth, long nodes, long timeMs) {
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMs = timeMs;
+    }
+
+    /**
+     * @return limits searching to a fixed depth
+     */
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0, 0);
+    }
+
+    /**
+     * @return limits stopping after a number of visited positions
+     */
+    public static SearchLimits nodes(long nodes) {
+        return new SearchLimits(0, nodes, 0);
+    }
+
+    /**
+     * @return limits stopping after a time budget
+     */
+    public static SearchLimits time(long timeMs) {
+        return new SearchLimits(0, 0, timeMs);
+    }
+
+    @Override
+    public String toString() {
+        return "SearchLimits[depth=" + depth + ", nodes=" + nodes + ", timeMs=" + timeMs + "]";
+    }
+}
@@ -0,0 +1,62 @@
+package ai;
+
+import java.util.List;
+
+/**
+ * Outcome of a search: the chosen turn, its score, the principal variation and the search statistics.
+ */
+public class SearchResult {
+    public final Turn best;
+    public final String notation;
+    public final int score;
+    public final int depth;
+    public final long nodes;
+    public final long timeMs;
+    /**
+     * Expected line of play starting with the best turn, one notation string per turn
+     */
+    public final List<String> pv;
+
+    /**
+     * @param best     best turn, or null if the side to move has no legal turn
+     * @param notation best turn in notation, or null
+     * @param score    score from the side to move's point of view
+     * @param depth    depth of the last completed iteration
+     * @param nodes    visited positions
+     * @param timeMs   elapsed time
+     */
+    public SearchResult(Turn best, String notation, int score, int depth, long nodes, long timeMs) {
+        this(best, notation, score, depth, nodes, timeMs, notation == null ? List.of() : List.of(notation));
+    }
+
+    /**
+     * @param best     best turn, or null if the side to move has no legal turn
+     * @param notation best turn in notation, or null
+     * @param score    score from the side to move's point of view
+     * @param depth    depth of the last completed iteration
+     * @param nodes    visited positions
+     * @param timeMs   elapsed time
+     * @param pv       principal variation starting with the best turn
+     */
+    public SearchResult(Turn best, String notation, int score, int depth, long nodes, long timeMs, List<String> pv) {
+        this.best = best;
+        this.notation = notation;
+        this.score = score;
+        this.depth = depth;
+        this.nodes = nodes;
+        this.timeMs = timeMs;
+        this.pv = List.copyOf(pv);
+    }
+
+    /**
+     * @return visited positions per second
+     */
+    public long nodesPerSecond() {
+        return timeMs == 0 ? nodes * 1000 : nodes * 1000 / timeMs;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s score=%d depth=%d nodes=%d time=%dms", notation, score, depth, nodes, timeMs);
+    }
+}
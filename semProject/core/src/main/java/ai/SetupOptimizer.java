@@ -0,0 +1,177 @@
+package ai;
+
+import figures.Figure;
+import logic.Board;
+import logic.Zobrist;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chooses the computer's silver setup against a given gold setup.
+ * <p>Worker threads sample candidate setups until the time budget is spent: fresh random setups and, more often,
+ * mutations (two pieces swapped) of the best setup found so far. Each candidate is scored by a one-turn
+ * {@link Search} of gold's best reply, so setups that leave traps undefended or pieces exposed score low.</p>
+ */
+public class SetupOptimizer {
+    private static final Logger log = LoggerFactory.getLogger(SetupOptimizer.class);
+
+    public static final long DEFAULT_BUDGET_MS = 2000;
+
+    //The 16 silver pieces, same counts as Board.randomizeSilver
+    static final FigureType[] PIECES = {
+            FigureType.ELEPHANT, FigureType.CAMEL, FigureType.HORSE, FigureType.HORSE,
+            FigureType.DOG, FigureType.DOG, FigureType.CAT, FigureType.CAT,
+            FigureType.RABBIT, FigureType.RABBIT, FigureType.RABBIT, FigureType.RABBIT,
+            FigureType.RABBIT, FigureType.RABBIT, FigureType.RABBIT, FigureType.RABBIT
+    };
+    private static final int SQUARES = 2 * Board.SIZE;
+
+    private final long budgetMs;
+    private final int threads;
+    private final Evaluator evaluator;
+
+    private final Object lock = new Object();
+    private byte[] best;
+    private int bestScore;
+
+    /**
+     * Creates an optimizer using all available cores.
+     *
+     * @param budgetMs time budget in milliseconds
+     */
+    public SetupOptimizer(long budgetMs) {
+        this(budgetMs, Runtime.getRuntime().availableProcessors(), new Evaluator());
+    }
+
+    /**
+     * @param budgetMs  time budget in milliseconds
+     * @param threads   number of worker threads
+     * @param evaluator evaluation used by the candidate searches
+     */
+    public SetupOptimizer(long budgetMs, int threads, Evaluator evaluator) {
+        this.budgetMs = budgetMs;
+        this.threads = Math.max(1, threads);
+        this.evaluator = evaluator;
+    }
+
+    /**
+     * Places the best silver setup found within the budget on rows 0–1 (ranks 8–7) of the board.
+     *
+     * @param board board with the gold setup placed and the silver rows empty
+     * @throws IllegalArgumentException if a silver setup square is occupied
+     */
+    public void placeSilver(Board board) {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            if (board.getFigureAt(sq / Board.SIZE, sq % Board.SIZE) != null) {
+                throw new IllegalArgumentException("Silver setup rows are not empty");
+            }
+        }
+        byte[] setup = optimize(EngineBoard.from(board, true));
+        for (int sq = 0; sq < SQUARES; sq++) {
+            board.setFigureAt(sq / Board.SIZE, sq % Board.SIZE, new Figure(PIECES[setup[sq]], false));
+        }
+    }
+
+    /**
+     * Runs the parallel search over candidate setups.
+     *
+     * @param gold engine board holding the gold setup only
+     * @return for each of the 16 silver squares the index into the piece list
+     */
+    byte[] optimize(EngineBoard gold) {
+        long deadline = System.currentTimeMillis() + budgetMs;
+        AtomicLong evaluated = new AtomicLong();
+        best = null;
+        bestScore = Integer.MIN_VALUE;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        SplittableRandom seeds = new SplittableRandom();
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = seeds.split();
+            workers.add(() -> {
+                Search search = new Search(evaluator, 16);
+                EngineBoard b = new EngineBoard(gold);
+                do {
+                    byte[] candidate = nextCandidate(random);
+                    int score = score(search, b, candidate);
+                    evaluated.incrementAndGet();
+                    synchronized (lock) {
+                        if (score > bestScore) {
+                            bestScore = score;
+                            best = candidate;
+                        }
+                    }
+                } while (System.currentTimeMillis() < deadline);
+                return null;
+            });
+        }
+        try {
+            for (Future<Void> f : pool.invokeAll(workers)) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Setup optimization failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        synchronized (lock) {
+            if (best == null) best = randomSetup(new SplittableRandom());
+            log.info("Setup optimizer: {} candidates on {} threads, best score {}", evaluated.get(), threads, bestScore);
+            return best;
+        }
+    }
+
+    private byte[] nextCandidate(SplittableRandom random) {
+        byte[] base;
+        synchronized (lock) {
+            base = best;
+        }
+        if (base == null || random.nextInt(10) < 3) return randomSetup(random);
+        byte[] c = base.clone();
+        int swaps = 1 + random.nextInt(2);
+        for (int i = 0; i < swaps; i++) {
+            int a = random.nextInt(SQUARES), b = random.nextInt(SQUARES);
+            byte tmp = c[a];
+            c[a] = c[b];
+            c[b] = tmp;
+        }
+        return c;
+    }
+
+    private static byte[] randomSetup(SplittableRandom random) {
+        byte[] c = new byte[SQUARES];
+        for (int i = 0; i < SQUARES; i++) c[i] = (byte) i;
+        for (int i = SQUARES - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            byte tmp = c[i];
+            c[i] = c[j];
+            c[j] = tmp;
+        }
+        return c;
+    }
+
+    /**
+     * Scores a candidate from silver's point of view as the negated value of gold's best reply.
+     */
+    private static int score(Search search, EngineBoard b, byte[] candidate) {
+        for (int sq = 0; sq < SQUARES; sq++) {
+            b.put(Zobrist.kind(false, PIECES[candidate[sq]]), sq);
+        }
+        b.setSideToMove(EngineBoard.GOLD);
+        int score = -search.search(b, SearchLimits.depth(1)).score;
+        for (int sq = 0; sq < SQUARES; sq++) b.remove(sq);
+        return score;
+    }
+}
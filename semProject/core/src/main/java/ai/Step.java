@@ -0,0 +1,79 @@
+package ai;
+
+/**
+ * Encodes engine steps as plain ints so step lists can be kept in {@code int[]} buffers without allocation.
+ * <p>Layout: bits 0–5 mover source square, 6–11 mover target square, 12–17 victim source square,
+ * 18–23 victim target square, 24–25 step type. Squares are {@code row * 8 + col}.</p>
+ * <ul>
+ *     <li>{@link #SIMPLE} – the mover steps to an empty adjacent square (victim fields unused)</li>
+ *     <li>{@link #PUSH} – the mover takes the victim's square, the victim is pushed to an empty square</li>
+ *     <li>{@link #PULL} – the mover steps to an empty square, the victim follows into the mover's square</li>
+ * </ul>
+ */
+public final class Step {
+    public static final int SIMPLE = 0;
+    public static final int PUSH = 1;
+    public static final int PULL = 2;
+
+    /**
+     * Marker stored in undo records for the end of a turn; never produced by move generation
+     */
+    public static final int END_TURN = -1;
+
+    private Step() {
+    }
+
+    /**
+     * @return encoded simple step
+     */
+    public static int simple(int from, int to) {
+        return from | (to << 6);
+    }
+
+    /**
+     * @param from   mover's square
+     * @param victim victim's square (the mover's target)
+     * @param dest   empty square the victim is pushed to
+     * @return encoded push
+     */
+    public static int push(int from, int victim, int dest) {
+        return from | (victim << 6) | (victim << 12) | (dest << 18) | (PUSH << 24);
+    }
+
+    /**
+     * @param from   mover's square (the victim's target)
+     * @param dest   empty square the mover steps to
+     * @param victim victim's square
+     * @return encoded pull
+     */
+    public static int pull(int from, int dest, int victim) {
+        return from | (dest << 6) | (victim << 12) | (from << 18) | (PULL << 24);
+    }
+
+    public static int from(int step) {
+        return step & 63;
+    }
+
+    public static int to(int step) {
+        return (step >>> 6) & 63;
+    }
+
+    public static int victimFrom(int step) {
+        return (step >>> 12) & 63;
+    }
+
+    public static int victimTo(int step) {
+        return (step >>> 18) & 63;
+    }
+
+    public static int type(int step) {
+        return (step >>> 24) & 3;
+    }
+
+    /**
+     * @return number of turn steps the encoded step consumes (1 for simple steps, 2 for push and pull)
+     */
+    public static int cost(int step) {
+        return type(step) == SIMPLE ? 1 : 2;
+    }
+}
@@ -0,0 +1,81 @@
+package ai;
+
+import java.util.List;
+
+/**
+ * Measures what symmetric hashing ({@link Search#setSymmetricHashing(boolean)}) gains on the
+ * {@link SearchBenchmark#suite()} positions and their mirror images.
+ * <ul>
+ *     <li>Key count: positions reached after one turn, counted by plain and by canonical hash. The ratio is the
+ *     factor by which a table keyed by canonical hashes holds more distinct positions in the same space.</li>
+ *     <li>Search: every position is searched and then its mirror image with the same search, so the second search
+ *     can only profit from the first one through the shared entries.</li>
+ * </ul>
+ */
+public class SymmetryBenchmark {
+
+    private SymmetryBenchmark() {
+    }
+
+    /**
+     * Counts the distinct positions after one turn from each position and its mirror image.
+     *
+     * @return {plain keys, canonical keys}
+     */
+    static long[] countKeys(List<EngineBoard> positions) {
+        LongHashSet plain = new LongHashSet(1 << 16);
+        LongHashSet canonical = new LongHashSet(1 << 16);
+        TurnGenerator generator = new TurnGenerator();
+        for (EngineBoard position : positions) {
+            for (EngineBoard b : List.of(new EngineBoard(position), position.mirror())) {
+                for (Turn t : generator.generate(b)) {
+                    t.play(b);
+                    plain.add(b.hash());
+                    canonical.add(b.canonicalHash());
+                    t.undo(b);
+                }
+            }
+        }
+        return new long[]{plain.size(), canonical.size()};
+    }
+
+    /**
+     * Searches each position and then its mirror image with one search per position.
+     *
+     * @return {nodes of the first searches, nodes of the mirror searches}
+     */
+    static long[] searchPairs(List<EngineBoard> positions, SearchLimits limits, int ttSizeLog2, boolean symmetric) {
+        long[] nodes = new long[2];
+        for (EngineBoard position : positions) {
+            Search search = new Search(new Evaluator(), ttSizeLog2);
+            search.setSymmetricHashing(symmetric);
+            nodes[0] += search.search(new EngineBoard(position), limits).nodes;
+            nodes[1] += search.search(position.mirror(), limits).nodes;
+        }
+        return nodes;
+    }
+
+    /**
+     * Command line entry point: {@code SymmetryBenchmark [depth] [ttSizeLog2]}, depth 2 and a 2^18 entry table by
+     * default.
+     */
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 2;
+        int ttSizeLog2 = args.length > 1 ? Integer.parseInt(args[1]) : 18;
+        List<EngineBoard> suite = SearchBenchmark.suite();
+
+        long[] keys = countKeys(suite);
+        System.out.printf("%d positions and mirrors, one turn: %d plain keys, %d canonical keys, capacity x%.2f%n",
+                suite.size(), keys[0], keys[1], (double) keys[0] / Math.max(1, keys[1]));
+
+        SearchLimits limits = SearchLimits.depth(depth);
+        for (boolean symmetric : new boolean[]{false, true}) {
+            long start = System.nanoTime();
+            long[] nodes = searchPairs(suite, limits, ttSizeLog2, symmetric);
+            long ms = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%-9s depth %d, table 2^%d: %10d nodes, mirror searches %10d nodes (%5.1f%%), %d ms%n",
+                    symmetric ? "symmetric" : "plain", depth, ttSizeLog2, nodes[0], nodes[1],
+                    100.0 * nodes[1] / Math.max(1, nodes[0]), ms);
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package ai;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.FigureType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Memory-mapped endgame tablebase probe for positions with at most {@link #MAX_PIECES} pieces on the board.
+ * <p>Each material signature (e.g. "ERvr": gold elephant and rabbit against a silver rabbit) is stored in its own
+ * file written by {@link TablebaseGenerator}. A table holds one {@code short} per placement and side to move:
+ * a positive value is a win for the side to move in that many steps, a negative value a loss, 0 a draw.
+ * Steps are counted the way the generator walks the game: every single step and every turn end is one step.</p>
+ *
+ * <pre>
+ * header : int magic, int version, int pieceCount, int signature
+ * data   : short[64^pieceCount * 2], indexed by placement index * 2 + side to move
+ * </pre>
+ */
+public class Tablebase {
+    private static final Logger log = LoggerFactory.getLogger(Tablebase.class);
+
+    public static final int MAX_PIECES = 4;
+
+    /**
+     * Returned by {@link #probe(EngineBoard)} when no table covers the position
+     */
+    public static final int MISSING = Integer.MIN_VALUE;
+
+    static final short INVALID = Short.MIN_VALUE;
+    static final int MAGIC = 0x41525442; // "ARTB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 16;
+
+    private static Tablebase defaultTablebase;
+    private static boolean defaultLoaded = false;
+
+    private final Map<Integer, ShortBuffer> tables = new HashMap<>();
+
+    private Tablebase() {
+    }
+
+    /**
+     * Maps all {@code .tb} files of a directory.
+     *
+     * @param dir directory with table files
+     * @return opened tablebase (possibly without tables)
+     * @throws IOException if a table cannot be mapped
+     */
+    public static Tablebase open(Path dir) throws IOException {
+        Tablebase tb = new Tablebase();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.tb")) {
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                        log.warn("Skipping {}: not a tablebase file", file);
+                        continue;
+                    }
+                    int signature = buffer.getInt(12);
+                    tb.tables.put(signature, buffer.position(HEADER_SIZE).slice().asShortBuffer());
+                }
+            }
+        }
+        log.info("Tablebase {} mapped: {} tables", dir, tb.tables.size());
+        return tb;
+    }
+
+    /**
+     * Returns the tablebase configured by the {@code game.tablebase} system property (default {@code tablebase}
+     * directory in the working directory), mapped on first use.
+     *
+     * @return the default tablebase, or null if there is none
+     */
+    public static synchronized Tablebase getDefault() {
+        if (!defaultLoaded) {
+            defaultLoaded = true;
+            Path dir = Paths.get(System.getProperty("game.tablebase", "tablebase"));
+            if (Files.isDirectory(dir)) {
+                try {
+                    defaultTablebase = open(dir);
+                } catch (IOException ex) {
+                    log.warn("Cannot open tablebase {}: {}", dir, ex.getMessage());
+                }
+            }
+        }
+        return defaultTablebase;
+    }
+
+    /**
+     * @return number of mapped tables
+     */
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * Probes a position at the start of a turn.
+     *
+     * @param board position to look up
+     * @return win (&gt; 0) or loss (&lt; 0) distance for the side to move, 0 for a draw, or {@link #MISSING}
+     */
+    public int probe(EngineBoard board) {
+        if (board.pieceCount() > MAX_PIECES || board.stepsTaken() != 0) return MISSING;
+        ShortBuffer table = tables.get(signature(board));
+        if (table == null) return MISSING;
+        short v = table.get(index(board) * 2 + board.sideToMove());
+        return v == INVALID ? MISSING : v;
+    }
+
+    /**
+     * Computes the material signature of a position: piece kinds in ascending order, 4 bits each (kind + 1).
+     */
+    static int signature(EngineBoard board) {
+        int code = 0;
+        for (int kind = 0; kind < 2 * EngineBoard.TYPES; kind++) {
+            for (int i = Long.bitCount(board.pieces[kind]); i > 0; i--) {
+                code = (code << 4) | (kind + 1);
+            }
+        }
+        return code;
+    }
+
+    /**
+     * Computes the placement index: squares of the pieces in signature order, 6 bits each,
+     * the first piece in the lowest bits. Pieces of the same kind are taken in ascending square order.
+     */
+    static int index(EngineBoard board) {
+        int index = 0;
+        int shift = 0;
+        for (int kind = 0; kind < 2 * EngineBoard.TYPES; kind++) {
+            long bb = board.pieces[kind];
+            while (bb != 0) {
+                index |= Long.numberOfTrailingZeros(bb) << shift;
+                shift += 6;
+                bb &= bb - 1;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Decodes a signature into its piece kinds.
+     */
+    static int[] kinds(int signature) {
+        int n = 0;
+        for (int c = signature; c != 0; c >>>= 4) n++;
+        int[] kinds = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            kinds[i] = (signature & 15) - 1;
+            signature >>>= 4;
+        }
+        return kinds;
+    }
+
+    /**
+     * Encodes piece kinds (in ascending order) as a signature.
+     */
+    static int signature(int[] kinds) {
+        int code = 0;
+        for (int kind : kinds) code = (code << 4) | (kind + 1);
+        return code;
+    }
+
+    /**
+     * Parses a signature name such as "ERvr" (gold pieces, 'v', silver pieces).
+     *
+     * @param name signature name
+     * @return signature code
+     * @throws IllegalArgumentException if the name is malformed or has too many pieces
+     */
+    public static int parseSignature(String name) {
+        int v = name.indexOf('v');
+        if (v < 0) throw new IllegalArgumentException("Signature must look like ERvr: " + name);
+        int[] kinds = new int[name.length() - 1];
+        if (kinds.length > MAX_PIECES) {
+            throw new IllegalArgumentException("At most " + MAX_PIECES + " pieces supported: " + name);
+        }
+        int n = 0;
+        for (int i = 0; i < name.length(); i++) {
+            if (i == v) continue;
+            FigureType type = FigureType.fromLetter("" + name.charAt(i));
+            kinds[n++] = EngineBoard.kind(i < v ? EngineBoard.GOLD : EngineBoard.SILVER, type.ordinal());
+        }
+        java.util.Arrays.sort(kinds);
+        return signature(kinds);
+    }
+
+    /**
+     * @return signature name such as "ERvr", used as the table file name
+     */
+    public static String signatureName(int signature) {
+        StringBuilder gold = new StringBuilder();
+        StringBuilder silver = new StringBuilder();
+        for (int kind : kinds(signature)) {
+            if (EngineBoard.sideOf(kind) == EngineBoard.GOLD) gold.append(EngineBoard.pieceChar(kind));
+            else silver.append(EngineBoard.pieceChar(kind));
+        }
+        return gold + "v" + silver;
+    }
+
+    /**
+     * Writes the start-of-turn layer of a generated table.
+     */
+    static void write(Path file, int signature, int pieceCount, short[] values) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(pieceCount).putInt(signature).flip();
+            channel.write(header);
+            ByteBuffer chunk = ByteBuffer.allocate(1 << 16);
+            for (short v : values) {
+                if (!chunk.hasRemaining()) {
+                    chunk.flip();
+                    while (chunk.hasRemaining()) channel.write(chunk);
+                    chunk.clear();
+                }
+                chunk.putShort(v);
+            }
+            chunk.flip();
+            while (chunk.hasRemaining()) channel.write(chunk);
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package ai;
+
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Generates endgame tables for small material signatures by iterating over every state of the game graph.
+ * <p>A state is a placement, the side to move and the number of steps already taken in the turn, so turns are
+ * resolved one step at a time instead of enumerating whole turns. Pass {@code i} marks every state whose win or loss
+ * is exactly {@code i} steps away, using only states resolved in earlier passes; passes run in parallel over index
+ * ranges on the common fork-join pool. Captures lead into smaller signatures, which are generated first.</p>
+ * <p>Arimaa's rule that a turn must change the position is not tracked inside the state, so a turn that restores
+ * its start position is treated like any other turn end.</p>
+ */
+public class TablebaseGenerator {
+    private static final Logger log = LoggerFactory.getLogger(TablebaseGenerator.class);
+
+    private static final int LAYERS = Game.MAX_TURNS_STEPS;
+    private static final int CHUNK = 4096;
+
+    private final Map<Integer, short[]> tables = new HashMap<>();
+    private final Map<Integer, Integer> maxDistance = new HashMap<>();
+
+    /**
+     * Generates a table and all tables of the signatures reachable from it by captures.
+     *
+     * @param signature signature code, see {@link Tablebase#parseSignature(String)}
+     */
+    public void generate(int signature) {
+        if (tables.containsKey(signature)) return;
+        int[] kinds = Tablebase.kinds(signature);
+        for (int i = 0; i < kinds.length; i++) {
+            if (i > 0 && kinds[i] == kinds[i - 1]) continue;
+            int[] sub = new int[kinds.length - 1];
+            System.arraycopy(kinds, 0, sub, 0, i);
+            System.arraycopy(kinds, i + 1, sub, i, kinds.length - i - 1);
+            if (sub.length > 0) generate(Tablebase.signature(sub));
+        }
+
+        long start = System.currentTimeMillis();
+        int placements = 1 << (6 * kinds.length);
+        short[] values = new short[placements * 2 * LAYERS];
+        markInvalid(kinds, values);
+        tables.put(signature, values);
+
+        int subMax = 0;
+        for (int sub : tables.keySet()) {
+            if (sub != signature) subMax = Math.max(subMax, maxDistance.getOrDefault(sub, 0));
+        }
+        int pass = 1;
+        long resolved = 0;
+        while (true) {
+            final int p = pass;
+            LongAdder changed = new LongAdder();
+            int chunks = (values.length + CHUNK - 1) / CHUNK;
+            IntStream.range(0, chunks).parallel().forEach(c -> {
+                EngineBoard scratch = new EngineBoard();
+                int[] buf = new int[EngineBoard.MAX_STEPS];
+                int end = Math.min(values.length, (c + 1) * CHUNK);
+                for (int state = c * CHUNK; state < end; state++) {
+                    if (values[state] != 0) continue;
+                    short v = solve(kinds, signature, state, p, scratch, buf);
+                    if (v != 0) {
+                        values[state] = v;
+                        changed.increment();
+                    }
+                }
+            });
+            resolved += changed.sum();
+            if (changed.sum() == 0 && pass > subMax) break;
+            if (pass == Short.MAX_VALUE - 1) break;
+            pass++;
+        }
+        maxDistance.put(signature, pass);
+        log.info("Table {} generated: {} states resolved in {} passes, {} ms",
+                Tablebase.signatureName(signature), resolved, pass, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Writes the start-of-turn layer of every generated table into a directory.
+     *
+     * @param dir output directory, created if missing
+     * @throws IOException if writing fails
+     */
+    public void writeAll(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        for (Map.Entry<Integer, short[]> e : tables.entrySet()) {
+            short[] all = e.getValue();
+            short[] firstLayer = new short[all.length / LAYERS];
+            for (int i = 0; i < firstLayer.length; i++) firstLayer[i] = all[i * LAYERS];
+            int pieces = Tablebase.kinds(e.getKey()).length;
+            Path file = dir.resolve(Tablebase.signatureName(e.getKey()) + ".tb");
+            Tablebase.write(file, e.getKey(), pieces, firstLayer);
+            log.info("Table written to {}", file);
+        }
+    }
+
+    /**
+     * Marks placements with overlapping pieces or non-ascending squares for equal kinds as invalid.
+     */
+    private static void markInvalid(int[] kinds, short[] values) {
+        int placements = 1 << (6 * kinds.length);
+        for (int index = 0; index < placements; index++) {
+            long used = 0;
+            boolean valid = true;
+            int prevSq = -1;
+            for (int i = 0; i < kinds.length && valid; i++) {
+                int sq = (index >>> (6 * i)) & 63;
+                if ((used & (1L << sq)) != 0) valid = false;
+                if (i > 0 && kinds[i] == kinds[i - 1] && sq < prevSq) valid = false;
+                used |= 1L << sq;
+                prevSq = sq;
+            }
+            if (!valid) {
+                Arrays.fill(values, index * 2 * LAYERS, (index + 1) * 2 * LAYERS, Tablebase.INVALID);
+            }
+        }
+    }
+
+    /**
+     * Evaluates one state in the given pass.
+     *
+     * @return pass number for a win, minus pass number for a loss, 0 if still unresolved
+     */
+    private short solve(int[] kinds, int signature, int state, int pass, EngineBoard b, int[] buf) {
+        int steps = state % LAYERS;
+        int side = (state / LAYERS) % 2;
+        int index = state / (2 * LAYERS);
+        for (int i = 0; i < kinds.length; i++) {
+            b.put(kinds[i], (index >>> (6 * i)) & 63);
+        }
+        b.setSideToMove(side);
+        b.setStepsTaken(steps);
+
+        boolean win = false;
+        boolean allLost = true;
+        int n = b.generateSteps(buf);
+        for (int i = 0; i < n && !win; i++) {
+            b.makeStep(buf[i]);
+            int r;
+            if (b.stepsTaken() >= Game.MAX_TURNS_STEPS) {
+                b.endTurn();
+                r = outcome(b, side, pass, true);
+                b.undo();
+            } else {
+                r = outcome(b, side, pass, false);
+            }
+            b.undo();
+            if (r > 0) win = true;
+            if (r >= 0) allLost = false;
+        }
+        if (!win && steps > 0) {
+            b.endTurn();
+            int r = outcome(b, side, pass, true);
+            b.undo();
+            if (r > 0) win = true;
+            if (r >= 0) allLost = false;
+        }
+
+        long occupied = b.occupied(EngineBoard.GOLD) | b.occupied(EngineBoard.SILVER);
+        while (occupied != 0) {
+            b.remove(Long.numberOfTrailingZeros(occupied));
+            occupied &= occupied - 1;
+        }
+        if (win) return (short) pass;
+        if (allLost) return (short) -pass;
+        return 0;
+    }
+
+    /**
+     * Looks up the value of a successor state for the side that made the step.
+     *
+     * @return 1 if known won, -1 if known lost, 0 if unknown in this pass
+     */
+    private int outcome(EngineBoard b, int mover, int pass, boolean turnEnded) {
+        if (turnEnded) {
+            int winner = b.winner();
+            if (winner != EngineBoard.NONE) return winner == mover ? 1 : -1;
+        }
+        int count = b.pieceCount();
+        if (count == 0) return 0;
+        short[] table = tables.get(Tablebase.signature(b));
+        if (table == null) return 0;
+        int state = (Tablebase.index(b) * 2 + b.sideToMove()) * LAYERS + b.stepsTaken();
+        short v = table[state];
+        if (v == 0 || v == Tablebase.INVALID || Math.abs(v) >= pass) return 0;
+        int sign = v > 0 ? 1 : -1;
+        return b.sideToMove() == mover ? sign : -sign;
+    }
+
+    /**
+     * Command line entry point: {@code TablebaseGenerator <outDir> <signature>...}, e.g. {@code tablebase ERvr Rvr}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: TablebaseGenerator <outDir> <signature>... (e.g. ERvr)");
+            return;
+        }
+        TablebaseGenerator generator = new TablebaseGenerator();
+        for (int i = 1; i < args.length; i++) {
+            generator.generate(Tablebase.parseSignature(args[i]));
+        }
+        generator.writeAll(Paths.get(args[0]));
+    }
+}
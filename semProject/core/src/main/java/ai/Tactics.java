@@ -0,0 +1,62 @@
+package ai;
+
+import logic.Board;
+import logic.Game;
+
+/**
+ * Cheap threat detection for the quiescence search. Both tests return the pieces of the side that take part in a
+ * possible capture or goal this turn, or 0 if there is none; the quiescence search only moves these pieces, and the
+ * resulting turns decide whether the threat is real.
+ */
+final class Tactics {
+    private static final int[] TRAP_SQUARES = {18, 21, 42, 45};
+
+    private Tactics() {
+    }
+
+    /**
+     * Finds enemy pieces on or next to a trap with at most two of their own pieces around it.
+     *
+     * @return the side's pieces within two steps of such an enemy piece, if one of them is stronger; otherwise 0
+     */
+    static long captureThreat(EngineBoard b, int side) {
+        long enemies = b.occupied(1 - side);
+        long movers = 0;
+        for (int trap : TRAP_SQUARES) {
+            long zone = EngineBoard.NEIGHBORS[trap] | (1L << trap);
+            long candidates = zone & enemies;
+            if (candidates == 0 || Long.bitCount(EngineBoard.NEIGHBORS[trap] & enemies) > 2) continue;
+            while (candidates != 0) {
+                int sq = Long.numberOfTrailingZeros(candidates);
+                candidates &= candidates - 1;
+                long near = EngineBoard.NEIGHBORS[sq];
+                near = (near | EngineBoard.neighbors(near)) & b.occupied(side);
+                if (strongest(b, near) > EngineBoard.strength(b.pieceAt(sq))) movers |= near;
+            }
+        }
+        return movers;
+    }
+
+    /**
+     * Finds rabbits of the side no further from their goal row than the steps of one turn.
+     *
+     * @return those rabbits and the side's pieces next to them, or 0
+     */
+    static long goalThreat(EngineBoard b, int side) {
+        long rabbits = b.pieces(EngineBoard.kind(side, EngineBoard.RABBIT));
+        //Rows up to 4 steps from the goal row: 0..4 for gold, 3..7 for silver
+        int shift = Board.SIZE * (Board.SIZE - 1 - Game.MAX_TURNS_STEPS);
+        rabbits &= side == EngineBoard.GOLD ? -1L >>> shift : -1L << shift;
+        if (rabbits == 0) return 0;
+        return rabbits | (EngineBoard.neighbors(rabbits) & b.occupied(side));
+    }
+
+    private static int strongest(EngineBoard b, long squares) {
+        int max = 0;
+        while (squares != 0) {
+            max = Math.max(max, EngineBoard.strength(b.pieceAt(Long.numberOfTrailingZeros(squares))));
+            squares &= squares - 1;
+        }
+        return max;
+    }
+}
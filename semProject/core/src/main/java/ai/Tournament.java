@@ -0,0 +1,384 @@
+package ai;
+
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.LongCountMap;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless self-play between two engine configurations, one game per task on a fixed thread pool.
+ * <p>Games are played in pairs from the same random setups with the colours swapped. Every game can be written in
+ * the {@link Game#saveHistoryToFile(String)} notation, so it loads back into the GUI. A game longer than
+ * {@link #DEFAULT_MAX_TURNS} turns is scored as a draw.</p>
+ */
+public class Tournament {
+    private static final Logger log = LoggerFactory.getLogger(Tournament.class);
+
+    public static final int DEFAULT_MAX_TURNS = 300;
+
+    //Transposition table size of each engine in a game
+    private static final int TT_SIZE_LOG2 = 18;
+
+    /**
+     * An engine configuration: evaluation weights, search limits and disabled search features.
+     */
+    public static class Engine {
+        public final String name;
+        public final Evaluator evaluator;
+        public final SearchLimits limits;
+        public final Set<Search.Feature> disabled;
+
+        public Engine(String name, Evaluator evaluator, SearchLimits limits) {
+            this(name, evaluator, limits, EnumSet.noneOf(Search.Feature.class));
+        }
+
+        public Engine(String name, Evaluator evaluator, SearchLimits limits, Set<Search.Feature> disabled) {
+            this.name = name;
+            this.evaluator = evaluator;
+            this.limits = limits;
+            this.disabled = disabled.isEmpty() ? EnumSet.noneOf(Search.Feature.class) : EnumSet.copyOf(disabled);
+        }
+
+        /**
+         * @return a search configured for this engine
+         */
+        Search newSearch(int ttSizeLog2) {
+            Search search = new Search(evaluator, ttSizeLog2);
+            for (Search.Feature f : disabled) search.setEnabled(f, false);
+            return search;
+        }
+
+        /**
+         * Parses an engine specification such as {@code fast:depth=1} or
+         * {@code tuned:time=500,nodes=200000,weights=120/100/80/100,disable=quiescence}; {@code weightsfile=PATH}
+         * reads the weights from a file written by {@link Tuner}. Without limits the engine searches one turn deep,
+         * without weights it uses the {@link Evaluator#startupWeights()}.
+         *
+         * @param spec name, optionally followed by ':' and comma-separated key=value options
+         * @return parsed engine
+         * @throws IllegalArgumentException if an option is unknown or malformed
+         */
+        public static Engine parse(String spec) {
+            int colon = spec.indexOf(':');
+            String name = colon < 0 ? spec : spec.substring(0, colon);
+            int depth = 0;
+            long nodes = 0, time = 0;
+            int[] weights = Evaluator.startupWeights();
+            Set<Search.Feature> disabled = EnumSet.noneOf(Search.Feature.class);
+            if (colon >= 0) {
+                for (String option : spec.substring(colon + 1).split(",")) {
+                    String[] kv = option.split("=", 2);
+                    if (kv.length != 2) throw new IllegalArgumentException("Expected key=value: " + option);
+                    try {
+                        switch (kv[0]) {
+                            case "depth" -> depth = Integer.parseInt(kv[1]);
+                            case "nodes" -> nodes = Long.parseLong(kv[1]);
+                            case "time" -> time = Long.parseLong(kv[1]);
+                            case "weights" -> {
+                                String[] parts = kv[1].split("/");
+                                weights = new int[parts.length];
+                                for (int i = 0; i < parts.length; i++) weights[i] = Integer.parseInt(parts[i]);
+                            }
+                            case "weightsfile" -> weights = Evaluator.loadWeights(Paths.get(kv[1]));
+                            case "disable" -> {
+                                for (String f : kv[1].split("/")) disabled.add(feature(f));
+                            }
+                            default -> throw new IllegalArgumentException("Unknown engine option: " + kv[0]);
+                        }
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid number in option: " + option);
+                    } catch (IOException e) {
+                        throw new IllegalArgumentException("Cannot read weights file: " + e.getMessage());
+                    }
+                }
+            }
+            if (depth == 0 && nodes == 0 && time == 0) depth = 1;
+            return new Engine(name, new Evaluator(weights), new SearchLimits(depth, nodes, time), disabled);
+        }
+
+        private static Search.Feature feature(String name) {
+            for (Search.Feature f : Search.Feature.values()) {
+                if (f.name().equalsIgnoreCase(name)) return f;
+            }
+            throw new IllegalArgumentException("Unknown search feature: " + name);
+        }
+
+        @Override
+        public String toString() {
+            return name + " " + limits + " " + evaluator + (disabled.isEmpty() ? "" : " disabled=" + disabled);
+        }
+    }
+
+    /**
+     * Results of a tournament from the point of view of the first engine.
+     */
+    public static class Report {
+        public final String[] names;
+        public final int games;
+        public final int[] wins;
+        public final int draws;
+        public final long[] nodes;
+        public final long[] searchMs;
+        public final long elapsedMs;
+
+        public Report(String[] names, int games, int[] wins, int draws, long[] nodes, long[] searchMs, long elapsedMs) {
+            this.names = names;
+            this.games = games;
+            this.wins = wins;
+            this.draws = draws;
+            this.nodes = nodes;
+            this.searchMs = searchMs;
+            this.elapsedMs = elapsedMs;
+        }
+
+        /**
+         * @return score of the first engine, a win counting 1 and a draw 1/2
+         */
+        public double score() {
+            return games == 0 ? 0.5 : (wins[0] + 0.5 * draws) / games;
+        }
+
+        /**
+         * @return Elo difference of the first engine over the second (infinite if one engine won every game)
+         */
+        public double eloDifference() {
+            double s = score();
+            if (s <= 0) return Double.NEGATIVE_INFINITY;
+            if (s >= 1) return Double.POSITIVE_INFINITY;
+            return -400 * Math.log10(1 / s - 1);
+        }
+
+        /**
+         * @return finished games per hour of wall-clock time
+         */
+        public double gamesPerHour() {
+            return elapsedMs == 0 ? 0 : games * 3_600_000.0 / elapsedMs;
+        }
+
+        /**
+         * @param engine 0 for the first engine, 1 for the second
+         * @return average search speed of the engine
+         */
+        public long nodesPerSecond(int engine) {
+            return searchMs[engine] == 0 ? nodes[engine] * 1000 : nodes[engine] * 1000 / searchMs[engine];
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("Games: %d in %.1f s (%.0f games/hour)%n", games, elapsedMs / 1000.0, gamesPerHour()));
+            for (int e = 0; e < 2; e++) {
+                sb.append(String.format("%s: %d wins (%.1f%%), %d nodes/s%n", names[e], wins[e],
+                        games == 0 ? 0.0 : 100.0 * wins[e] / games, nodesPerSecond(e)));
+            }
+            sb.append(String.format("Draws: %d%n", draws));
+            sb.append(String.format("Elo %s - %s: %+.1f", names[0], names[1], eloDifference() + 0.0));
+            return sb.toString();
+        }
+    }
+
+    private final Engine[] engines;
+    private final int threads;
+    private int maxTurns = DEFAULT_MAX_TURNS;
+    private long seed = System.nanoTime();
+    private Path outputDirectory;
+
+    private final AtomicInteger[] wins = {new AtomicInteger(), new AtomicInteger()};
+    private final AtomicInteger draws = new AtomicInteger();
+    private final LongAdder[] nodes = {new LongAdder(), new LongAdder()};
+    private final LongAdder[] searchMs = {new LongAdder(), new LongAdder()};
+
+    /**
+     * @param first   first engine, gold in the even games
+     * @param second  second engine
+     * @param threads number of games played at the same time
+     */
+    public Tournament(Engine first, Engine second, int threads) {
+        this.engines = new Engine[]{first, second};
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * @param maxTurns turns after which a game is scored as a draw
+     */
+    public void setMaxTurns(int maxTurns) {
+        this.maxTurns = maxTurns;
+    }
+
+    /**
+     * @param seed seed of the random setups, for reproducible tournaments
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @param dir directory receiving one {@code game-NNNN.txt} file per game, null to keep no records
+     */
+    public void setOutputDirectory(Path dir) {
+        this.outputDirectory = dir;
+    }
+
+    /**
+     * Plays the games and waits for all of them.
+     *
+     * @param games number of games
+     * @return tournament results
+     * @throws IOException if the output directory cannot be created or a game cannot be written
+     */
+    public Report run(int games) throws IOException {
+        if (outputDirectory != null) Files.createDirectories(outputDirectory);
+        log.info("Tournament {} vs {}: {} games on {} threads", engines[0], engines[1], games, threads);
+        long start = System.currentTimeMillis();
+        AtomicInteger finished = new AtomicInteger();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>(games);
+        for (int i = 0; i < games; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                int winner = play(index);
+                int done = finished.incrementAndGet();
+                if (done % 10 == 0 || done == games) {
+                    log.info("{}/{} games, {}: {} wins, {}: {} wins, {} draws", done, games,
+                            engines[0].name, wins[0].get(), engines[1].name, wins[1].get(), draws.get());
+                }
+                return winner;
+            }));
+        }
+        try {
+            for (Future<?> f : futures) f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw new IllegalStateException("Tournament game failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        return new Report(new String[]{engines[0].name, engines[1].name}, finished.get(),
+                new int[]{wins[0].get(), wins[1].get()}, draws.get(),
+                new long[]{nodes[0].sum(), nodes[1].sum()}, new long[]{searchMs[0].sum(), searchMs[1].sum()},
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Plays one game and records it.
+     *
+     * @param index game number; even games give gold to the first engine
+     * @return index of the winning engine, or -1 for a draw
+     */
+    int play(int index) {
+        Random random = new Random(seed + index / 2);
+        int goldEngine = index % 2;
+        EngineBoard b = new EngineBoard();
+        List<String> history = new ArrayList<>();
+        history.add("1g " + String.join(" ", randomSetup(b, EngineBoard.GOLD, random)));
+        history.add("1s " + String.join(" ", randomSetup(b, EngineBoard.SILVER, random)));
+        b.setSideToMove(EngineBoard.GOLD);
+
+        Search[] searches = {engines[0].newSearch(TT_SIZE_LOG2), engines[1].newSearch(TT_SIZE_LOG2)};
+        LongCountMap positions = new LongCountMap();
+        for (Search s : searches) s.setHistory(positions);
+        int winnerSide = EngineBoard.NONE;
+        for (int turn = 0; turn < maxTurns && winnerSide == EngineBoard.NONE; turn++) {
+            int side = b.sideToMove();
+            int e = side == EngineBoard.GOLD ? goldEngine : 1 - goldEngine;
+            SearchResult result = searches[e].search(b, engines[e].limits);
+            nodes[e].add(result.nodes);
+            searchMs[e].add(result.timeMs);
+            if (result.best == null) {
+                //A side without a legal turn (or only repetitions) loses
+                winnerSide = 1 - side;
+                break;
+            }
+            int steps = 0;
+            for (int i = 0; i < result.best.length(); i++) {
+                int step = result.best.step(i);
+                history.add(b.stepToString(step));
+                b.makeStep(step);
+                history.addAll(b.captureTokens());
+                steps += Step.cost(step);
+            }
+            for (; steps < Game.MAX_TURNS_STEPS; steps++) history.add("-");
+            b.endTurn();
+            positions.increment(b.hash());
+            winnerSide = b.winner();
+        }
+
+        int winner = winnerSide == EngineBoard.NONE ? -1
+                : winnerSide == EngineBoard.GOLD ? goldEngine : 1 - goldEngine;
+        if (winner < 0) draws.incrementAndGet();
+        else wins[winner].incrementAndGet();
+
+        if (outputDirectory != null) {
+            Path file = outputDirectory.resolve(String.format("game-%04d.txt", index + 1));
+            try (Writer writer = Files.newBufferedWriter(file)) {
+                Game.writeHistory(history, writer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        log.debug("Game {} finished: {}", index + 1, winner < 0 ? "draw" : engines[winner].name + " won");
+        return winner;
+    }
+
+    /**
+     * Places a shuffled setup of one side on its two home rows.
+     *
+     * @return setup tokens such as "Ra1", in square order
+     */
+    static List<String> randomSetup(EngineBoard b, int side, Random random) {
+        int[] types = new int[SetupOptimizer.PIECES.length];
+        for (int i = 0; i < types.length; i++) types[i] = SetupOptimizer.PIECES[i].ordinal();
+        for (int i = types.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = types[i];
+            types[i] = types[j];
+            types[j] = tmp;
+        }
+        int first = side == EngineBoard.GOLD ? EngineBoard.SQUARES - types.length : 0;
+        List<String> tokens = new ArrayList<>(types.length);
+        for (int i = 0; i < types.length; i++) {
+            int kind = EngineBoard.kind(side, types[i]);
+            b.put(kind, first + i);
+            tokens.add("" + EngineBoard.pieceChar(kind) + EngineBoard.squareName(first + i));
+        }
+        return tokens;
+    }
+
+    /**
+     * Command line entry point: {@code Tournament <engineA> <engineB> <games> [threads] [outDir]}, e.g.
+     * {@code Tournament base:depth=1 tuned:depth=1,weights=120/100/100/100 200 4 games}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: Tournament <engineA> <engineB> <games> [threads] [outDir]");
+            System.err.println("Engine: name[:depth=N,nodes=N,time=MS,weights=W/W/W/W,weightsfile=PATH,disable=F/F]");
+            return;
+        }
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        Tournament tournament = new Tournament(Engine.parse(args[0]), Engine.parse(args[1]), threads);
+        if (args.length > 4) tournament.setOutputDirectory(Paths.get(args[4]));
+        System.out.println(tournament.run(Integer.parseInt(args[2])));
+    }
+}
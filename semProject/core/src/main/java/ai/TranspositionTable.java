@@ -0,0 +1,92 @@
+package ai;
+
+/**
+ * Fixed-size transposition table for the turn search, stored in parallel primitive arrays.
+ * Entries are replaced when the new search depth is at least the stored one or the slot holds another position.
+ */
+public class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1;
+    public static final int UPPER = 2;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int[] moves;
+    private final byte[] depths;
+    private final byte[] flags;
+    private final boolean[] used;
+    private final int mask;
+
+    /**
+     * @param sizeLog2 log2 of the number of entries
+     */
+    public TranspositionTable(int sizeLog2) {
+        int size = 1 << sizeLog2;
+        keys = new long[size];
+        scores = new int[size];
+        moves = new int[size];
+        depths = new byte[size];
+        flags = new byte[size];
+        used = new boolean[size];
+        mask = size - 1;
+    }
+
+    /**
+     * @param key position hash
+     * @return slot holding the position, or -1
+     */
+    public int find(long key) {
+        int slot = LongHashSet.mix(key) & mask;
+        return used[slot] && keys[slot] == key ? slot : -1;
+    }
+
+    /**
+     * Stores a search result.
+     *
+     * @param key   position hash
+     * @param depth remaining search depth in turns
+     * @param score score from the side to move's point of view
+     * @param flag  {@link #EXACT}, {@link #LOWER} or {@link #UPPER} bound
+     * @param move  index of the best turn in generation order, -1 if unknown
+     */
+    public void store(long key, int depth, int score, int flag, int move) {
+        int slot = LongHashSet.mix(key) & mask;
+        if (used[slot] && keys[slot] == key && depths[slot] > depth) return;
+        used[slot] = true;
+        keys[slot] = key;
+        depths[slot] = (byte) depth;
+        scores[slot] = score;
+        flags[slot] = (byte) flag;
+        moves[slot] = move;
+    }
+
+    public int score(int slot) {
+        return scores[slot];
+    }
+
+    public int depth(int slot) {
+        return depths[slot];
+    }
+
+    public int flag(int slot) {
+        return flags[slot];
+    }
+
+    public int move(int slot) {
+        return moves[slot];
+    }
+
+    /**
+     * @return number of slots in the table
+     */
+    public int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        java.util.Arrays.fill(used, false);
+    }
+}
@@ -0,0 +1,260 @@
+package ai;
+
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.GameMode;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Tunes the positional {@link Evaluator} weights on saved games with the Texel method.
+ * <p>Every game is replayed with {@link Game#replay}; the quiet positions at the start of its turns (no trap capture
+ * or goal threat for either side, see {@link Tactics}) are kept together with the game result. The weights are then
+ * fitted by gradient descent so that a logistic function of the static evaluation predicts the results with the least
+ * mean squared error. Games are replayed, and the error and gradient summed, on all cores.</p>
+ */
+public class Tuner {
+    private static final Logger log = LoggerFactory.getLogger(Tuner.class);
+
+    public static final int DEFAULT_ITERATIONS = 300;
+    //Step of the Adam update, in weight percent
+    static final double LEARNING_RATE = 1.0;
+    private static final double BETA1 = 0.9, BETA2 = 0.999, EPSILON = 1e-8;
+    //Samples per parallel work item
+    private static final int CHUNK = 4096;
+
+    /**
+     * A quiet position: its material balance and positional feature differences from gold's point of view, and the
+     * result of its game (1 gold won, 0 silver won, 0.5 unfinished or drawn)
+     */
+    static final class Sample {
+        final int material;
+        final int[] features;
+        final double result;
+
+        Sample(int material, int[] features, double result) {
+            this.material = material;
+            this.features = features;
+            this.result = result;
+        }
+    }
+
+    private final Evaluator evaluator = new Evaluator(Evaluator.DEFAULT_WEIGHTS);
+    private final List<Sample> samples = new ArrayList<>();
+    private int games;
+    //Slope of the logistic function mapping evaluations to expected results
+    private double scale = 0.004;
+
+    /**
+     * Replays game records on all cores and adds their quiet positions.
+     *
+     * @param files game records written by {@link Game#saveHistoryToFile(String)}
+     * @throws IOException if a file cannot be read
+     */
+    public void addGames(List<Path> files) throws IOException {
+        List<List<Sample>> perGame;
+        try {
+            perGame = files.parallelStream().map(file -> {
+                try (BufferedReader reader = Files.newBufferedReader(file)) {
+                    return readGame(reader);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(file.toString(), ex);
+                }
+            }).toList();
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        for (List<Sample> s : perGame) samples.addAll(s);
+        games += files.size();
+        log.info("Tuner: {} games, {} quiet positions", games, samples.size());
+    }
+
+    /**
+     * Replays one game record.
+     *
+     * @return quiet positions of the game with its result
+     */
+    List<Sample> readGame(BufferedReader reader) throws IOException {
+        List<EngineBoard> positions = new ArrayList<>();
+        Game game = Game.replay(reader, GameMode.CLASSIC, g -> {
+            EngineBoard b = EngineBoard.from(g);
+            if (quiet(b)) positions.add(b);
+        });
+        //The last turn line has been played but not ended: its player is the mover
+        EngineBoard end = EngineBoard.from(game.getBoard(), !game.getCurrentPlayer().isGold());
+        int winner = end.winner();
+        double result = winner == EngineBoard.GOLD ? 1 : winner == EngineBoard.SILVER ? 0 : 0.5;
+        List<Sample> list = new ArrayList<>(positions.size());
+        for (EngineBoard b : positions) list.add(sample(b, result));
+        return list;
+    }
+
+    /**
+     * Adds a single position.
+     *
+     * @param b      position at the start of a turn
+     * @param result result of its game for gold: 1, 0.5 or 0
+     */
+    void add(EngineBoard b, double result) {
+        samples.add(sample(b, result));
+    }
+
+    private Sample sample(EngineBoard b, double result) {
+        int[] gold = evaluator.features(b, EngineBoard.GOLD);
+        int[] silver = evaluator.features(b, EngineBoard.SILVER);
+        for (int i = 0; i < Evaluator.WEIGHT_COUNT; i++) gold[i] -= silver[i];
+        return new Sample(evaluator.materialBalance(b), gold, result);
+    }
+
+    /**
+     * @return true if neither side threatens a capture or a goal, so the static evaluation is meaningful
+     */
+    static boolean quiet(EngineBoard b) {
+        return b.winner() == EngineBoard.NONE
+                && Tactics.captureThreat(b, EngineBoard.GOLD) == 0 && Tactics.captureThreat(b, EngineBoard.SILVER) == 0
+                && Tactics.goalThreat(b, EngineBoard.GOLD) == 0 && Tactics.goalThreat(b, EngineBoard.SILVER) == 0;
+    }
+
+    /**
+     * @return number of positions collected
+     */
+    public int size() {
+        return samples.size();
+    }
+
+    /**
+     * Mean squared error of the predicted results.
+     *
+     * @param weights positional weights indexed by the {@code W_*} constants
+     */
+    public double error(int[] weights) {
+        double[] w = new double[Evaluator.WEIGHT_COUNT];
+        for (int i = 0; i < w.length; i++) w[i] = weights[i];
+        return gradient(w, null);
+    }
+
+    /**
+     * Fits the logistic slope to the samples for the given weights by a golden-section search, so the tuning
+     * starts from the scale of the current evaluation.
+     *
+     * @return the fitted slope
+     */
+    public double fitScale(int[] weights) {
+        double phi = (Math.sqrt(5) - 1) / 2;
+        double lo = Math.log(1e-4), hi = Math.log(1e-1);
+        for (int i = 0; i < 40; i++) {
+            double a = hi - phi * (hi - lo), b = lo + phi * (hi - lo);
+            scale = Math.exp(a);
+            double ea = error(weights);
+            scale = Math.exp(b);
+            double eb = error(weights);
+            if (ea < eb) hi = b;
+            else lo = a;
+        }
+        scale = Math.exp((lo + hi) / 2);
+        return scale;
+    }
+
+    /**
+     * Minimizes the error by gradient descent with Adam updates.
+     *
+     * @param start      initial weights
+     * @param iterations number of gradient steps
+     * @return tuned weights, rounded to integers
+     * @throws IllegalStateException if no positions were added
+     */
+    public int[] tune(int[] start, int iterations) {
+        if (samples.isEmpty()) throw new IllegalStateException("No positions to tune on");
+        int n = Evaluator.WEIGHT_COUNT;
+        double[] w = new double[n], grad = new double[n], m = new double[n], v = new double[n];
+        for (int i = 0; i < n; i++) w[i] = start[i];
+        for (int t = 1; t <= iterations; t++) {
+            double error = gradient(w, grad);
+            for (int i = 0; i < n; i++) {
+                m[i] = BETA1 * m[i] + (1 - BETA1) * grad[i];
+                v[i] = BETA2 * v[i] + (1 - BETA2) * grad[i] * grad[i];
+                double mHat = m[i] / (1 - Math.pow(BETA1, t));
+                double vHat = v[i] / (1 - Math.pow(BETA2, t));
+                w[i] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + EPSILON);
+            }
+            if (t % 50 == 0) log.info("Tuner iteration {}: error {} weights {}", t, error, Arrays.toString(w));
+        }
+        int[] tuned = new int[n];
+        for (int i = 0; i < n; i++) tuned[i] = (int) Math.round(w[i]);
+        return tuned;
+    }
+
+    /**
+     * Sums the error and, if {@code grad} is not null, its gradient over all samples in parallel chunks.
+     *
+     * @return mean squared error
+     */
+    private double gradient(double[] w, double[] grad) {
+        int n = Evaluator.WEIGHT_COUNT;
+        int chunks = (samples.size() + CHUNK - 1) / CHUNK;
+        double[][] partial = new double[chunks][n + 1];
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            double[] sum = partial[c];
+            int end = Math.min(samples.size(), (c + 1) * CHUNK);
+            for (int k = c * CHUNK; k < end; k++) {
+                Sample s = samples.get(k);
+                double eval = s.material;
+                for (int i = 0; i < n; i++) eval += w[i] * s.features[i] / 100.0;
+                double p = 1 / (1 + Math.exp(-scale * eval));
+                double diff = p - s.result;
+                sum[n] += diff * diff;
+                if (grad == null) continue;
+                double d = 2 * diff * p * (1 - p) * scale / 100.0;
+                for (int i = 0; i < n; i++) sum[i] += d * s.features[i];
+            }
+        });
+        double error = 0;
+        if (grad != null) Arrays.fill(grad, 0);
+        for (double[] sum : partial) {
+            error += sum[n];
+            if (grad != null) for (int i = 0; i < n; i++) grad[i] += sum[i] / samples.size();
+        }
+        return error / Math.max(1, samples.size());
+    }
+
+    /**
+     * Command line entry point: {@code Tuner <gamesDir> [out.weights] [iterations]}. Tunes from the
+     * {@link Evaluator#startupWeights()} on every {@code .txt} record below the directory and writes the weights file
+     * (default {@code evaluator.weights}, which the evaluator loads at startup).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: Tuner <gamesDir> [out.weights] [iterations]");
+            return;
+        }
+        Path out = Paths.get(args.length > 1 ? args[1] : "evaluator.weights");
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_ITERATIONS;
+        List<Path> files;
+        try (Stream<Path> s = Files.walk(Paths.get(args[0]))) {
+            files = s.filter(p -> p.toString().endsWith(".txt")).sorted().toList();
+        }
+
+        Tuner tuner = new Tuner();
+        tuner.addGames(files);
+        int[] start = Evaluator.startupWeights();
+        double scale = tuner.fitScale(start);
+        double before = tuner.error(start);
+        int[] tuned = tuner.tune(start, iterations);
+        double after = tuner.error(tuned);
+        Evaluator.saveWeights(out, tuned, String.format("Tuned on %d positions from %d games, error %.6f -> %.6f",
+                tuner.size(), files.size(), before, after));
+        System.out.printf("%d games, %d positions, scale %.5f: %s error %.6f -> %s error %.6f, written to %s%n",
+                files.size(), tuner.size(), scale, Arrays.toString(start), before, Arrays.toString(tuned), after, out);
+    }
+}
@@ -0,0 +1,85 @@
+package ai;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A complete turn: one to four engine steps ({@link Step}) followed by the end of the turn.
+ */
+public final class Turn {
+    private final int[] steps;
+    private final long hash;
+
+    /**
+     * @param steps encoded steps in playing order
+     * @param hash  position hash after the turn has ended
+     */
+    public Turn(int[] steps, long hash) {
+        this.steps = steps;
+        this.hash = hash;
+    }
+
+    /**
+     * @return number of steps (not turn step cost) in the turn
+     */
+    public int length() {
+        return steps.length;
+    }
+
+    /**
+     * @return encoded step at the given index
+     */
+    public int step(int i) {
+        return steps[i];
+    }
+
+    /**
+     * @return hash of the position after the turn
+     */
+    public long hash() {
+        return hash;
+    }
+
+    /**
+     * Plays all steps and ends the turn.
+     *
+     * @param b position at the start of the turn
+     */
+    public void play(EngineBoard b) {
+        for (int s : steps) b.makeStep(s);
+        b.endTurn();
+    }
+
+    /**
+     * Reverts {@link #play(EngineBoard)}.
+     *
+     * @param b position after the turn
+     */
+    public void undo(EngineBoard b) {
+        for (int i = 0; i <= steps.length; i++) b.undo();
+    }
+
+    /**
+     * Formats the steps as notation tokens.
+     *
+     * @param b position at the start of the turn, left unchanged
+     * @return step tokens in playing order
+     */
+    public List<String> tokens(EngineBoard b) {
+        List<String> tokens = new ArrayList<>(steps.length);
+        for (int s : steps) {
+            tokens.add(b.stepToString(s));
+            b.makeStep(s);
+        }
+        for (int i = 0; i < steps.length; i++) b.undo();
+        return tokens;
+    }
+
+    /**
+     * @param b position at the start of the turn, left unchanged
+     * @return steps separated by spaces, e.g. "Ra2n Ra3n Ed2n Ed3e"
+     */
+    public String toNotation(EngineBoard b) {
+        return String.join(" ", tokens(b));
+    }
+}
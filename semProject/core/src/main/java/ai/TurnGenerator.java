@@ -0,0 +1,76 @@
+package ai;
+
+import logic.Game;
+import logic.Zobrist;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Enumerates the distinct turns of the side to move.
+ * <p>Step sequences are explored depth-first; sequences ending in an already seen position are dropped, and so are
+ * turns that leave the position unchanged, which the rules forbid. Intermediate positions reached again with the same
+ * number of steps taken (and, when the movers are restricted, the same pieces still allowed to move) are not expanded
+ * twice. Instances keep their buffers between calls and are not thread-safe.</p>
+ */
+public class TurnGenerator {
+    private final int[][] stepBuffers = new int[Game.MAX_TURNS_STEPS][EngineBoard.MAX_STEPS];
+    private final int[] path = new int[Game.MAX_TURNS_STEPS];
+    private final LongHashSet endPositions = new LongHashSet(1 << 12);
+    private final LongHashSet expanded = new LongHashSet(1 << 12);
+
+    private long startHash;
+    private List<Turn> turns;
+
+    /**
+     * Generates all distinct turns from the current position.
+     *
+     * @param b position at the start of a turn, left unchanged
+     * @return turns in generation order, empty if the side to move cannot change the position
+     */
+    public List<Turn> generate(EngineBoard b) {
+        return generate(b, -1L);
+    }
+
+    /**
+     * Generates the distinct turns that only move the pieces on the given squares (pushed or pulled enemy pieces
+     * may stand anywhere). A selected piece stays selected when it steps to another square.
+     *
+     * @param b      position at the start of a turn, left unchanged
+     * @param movers squares of the pieces of the side to move that may step
+     * @return turns in generation order
+     */
+    public List<Turn> generate(EngineBoard b, long movers) {
+        turns = new ArrayList<>();
+        endPositions.clear();
+        expanded.clear();
+        startHash = b.hash();
+        search(b, 0, movers);
+        return turns;
+    }
+
+    private void search(EngineBoard b, int depth, long movers) {
+        int[] buf = stepBuffers[depth];
+        int n = b.generateSteps(buf);
+        for (int i = 0; i < n; i++) {
+            int step = buf[i];
+            long from = 1L << Step.from(step);
+            if ((movers & from) == 0) continue;
+            b.makeStep(step);
+            path[depth] = step;
+            long h = b.hash();
+            if (h != startHash && endPositions.add(h)) {
+                int[] steps = new int[depth + 1];
+                System.arraycopy(path, 0, steps, 0, depth + 1);
+                turns.add(new Turn(steps, h ^ Zobrist.SILVER_TO_MOVE));
+            }
+            //The pieces that may move next depend on the path, so they are part of the key when restricted
+            long next = movers == -1L ? -1L : movers & ~from | 1L << Step.to(step);
+            if (b.stepsTaken() < Game.MAX_TURNS_STEPS
+                    && expanded.add(h ^ (b.stepsTaken() * 0x9E3779B97F4A7C15L) ^ (next * 0xC2B2AE3D27D4EB4FL))) {
+                search(b, depth + 1, next);
+            }
+            b.undo();
+        }
+    }
+}
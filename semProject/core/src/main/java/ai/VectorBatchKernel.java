@@ -0,0 +1,41 @@
+package ai;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API loop of {@link BatchEvaluator}: every term is applied to as many boards per instruction as the
+ * preferred vector shape holds. Only loaded when the {@code jdk.incubator.vector} module is present.
+ */
+final class VectorBatchKernel {
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private VectorBatchKernel() {
+    }
+
+    /**
+     * Adds {@code coef[t] * bitCount(pieces[kind[t]][i] & mask[t])} over all terms to {@code total[i]} for the boards
+     * that fill whole vectors.
+     *
+     * @param n number of boards
+     * @return number of boards summed; the rest are left to the scalar loop
+     */
+    static int sum(long[][] pieces, int n, int[] kind, long[] mask, long[] coef, long[] total) {
+        int bound = SPECIES.loopBound(n);
+        for (int t = 0; t < kind.length; t++) {
+            long[] bitboards = pieces[kind[t]];
+            LongVector m = LongVector.broadcast(SPECIES, mask[t]);
+            LongVector c = LongVector.broadcast(SPECIES, coef[t]);
+            for (int i = 0; i < bound; i += SPECIES.length()) {
+                LongVector.fromArray(SPECIES, bitboards, i)
+                        .and(m)
+                        .lanewise(VectorOperators.BIT_COUNT)
+                        .mul(c)
+                        .add(LongVector.fromArray(SPECIES, total, i))
+                        .intoArray(total, i);
+            }
+        }
+        return bound;
+    }
+}
@@ -17,6 +17,10 @@ public class Board {
     public static final int SIZE = 8;
     private final Figure[][] grid;
     private final boolean[][] traps;
+    private long hash;
+    private long mirrorHash;
+    //Squares of every piece kind, kept with the grid for cheap snapshots
+    private final long[] bitboards = new long[Zobrist.PIECE_KINDS];
     private static final Logger log = LoggerFactory.getLogger(Board.class);
 
     /**
@@ -30,7 +34,7 @@ public class Board {
     public Board() {
         grid = new Figure[SIZE][SIZE];
         traps = new boolean[SIZE][SIZE];
-        log.info("Initializing board of size {}x{}", SIZE, SIZE);
+        log.debug("Initializing board of size {}x{}", SIZE, SIZE);
 
         // Traps squares initialization
         for (int r = 0; r < SIZE; r++) {
@@ -78,6 +82,15 @@ public class Board {
         grid[1][6] = new Figure(FigureType.CAMEL, false);
         grid[1][7] = new Figure(FigureType.ELEPHANT, false);
         log.debug("Silver pieces placed on row 1");
+        hash = Zobrist.hash(this, true);
+        mirrorHash = Zobrist.mirrorHash(this, true);
+        Arrays.fill(bitboards, 0L);
+        for (int r = 0; r < SIZE; r++) {
+            for (int c = 0; c < SIZE; c++) {
+                Figure f = grid[r][c];
+                if (f != null) bitboards[Zobrist.kind(f.isGold(), f.getType())] |= 1L << (r * SIZE + c);
+            }
+        }
     }
 
     /**
@@ -100,9 +113,73 @@ public class Board {
      */
     public void setFigureAt(int row, int col, Figure figure) {
         log.debug("Setting figure {} at row {} and col {}", figure, row, col);
+        Figure old = grid[row][col];
+        long bit = 1L << (row * SIZE + col);
+        if (old != null) {
+            hash ^= Zobrist.key(old, row, col);
+            mirrorHash ^= Zobrist.key(old, row, SIZE - 1 - col);
+            bitboards[Zobrist.kind(old.isGold(), old.getType())] &= ~bit;
+        }
+        if (figure != null) {
+            hash ^= Zobrist.key(figure, row, col);
+            mirrorHash ^= Zobrist.key(figure, row, SIZE - 1 - col);
+            bitboards[Zobrist.kind(figure.isGold(), figure.getType())] |= bit;
+        }
         grid[row][col] = figure;
     }
 
+    /**
+     * Captures the piece placement as an immutable snapshot.
+     *
+     * @param goldToMove true if gold is on turn
+     * @param stepsTaken steps already taken in the current turn
+     * @param sequence   publication counter of the owning game
+     * @return new snapshot sharing nothing with this board
+     */
+    public PositionSnapshot snapshot(boolean goldToMove, int stepsTaken, long sequence) {
+        return new PositionSnapshot(bitboards.clone(), goldToMove, stepsTaken, hash, sequence);
+    }
+
+    /**
+     * Sets the piece placement of a snapshot, changing only the squares that differ.
+     *
+     * @param snapshot placement to restore
+     */
+    public void restore(PositionSnapshot snapshot) {
+        long differ = 0;
+        for (int kind = 0; kind < bitboards.length; kind++) differ |= bitboards[kind] ^ snapshot.pieces(kind);
+        while (differ != 0) {
+            int sq = Long.numberOfTrailingZeros(differ);
+            differ &= differ - 1;
+            int kind = snapshot.kindAt(sq);
+            setFigureAt(sq / SIZE, sq % SIZE, kind < 0 ? null : PositionSnapshot.figure(kind));
+        }
+    }
+
+    /**
+     * Returns the Zobrist hash of the figures on the board, maintained incrementally on every change.
+     * The side to move is not included, see {@link Game#getPositionHash()}.
+     *
+     * @return 64-bit hash of the piece placement
+     */
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return Zobrist hash of the left-right mirror image of the piece placement, maintained with {@link #getHash()}
+     */
+    public long getMirrorHash() {
+        return mirrorHash;
+    }
+
+    /**
+     * @return hash shared by this placement and its mirror image, see {@link Zobrist#canonical(long, long)}
+     */
+    public long getCanonicalHash() {
+        return Zobrist.canonical(hash, mirrorHash);
+    }
+
     /**
      * Checks if a piece at the specified position is frozen
      * A figure is frozen if there is at list one orthogonally adjacent enemy figure whose strength is strictly greater that the figure's, and there are no orthogonally adjacent friendly grid to support it
@@ -174,6 +251,9 @@ public class Board {
         for (int r = 0; r < SIZE; r++)
             for (int c = 0; c < SIZE; c++)
                 grid[r][c] = null;
+        hash = 0L;
+        mirrorHash = 0L;
+        Arrays.fill(bitboards, 0L);
     }
 
     /**
@@ -206,7 +286,7 @@ public class Board {
         for (int i = 0; i < count; i++) {
             Position p = free.get(i);
             Figure f = new Figure(types.get(i), false);
-            grid[p.getRow()][p.getCol()] = f;
+            setFigureAt(p.getRow(), p.getCol(), f);
         }
     }
 
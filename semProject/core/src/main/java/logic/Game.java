@@ -1,17 +1,19 @@
 package logic;
 
-import GUI.GameWindow;
 import figures.Figure;
 import utils.ActionType;
 import utils.FigureType;
 import utils.GameMode;
+import utils.LongCountMap;
 
-import javax.swing.*;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.function.Consumer;
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +21,10 @@ import utils.StepResult;
 
 /**
  * Represents the main controller for an Arimaa game.
- * Manages the board, players, current turn, game state, move execution, timing enforcement, move history tracking, UI launching
+ * Manages the board, players, current turn, game state, move execution, timing enforcement, move history tracking
+ * <p>A game is not thread-safe: it must be used from one thread at a time, such as the Swing event thread or the
+ * single writer of a {@code server.GameSession}. Other threads read {@link #getSnapshot()}, which is published
+ * after every change.</p>
  */
 public class Game {
     private static Logger log = LoggerFactory.getLogger(Game.class);
@@ -30,14 +35,28 @@ public class Game {
     private final Player silverPlayer;
     private Player currentPlayer;
     private final GameTimer timer;
-    private final List<String> moveHistory;
-    private final List<Integer> stepsHistory;
+    //Typed record of setups, steps, captures and turn ends; the notation history is derived from it
+    private final GameJournal journal = new GameJournal();
     private final Deque<GameState> undoStack = new ArrayDeque<>();
     int turnsSteps;
+    //Board hash before the first step of the current turn
+    private long turnStartHash;
+    //End-of-turn positions: occurrence counts and the keys in order, for undo
+    private final LongCountMap positionCounts = new LongCountMap();
+    private long[] turnEndKeys = new long[64];
+    private int turnEnds;
+    //Last published position, read by other threads; the counter is only touched by the game's thread
+    private volatile PositionSnapshot snapshot;
+    private long snapshotSequence;
 
 
     public static final int MAX_TURNS_STEPS = 4;
 
+    /**
+     * A turn may not produce the same position (with the same side to move) for this many times
+     */
+    public static final int MAX_REPETITIONS = 3;
+
     private static final Position[] TRAPS = {
             new Position(2, 2),
             new Position(2, 5),
@@ -52,7 +71,7 @@ public class Game {
      * @param mode CLASSIC (without timer) or FAST (with timer)
      */
     public Game(GameMode mode) {
-        log.info("Initializing a new game with mode {}", mode);
+        log.debug("Initializing a new game with mode {}", mode);
         this.mode = mode;
         this.board = new Board();
         this.goldPlayer = new Player(true);
@@ -73,9 +92,8 @@ public class Game {
         this.timer = new GameTimer();
         this.timer.setMode(mode);
 
-        this.moveHistory = new ArrayList<>();
-        this.stepsHistory = new ArrayList<>();
         this.turnsSteps = 0;
+        publish();
     }
 
     /**
@@ -85,7 +103,7 @@ public class Game {
      * @param initialBoard Board to use
      */
     public Game(GameMode mode, Board initialBoard) {
-        log.info("Initializing a new game with custom board and mode {}", mode);
+        log.debug("Initializing a new game with custom board and mode {}", mode);
         this.mode = mode;
         this.board = initialBoard;
         this.goldPlayer = new Player(true);
@@ -105,18 +123,8 @@ public class Game {
         this.timer = new GameTimer();
         this.timer.setMode(mode);
 
-        this.moveHistory = new ArrayList<>();
-        this.stepsHistory = new ArrayList<>();
         this.turnsSteps = 0;
-    }
-
-    /**
-     * Starts the game loop.
-     * Launches the Swing UI for this game session.
-     */
-    public void startGame() {
-        log.info("Launching game window");
-        SwingUtilities.invokeLater((GameWindow::new));
+        publish();
     }
 
 
@@ -138,33 +146,7 @@ public class Game {
             throw new IllegalArgumentException("No steps left: please end your turn first");
         }
 
-        if (!moveHistory.isEmpty()) {
-            String lastNote = moveHistory.get(moveHistory.size() - 1);
-            if (lastNote.startsWith("1g") || lastNote.startsWith("1s")) {
-
-            } else {
-                try {
-                    Notation.Move prev = Notation.parse(lastNote);
-                    if (prev.getFrom() != null && prev.getTo() != null
-                            && prev.getFrom().equals(to) && prev.getTo().equals(from)) {
-                        Figure f = board.getFigureAt(from.getRow(), from.getCol());
-                        board.setFigureAt(to.getRow(), to.getCol(), f);
-                        board.setFigureAt(from.getRow(), from.getCol(), null);
-                        moveHistory.remove(moveHistory.size() - 1);
-                        if (lastNote.contains(">") || lastNote.contains("<")) {
-                            turnsSteps = Math.max(0, turnsSteps - 2);
-                        } else {
-                            turnsSteps = Math.max(0, turnsSteps - 1);
-                        }
-                        log.info("Inverse move {} undone automatically", lastNote);
-                        return StepResult.simple(Collections.emptyList());
-                    }
-                } catch (IllegalArgumentException ex) {
-
-                }
-            }
-
-        }
+        markTurnStart();
 
         enforceTimers();
         //Validate and perform move
@@ -188,12 +170,13 @@ public class Game {
             board.setFigureAt(to.getRow(), to.getCol(), figure);
             board.setFigureAt(from.getRow(), from.getCol(), null);
             turnsSteps++;
-            recordStep(notation, 1);
+            journal.step(kind(figure), square(from), square(to));
             log.info("Player {} made move: {}", currentPlayer.isGold() ? "Gold" : "Silver", notation);
 
             List<String> allNotes = new ArrayList<>();
             allNotes.add(notation);
             allNotes.addAll(handleTraps());
+            publish();
 
             return StepResult.simple(allNotes);
         }
@@ -238,6 +221,7 @@ public class Game {
         }
 
         saveState();
+        markTurnStart();
 
         enforceTimers();
         Figure mover = board.getFigureAt(from.getRow(), from.getCol());
@@ -252,15 +236,16 @@ public class Game {
         if (pushDest.contains(destination)) {
             notation = Notation.formatPush(mover, from, to, destination);
             performPush(from, to, destination);
+            journal.push(kind(mover), square(from), square(to), square(destination));
         } else if (pullDest.contains(destination)) {
             notation = Notation.formatPull(mover, from, to, destination);
             performPull(from, to, destination);
+            journal.pull(kind(mover), square(from), square(to), square(destination));
         } else {
             throw new IllegalArgumentException("Destination " + destination + " is not valid for push/pull");
         }
 
         turnsSteps += 2;
-        recordStep(notation, 2);
         log.info("Player {} made : {}", currentPlayer.isGold() ? "Gold" : "Silver", notation);
 
         List<String> captures = handleTraps();
@@ -268,6 +253,7 @@ public class Game {
             log.info("Auto-capture: {}", cap);
         }
 
+        publish();
         List<String> allNotes = new ArrayList<>();
 
         return StepResult.simple(allNotes);
@@ -286,15 +272,6 @@ public class Game {
         }
     }
 
-    /**
-     * Adds a token (move or capture) to move history.
-     *
-     * @param tok move token
-     */
-    public void addToHistory(String tok) {
-        moveHistory.add(tok);
-    }
-
     /**
      * Performs a push operation: victim piece is moved to destination, mover takes victim's position.
      */
@@ -317,14 +294,12 @@ public class Game {
         board.setFigureAt(victim.getRow(), victim.getCol(), null);
     }
 
-    /**
-     * Adds a step notation to move history.
-     *
-     * @param notation step in Arimaa notation
-     */
-    private void recordStep(String notation, int stepsTaken) {
-        moveHistory.add(notation);
-        stepsHistory.add(stepsTaken);
+    private static int kind(Figure figure) {
+        return Zobrist.kind(figure.isGold(), figure.getType());
+    }
+
+    private static int square(Position p) {
+        return p.getRow() * Board.SIZE + p.getCol();
     }
 
     /**
@@ -333,17 +308,27 @@ public class Game {
      * @return list of capture notations for this step
      */
     private List<String> handleTraps() {
-        List<String> captures = new ArrayList<>();
+        int before = journal.size();
+        captureUnprotected();
+        return journal.tokens(before, journal.size());
+    }
+
+    /**
+     * Removes the unprotected figures from the traps and journals the captures.
+     *
+     * @return number of captured figures
+     */
+    private int captureUnprotected() {
+        int captured = 0;
         for (Position trap : TRAPS) {
             Figure f = board.getFigureAt(trap.getRow(), trap.getCol());
             if (f != null && board.countFriends(trap.getRow(), trap.getCol()) == 0) {
                 board.setFigureAt(trap.getRow(), trap.getCol(), null);
-                String cap = Notation.formatCapture(f, trap);
-                moveHistory.add(cap);
-                captures.add(cap);
+                journal.capture(kind(f), square(trap));
+                captured++;
             }
         }
-        return captures;
+        return captured;
     }
 
     /**
@@ -441,6 +426,39 @@ public class Game {
         return validateStep(from, to, figure);
     }
 
+    /**
+     * Lists every legal step of the current player with the same checks as {@link #step(Position, Position)}.
+     * Push and pull tokens are listed even if the turn has fewer than two steps left.
+     *
+     * @return step tokens ("Ra2n", "Ed4n>c5", "Ed4n<d3") in board order
+     */
+    public List<String> legalStepTokens() {
+        List<String> tokens = new ArrayList<>();
+        int[][] dirs = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Figure figure = board.getFigureAt(row, col);
+                if (figure == null || figure.isGold() != currentPlayer.isGold()) continue;
+                Position from = new Position(row, col);
+                for (int[] d : dirs) {
+                    Position to = new Position(row + d[0], col + d[1]);
+                    if (!isInBounds(to) || !validateStep(from, to, figure)) continue;
+                    if (board.getFigureAt(to.getRow(), to.getCol()) == null) {
+                        tokens.add(Notation.formatSimple(figure, from, to));
+                        continue;
+                    }
+                    for (Position dest : getPushDestinations(from, to)) {
+                        tokens.add(Notation.formatPush(figure, from, to, dest));
+                    }
+                    for (Position dest : getPullDestinations(from, to)) {
+                        tokens.add(Notation.formatPull(figure, from, to, dest));
+                    }
+                }
+            }
+        }
+        return tokens;
+    }
+
     /**
      * Checks if a position is within board bounds
      */
@@ -450,32 +468,106 @@ public class Game {
 
     /**
      * Ends the current turn prematurely and switches player
+     *
+     * @throws IllegalArgumentException if no step was taken or the board is the same as at the start of the turn
      */
     public List<String> endTurnEarly() {
         log.info("Ending turn early for {}", currentPlayer.isGold() ? "gold" : "silver");
+        checkTurnEnd();
+        return finishTurn();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the turn does not change the position or ending it now would reach the same
+     *                                  position the third time
+     */
+    private void checkTurnEnd() {
+        if (!turnChangesPosition()) {
+            log.warn("Turn of {} does not change the position", currentPlayer.isGold() ? "gold" : "silver");
+            throw new IllegalArgumentException("The turn must change the position");
+        }
+        long next = board.getHash() ^ (currentPlayer.isGold() ? Zobrist.SILVER_TO_MOVE : 0L);
+        if (positionCounts.count(next) >= MAX_REPETITIONS - 1) {
+            log.warn("Turn of {} repeats a position {} times", currentPlayer.isGold() ? "gold" : "silver", MAX_REPETITIONS);
+            throw new IllegalArgumentException("The turn would repeat a position " + MAX_REPETITIONS + " times");
+        }
+    }
+
+    /**
+     * Records the end of the current turn in the journal and the repetition counts and hands the move to the other
+     * side.
+     *
+     * @return "-" for every unused step
+     */
+    private List<String> finishTurn() {
         int unused = MAX_TURNS_STEPS - turnsSteps;
         List<String> fillers = new ArrayList<>();
         for (int i = 0; i < unused; i++) {
-            moveHistory.add("-");
             fillers.add("-");
         }
+        journal.turnEnd(currentPlayer.isGold(), unused);
         if (timer != null) {
             timer.endTurn();
         }
-        switchPlayer();
-        turnsSteps = 0;
+        changeSides();
+        recordTurnEnd();
+        publish();
         return fillers;
     }
 
     /**
-     * Increments step counter and switches player if turn steps reach max.
+     * @return how often the position (including the side to move) occurred at the end of a turn
+     */
+    public int repetitionCount(long positionHash) {
+        return positionCounts.count(positionHash);
+    }
+
+    /**
+     * Counts the current position as a turn end, so it can be rolled back by {@link #undo()}.
+     */
+    private void recordTurnEnd() {
+        long key = getPositionHash();
+        positionCounts.increment(key);
+        if (turnEnds == turnEndKeys.length) turnEndKeys = Arrays.copyOf(turnEndKeys, turnEnds * 2);
+        turnEndKeys[turnEnds++] = key;
+    }
+
+    /**
+     * Checks the rule that a turn must change the position by comparing the board hash with the one at the start
+     * of the turn. A turn without any step, a pass, does not change it; the loaders end such turns themselves.
+     *
+     * @return false if no step was taken or the board is back to its state at the start of the turn
+     */
+    public boolean turnChangesPosition() {
+        return turnsSteps > 0 && board.getHash() != turnStartHash;
+    }
+
+    /**
+     * Remembers the board hash before the first step of a turn.
+     */
+    private void markTurnStart() {
+        if (turnsSteps == 0) {
+            turnStartHash = board.getHash();
+        }
+    }
+
+    /**
+     * Increments step counter and ends the turn like {@link #endTurnEarly()} if turn steps reach max.
+     *
+     * @throws IllegalArgumentException if the skip would end a turn that does not change the position or reaches a
+     *                                  position the third time
      */
     public void skipStep() {
+        markTurnStart();
+        if (turnsSteps + 1 >= MAX_TURNS_STEPS) {
+            checkTurnEnd();
+        }
         turnsSteps++;
         if (turnsSteps >= MAX_TURNS_STEPS) {
-            switchPlayer();
-            turnsSteps = 0;
+            finishTurn();
+            return;
         }
+        publish();
     }
 
     /**
@@ -513,40 +605,56 @@ public class Game {
      */
     public void saveHistoryToFile(String filePath) throws IOException {
         try (BufferedWriter writer = new BufferedWriter(new FileWriter(filePath))) {
-            // Setup
-            writer.write(moveHistory.get(0));
-            writer.write("\n"); // 1g
-            writer.write(moveHistory.get(1));
-            writer.write("\n"); // 1s
-
-            int idx = 2;
-            int turn = 2;
-            boolean goldTurn = true;
-
-            while (idx < moveHistory.size()) {
-                writer.write(turn + (goldTurn ? "g" : "s"));
-                int steps = 0;
-                List<String> captures = new ArrayList<>();
-                while (idx < moveHistory.size() && steps < 4) {
-                    String token = moveHistory.get(idx++);
-                    if (token.endsWith("x")) {
-                        captures.add(token);
-                    } else {
-                        writer.write(" " + token);
-                        steps++;
-                    }
-                }
-                while (steps < 4) {
-                    writer.write(" -");
-                    steps++;
-                }
-                for (String cap : captures) {
-                    writer.write(" " + cap);
+            journal.write(writer);
+        }
+    }
+
+    /**
+     * Writes a move history in the game file notation: the two setup lines, then one line per turn with
+     * four steps ("-" for unused ones, a push or pull counts as two) followed by the turn's captures.
+     *
+     * @param history setup lines followed by step, filler ("-") and capture ("Ch3x") tokens
+     * @param writer  destination, not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeHistory(List<String> history, Writer writer) throws IOException {
+        // Setup
+        writer.write(history.get(0));
+        writer.write("\n"); // 1g
+        writer.write(history.get(1));
+        writer.write("\n"); // 1s
+
+        int idx = 2;
+        int turn = 2;
+        boolean goldTurn = true;
+
+        while (idx < history.size()) {
+            writer.write(turn + (goldTurn ? "g" : "s"));
+            int steps = 0;
+            List<String> captures = new ArrayList<>();
+            while (idx < history.size() && steps < MAX_TURNS_STEPS) {
+                String token = history.get(idx++);
+                if (token.endsWith("x")) {
+                    captures.add(token);
+                } else {
+                    writer.write(" " + token);
+                    steps += token.contains(">") || token.contains("<") ? 2 : 1;
                 }
-                writer.write("\n");
-                if (!goldTurn) turn++;
-                goldTurn = !goldTurn;
             }
+            //Captures of the last step directly follow it in the history
+            while (idx < history.size() && history.get(idx).endsWith("x")) {
+                captures.add(history.get(idx++));
+            }
+            while (steps < MAX_TURNS_STEPS) {
+                writer.write(" -");
+                steps++;
+            }
+            for (String cap : captures) {
+                writer.write(" " + cap);
+            }
+            writer.write("\n");
+            if (!goldTurn) turn++;
+            goldTurn = !goldTurn;
         }
     }
 
@@ -555,27 +663,33 @@ public class Game {
      * Loads game from aa notation file by replaying valid moves
      */
     public static Game loadFromFile(String filePath, GameMode mode) throws IOException {
-        List<String> lines = java.nio.file.Files.readAllLines(Paths.get(filePath));
+        try (BufferedReader reader = java.nio.file.Files.newBufferedReader(Paths.get(filePath))) {
+            return replay(reader, mode, game -> {
+            });
+        }
+    }
+
+    /**
+     * Replays a game record line by line as it is read, like {@link #loadFromFile(String, GameMode)}, so large
+     * archives can be processed without holding whole files in memory.
+     *
+     * @param reader    game record in the format written by {@link #saveHistoryToFile(String)}, not closed
+     * @param mode      game mode of the replayed game
+     * @param turnStart called with the game at the start of every turn line, before its steps are played
+     * @return the game after the last turn
+     * @throws IOException if reading fails
+     */
+    public static Game replay(BufferedReader reader, GameMode mode, Consumer<Game> turnStart) throws IOException {
         Game game = new Game(mode);
 
-        int lineNum = 0;
-        for (String line : lines) {
-            lineNum++;
+        String line;
+        while ((line = reader.readLine()) != null) {
             line = line.trim();
             if (line.isEmpty()) continue;
 
             if (line.startsWith("1g") || line.startsWith("1s")) {
                 String[] parts = line.split("\\s+");
-                boolean isGold = line.startsWith("1g");
-                for (int i = 1; i < parts.length; i++) {  // с 1, пропуская 1g/1s
-                    String fig = parts[i];
-                    char pieceChar = fig.charAt(0);
-                    FigureType type = FigureType.fromLetter("" + Character.toUpperCase(pieceChar));
-                    boolean goldSide = Character.isUpperCase(pieceChar);
-                    int col = fig.charAt(1) - 'a';
-                    int row = Board.SIZE - (fig.charAt(2) - '1') - 1;
-                    game.getBoard().setFigureAt(row, col, new Figure(type, goldSide));
-                }
+                game.addSetupMove(Arrays.asList(parts).subList(1, parts.length), line.startsWith("1g"));
                 continue;
             }
             if (line.matches("^\\d+[gs].*")) {
@@ -583,9 +697,12 @@ public class Game {
                 boolean isGoldLine = parts[0].endsWith("g");
 
                 if (game.currentPlayer.isGold() != isGoldLine) {
+                    game.journal.turnEnd(game.currentPlayer.isGold(), MAX_TURNS_STEPS - game.turnsSteps);
                     game.switchPlayer();
+                    game.recordTurnEnd();
                 }
                 game.turnsSteps = 0;
+                turnStart.accept(game);
 
                 for (int i = 1; i < parts.length; i++) {
                     String token = parts[i];
@@ -597,34 +714,189 @@ public class Game {
                         continue;
                     }
                     try {
-                        Notation.Move move = Notation.parse(token);
-                        if (token.contains(">") || token.contains("<")) {
-                            // Push or Pull
-                            game.resolveStep(move.getFrom(), move.getTo(), move.getDestination());
-                        } else {
-                            // Simple move
-                            game.step(move.getFrom(), move.getTo());
-                        }
-                    } catch (Exception ex) {
-
+                        game.playToken(token);
+                    } catch (IllegalArgumentException | IllegalStateException ex) {
+                        log.warn("[loadFromFile] Skipping step {} of {}: {}", token, parts[0], ex.getMessage());
                     }
 
                 }
-                log.info("[loadFromFile] End of {}: currentPlayer={}, turnsSteps={}",
+                log.debug("[loadFromFile] End of {}: currentPlayer={}, turnsSteps={}",
                         parts[0], game.getCurrentPlayer().isGold() ? "Gold" : "Silver", game.turnsSteps);
             }
         }
         log.info("[loadFromFile] Game loaded. Final player={}, turnsSteps={}",
                 game.getCurrentPlayer().isGold() ? "Gold" : "Silver", game.turnsSteps);
+        game.publish();
         return game;
     }
 
 
     /**
-     * @return a new List containing all move tokens from moveHistory
+     * Loads a trusted game record, such as one written by {@link #saveHistoryToFile(String)}, in one pass.
+     * <p>Unlike {@link #replay(BufferedReader, GameMode, Consumer)}, steps are applied straight to the board: only
+     * the moving piece, the empty target and the steps per turn are checked, not freezing, strength or rabbit
+     * direction, and no undo states or timer updates are made; only the construction of the game logs, at debug
+     * level. Captures follow from the trap rule and must match the capture tokens of each line. The loaded game
+     * cannot be undone past its last position.</p>
+     *
+     * @param reader game record, not closed
+     * @param mode   game mode of the loaded game
+     * @return the game after the last turn
+     * @throws IOException              if reading fails
+     * @throws IllegalArgumentException if a token is malformed or does not fit the position, with its line number
+     */
+    public static Game replayTrusted(BufferedReader reader, GameMode mode) throws IOException {
+        Game game = new Game(mode);
+        Board board = game.board;
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            int end = line.length();
+            int i = skipSpaces(line, 0);
+            if (i == end) continue;
+            int label = i;
+            while (i < end && !Character.isWhitespace(line.charAt(i))) i++;
+            if (i - label < 2 || !Character.isDigit(line.charAt(label))) continue;
+            char side = line.charAt(i - 1);
+            if (side != 'g' && side != 's') continue;
+            boolean setup = i - label == 2 && line.charAt(label) == '1';
+            if (!setup && (side == 'g') != game.currentPlayer.isGold()) {
+                game.journal.turnEnd(game.currentPlayer.isGold(), MAX_TURNS_STEPS - game.turnsSteps);
+                game.currentPlayer = game.currentPlayer == game.goldPlayer ? game.silverPlayer : game.goldPlayer;
+                game.recordTurnEnd();
+            }
+            game.turnsSteps = 0;
+            game.turnStartHash = board.getHash();
+            int captures = 0, captureTokens = 0;
+            for (i = skipSpaces(line, i); i < end; i = skipSpaces(line, i)) {
+                int start = i;
+                while (i < end && !Character.isWhitespace(line.charAt(i))) i++;
+                int length = i - start;
+                if (length == 1 && line.charAt(start) == '-') continue;
+                try {
+                    if (setup) {
+                        int kind = Notation.kind(line.charAt(start));
+                        if (kind < 0 || length != 3) throw new IllegalArgumentException("invalid setup token");
+                        int square = Notation.parseSquare(line, start + 1);
+                        board.setFigureAt(square / Board.SIZE, square % Board.SIZE, PositionSnapshot.figure(kind));
+                        game.journal.setup(kind, square);
+                    } else if (length == 4 && line.charAt(start + 3) == 'x') {
+                        captureTokens++;
+                    } else {
+                        if (!game.applyTrusted(StepCodec.encode(line, start, i))) {
+                            throw new IllegalArgumentException("step does not fit the position");
+                        }
+                        captures += game.captureUnprotected();
+                    }
+                } catch (IllegalArgumentException ex) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + ex.getMessage() + ": "
+                            + line.substring(start, i), ex);
+                }
+            }
+            if (captures != captureTokens) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": " + captureTokens
+                        + " captures recorded but " + captures + " made: " + line);
+            }
+        }
+        game.publish();
+        return game;
+    }
+
+    /**
+     * Applies an encoded step, push or pull with the checks of {@link #replayTrusted(BufferedReader, GameMode)}.
+     *
+     * @return false if the mover is not on its square, a target is occupied or the turn has no steps left
+     */
+    private boolean applyTrusted(short code) {
+        int kind = StepCodec.kind(code);
+        int from = StepCodec.from(code), to = StepCodec.to(code);
+        Figure mover = board.getFigureAt(from / Board.SIZE, from % Board.SIZE);
+        Figure target = board.getFigureAt(to / Board.SIZE, to % Board.SIZE);
+        int type = StepCodec.type(code);
+        turnsSteps += StepCodec.cost(code);
+        if (mover == null || kind(mover) != kind || mover.isGold() != currentPlayer.isGold()
+                || turnsSteps > MAX_TURNS_STEPS) {
+            return false;
+        }
+        if (type == StepCodec.STEP) {
+            if (target != null) return false;
+            board.setFigureAt(to / Board.SIZE, to % Board.SIZE, mover);
+            board.setFigureAt(from / Board.SIZE, from % Board.SIZE, null);
+            journal.step(kind, from, to);
+            return true;
+        }
+        int destination = StepCodec.destination(code);
+        if (target == null || target.isGold() == mover.isGold()
+                || board.getFigureAt(destination / Board.SIZE, destination % Board.SIZE) != null) {
+            return false;
+        }
+        if (type == StepCodec.PUSH) {
+            board.setFigureAt(destination / Board.SIZE, destination % Board.SIZE, target);
+            board.setFigureAt(to / Board.SIZE, to % Board.SIZE, mover);
+            board.setFigureAt(from / Board.SIZE, from % Board.SIZE, null);
+            journal.push(kind, from, to, destination);
+        } else {
+            board.setFigureAt(destination / Board.SIZE, destination % Board.SIZE, mover);
+            board.setFigureAt(from / Board.SIZE, from % Board.SIZE, target);
+            board.setFigureAt(to / Board.SIZE, to % Board.SIZE, null);
+            journal.pull(kind, from, to, destination);
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String line, int index) {
+        while (index < line.length() && Character.isWhitespace(line.charAt(index))) index++;
+        return index;
+    }
+
+    /**
+     * Replays a single step token ("Ra2n", "Ed4>d5", "Ed4<d3") on the current position.
+     * Filler ("-") and capture ("Ch3x") tokens are skipped, captures are derived from the trap rules.
+     *
+     * @param token step in Arimaa notation
+     * @return notation tokens appended to the history by this step (the step and any captures)
+     * @throws IllegalArgumentException if the token is malformed or the step is illegal
+     */
+    public List<String> playToken(String token) {
+        if (token.equals("-") || token.endsWith("x")) {
+            return List.of();
+        }
+        int before = journal.size();
+        Notation.Move move = Notation.parse(token);
+        if (token.contains(">") || token.contains("<")) {
+            // Push or Pull
+            resolveStep(move.getFrom(), move.getTo(), move.getDestination());
+        } else {
+            // Simple move
+            StepResult res = step(move.getFrom(), move.getTo());
+            if (res.type != ActionType.SIMPLE) {
+                throw new IllegalArgumentException("Step " + token + " needs a push/pull destination");
+            }
+        }
+        return journal.tokens(before, journal.size());
+    }
+
+    /**
+     * @return Zobrist hash of the current position, including the side to move
+     */
+    public long getPositionHash() {
+        return board.getHash() ^ (currentPlayer.isGold() ? 0L : Zobrist.SILVER_TO_MOVE);
+    }
+
+    /**
+     * @return a new list of the notation tokens derived from the journal: setup lines, steps, captures and
+     * fillers ("-")
      */
     public List<String> getRawHistory() {
-        return new ArrayList<>(moveHistory);
+        return journal.tokens();
+    }
+
+    /**
+     * @return the record of this game; read it on the game's thread
+     */
+    public GameJournal getJournal() {
+        return journal;
     }
 
     /**
@@ -634,9 +906,6 @@ public class Game {
      * @param isGold     true if gold setup, false if silver
      */
     public void addSetupMove(List<String> setupMoves, boolean isGold) {
-        String prefix = isGold ? "1g" : "1s";
-        String setupStr = prefix + " " + String.join(" ", setupMoves);
-        moveHistory.add(setupStr);
         for (String fig : setupMoves) {
             char pieceChar = fig.charAt(0);
             FigureType type = FigureType.fromLetter("" + Character.toUpperCase(pieceChar));
@@ -644,15 +913,21 @@ public class Game {
             int col = fig.charAt(1) - 'a';
             int row = Board.SIZE - (fig.charAt(2) - '1') - 1;
             board.setFigureAt(row, col, new Figure(type, goldSide));
+            journal.setup(Zobrist.kind(goldSide, type), row * Board.SIZE + col);
         }
+        publish();
     }
 
     private void saveState() {
-        Figure[][] currentMatrix = board.getBoardMatrix();
-        boolean goldTurn = currentPlayer.isGold();
-        int steps = turnsSteps;
+        PositionSnapshot position = board.snapshot(currentPlayer.isGold(), turnsSteps, snapshotSequence);
+        undoStack.push(new GameState(position, turnStartHash, turnEnds, journal.size()));
+    }
 
-        undoStack.push(new GameState(currentMatrix, goldTurn, steps));
+    /**
+     * Publishes the current position for readers on other threads.
+     */
+    private void publish() {
+        snapshot = board.snapshot(currentPlayer.isGold(), turnsSteps, ++snapshotSequence);
     }
 
 
@@ -667,28 +942,22 @@ public class Game {
         }
 
         GameState prev = undoStack.pop();
-
-        Figure[][] mat = prev.boardCopy;
-        for (int r = 0; r < Board.SIZE; r++) {
-            for (int c = 0; c < Board.SIZE; c++) {
-                Figure f = mat[r][c];
-                if (f != null) {
-                    board.setFigureAt(r, c, new Figure(f.getType(), f.isGold()));
-                } else {
-                    board.setFigureAt(r, c, null);
-                }
-            }
+        //Roll back the turn ends after the restored state
+        while (turnEnds > prev.turnEnds) {
+            positionCounts.decrement(turnEndKeys[--turnEnds]);
         }
 
-        if (prev.isGoldTurn != currentPlayer.isGold()) {
-            switchPlayer();
-        }
-        this.turnsSteps = prev.turnsSteps;
+        board.restore(prev.position);
 
-        if (!moveHistory.isEmpty()) {
-            moveHistory.remove(moveHistory.size() - 1);
+        if (prev.position.goldToMove != currentPlayer.isGold()) {
+            changeSides();
         }
+        this.turnsSteps = prev.position.stepsTaken;
+        this.turnStartHash = prev.turnStartHash;
 
+        journal.truncate(prev.journalSize);
+
+        publish();
         return true;
     }
 
@@ -714,6 +983,21 @@ public class Game {
         return timer;
     }
 
+    /**
+     * @return number of states saved for {@link #undo()}: one per call of {@link #step(Position, Position)} and
+     * {@link #resolveStep(Position, Position, Position)}, including rejected ones, and none for a turn end
+     */
+    public int getUndoDepth() {
+        return undoStack.size();
+    }
+
+    /**
+     * @return a copy of the end-of-turn position counts of the repetition rule, keyed like {@link #getPositionHash()}
+     */
+    public LongCountMap getPositionCounts() {
+        return new LongCountMap(positionCounts);
+    }
+
     /**
      * @return remaining steps in the current turn
      */
@@ -728,10 +1012,23 @@ public class Game {
         return currentPlayer;
     }
 
+    /**
+     * @return the position after the last step, turn end, setup or undo; safe to read from any thread.
+     * Changes made directly on {@link #getBoard()} are not included.
+     */
+    public PositionSnapshot getSnapshot() {
+        return snapshot;
+    }
+
     /**
      * Switches the turn to the other player, reset step counter and manages timing
      */
     public void switchPlayer() {
+        changeSides();
+        publish();
+    }
+
+    private void changeSides() {
         log.info("Switching turn from {} to {}", currentPlayer.isGold() ? "gold" : "silver", !currentPlayer.isGold() ? "gold" : "silver");
         if (mode == GameMode.FAST) {
             timer.endTurn();
@@ -749,24 +1046,16 @@ public class Game {
      * Internal class to store game state for undo functionality
      */
     private static class GameState {
-        final Figure[][] boardCopy;
-        final boolean isGoldTurn;
-        final int turnsSteps;
-
-        GameState(Figure[][] boardMatrix, boolean isGoldTurn, int turnsSteps) {
-            this.boardCopy = new Figure[Board.SIZE][Board.SIZE];
-            for (int r = 0; r < Board.SIZE; r++) {
-                for (int c = 0; c < Board.SIZE; c++) {
-                    Figure f = boardMatrix[r][c];
-                    if (f != null) {
-                        this.boardCopy[r][c] = new Figure(f.getType(), f.isGold());
-                    } else {
-                        this.boardCopy[r][c] = null;
-                    }
-                }
-            }
-            this.isGoldTurn = isGoldTurn;
-            this.turnsSteps = turnsSteps;
+        final PositionSnapshot position;
+        final long turnStartHash;
+        final int turnEnds;
+        final int journalSize;
+
+        GameState(PositionSnapshot position, long turnStartHash, int turnEnds, int journalSize) {
+            this.position = position;
+            this.turnStartHash = turnStartHash;
+            this.turnEnds = turnEnds;
+            this.journalSize = journalSize;
         }
     }
 
@@ -0,0 +1,291 @@
+package logic;
+
+import utils.GameMode;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Streaming reader of game archives: files holding many game records in the format written by
+ * {@link Game#saveHistoryToFile(String)}, one after another.
+ * <p>The file is read a window at a time into one reused buffer and split into records at every line starting with
+ * "1g". The records are loaded with {@link Game#replayTrusted(BufferedReader, GameMode)} on a fork-join pool, in
+ * batches and at most a fixed number at once, and handed out in file order, so memory use does not grow with the
+ * archive. A record that cannot be loaded is reported in its {@link Entry} and does not stop the import.</p>
+ * <p>An archive is read by one thread; the games it returns belong to that thread.</p>
+ */
+public final class GameArchive implements Closeable {
+    public static final int DEFAULT_IN_FLIGHT = 256;
+    //Bytes read at a time; a single record must fit
+    static final int WINDOW_BYTES = 4 << 20;
+    //Records loaded by one task, so that handing work to the pool costs little per game
+    static final int BATCH = 32;
+
+    /**
+     * One record of an archive: the loaded game, or the reason it could not be loaded
+     */
+    public static final class Entry {
+        //Zero-based number of the record in the archive
+        public final long index;
+        //Byte offset of the record in the file
+        public final long offset;
+        //Loaded game, null if the record is malformed
+        public final Game game;
+        //Why the record could not be loaded, null if it was
+        public final String error;
+
+        Entry(long index, long offset, Game game, String error) {
+            this.index = index;
+            this.offset = offset;
+            this.game = game;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return "Game " + index + " at byte " + offset + (error == null ? "" : ": " + error);
+        }
+    }
+
+    private final FileChannel channel;
+    private final long size;
+    private final GameMode mode;
+    private final ForkJoinPool pool;
+    private final int inFlight;
+    private final int windowBytes;
+    private final ArrayDeque<CompletableFuture<Entry[]>> pending = new ArrayDeque<>();
+    //Loaded entries being handed out, and the next one to hand out
+    private Entry[] batch;
+    private int cursor;
+    private ByteBuffer window;
+    private long windowStart;
+    //Start of the next record to split off
+    private long position;
+    private long records;
+
+    private GameArchive(FileChannel channel, GameMode mode, ForkJoinPool pool, int inFlight, int windowBytes)
+            throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.mode = mode;
+        this.pool = pool;
+        this.inFlight = inFlight;
+        this.windowBytes = windowBytes;
+    }
+
+    /**
+     * Opens an archive loaded on the common pool.
+     *
+     * @param file archive file
+     * @param mode game mode of the loaded games
+     * @throws IOException if the file cannot be opened
+     */
+    public static GameArchive open(Path file, GameMode mode) throws IOException {
+        return open(file, mode, ForkJoinPool.commonPool(), DEFAULT_IN_FLIGHT);
+    }
+
+    /**
+     * @param file     archive file
+     * @param mode     game mode of the loaded games
+     * @param pool     pool that loads the records
+     * @param inFlight records read ahead and loading at most, which bounds the memory used
+     * @throws IOException if the file cannot be opened
+     */
+    public static GameArchive open(Path file, GameMode mode, ForkJoinPool pool, int inFlight) throws IOException {
+        return open(file, mode, pool, inFlight, WINDOW_BYTES);
+    }
+
+    static GameArchive open(Path file, GameMode mode, ForkJoinPool pool, int inFlight, int windowBytes)
+            throws IOException {
+        if (inFlight < 1) throw new IllegalArgumentException("inFlight must be positive: " + inFlight);
+        return new GameArchive(FileChannel.open(file, StandardOpenOption.READ), mode, pool, inFlight, windowBytes);
+    }
+
+    /**
+     * Loads every record of an archive on the common pool.
+     *
+     * @param file     archive file
+     * @param mode     game mode of the loaded games
+     * @param consumer called on this thread with every entry in file order
+     * @return number of records
+     * @throws IOException if reading fails
+     */
+    public static long forEach(Path file, GameMode mode, Consumer<? super Entry> consumer) throws IOException {
+        try (GameArchive archive = open(file, mode)) {
+            Entry entry;
+            while ((entry = archive.next()) != null) consumer.accept(entry);
+            return archive.records;
+        }
+    }
+
+    /**
+     * Returns the next record, waiting for it to be loaded, and starts loading the ones after it.
+     *
+     * @return the entry, or null at the end of the archive
+     * @throws IOException if reading fails or a record is longer than the read window
+     */
+    public Entry next() throws IOException {
+        if (batch != null && cursor < batch.length) return batch[cursor++];
+        int batchSize = Math.min(BATCH, inFlight);
+        while (pending.size() * batchSize < inFlight) {
+            long first = records;
+            long[] offsets = new long[batchSize];
+            String[] texts = new String[batchSize];
+            int n = 0;
+            for (; n < batchSize; n++) {
+                long offset = skipBlank(position);
+                if (offset >= size) break;
+                long end = recordEnd(offset);
+                offsets[n] = offset;
+                texts[n] = text(offset, end);
+                position = end;
+                records++;
+            }
+            if (n == 0) break;
+            int count = n;
+            pending.add(CompletableFuture.supplyAsync(() -> load(first, offsets, texts, count), pool));
+        }
+        CompletableFuture<Entry[]> next = pending.poll();
+        if (next == null) return null;
+        batch = next.join();
+        cursor = 1;
+        return batch[0];
+    }
+
+    /**
+     * Streams the remaining entries in file order; closing the stream closes the archive.
+     */
+    public Stream<Entry> stream() {
+        Spliterator<Entry> spliterator = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super Entry> action) {
+                Entry entry;
+                try {
+                    entry = next();
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+                if (entry == null) return false;
+                action.accept(entry);
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    /**
+     * @return number of records split off so far, including the ones still loading
+     */
+    public long records() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (CompletableFuture<Entry[]> f : pending) f.cancel(false);
+        pending.clear();
+        batch = null;
+        window = null;
+        channel.close();
+    }
+
+    private Entry[] load(long first, long[] offsets, String[] texts, int count) {
+        Entry[] entries = new Entry[count];
+        for (int i = 0; i < count; i++) {
+            try {
+                Game game = Game.replayTrusted(new BufferedReader(new StringReader(texts[i])), mode);
+                entries[i] = new Entry(first + i, offsets[i], game, null);
+            } catch (IllegalArgumentException ex) {
+                entries[i] = new Entry(first + i, offsets[i], null, ex.getMessage());
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return entries;
+    }
+
+    private long skipBlank(long from) throws IOException {
+        while (from < size) {
+            byte b = byteAt(from);
+            if (b != ' ' && b != '\t' && b != '\r' && b != '\n') return from;
+            from++;
+        }
+        return from;
+    }
+
+    /**
+     * @return offset of the next line starting with "1g" after the record at {@code start}, or the file size
+     */
+    private long recordEnd(long start) throws IOException {
+        ensureWindow(start);
+        for (long p = start + 1; ; p++) {
+            if (p + 2 >= windowStart + window.limit()) {
+                if (windowStart + window.limit() == size) return size;
+                if (start == windowStart) {
+                    throw new IOException("Game record at byte " + start + " is longer than " + windowBytes + " bytes");
+                }
+                //Read a window starting at the record and scan it again
+                fill(start);
+                p = start;
+                continue;
+            }
+            int i = (int) (p - windowStart);
+            if (window.get(i) == '\n' && window.get(i + 1) == '1' && window.get(i + 2) == 'g') return p + 1;
+        }
+    }
+
+    /**
+     * Copies a record that {@link #recordEnd(long)} has just split off, so it is inside the window.
+     */
+    private String text(long start, long end) {
+        byte[] bytes = new byte[(int) (end - start)];
+        window.get((int) (start - windowStart), bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    private byte byteAt(long offset) throws IOException {
+        ensureWindow(offset);
+        return window.get((int) (offset - windowStart));
+    }
+
+    /**
+     * Makes sure the window contains {@code offset}.
+     */
+    private void ensureWindow(long offset) throws IOException {
+        if (window != null && offset >= windowStart && offset < windowStart + window.limit()) return;
+        fill(offset);
+    }
+
+    private void fill(long offset) throws IOException {
+        if (window == null) window = ByteBuffer.allocate((int) Math.min(windowBytes, size));
+        window.clear().limit((int) Math.min(window.capacity(), size - offset));
+        while (window.hasRemaining()) {
+            if (channel.read(window, offset + window.position()) < 0) throw new IOException("Archive truncated");
+        }
+        window.flip();
+        windowStart = offset;
+    }
+}
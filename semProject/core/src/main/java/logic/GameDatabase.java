@@ -0,0 +1,193 @@
+package logic;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only binary game database mapped into memory with {@link FileChannel#map}: the games as {@link StepCodec}
+ * codes, and an index from position hashes to the games and turns that reached them.
+ * <p>The index has one record for the start of every turn of every game, keyed like {@link Game#getPositionHash()}
+ * (side to move included) and sorted, so "which games reached this position?" is a binary search over the mapped
+ * file. Nothing is loaded onto the heap on open; files larger than 2 GiB are mapped in several segments.</p>
+ * <p>Databases are written by {@link GameDatabaseBuilder}. An open database is immutable and may be queried from
+ * any number of threads.</p>
+ *
+ * <pre>
+ * header : int magic, int version, int gameCount, long positionCount, long indexOffset
+ * games  : gameCount x (long codesOffset, int codeCount)
+ * codes  : per game codeCount x short, see {@link StepCodec}
+ * index  : positionCount x (long hash, int game, int event), sorted by hash, game and event
+ * </pre>
+ */
+public class GameDatabase {
+    private static final Logger log = LoggerFactory.getLogger(GameDatabase.class);
+
+    static final int MAGIC = 0x41474442; // "AGDB"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 28;
+    static final int GAME_RECORD_SIZE = 12;
+    static final int INDEX_RECORD_SIZE = 16;
+    //Bytes per mapped segment of the codes and index sections; a multiple of both record sizes
+    static final int SEGMENT_SHIFT = 30;
+
+    private final MappedByteBuffer games;
+    private final MappedByteBuffer[] codes;
+    private final long codesStart;
+    private final MappedByteBuffer[] index;
+    private final int gameCount;
+    private final long positionCount;
+
+    /**
+     * A turn start that reached the queried position
+     */
+    public static final class Hit {
+        //Game number in the database
+        public final int game;
+        //Number of journal events played before the turn, see {@link GameJournal#event(int)}
+        public final int event;
+
+        Hit(int game, int event) {
+            this.game = game;
+            this.event = event;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + game + " event " + event;
+        }
+    }
+
+    private GameDatabase(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_SIZE) throw new IllegalArgumentException("Not a game database file");
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(0) != MAGIC) throw new IllegalArgumentException("Not a game database file");
+        int version = header.getInt(4);
+        if (version != VERSION) throw new IllegalArgumentException("Unsupported game database version " + version);
+        this.gameCount = header.getInt(8);
+        this.positionCount = header.getLong(12);
+        long indexOffset = header.getLong(20);
+        long gamesSize = (long) gameCount * GAME_RECORD_SIZE;
+        if (indexOffset + positionCount * INDEX_RECORD_SIZE != size || HEADER_SIZE + gamesSize > indexOffset) {
+            throw new IllegalArgumentException("Truncated game database file");
+        }
+        this.games = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, gamesSize);
+        this.codesStart = HEADER_SIZE + gamesSize;
+        this.codes = map(channel, codesStart, indexOffset - codesStart);
+        this.index = map(channel, indexOffset, positionCount * INDEX_RECORD_SIZE);
+    }
+
+    private static MappedByteBuffer[] map(FileChannel channel, long start, long length) throws IOException {
+        int segments = (int) ((length + (1L << SEGMENT_SHIFT) - 1) >>> SEGMENT_SHIFT);
+        MappedByteBuffer[] buffers = new MappedByteBuffer[segments];
+        for (int i = 0; i < segments; i++) {
+            long offset = (long) i << SEGMENT_SHIFT;
+            buffers[i] = channel.map(FileChannel.MapMode.READ_ONLY, start + offset,
+                    Math.min(1L << SEGMENT_SHIFT, length - offset));
+        }
+        return buffers;
+    }
+
+    /**
+     * Maps a database file into memory. The channel is closed right away, the mappings stay valid.
+     *
+     * @param path database file written by {@link GameDatabaseBuilder}
+     * @return opened database
+     * @throws IOException              if the file cannot be mapped
+     * @throws IllegalArgumentException if the file is not a game database
+     */
+    public static GameDatabase open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            GameDatabase db = new GameDatabase(channel);
+            log.info("Game database {} mapped: {} games, {} positions", path, db.gameCount, db.positionCount);
+            return db;
+        }
+    }
+
+    /**
+     * @return number of games
+     */
+    public int games() {
+        return gameCount;
+    }
+
+    /**
+     * @return number of indexed turn starts
+     */
+    public long positions() {
+        return positionCount;
+    }
+
+    /**
+     * Finds the turn starts that reached a position.
+     *
+     * @param positionHash hash of the position with the side to move, as {@link Game#getPositionHash()}
+     * @return hits ordered by game and event, empty if no game reached the position
+     */
+    public List<Hit> find(long positionHash) {
+        List<Hit> hits = new ArrayList<>();
+        for (long i = lowerBound(positionHash); i < positionCount && hash(i) == positionHash; i++) {
+            MappedByteBuffer segment = index[(int) (i >>> (SEGMENT_SHIFT - 4))];
+            int record = (int) ((i * INDEX_RECORD_SIZE) & ((1L << SEGMENT_SHIFT) - 1));
+            hits.add(new Hit(segment.getInt(record + 8), segment.getInt(record + 12)));
+        }
+        return hits;
+    }
+
+    /**
+     * @param positionHash hash of the position with the side to move
+     * @return number of turn starts that reached the position
+     */
+    public long count(long positionHash) {
+        long first = lowerBound(positionHash);
+        long i = first;
+        while (i < positionCount && hash(i) == positionHash) i++;
+        return i - first;
+    }
+
+    /**
+     * @param game game number
+     * @return the event codes of the game, see {@link StepCodec}
+     */
+    public short[] codes(int game) {
+        if (game < 0 || game >= gameCount) throw new IndexOutOfBoundsException("Game " + game + " of " + gameCount);
+        long offset = games.getLong(game * GAME_RECORD_SIZE) - codesStart;
+        short[] result = new short[games.getInt(game * GAME_RECORD_SIZE + 8)];
+        for (int i = 0; i < result.length; i++, offset += Short.BYTES) {
+            result[i] = codes[(int) (offset >>> SEGMENT_SHIFT)].getShort((int) (offset & ((1L << SEGMENT_SHIFT) - 1)));
+        }
+        return result;
+    }
+
+    /**
+     * @param game game number
+     * @return the record of the game, e.g. to write it with {@link GameJournal#write}
+     */
+    public GameJournal journal(int game) {
+        return GameJournal.of(codes(game));
+    }
+
+    private long hash(long i) {
+        MappedByteBuffer segment = index[(int) (i >>> (SEGMENT_SHIFT - 4))];
+        return segment.getLong((int) ((i * INDEX_RECORD_SIZE) & ((1L << SEGMENT_SHIFT) - 1)));
+    }
+
+    //First index record whose hash is not below the key
+    private long lowerBound(long key) {
+        long lo = 0, hi = positionCount;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (hash(mid) < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+}
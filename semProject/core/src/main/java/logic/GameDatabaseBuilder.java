@@ -0,0 +1,231 @@
+package logic;
+
+import figures.Figure;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.GameMode;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Compiles a {@link GameDatabase} from game journals, for example all games of a {@link GameArchive}.
+ * <p>Every journal is replayed event by event on a board to hash the position at the start of each turn; the codes
+ * and the index are kept in primitive arrays and written sorted in one go, so building runs offline with the whole
+ * index on the heap.</p>
+ */
+public class GameDatabaseBuilder {
+    private static final Logger log = LoggerFactory.getLogger(GameDatabaseBuilder.class);
+
+    private short[] codes = new short[1 << 16];
+    private int codeCount;
+    //Per game: offset of its first code and number of codes
+    private long[] gameStarts = new long[1024];
+    private int[] gameLengths = new int[1024];
+    private int games;
+    //Index records: position hash, and game << 32 | event
+    private long[] hashes = new long[1 << 16];
+    private long[] targets = new long[1 << 16];
+    private int positions;
+    private int rejected;
+
+    /**
+     * Adds a game and indexes the position at the start of each of its turns.
+     *
+     * @param journal record of the game
+     */
+    public void add(GameJournal journal) {
+        int length = journal.size();
+        if (games == gameStarts.length) {
+            gameStarts = Arrays.copyOf(gameStarts, games * 2);
+            gameLengths = Arrays.copyOf(gameLengths, games * 2);
+        }
+        if (codeCount + length > codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(codes.length * 2, codeCount + length));
+        }
+        gameStarts[games] = codeCount;
+        gameLengths[games] = length;
+
+        Board board = new Board();
+        board.clear();
+        boolean goldToMove = true;
+        boolean setupDone = false;
+        for (int i = 0; i < length; i++) {
+            int code = journal.event(i);
+            codes[codeCount++] = (short) code;
+            int type = StepCodec.type(code);
+            if (type != StepCodec.SETUP && !setupDone) {
+                setupDone = true;
+                index(board.getHash(), i);
+            }
+            apply(board, code);
+            if (type == StepCodec.TURN_END) {
+                goldToMove = !StepCodec.isGold(code);
+                index(board.getHash() ^ (goldToMove ? 0L : Zobrist.SILVER_TO_MOVE), i + 1);
+            }
+        }
+        games++;
+    }
+
+    /**
+     * Adds every game of an archive; records that cannot be loaded are skipped and counted.
+     *
+     * @param archive archive file, see {@link GameArchive}
+     * @throws IOException if the archive cannot be read
+     */
+    public void addArchive(Path archive) throws IOException {
+        GameArchive.forEach(archive, GameMode.CLASSIC, entry -> {
+            if (entry.game != null) {
+                add(entry.game.getJournal());
+            } else {
+                rejected++;
+                log.warn("Skipping {}", entry);
+            }
+        });
+    }
+
+    /**
+     * @return number of games added
+     */
+    public int games() {
+        return games;
+    }
+
+    /**
+     * @return number of archive records skipped as malformed
+     */
+    public int rejected() {
+        return rejected;
+    }
+
+    private void index(long hash, int event) {
+        if (positions == hashes.length) {
+            hashes = Arrays.copyOf(hashes, positions * 2);
+            targets = Arrays.copyOf(targets, positions * 2);
+        }
+        hashes[positions] = hash;
+        targets[positions++] = (long) games << 32 | event;
+    }
+
+    /**
+     * Plays one journal event on a board.
+     */
+    static void apply(Board board, int code) {
+        int from = StepCodec.from(code);
+        switch (StepCodec.type(code)) {
+            case StepCodec.SETUP:
+                set(board, from, PositionSnapshot.figure(StepCodec.kind(code)));
+                break;
+            case StepCodec.STEP:
+                move(board, from, StepCodec.to(code));
+                break;
+            case StepCodec.PUSH:
+                move(board, StepCodec.to(code), StepCodec.destination(code));
+                move(board, from, StepCodec.to(code));
+                break;
+            case StepCodec.PULL:
+                move(board, from, StepCodec.destination(code));
+                move(board, StepCodec.to(code), from);
+                break;
+            case StepCodec.CAPTURE:
+                set(board, from, null);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void move(Board board, int from, int to) {
+        set(board, to, board.getFigureAt(from / Board.SIZE, from % Board.SIZE));
+        set(board, from, null);
+    }
+
+    private static void set(Board board, int square, Figure figure) {
+        board.setFigureAt(square / Board.SIZE, square % Board.SIZE, figure);
+    }
+
+    /**
+     * Writes the database.
+     *
+     * @param out destination file
+     * @throws IOException if writing fails
+     */
+    public void write(Path out) throws IOException {
+        sort(0, positions - 1);
+        long gamesStart = GameDatabase.HEADER_SIZE;
+        long codesStart = gamesStart + (long) games * GameDatabase.GAME_RECORD_SIZE;
+        long indexOffset = codesStart + (long) codeCount * Short.BYTES;
+        try (DataOutputStream dos = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(out), 1 << 16))) {
+            dos.writeInt(GameDatabase.MAGIC);
+            dos.writeInt(GameDatabase.VERSION);
+            dos.writeInt(games);
+            dos.writeLong(positions);
+            dos.writeLong(indexOffset);
+            for (int g = 0; g < games; g++) {
+                dos.writeLong(codesStart + gameStarts[g] * Short.BYTES);
+                dos.writeInt(gameLengths[g]);
+            }
+            for (int i = 0; i < codeCount; i++) dos.writeShort(codes[i]);
+            for (int i = 0; i < positions; i++) {
+                dos.writeLong(hashes[i]);
+                dos.writeLong(targets[i]);
+            }
+        }
+        log.info("Game database written to {}: {} games, {} positions", out, games, positions);
+    }
+
+    //Sorts the index records by hash, then game and event
+    private void sort(int lo, int hi) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            long pivotHash = hashes[mid], pivotTarget = targets[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (compare(i, pivotHash, pivotTarget) < 0) i++;
+                while (compare(j, pivotHash, pivotTarget) > 0) j--;
+                if (i <= j) swap(i++, j--);
+            }
+            //Recurse into the smaller part to bound the stack depth
+            if (j - lo < hi - i) {
+                sort(lo, j);
+                lo = i;
+            } else {
+                sort(i, hi);
+                hi = j;
+            }
+        }
+    }
+
+    private int compare(int i, long hash, long target) {
+        int c = Long.compare(hashes[i], hash);
+        return c != 0 ? c : Long.compare(targets[i], target);
+    }
+
+    private void swap(int i, int j) {
+        long h = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = h;
+        long t = targets[i];
+        targets[i] = targets[j];
+        targets[j] = t;
+    }
+
+    /**
+     * Command line entry point: {@code GameDatabaseBuilder <out.db> <archive>...}
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: GameDatabaseBuilder <out.db> <archive>...");
+            return;
+        }
+        GameDatabaseBuilder builder = new GameDatabaseBuilder();
+        for (int i = 1; i < args.length; i++) builder.addArchive(Paths.get(args[i]));
+        builder.write(Paths.get(args[0]));
+    }
+}
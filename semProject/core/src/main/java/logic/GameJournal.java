@@ -0,0 +1,187 @@
+package logic;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Append-only record of everything that happened in a {@link Game}: setup placements, steps, pushes, pulls,
+ * captures and turn ends, each a 16-bit {@link StepCodec} code in a {@code short[]}.
+ * <p>Notation strings are derived only when asked for ({@link #tokens()}, {@link #write(Writer)}), so playing,
+ * replaying and analysing games allocate nothing per event, and a resident game's history costs two bytes per
+ * event. {@link Game#undo()} rolls the journal back to the length saved with the undo state, which removes a step
+ * together with its captures and turn end.</p>
+ */
+public final class GameJournal {
+    private short[] events;
+    private int size;
+
+    GameJournal() {
+        this.events = new short[64];
+    }
+
+    private GameJournal(short[] events) {
+        this.events = events;
+        this.size = events.length;
+    }
+
+    /**
+     * Wraps stored codes, e.g. to write a game kept in binary form as notation.
+     *
+     * @param codes event codes in order, copied
+     * @return journal of the codes
+     */
+    public static GameJournal of(short[] codes) {
+        return new GameJournal(codes.clone());
+    }
+
+    /**
+     * @return number of events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index event index, 0 for the first
+     * @return event code, decode it with {@link StepCodec}
+     */
+    public int event(int index) {
+        if (index < 0 || index >= size) throw new IndexOutOfBoundsException("Event " + index + " of " + size);
+        return events[index] & 0xFFFF;
+    }
+
+    /**
+     * @return copy of the event codes in order
+     */
+    public short[] toArray() {
+        return Arrays.copyOf(events, size);
+    }
+
+    void setup(int kind, int square) {
+        append(StepCodec.setup(kind, square));
+    }
+
+    void step(int kind, int from, int to) {
+        append(StepCodec.step(kind, from, to));
+    }
+
+    void push(int kind, int from, int victim, int destination) {
+        append(StepCodec.push(kind, from, victim, destination));
+    }
+
+    void pull(int kind, int from, int victim, int destination) {
+        append(StepCodec.pull(kind, from, victim, destination));
+    }
+
+    void capture(int kind, int square) {
+        append(StepCodec.capture(kind, square));
+    }
+
+    void turnEnd(boolean gold, int unusedSteps) {
+        append(StepCodec.turnEnd(gold, unusedSteps));
+    }
+
+    /**
+     * Drops the events after {@code length}; used by undo only.
+     */
+    void truncate(int length) {
+        size = Math.min(size, length);
+    }
+
+    private void append(short code) {
+        if (size == events.length) events = Arrays.copyOf(events, Math.max(16, size * 2));
+        events[size++] = code;
+    }
+
+    /**
+     * Derives the notation history: a "1g ..." or "1s ..." line per setup, then the step, capture and filler
+     * ("-") tokens in order.
+     *
+     * @return new list of tokens
+     */
+    public List<String> tokens() {
+        return tokens(0, size);
+    }
+
+    /**
+     * Derives the notation tokens of a range of events, see {@link #tokens()}.
+     */
+    public List<String> tokens(int start, int end) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder setup = null;
+        for (int i = start; i < end; i++) {
+            int e = code(i);
+            int type = StepCodec.type(e);
+            if (type == StepCodec.SETUP) {
+                if (setup == null) setup = new StringBuilder(StepCodec.isGold(e) ? "1g" : "1s");
+                StepCodec.appendToken(setup.append(' '), e);
+                if (endsSetup(i, end)) {
+                    tokens.add(setup.toString());
+                    setup = null;
+                }
+            } else if (type == StepCodec.TURN_END) {
+                for (int f = 0; f < StepCodec.from(e); f++) tokens.add("-");
+            } else {
+                tokens.add(StepCodec.token(e));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Writes the game file notation: the setup lines, then one line per turn with four steps ("-" for unused
+     * ones, a push or pull counts as two) followed by the turn's captures. An unfinished last turn is padded.
+     *
+     * @param writer destination, not closed
+     * @throws IOException if writing fails
+     */
+    public void write(Writer writer) throws IOException {
+        int turn = 2;
+        boolean goldTurn = true;
+        int i = 0;
+        StringBuilder setup = null;
+        for (; i < size && StepCodec.type(code(i)) == StepCodec.SETUP; i++) {
+            int e = code(i);
+            if (setup == null) setup = new StringBuilder(StepCodec.isGold(e) ? "1g" : "1s");
+            StepCodec.appendToken(setup.append(' '), e);
+            if (endsSetup(i, size)) {
+                writer.write(setup.append('\n').toString());
+                setup = null;
+            }
+        }
+        while (i < size) {
+            StringBuilder line = new StringBuilder().append(turn).append(goldTurn ? 'g' : 's');
+            StringBuilder captures = new StringBuilder();
+            int steps = 0;
+            for (; i < size && StepCodec.type(code(i)) != StepCodec.TURN_END; i++) {
+                int e = code(i);
+                if (StepCodec.type(e) == StepCodec.CAPTURE) {
+                    StepCodec.appendToken(captures.append(' '), e);
+                } else {
+                    StepCodec.appendToken(line.append(' '), e);
+                    steps += StepCodec.cost(e);
+                }
+            }
+            //Skip the turn end
+            i++;
+            for (; steps < Game.MAX_TURNS_STEPS; steps++) line.append(" -");
+            writer.write(line.append(captures).append('\n').toString());
+            if (!goldTurn) turn++;
+            goldTurn = !goldTurn;
+        }
+    }
+
+    private int code(int index) {
+        return events[index] & 0xFFFF;
+    }
+
+    //True if the setup event at index is the last of its side's setup line
+    private boolean endsSetup(int index, int end) {
+        if (index + 1 == end) return true;
+        int next = code(index + 1);
+        return StepCodec.type(next) != StepCodec.SETUP || StepCodec.isGold(next) != StepCodec.isGold(code(index));
+    }
+}
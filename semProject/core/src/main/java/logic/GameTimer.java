@@ -2,14 +2,15 @@ package logic;
 
 import utils.GameMode;
 
-import javax.swing.*;
+import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Manages per-turn and total game time tracking for Arimaa game.
- * Uses virtual threads to update UI without blocking game logic.
+ * Uses virtual threads to update UI without blocking game logic; callbacks run on the executor set with
+ * {@link #setCallbackExecutor(Executor)}, so the class has no dependency on a UI toolkit.
  * <p>Supports two modes: CLASSIC (timing disabled) and FAST (timing enable)</p>
  * Tracks individual player elapsed times and triggers callbacks on time updates and timeouts
  */
@@ -46,6 +47,8 @@ public class GameTimer {
     }
 
     private TimerListener uiUpdater;
+    //Runs the listener callbacks; the GUI passes SwingUtilities::invokeLater
+    private Executor callbackExecutor = Runnable::run;
 
     /**
      * Configure this timer according to game mode
@@ -53,7 +56,7 @@ public class GameTimer {
      */
     public void setMode(GameMode mode) {
         this.timedMode = (mode == GameMode.FAST);
-        log.info("Timer mode: {}", timedMode ? "FAST":"CLASSIC");
+        log.debug("Timer mode: {}", timedMode ? "FAST":"CLASSIC");
     }
 
     /**
@@ -65,6 +68,15 @@ public class GameTimer {
         log.debug("Timer listener set");
     }
 
+    /**
+     * Sets where listener callbacks run, e.g. {@code SwingUtilities::invokeLater} for a Swing UI.
+     * By default they run on the timer threads.
+     * @param executor executor for the {@link TimerListener} calls
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+    }
+
     /**
      * Begins total game timing if FAST mode is selected
      * Launches a background virtual thread to report total elapsed time
@@ -176,12 +188,12 @@ public class GameTimer {
                     long elapsed = System.currentTimeMillis() - turnStartTime;
                     if (elapsed > MAX_TURN_DURATION){
                         log.warn("Turn timer timed out for {}", isGoldTurn ? "gold" : "silver");
-                        SwingUtilities.invokeLater(() -> {
+                        callbackExecutor.execute(() -> {
                             if (uiUpdater != null) uiUpdater.onTurnTimeout(isGoldTurn);
                         });
                         break;
                     }
-                    SwingUtilities.invokeLater(() -> {
+                    callbackExecutor.execute(() -> {
                         if (uiUpdater != null) uiUpdater.onTimeUpdate(elapsed, isGoldTurn);
                     });
                     Thread.sleep(500);
@@ -204,12 +216,12 @@ public class GameTimer {
                     long total = getTotalTime();
                     if (total > MAX_TOTAL_DURATION){
                         log.warn("Total game timeout");
-                        SwingUtilities.invokeLater(() -> {
+                        callbackExecutor.execute(() -> {
                             if (uiUpdater != null) uiUpdater.onTotalTimeout();
                         });
                         break;
                     }
-                    SwingUtilities.invokeLater(() -> {
+                    callbackExecutor.execute(() -> {
                         if (uiUpdater != null) uiUpdater.onTotalTimeUpdate(total);
                     });
                     Thread.sleep(500);
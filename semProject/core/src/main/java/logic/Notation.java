@@ -0,0 +1,334 @@
+package logic;
+
+import figures.Figure;
+import utils.FigureType;
+
+import java.util.Arrays;
+
+/**
+ * Utility class for parsing and formatting single-step Arimaa move notation
+ * Notation format: <code>PieceFileRankAction</code>, for example "Ra3n" indicates a golden Rabbit moves from square a3 to the north
+ * <p>Piece letters come from the {@link FigureType} codes (upper case for gold), so the camel is "M" and the cat
+ * "C". Parsing reads any {@link CharSequence} in place and the {@code append*} methods write into a caller's
+ * {@link StringBuilder}, so bulk import and export create no intermediate strings. Squares are
+ * {@code row * Board.SIZE + col}, row 0 being rank 8; piece kinds are {@link Zobrist#kind(boolean, FigureType)}.</p>
+ */
+public class Notation {
+    private static final FigureType[] TYPES = FigureType.values();
+    //Notation letter by piece kind
+    private static final char[] PIECE_CHARS = new char[Zobrist.PIECE_KINDS];
+    //Piece kind by notation letter, -1 for letters that name no piece
+    private static final byte[] KINDS = new byte[128];
+    //Positions are immutable, so parsing hands out one shared instance per square
+    private static final Position[] POSITIONS = new Position[Board.SIZE * Board.SIZE];
+    private static final char[] DIRECTIONS = {'n', 'e', 's', 'w'};
+
+    static {
+        Arrays.fill(KINDS, (byte) -1);
+        for (FigureType type : TYPES) {
+            int gold = Zobrist.kind(true, type), silver = Zobrist.kind(false, type);
+            PIECE_CHARS[gold] = Character.toUpperCase(type.getCode());
+            PIECE_CHARS[silver] = type.getCode();
+            KINDS[PIECE_CHARS[gold]] = (byte) gold;
+            KINDS[PIECE_CHARS[silver]] = (byte) silver;
+        }
+        for (int sq = 0; sq < POSITIONS.length; sq++) {
+            POSITIONS[sq] = new Position(sq / Board.SIZE, sq % Board.SIZE);
+        }
+    }
+
+    /**
+     * Represents a parsed Arimaa move consisting of the moving piece, source and destination position, action character
+     */
+    public static class Move {
+        public final char piece; // Figure code
+        private final Position from;
+        private final Position to;
+        public final char action; // Action character: 'n', 's', 'e', 'w' for direction, or 'x' for traps
+        private final Position destination;
+
+        /**
+         * @param piece       figure code
+         * @param from        source {@link Position}
+         * @param to          destination {@link Position}, or null if no movement
+         * @param action      action character indicating movement direction or 'x'
+         * @param destination
+         */
+        public Move(char piece, Position from, Position to, char action, Position destination) {
+            this.piece = piece;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+            this.destination = destination;
+        }
+
+        /**
+         * @return source {@link Position}
+         */
+        public Position getFrom() {
+            return from;
+        }
+
+        /**
+         * @return destination {@link Position} or null
+         */
+        public Position getTo() {
+            return to;
+        }
+
+        /**
+         * @return extra destination for push/pull (may be null)
+         */
+        public Position getDestination() {
+            return destination;
+        }
+
+        /**
+         * Formats this move back into Arimaa notation.
+         * <p>Simple move: "Ra3n", Push: "Rh4n&gt;h6", Pull: "Rh4n&lt;h3", Capture: "Ch3x"</p>
+         *
+         * @return string in standard notation
+         */
+        @Override
+        public String toString() {
+            if (action == '-') return "-";
+            StringBuilder sb = new StringBuilder(7).append(piece);
+            appendSquare(sb, square(from));
+            if ((action == '>' || action == '<') && destination != null) {
+                sb.append(DIRECTIONS[StepCodec.direction(square(from), square(to))]).append(action);
+                return appendSquare(sb, square(destination)).toString();
+            }
+            return sb.append(action).toString();
+        }
+    }
+
+    /**
+     * Parses a single Arimaa step notation token into a {@link Move} object.
+     *
+     * @param s 3, 4 or 7 character notation token ("Ra3", "Ra3n", "Re2n&gt;e4", "Ch3x", "-")
+     * @return parsed {@link Move}; its positions are shared instances
+     * @throws IllegalArgumentException if the notation is invalid
+     */
+    public static Move parse(CharSequence s) {
+        if (s == null) throw new IllegalArgumentException("Invalid notation: null");
+        int length = s.length();
+        if (length == 1 && s.charAt(0) == '-') {
+            return new Move('-', null, null, '-', null);
+        }
+        if (length != 3 && length != 4 && length != 7) throw invalid(s);
+        char piece = s.charAt(0);
+        if (kind(piece) < 0) throw invalid(s);
+        int from = parseSquare(s, 1);
+        if (length == 3) {
+            return new Move(piece, POSITIONS[from], POSITIONS[from], '=', null);
+        }
+        char action = s.charAt(3);
+        if (length == 4 && action == 'x') {
+            return new Move(piece, POSITIONS[from], null, 'x', null);
+        }
+        int to = neighbour(from, action, s);
+        if (length == 4) {
+            return new Move(piece, POSITIONS[from], POSITIONS[to], action, null);
+        }
+        char kind = s.charAt(4);
+        if (kind != '>' && kind != '<') throw invalid(s);
+        return new Move(piece, POSITIONS[from], POSITIONS[to], kind, POSITIONS[parseSquare(s, 5)]);
+    }
+
+    /**
+     * Reads a file and rank pair ("a1" to "h8") in place.
+     *
+     * @param s     text containing the square
+     * @param index index of the file letter
+     * @return square index
+     * @throws IllegalArgumentException if the two characters name no square
+     */
+    public static int parseSquare(CharSequence s, int index) {
+        int col = s.charAt(index) - 'a';
+        int rank = s.charAt(index + 1) - '1';
+        if (col < 0 || col >= Board.SIZE || rank < 0 || rank >= Board.SIZE) throw invalid(s);
+        return (Board.SIZE - 1 - rank) * Board.SIZE + col;
+    }
+
+    /**
+     * @param letter notation letter, e.g. 'R' for a gold rabbit or 'm' for a silver camel
+     * @return piece kind, or -1 if the letter names no piece
+     */
+    public static int kind(char letter) {
+        return letter < KINDS.length ? KINDS[letter] : -1;
+    }
+
+    /**
+     * @param kind piece kind
+     * @return notation letter of the kind
+     */
+    public static char pieceChar(int kind) {
+        return PIECE_CHARS[kind];
+    }
+
+    /**
+     * @param figure a figure
+     * @return notation letter of the figure, upper case for gold
+     */
+    public static char pieceChar(Figure figure) {
+        return PIECE_CHARS[Zobrist.kind(figure.isGold(), figure.getType())];
+    }
+
+    /**
+     * Appends a square's file and rank, e.g. "b3".
+     */
+    public static StringBuilder appendSquare(StringBuilder sb, int square) {
+        return sb.append((char) ('a' + square % Board.SIZE)).append((char) ('8' - square / Board.SIZE));
+    }
+
+    /**
+     * Appends a simple step, e.g. "Ra3n".
+     */
+    public static StringBuilder appendSimple(StringBuilder sb, int kind, int from, int to) {
+        return appendSquare(sb.append(PIECE_CHARS[kind]), from).append(DIRECTIONS[StepCodec.direction(from, to)]);
+    }
+
+    /**
+     * Appends a push, e.g. "Re2n&gt;e4": the mover, its square, the direction to the victim and the square the
+     * victim is pushed to.
+     */
+    public static StringBuilder appendPush(StringBuilder sb, int kind, int from, int victim, int destination) {
+        return appendSquare(appendSimple(sb, kind, from, victim).append('>'), destination);
+    }
+
+    /**
+     * Appends a pull, e.g. "Re2n&lt;e1": the mover, its square, the direction to the victim and the square the
+     * mover steps to.
+     */
+    public static StringBuilder appendPull(StringBuilder sb, int kind, int from, int victim, int destination) {
+        return appendSquare(appendSimple(sb, kind, from, victim).append('<'), destination);
+    }
+
+    /**
+     * Appends a capture, e.g. "Ch3x".
+     */
+    public static StringBuilder appendCapture(StringBuilder sb, int kind, int square) {
+        return appendSquare(sb.append(PIECE_CHARS[kind]), square).append('x');
+    }
+
+    /**
+     * Appends a setup placement, e.g. "Ra1".
+     */
+    public static StringBuilder appendSetup(StringBuilder sb, int kind, int square) {
+        return appendSquare(sb.append(PIECE_CHARS[kind]), square);
+    }
+
+    /**
+     * Formats a simple move: Piece + from-file/rank + direction char
+     */
+    public static String formatSimple(Figure mover, Position from, Position to) {
+        return appendSimple(new StringBuilder(4), kind(mover), square(from), square(to)).toString();
+    }
+
+    /**
+     * Formats a push move into notation (e.g. "Re2n&gt;e4").
+     *
+     * @param mover     the moving figure
+     * @param from      mover's position
+     * @param victimPos victim's position
+     * @param pushDest  where the victim is pushed
+     * @return formatted string
+     */
+    public static String formatPush(Figure mover,
+                                    Position from,
+                                    Position victimPos,
+                                    Position pushDest) {
+        return appendPush(new StringBuilder(7), kind(mover), square(from), square(victimPos), square(pushDest))
+                .toString();
+    }
+
+    /**
+     * Formats a pull move into notation (e.g. "Re2n&lt;e1").
+     *
+     * @param mover     the moving figure
+     * @param from      mover's position
+     * @param victimPos victim's position
+     * @param pullDest  where the mover goes after pulling
+     * @return formatted string
+     */
+    public static String formatPull(Figure mover,
+                                    Position from,
+                                    Position victimPos,
+                                    Position pullDest) {
+        return appendPull(new StringBuilder(7), kind(mover), square(from), square(victimPos), square(pullDest))
+                .toString();
+    }
+
+    /**
+     * Formats a capture event: Piece + file/rank + 'x' (e.g. "Ch3x").
+     *
+     * @param captured the captured figure
+     * @param pos      the capture position
+     * @return formatted capture string
+     */
+    public static String formatCapture(Figure captured, Position pos) {
+        return appendCapture(new StringBuilder(4), kind(captured), square(pos)).toString();
+    }
+
+    /**
+     * Mirrors a step, capture or setup token between the a and h files, e.g. "Ra2e" becomes "Rh2w" and
+     * "Ed4n&gt;c5" becomes "Ee4n&gt;f5". Tokens that name no square ("-") are returned unchanged.
+     *
+     * @param token notation token
+     * @return token of the mirrored step
+     */
+    public static String mirror(String token) {
+        if (token.length() < 3) return token;
+        char[] c = token.toCharArray();
+        c[1] = mirrorFile(c[1]);
+        if (c.length > 3) {
+            if (c[3] == 'e') c[3] = 'w';
+            else if (c[3] == 'w') c[3] = 'e';
+        }
+        if (c.length > 5 && (c[4] == '>' || c[4] == '<')) c[5] = mirrorFile(c[5]);
+        return new String(c);
+    }
+
+    private static char mirrorFile(char file) {
+        return file >= 'a' && file <= 'h' ? (char) ('a' + 'h' - file) : file;
+    }
+
+    private static int kind(Figure figure) {
+        return Zobrist.kind(figure.isGold(), figure.getType());
+    }
+
+    private static int square(Position pos) {
+        return pos.getRow() * Board.SIZE + pos.getCol();
+    }
+
+    /**
+     * Applies a direction char to a square.
+     *
+     * @throws IllegalArgumentException if the direction is invalid or leaves the board
+     */
+    private static int neighbour(int from, char dir, CharSequence s) {
+        int row = from / Board.SIZE, col = from % Board.SIZE;
+        switch (dir) {
+            case 'n':
+                row--;
+                break;
+            case 's':
+                row++;
+                break;
+            case 'e':
+                col++;
+                break;
+            case 'w':
+                col--;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid direction: " + dir);
+        }
+        if (row < 0 || row >= Board.SIZE || col < 0 || col >= Board.SIZE) throw invalid(s);
+        return row * Board.SIZE + col;
+    }
+
+    private static IllegalArgumentException invalid(CharSequence s) {
+        return new IllegalArgumentException("Invalid notation: " + s);
+    }
+}
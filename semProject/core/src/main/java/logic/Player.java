@@ -5,6 +5,7 @@ import utils.FigureType;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,18 +20,18 @@ public class Player {
     private final boolean isGold;
     private final List<Figure> pieces;
     private final long timeSpent;
-    private static int counter = 0;
+    private static final AtomicInteger counter = new AtomicInteger();
 
     /**
      * Constructs a new Player
      * @param isGold true if the player controls the gold side
      */
     public Player(boolean isGold) {
-        this.id = counter++;
+        this.id = counter.getAndIncrement();
         this.isGold = isGold;
         this.pieces = new ArrayList<>();
         this.timeSpent = 0;
-        log.info("Created Player {} ({} side)", id, isGold ? "gold" : "silver");
+        log.debug("Created Player {} ({} side)", id, isGold ? "gold" : "silver");
     }
 
     /**
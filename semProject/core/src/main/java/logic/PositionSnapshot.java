@@ -0,0 +1,139 @@
+package logic;
+
+import figures.Figure;
+import utils.FigureType;
+
+import java.util.Arrays;
+
+/**
+ * Immutable view of a game position: one bitboard per piece kind, the side to move and the steps taken in the turn.
+ * <p>{@link Game} publishes a new snapshot after every step, turn end, setup and undo through a volatile field,
+ * so spectators, analysis threads and history browsers on other threads always read a complete position without
+ * locking. A snapshot is twelve longs plus a few fields, cheaper to make than a copy of the figure grid, which is
+ * why the undo stack keeps them too.</p>
+ * <p>Squares are indexed as {@code row * Board.SIZE + col}, with row 0 being rank 8, and kinds as
+ * {@link Zobrist#kind(boolean, FigureType)}.</p>
+ */
+public final class PositionSnapshot {
+    private static final FigureType[] TYPES = FigureType.values();
+    //Figures are immutable, so one instance per kind serves every snapshot
+    private static final Figure[] FIGURES = new Figure[Zobrist.PIECE_KINDS];
+
+    static {
+        for (FigureType type : TYPES) {
+            FIGURES[Zobrist.kind(true, type)] = new Figure(type, true);
+            FIGURES[Zobrist.kind(false, type)] = new Figure(type, false);
+        }
+    }
+
+    private final long[] pieces;
+    public final boolean goldToMove;
+    public final int stepsTaken;
+    //Zobrist hash including the side to move, as Game.getPositionHash()
+    public final long hash;
+    //Publication counter of the game; a reader that sees the same number has seen the same state
+    public final long sequence;
+
+    /**
+     * @param pieces     bitboards by piece kind, not copied
+     * @param goldToMove true if gold is on turn
+     * @param stepsTaken steps already taken in the current turn
+     * @param boardHash  Zobrist hash of the piece placement
+     * @param sequence   publication counter
+     */
+    PositionSnapshot(long[] pieces, boolean goldToMove, int stepsTaken, long boardHash, long sequence) {
+        this.pieces = pieces;
+        this.goldToMove = goldToMove;
+        this.stepsTaken = stepsTaken;
+        this.hash = boardHash ^ (goldToMove ? 0L : Zobrist.SILVER_TO_MOVE);
+        this.sequence = sequence;
+    }
+
+    /**
+     * @param kind piece kind, see {@link Zobrist#kind(boolean, FigureType)}
+     * @return squares of the pieces of that kind
+     */
+    public long pieces(int kind) {
+        return pieces[kind];
+    }
+
+    /**
+     * @param gold true for gold
+     * @return squares of all pieces of the side
+     */
+    public long side(boolean gold) {
+        int first = gold ? 0 : TYPES.length;
+        long bb = 0;
+        for (int kind = first; kind < first + TYPES.length; kind++) bb |= pieces[kind];
+        return bb;
+    }
+
+    /**
+     * @param square square index
+     * @return piece kind on the square, or -1 if it is empty
+     */
+    public int kindAt(int square) {
+        long bit = 1L << square;
+        for (int kind = 0; kind < pieces.length; kind++) {
+            if ((pieces[kind] & bit) != 0) return kind;
+        }
+        return -1;
+    }
+
+    /**
+     * @param row zero-based row index
+     * @param col zero-based column index
+     * @return the shared figure of the piece there, or null if empty
+     */
+    public Figure getFigureAt(int row, int col) {
+        int kind = kindAt(row * Board.SIZE + col);
+        return kind < 0 ? null : FIGURES[kind];
+    }
+
+    /**
+     * @return a new mutable board with this piece placement
+     */
+    public Board toBoard() {
+        Board board = new Board();
+        board.restore(this);
+        return board;
+    }
+
+    /**
+     * @param kind piece kind
+     * @return shared immutable figure of that kind
+     */
+    static Figure figure(int kind) {
+        return FIGURES[kind];
+    }
+
+    /**
+     * Snapshots are equal if the placement, the side to move and the steps taken are; the sequence is ignored.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PositionSnapshot)) return false;
+        PositionSnapshot other = (PositionSnapshot) o;
+        return goldToMove == other.goldToMove && stepsTaken == other.stepsTaken
+                && Arrays.equals(pieces, other.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(hash) * 31 + stepsTaken;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int sq = 0; sq < Board.SIZE * Board.SIZE; sq++) {
+            int kind = kindAt(sq);
+            char code = kind < 0 ? '.' : TYPES[kind % TYPES.length].getCode();
+            sb.append(kind >= 0 && kind < TYPES.length ? Character.toUpperCase(code) : code);
+            if (sq % Board.SIZE == Board.SIZE - 1) sb.append('\n');
+        }
+        return sb.append(goldToMove ? "gold" : "silver").append(" to move, ").append(stepsTaken)
+                .append(" steps taken").toString();
+    }
+}
@@ -0,0 +1,272 @@
+package logic;
+
+/**
+ * Encodes the events of a {@link GameJournal} (setup placements, steps, pushes, pulls, captures and turn ends)
+ * as 16-bit codes, so a game's history is a {@code short[]} instead of a list of notation strings.
+ * <p>Notation text is produced ({@link #token(int)}) and read ({@link #encode(CharSequence)}) only where a game
+ * is shown, saved or loaded.</p>
+ *
+ * <pre>
+ * bits  0-5   square: from (STEP, PUSH, PULL), piece square (SETUP, CAPTURE), unused steps (TURN_END)
+ * bits  6-9   piece kind, see {@link Zobrist#kind}; for TURN_END 0 = gold, 1 = silver
+ * bits 10-11  direction to the target (STEP) or to the victim (PUSH, PULL); for other events SETUP,
+ *             CAPTURE or TURN_END
+ * bits 12-13  direction the victim is pushed (PUSH) or the mover steps away (PULL)
+ * bits 14-15  mode: STEP, PUSH, PULL or other event
+ * </pre>
+ * Directions are 0 north, 1 east, 2 south, 3 west. Squares are {@code row * Board.SIZE + col}, row 0 being rank 8.
+ * Captures are separate events because one step can capture a piece other than the one that moved.
+ */
+public final class StepCodec {
+    public static final int SETUP = 0;
+    public static final int STEP = 1;
+    public static final int PUSH = 2;
+    public static final int PULL = 3;
+    public static final int CAPTURE = 4;
+    public static final int TURN_END = 5;
+
+    private static final int SQUARE_MASK = 63;
+    private static final int KIND_SHIFT = 6;
+    private static final int DIRECTION_SHIFT = 10;
+    private static final int SECOND_DIRECTION_SHIFT = 12;
+    private static final int MODE_SHIFT = 14;
+    //Mode of the events that are not steps; their type is in the direction bits
+    private static final int OTHER = 3;
+    private static final int OTHER_SETUP = 0;
+    private static final int OTHER_CAPTURE = 1;
+    private static final int OTHER_TURN_END = 2;
+
+    private static final int[] DELTA = {-Board.SIZE, 1, Board.SIZE, -1};
+    private static final char[] DIRECTION_CHARS = {'n', 'e', 's', 'w'};
+
+    private StepCodec() {
+    }
+
+    /**
+     * @return code of a setup placement
+     */
+    public static short setup(int kind, int square) {
+        return pack(OTHER, OTHER_SETUP, 0, kind, square);
+    }
+
+    /**
+     * @return code of a simple step from {@code from} to the adjacent {@code to}
+     */
+    public static short step(int kind, int from, int to) {
+        return pack(STEP - 1, direction(from, to), 0, kind, from);
+    }
+
+    /**
+     * @param kind        mover's kind
+     * @param from        mover's square
+     * @param victim      victim's square, the mover's target
+     * @param destination empty square the victim is pushed to
+     * @return code of the push
+     */
+    public static short push(int kind, int from, int victim, int destination) {
+        return pack(PUSH - 1, direction(from, victim), direction(victim, destination), kind, from);
+    }
+
+    /**
+     * @param kind        mover's kind
+     * @param from        mover's square, the victim's target
+     * @param victim      victim's square
+     * @param destination empty square the mover steps to
+     * @return code of the pull
+     */
+    public static short pull(int kind, int from, int victim, int destination) {
+        return pack(PULL - 1, direction(from, victim), direction(from, destination), kind, from);
+    }
+
+    /**
+     * @return code of the capture of a piece of {@code kind} on the trap {@code square}
+     */
+    public static short capture(int kind, int square) {
+        return pack(OTHER, OTHER_CAPTURE, 0, kind, square);
+    }
+
+    /**
+     * @param gold        true if gold's turn ended
+     * @param unusedSteps steps left in the turn, 0 to 4 (4 for a turn passed without steps)
+     * @return code of the turn end
+     */
+    public static short turnEnd(boolean gold, int unusedSteps) {
+        return pack(OTHER, OTHER_TURN_END, 0, gold ? 0 : 1, unusedSteps);
+    }
+
+    private static short pack(int mode, int direction, int secondDirection, int kind, int square) {
+        return (short) (mode << MODE_SHIFT | secondDirection << SECOND_DIRECTION_SHIFT
+                | direction << DIRECTION_SHIFT | kind << KIND_SHIFT | square);
+    }
+
+    /**
+     * @param code event code, a short or its unsigned value
+     * @return SETUP, STEP, PUSH, PULL, CAPTURE or TURN_END
+     */
+    public static int type(int code) {
+        int mode = code >>> MODE_SHIFT & 3;
+        if (mode != OTHER) return STEP + mode;
+        switch (firstDirection(code)) {
+            case OTHER_SETUP:
+                return SETUP;
+            case OTHER_CAPTURE:
+                return CAPTURE;
+            default:
+                return TURN_END;
+        }
+    }
+
+    /**
+     * @return piece kind of the event; for turn ends 0 for gold and 1 for silver
+     */
+    public static int kind(int code) {
+        return code >>> KIND_SHIFT & 0xF;
+    }
+
+    /**
+     * @return mover's square, the square of a setup or capture, or the unused steps of a turn end
+     */
+    public static int from(int code) {
+        return code & SQUARE_MASK;
+    }
+
+    /**
+     * @return target of a step, or the victim's square of a push or pull
+     */
+    public static int to(int code) {
+        return from(code) + DELTA[firstDirection(code)];
+    }
+
+    /**
+     * @return square the victim is pushed to (PUSH) or the mover steps to (PULL)
+     */
+    public static int destination(int code) {
+        int base = type(code) == PUSH ? to(code) : from(code);
+        return base + DELTA[code >>> SECOND_DIRECTION_SHIFT & 3];
+    }
+
+    /**
+     * @return true if the event was made by (or, for captures and setups, concerns a piece of) gold
+     */
+    public static boolean isGold(int code) {
+        return type(code) == TURN_END ? kind(code) == 0 : kind(code) < Zobrist.PIECE_KINDS / 2;
+    }
+
+    /**
+     * @return number of turn steps the event uses: 1 for a step, 2 for a push or pull, otherwise 0
+     */
+    public static int cost(int code) {
+        int type = type(code);
+        return type == STEP ? 1 : type == PUSH || type == PULL ? 2 : 0;
+    }
+
+    private static int firstDirection(int code) {
+        return code >>> DIRECTION_SHIFT & 3;
+    }
+
+    /**
+     * @param from square
+     * @param to   orthogonally adjacent square
+     * @return direction from {@code from} to {@code to}
+     * @throws IllegalArgumentException if the squares are not adjacent
+     */
+    static int direction(int from, int to) {
+        int col = from % Board.SIZE;
+        if (to == from - Board.SIZE && to >= 0) return 0;
+        if (to == from + 1 && col < Board.SIZE - 1) return 1;
+        if (to == from + Board.SIZE && to < Board.SIZE * Board.SIZE) return 2;
+        if (to == from - 1 && col > 0) return 3;
+        throw new IllegalArgumentException("Squares not adjacent: " + from + " / " + to);
+    }
+
+    /**
+     * Formats a step, push, pull or capture event as a notation token.
+     *
+     * @return the token, or null for setups and turn ends
+     */
+    public static String token(int code) {
+        int type = type(code);
+        if (type == SETUP || type == TURN_END) return null;
+        return appendToken(new StringBuilder(7), code).toString();
+    }
+
+    /**
+     * Appends the notation of an event: the token of a step, push, pull or capture, the placement of a setup
+     * ("Ra1"), nothing for a turn end.
+     *
+     * @param sb   destination
+     * @param code event code
+     * @return {@code sb}
+     */
+    public static StringBuilder appendToken(StringBuilder sb, int code) {
+        int kind = kind(code), from = from(code);
+        switch (type(code)) {
+            case SETUP:
+                return Notation.appendSetup(sb, kind, from);
+            case STEP:
+                return Notation.appendSimple(sb, kind, from, to(code));
+            case PUSH:
+                return Notation.appendPush(sb, kind, from, to(code), destination(code));
+            case PULL:
+                return Notation.appendPull(sb, kind, from, to(code), destination(code));
+            case CAPTURE:
+                return Notation.appendCapture(sb, kind, from);
+            default:
+                return sb;
+        }
+    }
+
+    /**
+     * Encodes a step, push, pull or capture token, e.g. "Ra3n", "Ee2n&gt;e4", "Ee2n&lt;e1" or "Hc3x".
+     *
+     * @param token notation token
+     * @return code of the event
+     * @throws IllegalArgumentException if the token is not one of these
+     */
+    public static short encode(CharSequence token) {
+        return encode(token, 0, token.length());
+    }
+
+    /**
+     * Encodes the token between {@code start} and {@code end} of a longer text, such as a line of a game file,
+     * reading it in place.
+     *
+     * @see #encode(CharSequence)
+     */
+    public static short encode(CharSequence text, int start, int end) {
+        int length = end - start;
+        if (length != 4 && length != 7) throw invalid(text, start, end);
+        int kind = Notation.kind(text.charAt(start));
+        if (kind < 0) throw invalid(text, start, end);
+        int from = Notation.parseSquare(text, start + 1);
+        char action = text.charAt(start + 3);
+        if (action == 'x') {
+            if (length != 4) throw invalid(text, start, end);
+            return capture(kind, from);
+        }
+        int direction = directionOf(action);
+        if (direction < 0) throw invalid(text, start, end);
+        int to = from + DELTA[direction];
+        if (length == 4) return step(kind, from, to);
+        int destination = Notation.parseSquare(text, start + 5);
+        switch (text.charAt(start + 4)) {
+            case '>':
+                return push(kind, from, to, destination);
+            case '<':
+                return pull(kind, from, to, destination);
+            default:
+                throw invalid(text, start, end);
+        }
+    }
+
+    private static IllegalArgumentException invalid(CharSequence text, int start, int end) {
+        return new IllegalArgumentException("Invalid token: " + text.subSequence(start, end));
+    }
+
+    private static int directionOf(char action) {
+        for (int d = 0; d < DIRECTION_CHARS.length; d++) {
+            if (DIRECTION_CHARS[d] == action) return d;
+        }
+        return -1;
+    }
+}
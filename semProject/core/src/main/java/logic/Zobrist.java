@@ -0,0 +1,130 @@
+package logic;
+
+import figures.Figure;
+import utils.FigureType;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist hashing keys for Arimaa positions.
+ * <p>Every (side, figure type, square) triple gets a random 64-bit key; a position hash is the XOR of the keys of all
+ * placed figures, XORed with {@link #SILVER_TO_MOVE} when silver is on turn. Keys are generated from a fixed seed so
+ * hashes are stable between runs and can be stored in files (opening books, databases).</p>
+ * <p>Squares are indexed as {@code row * Board.SIZE + col}, with row 0 being rank 8.</p>
+ * <p>The rules are symmetric between the a and h files, so a position and its left-right mirror image have the same
+ * value. Hashing the mirrored placement alongside the real one gives a {@link #canonical(long, long) canonical} key
+ * shared by both, for caches that want to store each such pair once.</p>
+ */
+public final class Zobrist {
+    /**
+     * Number of distinct piece kinds: 6 figure types for each of the two sides
+     */
+    public static final int PIECE_KINDS = 2 * FigureType.values().length;
+
+    private static final long SEED = 0x41524D4141L; // "ARIMAA"
+    private static final long[][] PIECES = new long[PIECE_KINDS][Board.SIZE * Board.SIZE];
+
+    /**
+     * Key XORed into the hash when silver is the side to move
+     */
+    public static final long SILVER_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int kind = 0; kind < PIECE_KINDS; kind++) {
+            for (int sq = 0; sq < Board.SIZE * Board.SIZE; sq++) {
+                PIECES[kind][sq] = random.nextLong();
+            }
+        }
+        SILVER_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * Computes the piece kind index used by the key table: gold kinds are 0–5, silver kinds 6–11,
+     * ordered as {@link FigureType#values()}.
+     *
+     * @param isGold true for a gold piece
+     * @param type   figure type
+     * @return kind index in range 0..11
+     */
+    public static int kind(boolean isGold, FigureType type) {
+        return (isGold ? 0 : FigureType.values().length) + type.ordinal();
+    }
+
+    /**
+     * @param kind   piece kind index (see {@link #kind(boolean, FigureType)})
+     * @param square square index {@code row * 8 + col}
+     * @return key of that piece kind on that square
+     */
+    public static long key(int kind, int square) {
+        return PIECES[kind][square];
+    }
+
+    /**
+     * @param figure figure placed on the square
+     * @param row    zero-based row index
+     * @param col    zero-based column index
+     * @return key of the figure on that square
+     */
+    public static long key(Figure figure, int row, int col) {
+        return PIECES[kind(figure.isGold(), figure.getType())][row * Board.SIZE + col];
+    }
+
+    /**
+     * @param square square index {@code row * 8 + col}
+     * @return the square on the same row in the mirrored column (a file to h file)
+     */
+    public static int mirror(int square) {
+        return square ^ (Board.SIZE - 1);
+    }
+
+    /**
+     * Picks the key shared by a position and its left-right mirror image.
+     *
+     * @param hash       hash of the position
+     * @param mirrorHash hash of its mirror image (with the same side to move)
+     * @return the smaller of both hashes
+     */
+    public static long canonical(long hash, long mirrorHash) {
+        return Math.min(hash, mirrorHash);
+    }
+
+    /**
+     * Computes the hash of the left-right mirror image of a board from scratch.
+     *
+     * @param board      the board to hash
+     * @param goldToMove true if gold is the side to move
+     * @return hash of the mirrored position
+     */
+    public static long mirrorHash(Board board, boolean goldToMove) {
+        long h = goldToMove ? 0L : SILVER_TO_MOVE;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Figure f = board.getFigureAt(row, col);
+                if (f != null) h ^= key(f, row, Board.SIZE - 1 - col);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Computes the hash of a board from scratch (used for verification and for boards built outside {@link Board}).
+     *
+     * @param board      the board to hash
+     * @param goldToMove true if gold is the side to move
+     * @return position hash
+     */
+    public static long hash(Board board, boolean goldToMove) {
+        long h = goldToMove ? 0L : SILVER_TO_MOVE;
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                Figure f = board.getFigureAt(row, col);
+                if (f != null) h ^= key(f, row, col);
+            }
+        }
+        return h;
+    }
+}
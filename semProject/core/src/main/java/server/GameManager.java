@@ -0,0 +1,229 @@
+package server;
+
+import ai.Evaluator;
+import ai.Search;
+import ai.SearchLimits;
+import logic.Game;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.GameMode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games in one process.
+ * <p>Every game lives in a {@link GameSession} whose commands run on virtual threads, so thousands of mostly idle
+ * games cost only their heap. The engine searches are the expensive part (each owns a transposition table), so a
+ * fixed pool of them is shared: a session borrows one for the length of a search, and AI turns beyond the pool size
+ * wait for a free one.</p>
+ */
+public class GameManager implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(GameManager.class);
+
+    //2^18 entries keep a pooled search at a few megabytes
+    private static final int POOLED_TT_SIZE_LOG2 = 18;
+
+    /**
+     * Totals over all live sessions
+     */
+    public static final class Metrics {
+        public final int sessions;
+        public final long commands;
+        public final long failedCommands;
+        public final double meanLatencyMicros;
+        public final long maxLatencyNanos;
+        public final long estimatedBytes;
+
+        Metrics(int sessions, long commands, long failedCommands, double meanLatencyMicros, long maxLatencyNanos,
+                long estimatedBytes) {
+            this.sessions = sessions;
+            this.commands = commands;
+            this.failedCommands = failedCommands;
+            this.meanLatencyMicros = meanLatencyMicros;
+            this.maxLatencyNanos = maxLatencyNanos;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d sessions: %d commands (%d failed), mean %.1f us, max %.1f us, ~%d KB",
+                    sessions, commands, failedCommands, meanLatencyMicros, maxLatencyNanos / 1000.0,
+                    estimatedBytes / 1024);
+        }
+    }
+
+    private final int maxSessions;
+    private final SearchLimits aiLimits;
+    private final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicInteger reserved = new AtomicInteger();
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final BlockingQueue<Search> searches;
+
+    /**
+     * @param maxSessions most sessions open at once
+     * @param engines     number of pooled searches, i.e. AI turns computed at the same time
+     * @param aiLimits    limits of every engine search
+     */
+    public GameManager(int maxSessions, int engines, SearchLimits aiLimits) {
+        if (maxSessions < 1 || engines < 1) {
+            throw new IllegalArgumentException("At least one session and one engine are required");
+        }
+        this.maxSessions = maxSessions;
+        this.aiLimits = aiLimits;
+        this.searches = new ArrayBlockingQueue<>(engines);
+        for (int i = 0; i < engines; i++) {
+            searches.add(new Search(new Evaluator(), POOLED_TT_SIZE_LOG2));
+        }
+        log.info("Game manager started for {} sessions with {} engines, AI limits {}", maxSessions, engines, aiLimits);
+    }
+
+    /**
+     * Opens a session with an empty board; setups are played as commands.
+     *
+     * @param kind who plays the game
+     * @param mode CLASSIC or FAST
+     * @return the new session
+     * @throws IllegalStateException if {@code maxSessions} sessions are open or the manager is closed
+     */
+    public GameSession create(GameSession.Kind kind, GameMode mode) {
+        if (executor.isShutdown()) throw new IllegalStateException("Game manager is closed");
+        if (reserved.incrementAndGet() > maxSessions) {
+            reserved.decrementAndGet();
+            throw new IllegalStateException("Session limit of " + maxSessions + " reached");
+        }
+        long id = nextId.getAndIncrement();
+        GameSession session = new GameSession(id, kind, new Game(mode), this);
+        sessions.put(id, session);
+        log.debug("Opened session {} ({}, {})", id, kind, mode);
+        return session;
+    }
+
+    /**
+     * @param id session id
+     * @return the open session, or null
+     */
+    public GameSession get(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Closes a session. Commands already queued still run.
+     *
+     * @param id session id
+     * @return true if the session was open
+     */
+    public boolean close(long id) {
+        if (sessions.remove(id) == null) return false;
+        reserved.decrementAndGet();
+        log.debug("Closed session {}", id);
+        return true;
+    }
+
+    /**
+     * @return number of open sessions
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Closes every session without a completed command in the last {@code idleMs} milliseconds. Sessions with a
+     * command queued or running are never idle.
+     *
+     * @return number of closed sessions
+     */
+    public int evictIdle(long idleMs) {
+        long cutoff = System.currentTimeMillis() - idleMs;
+        int evicted = 0;
+        for (GameSession session : sessions.values()) {
+            if (!session.busy() && session.lastActiveMillis() < cutoff && close(session.id())) evicted++;
+        }
+        if (evicted > 0) log.info("Evicted {} idle sessions", evicted);
+        return evicted;
+    }
+
+    /**
+     * @return counters of every open session
+     */
+    public List<GameSession.Metrics> sessionMetrics() {
+        Collection<GameSession> open = sessions.values();
+        List<GameSession.Metrics> result = new ArrayList<>(open.size());
+        for (GameSession session : open) result.add(session.metrics());
+        return result;
+    }
+
+    /**
+     * @return totals over all open sessions
+     */
+    public Metrics metrics() {
+        int count = 0;
+        long commands = 0, failed = 0, latency = 0, maxLatency = 0, bytes = 0;
+        for (GameSession session : sessions.values()) {
+            GameSession.Metrics m = session.metrics();
+            count++;
+            commands += m.commands;
+            failed += m.failedCommands;
+            latency += m.totalLatencyNanos;
+            maxLatency = Math.max(maxLatency, m.maxLatencyNanos);
+            bytes += m.estimatedBytes;
+        }
+        return new Metrics(count, commands, failed, commands == 0 ? 0 : latency / 1000.0 / commands, maxLatency,
+                bytes);
+    }
+
+    /**
+     * Closes all sessions and waits up to ten seconds for queued commands.
+     */
+    @Override
+    public void close() {
+        sessions.clear();
+        reserved.set(0);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                log.warn("Commands still running at shutdown");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        log.info("Game manager closed");
+    }
+
+    void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    SearchLimits limits() {
+        return aiLimits;
+    }
+
+    /**
+     * Waits for a free pooled search. Blocking parks only the calling virtual thread.
+     */
+    Search borrowSearch() {
+        try {
+            return searches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for an engine", e);
+        }
+    }
+
+    void returnSearch(Search search) {
+        searches.add(search);
+    }
+}
@@ -0,0 +1,237 @@
+package server;
+
+import ai.EngineBoard;
+import ai.Search;
+import ai.SearchResult;
+import logic.Game;
+import logic.PositionSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * One game hosted by a {@link GameManager}.
+ * <p>The {@link Game} is confined to a single writer: commands are queued and run one at a time, in submission order,
+ * on a virtual thread that exists only while the queue is not empty. An idle session therefore holds no thread, only
+ * the game and a few counters.</p>
+ */
+public class GameSession {
+    private static final Logger log = LoggerFactory.getLogger(GameSession.class);
+
+    //Rough heap cost of an empty session, of one undo state (a position snapshot) and of one journal event
+    static final long BASE_BYTES = 6_000;
+    static final long UNDO_STATE_BYTES = 200;
+    static final long EVENT_BYTES = Short.BYTES;
+
+    /**
+     * Who plays the game; REMOTE games are played by two network clients
+     */
+    public enum Kind {
+        HUMAN_VS_AI, AI_VS_AI, ANALYSIS, REMOTE
+    }
+
+    /**
+     * Snapshot of the counters of a session
+     */
+    public static final class Metrics {
+        public final long id;
+        public final Kind kind;
+        public final long commands;
+        public final long failedCommands;
+        //From submission to completion, so queueing time is included
+        public final long totalLatencyNanos;
+        public final long maxLatencyNanos;
+        public final long estimatedBytes;
+
+        Metrics(long id, Kind kind, long commands, long failedCommands, long totalLatencyNanos, long maxLatencyNanos,
+                long estimatedBytes) {
+            this.id = id;
+            this.kind = kind;
+            this.commands = commands;
+            this.failedCommands = failedCommands;
+            this.totalLatencyNanos = totalLatencyNanos;
+            this.maxLatencyNanos = maxLatencyNanos;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        /**
+         * @return mean command latency in microseconds, 0 without commands
+         */
+        public double meanLatencyMicros() {
+            return commands == 0 ? 0 : totalLatencyNanos / 1000.0 / commands;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("session %d %s: %d commands (%d failed), mean %.1f us, max %.1f us, ~%d bytes", id,
+                    kind, commands, failedCommands, meanLatencyMicros(), maxLatencyNanos / 1000.0, estimatedBytes);
+        }
+    }
+
+    private final long id;
+    private final Kind kind;
+    private final Game game;
+    private final GameManager manager;
+
+    private final Queue<Runnable> commands = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    //Written by the single writer only, read by metrics()
+    private volatile long commandCount, failedCount, totalLatency, maxLatency, estimatedBytes;
+    private volatile long lastActiveMillis = System.currentTimeMillis();
+
+    GameSession(long id, Kind kind, Game game, GameManager manager) {
+        this.id = id;
+        this.kind = kind;
+        this.game = game;
+        this.manager = manager;
+        this.estimatedBytes = estimateBytes();
+    }
+
+    /**
+     * @return id of the session in its manager
+     */
+    public long id() {
+        return id;
+    }
+
+    /**
+     * @return who plays the game
+     */
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Queues a command on the game. Commands of one session run one at a time in submission order; commands of
+     * different sessions run in parallel.
+     *
+     * @param command reads or changes the game; must not keep a reference to it
+     * @return completes with the command's result, or exceptionally with what it threw
+     */
+    public <T> CompletableFuture<T> submit(Function<Game, T> command) {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        commands.add(() -> {
+            try {
+                result.complete(command.apply(game));
+            } catch (Throwable ex) {
+                //Errors too (e.g. a search overflowing the stack), so the caller is never left waiting
+                failedCount++;
+                result.completeExceptionally(ex);
+            }
+            long latency = System.nanoTime() - submitted;
+            commandCount++;
+            totalLatency += latency;
+            if (latency > maxLatency) maxLatency = latency;
+            estimatedBytes = estimateBytes();
+            lastActiveMillis = System.currentTimeMillis();
+        });
+        if (scheduled.compareAndSet(false, true)) manager.execute(this::drain);
+        return result;
+    }
+
+    /**
+     * Plays the engine's turn for the side to move, with a search borrowed from the manager's pool.
+     *
+     * @return completes with the search result, or exceptionally with {@link IllegalStateException} if the turn has
+     * already started, the game is over or the side to move has no turn
+     */
+    public CompletableFuture<SearchResult> playAiTurn() {
+        return submit(g -> {
+            if (g.getTurnsSteps() != Game.MAX_TURNS_STEPS) throw new IllegalStateException("Turn already started");
+            if (g.isGameOver()) throw new IllegalStateException("Game is over");
+            EngineBoard root = EngineBoard.from(g);
+            Search search = manager.borrowSearch();
+            SearchResult result;
+            try {
+                search.setHistory(g.getPositionCounts());
+                result = search.search(root, manager.limits());
+            } finally {
+                manager.returnSearch(search);
+            }
+            if (result.best == null) throw new IllegalStateException("No legal turn");
+            for (String token : result.best.tokens(root)) g.playToken(token);
+            g.endTurnEarly();
+            log.debug("Session {} played {}", id, result.notation);
+            return result;
+        });
+    }
+
+    /**
+     * Scores the best turns of the side to move without playing any.
+     *
+     * @param lines number of turns to return
+     * @return completes with the turns best first
+     */
+    public CompletableFuture<List<SearchResult>> analyze(int lines) {
+        return submit(g -> {
+            EngineBoard root = EngineBoard.from(g);
+            Search search = manager.borrowSearch();
+            try {
+                search.setHistory(g.getPositionCounts());
+                return search.analyze(root, manager.limits(), lines, r -> {
+                });
+            } finally {
+                manager.returnSearch(search);
+            }
+        });
+    }
+
+    /**
+     * Reads the latest position without queuing behind the session's commands, for spectators.
+     *
+     * @return position after the last completed change
+     */
+    public PositionSnapshot snapshot() {
+        return game.getSnapshot();
+    }
+
+    /**
+     * @return current counters of the session
+     */
+    public Metrics metrics() {
+        return new Metrics(id, kind, commandCount, failedCount, totalLatency, maxLatency, estimatedBytes);
+    }
+
+    /**
+     * @return time of the last completed command (or of the creation) in epoch milliseconds
+     */
+    long lastActiveMillis() {
+        return lastActiveMillis;
+    }
+
+    /**
+     * @return true while commands are queued or running, e.g. a long engine search
+     */
+    boolean busy() {
+        return scheduled.get();
+    }
+
+    /**
+     * Runs queued commands until the queue is empty. The flag is cleared before the final check, so a command added
+     * concurrently either is seen here or schedules a new drain; it is also cleared if a command escapes with a
+     * throwable, so the session keeps accepting commands.
+     */
+    private void drain() {
+        while (true) {
+            try {
+                Runnable command;
+                while ((command = commands.poll()) != null) command.run();
+            } finally {
+                scheduled.set(false);
+            }
+            if (commands.isEmpty() || !scheduled.compareAndSet(false, true)) return;
+        }
+    }
+
+    private long estimateBytes() {
+        return BASE_BYTES + game.getUndoDepth() * UNDO_STATE_BYTES + game.getJournal().size() * EVENT_BYTES;
+    }
+}
@@ -0,0 +1,254 @@
+package server;
+
+import ai.EngineBoard;
+import ai.SearchLimits;
+import logic.Game;
+import logic.Notation;
+import logic.Position;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Loopback load test of {@link NetworkServer}: pairs of simulated clients, each on a virtual thread, play random
+ * legal turns against each other, and every command's round trip (until its echo arrives) is timed.
+ * Run with {@code -Dgame.logging=WARN}.
+ */
+public class NetworkBenchmark {
+    static final String GOLD_SETUP = "Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2";
+    static final String SILVER_SETUP = "ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7";
+
+    private NetworkBenchmark() {
+    }
+
+    /**
+     * Outcome of a run
+     */
+    public static final class Result {
+        public final int games;
+        public final long steps;
+        public final long commands;
+        public final long errors;
+        public final long elapsedNanos;
+        //Sorted round trips of all commands
+        public final long[] latencies;
+
+        Result(int games, long steps, long commands, long errors, long elapsedNanos, long[] latencies) {
+            this.games = games;
+            this.steps = steps;
+            this.commands = commands;
+            this.errors = errors;
+            this.elapsedNanos = elapsedNanos;
+            this.latencies = latencies;
+        }
+
+        /**
+         * @param p percentile between 0 and 100
+         * @return round trip at the percentile in microseconds
+         */
+        public double percentileMicros(double p) {
+            if (latencies.length == 0) return 0;
+            int index = (int) Math.min(latencies.length - 1, Math.ceil(p / 100 * latencies.length) - 1);
+            return latencies[Math.max(0, index)] / 1000.0;
+        }
+
+        @Override
+        public String toString() {
+            double seconds = elapsedNanos / 1e9;
+            return String.format("%d games, %d steps, %d commands (%d errors) in %.2f s: %.0f steps/s, "
+                            + "%.0f commands/s, round trip p50 %.0f us, p99 %.0f us, max %.0f us", games, steps,
+                    commands, errors, seconds, steps / seconds, commands / seconds, percentileMicros(50),
+                    percentileMicros(99), percentileMicros(100));
+        }
+    }
+
+    /**
+     * Counters of one simulated client
+     */
+    private static final class Client {
+        long steps, commands, errors;
+        long[] latencies = new long[256];
+
+        void record(long nanos) {
+            if (commands == latencies.length) latencies = Arrays.copyOf(latencies, latencies.length * 2);
+            latencies[(int) commands++] = nanos;
+        }
+    }
+
+    /**
+     * Plays {@code pairs} games at once on a fresh server.
+     *
+     * @param pairs    number of games, each with two client connections
+     * @param maxTurns turns after which the side to move resigns
+     */
+    public static Result run(int pairs, int maxTurns) throws Exception {
+        try (GameManager manager = new GameManager(pairs, 1, SearchLimits.depth(1));
+             NetworkServer server = new NetworkServer(manager,
+                     new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+             ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            server.start();
+            InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port());
+            List<Future<Client>> results = new ArrayList<>();
+            long start = System.nanoTime();
+            for (int i = 0; i < pairs; i++) {
+                CompletableFuture<Long> gameId = new CompletableFuture<>();
+                long seed = i;
+                results.add(clients.submit(() -> play(address, Protocol.GOLD, gameId, maxTurns, new Random(seed))));
+                results.add(clients.submit(() -> play(address, Protocol.SILVER, gameId, maxTurns,
+                        new Random(~seed))));
+            }
+            List<Client> done = new ArrayList<>();
+            long steps = 0, commands = 0, errors = 0;
+            for (Future<Client> f : results) {
+                Client c = f.get();
+                done.add(c);
+                steps += c.steps;
+                commands += c.commands;
+                errors += c.errors;
+            }
+            long[] latencies = new long[(int) commands];
+            int filled = 0;
+            for (Client c : done) {
+                System.arraycopy(c.latencies, 0, latencies, filled, (int) c.commands);
+                filled += (int) c.commands;
+            }
+            long elapsed = System.nanoTime() - start;
+            Arrays.sort(latencies);
+            return new Result(pairs, steps, commands, errors, elapsed, latencies);
+        }
+    }
+
+    /**
+     * One client: creates or joins a game, sets up after gold, then plays random legal steps on its turns while
+     * mirroring every event on a local game.
+     */
+    private static Client play(InetSocketAddress address, int side, CompletableFuture<Long> gameId, int maxTurns,
+                               Random random) throws IOException {
+        Client stats = new Client();
+        Game mirror = new Game(GameMode.CLASSIC);
+        boolean gold = side == Protocol.GOLD;
+        try (NetworkClient client = new NetworkClient(address)) {
+            if (gold) {
+                gameId.complete(client.newGame(GameMode.CLASSIC).gameId);
+                client.setup(GOLD_SETUP);
+            } else {
+                client.join(gameId.join());
+            }
+            int setups = 0, turns = 0;
+            boolean decided = false;
+            while (true) {
+                //After a winning turn only the GAME_OVER event is left
+                if (setups == 2 && !decided && mirror.getCurrentPlayer().isGold() == gold) {
+                    if (turns >= maxTurns) {
+                        client.resign();
+                    } else if (playTurn(client, mirror, side, random, stats)) {
+                        turns++;
+                        decided = EngineBoard.from(mirror).winner() != EngineBoard.NONE;
+                    }
+                }
+                Protocol.Event event = client.next();
+                if (event.type == Protocol.GAME_OVER) return stats;
+                if (event.type == Protocol.SETUP && ++setups == 1 && !gold) client.setup(SILVER_SETUP);
+                apply(mirror, event);
+                if (event.type == Protocol.TURN) {
+                    turns++;
+                    decided = EngineBoard.from(mirror).winner() != EngineBoard.NONE;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Plays one to four random steps and ends the turn, resigning if the server refuses the turn.
+     *
+     * @return true if the turn ended
+     */
+    private static boolean playTurn(NetworkClient client, Game mirror, int side, Random random, Client stats)
+            throws IOException {
+        int wanted = 1 + random.nextInt(Game.MAX_TURNS_STEPS);
+        for (int taken = 0; mirror.getTurnsSteps() > 0; ) {
+            if (taken >= wanted && mirror.turnChangesPosition()) break;
+            List<String> tokens = new ArrayList<>();
+            for (String t : mirror.legalStepTokens()) {
+                if (t.indexOf('>') < 0 && t.indexOf('<') < 0 || mirror.getTurnsSteps() >= 2) tokens.add(t);
+            }
+            if (tokens.isEmpty()) break;
+            Notation.Move move = Notation.parse(tokens.get(random.nextInt(tokens.size())));
+            int from = square(move.getFrom()), to = square(move.getTo());
+            long sent = System.nanoTime();
+            if (move.getDestination() == null) client.step(from, to);
+            else client.pushPull(from, to, square(move.getDestination()));
+            Protocol.Event echo = client.next();
+            stats.record(System.nanoTime() - sent);
+            if (echo.type != Protocol.STEPPED || echo.side != side) {
+                stats.errors++;
+                throw new IllegalStateException("Unexpected reply " + echo);
+            }
+            apply(mirror, echo);
+            stats.steps++;
+            taken += move.getDestination() == null ? 1 : 2;
+        }
+        long sent = System.nanoTime();
+        client.endTurn();
+        Protocol.Event echo = client.next();
+        stats.record(System.nanoTime() - sent);
+        if (echo.type == Protocol.ERROR) {
+            //Repeated or unchanged position
+            stats.errors++;
+            client.resign();
+            return false;
+        }
+        apply(mirror, echo);
+        return true;
+    }
+
+    private static void apply(Game mirror, Protocol.Event event) {
+        switch (event.type) {
+            case Protocol.SETUP:
+                mirror.addSetupMove(Protocol.setupTokens(event.pieces, event.side == Protocol.GOLD),
+                        event.side == Protocol.GOLD);
+                break;
+            case Protocol.STEPPED:
+                if (event.destination == Protocol.NO_SQUARE) mirror.step(position(event.from), position(event.to));
+                else mirror.resolveStep(position(event.from), position(event.to), position(event.destination));
+                break;
+            case Protocol.TURN:
+                mirror.endTurnEarly();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static int square(Position p) {
+        return p.getRow() * 8 + p.getCol();
+    }
+
+    private static Position position(int sq) {
+        return new Position(sq / 8, sq % 8);
+    }
+
+    /**
+     * Command line entry point: {@code NetworkBenchmark [pairs] [maxTurns]}, 200 games of 40 turns by default.
+     */
+    public static void main(String[] args) throws Exception {
+        int pairs = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int maxTurns = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        //Warm-up
+        run(Math.min(pairs, 20), maxTurns);
+        System.out.println(run(pairs, maxTurns));
+    }
+}
@@ -0,0 +1,114 @@
+package server;
+
+import utils.GameMode;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Blocking client of a {@link NetworkServer}, for a player or a remote engine on its own thread.
+ * <p>Commands are written as soon as they are called; the server answers every command with an event
+ * (the echoed step or turn end, or an ERROR) and also sends the opponent's events, all read with
+ * {@link #next()}.</p>
+ */
+public class NetworkClient implements AutoCloseable {
+    private final SocketChannel channel;
+    private final ByteBuffer in = ByteBuffer.allocate(8192).flip();
+
+    /**
+     * @param address server address
+     */
+    public NetworkClient(InetSocketAddress address) throws IOException {
+        this.channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+    }
+
+    /**
+     * Creates a game and plays gold.
+     *
+     * @return the GAME event with the id to give to the opponent
+     * @throws IllegalStateException if the server refuses
+     */
+    public Protocol.Event newGame(GameMode mode) throws IOException {
+        write(Protocol.newGame(mode));
+        return expect(Protocol.GAME);
+    }
+
+    /**
+     * Joins a game as silver. The setups already made follow as SETUP events.
+     *
+     * @throws IllegalStateException if the game does not exist or is full
+     */
+    public Protocol.Event join(long id) throws IOException {
+        write(Protocol.join(id));
+        return expect(Protocol.GAME);
+    }
+
+    /**
+     * @param setup pieces in saved-game notation, e.g. "Ra1 Rb1 ... Ch2"
+     */
+    public void setup(String setup) throws IOException {
+        write(Protocol.setup(Protocol.pieces(setup)));
+    }
+
+    public void step(int from, int to) throws IOException {
+        write(Protocol.step(from, to));
+    }
+
+    public void pushPull(int from, int to, int destination) throws IOException {
+        write(Protocol.pushPull(from, to, destination));
+    }
+
+    public void endTurn() throws IOException {
+        write(Protocol.endTurn());
+    }
+
+    public void resign() throws IOException {
+        write(Protocol.resign());
+    }
+
+    /**
+     * Blocks until the next event arrives.
+     *
+     * @throws EOFException if the server closed the connection
+     */
+    public Protocol.Event next() throws IOException {
+        fill(2);
+        int length = in.getShort() & 0xFFFF;
+        if (length == 0 || length > Protocol.MAX_FRAME) throw new IOException("Invalid frame length " + length);
+        fill(length);
+        byte type = in.get();
+        ByteBuffer body = in.slice(in.position(), length - 1);
+        in.position(in.position() + length - 1);
+        return Protocol.decode(type, body);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private Protocol.Event expect(byte type) throws IOException {
+        Protocol.Event event = next();
+        if (event.type == Protocol.ERROR) throw new IllegalStateException(event.message);
+        if (event.type != type) throw new IllegalStateException("Unexpected " + event);
+        return event;
+    }
+
+    private void write(ByteBuffer frame) throws IOException {
+        while (frame.hasRemaining()) channel.write(frame);
+    }
+
+    private void fill(int bytes) throws IOException {
+        if (in.remaining() >= bytes) return;
+        in.compact();
+        while (in.position() < bytes) {
+            if (channel.read(in) < 0) throw new EOFException("Connection closed by the server");
+        }
+        in.flip();
+    }
+}
@@ -0,0 +1,511 @@
+package server;
+
+import ai.EngineBoard;
+import logic.Game;
+import logic.GameOverException;
+import logic.GameTimer;
+import logic.Position;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import utils.ActionType;
+import utils.FigureType;
+import utils.GameMode;
+import utils.StepResult;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Plays {@link Game}s between remote clients over TCP with the binary {@link Protocol}.
+ * <p>One selector thread accepts connections, reads frames and writes queued replies; it never touches a game.
+ * Every game is a {@link GameSession} of the given {@link GameManager}, so the rule checks of a move run on the
+ * session's single writer and the replies are handed back to the selector. A client creates a game and plays
+ * gold, a second client joins it by id and plays silver; both receive every setup, step, turn end (with the clocks)
+ * and the game over event.</p>
+ */
+public class NetworkServer implements AutoCloseable {
+    private static final Logger log = LoggerFactory.getLogger(NetworkServer.class);
+
+    //Piece counts of a setup, by FigureType ordinal
+    private static final int[] SETUP_COUNTS = {1, 1, 2, 2, 2, 8};
+    private static final int SETUP_PIECES = 16;
+
+    private final GameManager manager;
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final Map<Long, NetGame> games = new ConcurrentHashMap<>();
+    //Connections with replies queued by session threads
+    private final Queue<Connection> pendingWrites = new ConcurrentLinkedQueue<>();
+    private final Thread loop;
+    private volatile boolean running = true;
+
+    /**
+     * One client socket. Everything but the outbox is used by the selector thread only.
+     */
+    private static final class Connection {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer in = ByteBuffer.allocate(2 + Protocol.MAX_FRAME);
+        final Queue<ByteBuffer> out = new ConcurrentLinkedQueue<>();
+        volatile boolean closed;
+        NetGame game;
+        int side;
+
+        Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    /**
+     * A game with its players. The fields are used by the session's commands only.
+     */
+    private static final class NetGame {
+        final GameSession session;
+        final Connection[] players = new Connection[2];
+        //Sent to a player joining after the setups
+        final List<ByteBuffer> setupFrames = new ArrayList<>(2);
+        final AtomicBoolean joined = new AtomicBoolean();
+        int setups;
+        boolean over;
+
+        NetGame(GameSession session, Connection gold) {
+            this.session = session;
+            this.players[Protocol.GOLD] = gold;
+        }
+    }
+
+    /**
+     * Binds the server socket; call {@link #start()} to serve.
+     *
+     * @param manager hosts the games
+     * @param address local address, port 0 for any free port
+     */
+    public NetworkServer(GameManager manager, InetSocketAddress address) throws IOException {
+        this.manager = manager;
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(address);
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+        this.loop = new Thread(this::run, "network-selector");
+        log.info("Network server bound to {}", server.getLocalAddress());
+    }
+
+    /**
+     * Starts the selector thread.
+     */
+    public void start() {
+        loop.start();
+    }
+
+    /**
+     * @return bound local port
+     */
+    public int port() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Stops the selector thread and closes all connections. The games stay in the manager until it is closed.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        try {
+            if (loop.isAlive()) loop.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof Connection) disconnect((Connection) key.attachment());
+        }
+        try {
+            server.close();
+            selector.close();
+        } catch (IOException e) {
+            log.warn("Closing the network server failed: {}", e.getMessage());
+        }
+        log.info("Network server closed");
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                selector.select();
+                Connection pending;
+                while ((pending = pendingWrites.poll()) != null) flush(pending);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) accept();
+                    else {
+                        Connection c = (Connection) key.attachment();
+                        if (key.isReadable()) read(c);
+                        if (key.isValid() && key.isWritable()) flush(c);
+                    }
+                }
+            } catch (IOException e) {
+                log.error("Selector loop failed", e);
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+        log.debug("Accepted {}", channel.getRemoteAddress());
+    }
+
+    private void read(Connection c) {
+        try {
+            if (c.channel.read(c.in) < 0) {
+                disconnect(c);
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(c);
+            return;
+        }
+        ByteBuffer in = c.in.flip();
+        while (in.remaining() >= 2) {
+            int length = in.getShort(in.position()) & 0xFFFF;
+            if (length == 0 || length > Protocol.MAX_FRAME) {
+                log.warn("Frame of {} bytes, closing connection", length);
+                send(c, Protocol.error("Invalid frame length " + length));
+                flush(c);
+                disconnect(c);
+                return;
+            }
+            if (in.remaining() < 2 + length) break;
+            byte type = in.get(in.position() + 2);
+            ByteBuffer body = in.slice(in.position() + Protocol.HEADER_BYTES, length - 1);
+            in.position(in.position() + 2 + length);
+            try {
+                handle(c, type, body);
+            } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+                send(c, Protocol.error(e.getMessage() == null ? "Malformed frame" : e.getMessage()));
+            }
+        }
+        in.compact();
+    }
+
+    /**
+     * Decodes a command on the selector thread and queues the game part on the session.
+     */
+    private void handle(Connection c, byte type, ByteBuffer body) {
+        switch (type) {
+            case Protocol.NEW_GAME: {
+                int mode = body.get();
+                if (mode < 0 || mode >= GameMode.values().length) throw new IllegalArgumentException("Unknown mode");
+                if (c.game != null) throw new IllegalStateException("Already in a game");
+                GameSession session = manager.create(GameSession.Kind.REMOTE, GameMode.values()[mode]);
+                NetGame g = new NetGame(session, c);
+                c.game = g;
+                c.side = Protocol.GOLD;
+                games.put(session.id(), g);
+                session.submit(game -> {
+                    game.getTimer().setTimerListener(new Timeouts(g));
+                    send(c, Protocol.game(session.id(), Protocol.GOLD));
+                    return null;
+                });
+                return;
+            }
+            case Protocol.JOIN: {
+                long id = body.getLong();
+                if (c.game != null) throw new IllegalStateException("Already in a game");
+                NetGame g = games.get(id);
+                if (g == null) throw new IllegalArgumentException("No game " + id);
+                if (!g.joined.compareAndSet(false, true)) throw new IllegalStateException("Game " + id + " is full");
+                c.game = g;
+                c.side = Protocol.SILVER;
+                g.session.submit(game -> {
+                    g.players[Protocol.SILVER] = c;
+                    send(c, Protocol.game(id, Protocol.SILVER));
+                    for (ByteBuffer frame : g.setupFrames) send(c, frame.duplicate());
+                    return null;
+                });
+                return;
+            }
+            case Protocol.SETUP: {
+                byte[] pieces = new byte[2 * (body.get() & 0xFF)];
+                body.get(pieces);
+                play(c, game -> setup(c, game, pieces));
+                return;
+            }
+            case Protocol.STEP: {
+                int from = square(body.get()), to = square(body.get());
+                play(c, game -> {
+                    checkTurn(c, game);
+                    step(game, from, to);
+                    broadcast(c.game, Protocol.stepped(c.side, from, to, Protocol.NO_SQUARE));
+                });
+                return;
+            }
+            case Protocol.PUSH_PULL: {
+                int from = square(body.get()), to = square(body.get()), destination = square(body.get());
+                play(c, game -> {
+                    checkTurn(c, game);
+                    pushOrPull(game, from, to, destination);
+                    broadcast(c.game, Protocol.stepped(c.side, from, to, destination));
+                });
+                return;
+            }
+            case Protocol.END_TURN:
+                play(c, game -> endTurn(c, game));
+                return;
+            case Protocol.RESIGN:
+                play(c, game -> finish(c.game, game, 1 - c.side, Protocol.REASON_RESIGN));
+                return;
+            default:
+                throw new IllegalArgumentException("Unknown command " + type);
+        }
+    }
+
+    /**
+     * Runs a move of the connection's player on its game; rule violations are answered with an ERROR frame.
+     */
+    private void play(Connection c, Consumer<Game> move) {
+        NetGame g = c.game;
+        if (g == null) throw new IllegalStateException("Not in a game");
+        g.session.submit(game -> {
+            if (g.over) {
+                send(c, Protocol.error("Game is over"));
+                return null;
+            }
+            try {
+                move.accept(game);
+            } catch (GameOverException e) {
+                //Raised by the timer checks of a step
+                finish(g, game, 1 - c.side, Protocol.REASON_TIMEOUT);
+            } catch (IllegalArgumentException | IllegalStateException e) {
+                send(c, Protocol.error(e.getMessage()));
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks a push or pull like the first click of a player would ({@link Game#step}), then plays it; an illegal
+     * one leaves the game as it was.
+     */
+    private static void step(Game game, int from, int to) {
+        //A step onto a piece saves the turn for its push/pull, which is taken back with the rejection
+        int depth = game.getUndoDepth();
+        try {
+            StepResult result = game.step(position(from), position(to));
+            if (result.type != ActionType.SIMPLE) {
+                throw new IllegalArgumentException("Step onto a piece needs a push/pull destination");
+            }
+        } catch (RuntimeException e) {
+            while (game.getUndoDepth() > depth) game.undo();
+            throw e;
+        }
+    }
+
+    private static void pushOrPull(Game game, int from, int to, int destination) {
+        if (game.getBoard().getFigureAt(to / 8, to % 8) == null) {
+            throw new IllegalArgumentException("No piece to push or pull at " + position(to));
+        }
+        int depth = game.getUndoDepth();
+        try {
+            StepResult result = game.step(position(from), position(to));
+            if (result.type == ActionType.SIMPLE || !result.options.contains(position(destination))) {
+                throw new IllegalArgumentException("Illegal push/pull destination " + position(destination));
+            }
+            game.resolveStep(position(from), position(to), position(destination));
+        } catch (RuntimeException e) {
+            while (game.getUndoDepth() > depth) game.undo();
+            throw e;
+        }
+    }
+
+    private void setup(Connection c, Game game, byte[] pieces) {
+        NetGame g = c.game;
+        if (g.setups >= 2 || c.side != g.setups) throw new IllegalStateException("Not your setup");
+        boolean gold = c.side == Protocol.GOLD;
+        if (pieces.length != 2 * SETUP_PIECES) throw new IllegalArgumentException("A setup has 16 pieces");
+        List<String> tokens = Protocol.setupTokens(pieces, gold);
+        int[] counts = new int[FigureType.values().length];
+        long used = 0;
+        for (int i = 0; i < pieces.length; i += 2) {
+            int sq = pieces[i + 1];
+            if (gold ? sq < 48 : sq >= 16) throw new IllegalArgumentException("Setup outside the home rows");
+            if ((used & 1L << sq) != 0) throw new IllegalArgumentException("Two pieces on one square");
+            used |= 1L << sq;
+            counts[pieces[i]]++;
+        }
+        for (int t = 0; t < counts.length; t++) {
+            if (counts[t] != SETUP_COUNTS[t]) {
+                throw new IllegalArgumentException("Wrong number of " + FigureType.values()[t]);
+            }
+        }
+        game.addSetupMove(tokens, gold);
+        ByteBuffer frame = Protocol.setupDone(c.side, pieces);
+        g.setupFrames.add(frame);
+        broadcast(g, frame);
+        if (++g.setups == 2) {
+            game.getTimer().startGame();
+            game.getTimer().startTurn(true);
+        }
+    }
+
+    private void endTurn(Connection c, Game game) {
+        checkTurn(c, game);
+        GameTimer timer = game.getTimer();
+        long turnMs = timer.getCurrentTurnTime();
+        game.endTurnEarly();
+        boolean goldToMove = game.getCurrentPlayer().isGold();
+        timer.startTurn(goldToMove);
+        broadcast(c.game, Protocol.turn(goldToMove, (int) turnMs, timer.getTotalTime()));
+        int winner = EngineBoard.from(game).winner();
+        if (winner != EngineBoard.NONE) finish(c.game, game, winner, Protocol.REASON_RULES);
+    }
+
+    private static void checkTurn(Connection c, Game game) {
+        if (c.game.setups < 2) throw new IllegalStateException("The setup is not finished");
+        if (game.getCurrentPlayer().isGold() != (c.side == Protocol.GOLD)) {
+            throw new IllegalStateException("Not your turn");
+        }
+    }
+
+    /**
+     * Ends a game once: stops its clocks, tells both players and removes it from the server and the manager.
+     */
+    private void finish(NetGame g, Game game, int winner, int reason) {
+        if (g.over) return;
+        g.over = true;
+        game.getTimer().endTurn();
+        game.getTimer().stopGameTimer();
+        broadcast(g, Protocol.gameOver(winner, reason));
+        games.remove(g.session.id());
+        manager.close(g.session.id());
+        log.debug("Game {} over: winner {}, reason {}", g.session.id(), winner, reason);
+    }
+
+    /**
+     * Forwards clock timeouts to the game's session; the side that ran out of time loses.
+     */
+    private final class Timeouts implements GameTimer.TimerListener {
+        private final NetGame g;
+
+        Timeouts(NetGame g) {
+            this.g = g;
+        }
+
+        @Override
+        public void onTimeUpdate(long milliseconds, boolean isGoldTurn) {
+        }
+
+        @Override
+        public void onTotalTimeUpdate(long milliseconds) {
+        }
+
+        @Override
+        public void onTurnTimeout(boolean isGoldTurn) {
+            g.session.submit(game -> {
+                finish(g, game, isGoldTurn ? Protocol.SILVER : Protocol.GOLD, Protocol.REASON_TIMEOUT);
+                return null;
+            });
+        }
+
+        @Override
+        public void onTotalTimeout() {
+            g.session.submit(game -> {
+                finish(g, game, game.getCurrentPlayer().isGold() ? Protocol.SILVER : Protocol.GOLD,
+                        Protocol.REASON_TIMEOUT);
+                return null;
+            });
+        }
+    }
+
+    private void broadcast(NetGame g, ByteBuffer frame) {
+        for (Connection player : g.players) {
+            if (player != null) send(player, frame.duplicate());
+        }
+    }
+
+    /**
+     * Queues a frame for the selector thread; callable from any thread.
+     */
+    private void send(Connection c, ByteBuffer frame) {
+        if (c.closed) return;
+        c.out.add(frame);
+        pendingWrites.add(c);
+        selector.wakeup();
+    }
+
+    private void flush(Connection c) {
+        if (c.closed) return;
+        try {
+            ByteBuffer frame;
+            while ((frame = c.out.peek()) != null) {
+                c.channel.write(frame);
+                if (frame.hasRemaining()) {
+                    c.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+                c.out.poll();
+            }
+            c.key.interestOps(SelectionKey.OP_READ);
+        } catch (IOException e) {
+            disconnect(c);
+        }
+    }
+
+    /**
+     * Closes the socket; an unfinished game is lost by the leaving player, or has no winner before both joined.
+     */
+    private void disconnect(Connection c) {
+        if (c.closed) return;
+        c.closed = true;
+        c.key.cancel();
+        try {
+            c.channel.close();
+        } catch (IOException e) {
+            log.debug("Closing a connection failed: {}", e.getMessage());
+        }
+        NetGame g = c.game;
+        if (g == null) return;
+        g.session.submit(game -> {
+            g.players[c.side] = null;
+            int opponent = 1 - c.side;
+            finish(g, game, g.players[opponent] == null ? Protocol.NO_WINNER : opponent,
+                    Protocol.REASON_DISCONNECT);
+            return null;
+        });
+    }
+
+    private static int square(int value) {
+        int sq = value & 0xFF;
+        if (sq >= 64) throw new IllegalArgumentException("Invalid square " + sq);
+        return sq;
+    }
+
+    private static Position position(int sq) {
+        return new Position(sq / 8, sq % 8);
+    }
+}
@@ -0,0 +1,271 @@
+package server;
+
+import utils.FigureType;
+import utils.GameMode;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary frames of the network play protocol.
+ * <p>Every frame is a 2 byte big-endian length (of what follows), a 1 byte type and the payload. Squares are
+ * one byte, {@code row * 8 + col} with row 0 = rank 8, as in {@link ai.EngineBoard}; {@link #NO_SQUARE} marks
+ * a missing push/pull destination. Pieces are a {@link FigureType} ordinal byte followed by a square byte.</p>
+ *
+ * <pre>
+ * client -> server                        server -> client
+ * NEW_GAME   mode                         GAME      id(8) side
+ * JOIN       id(8)                        SETUP     side count (type square)*count
+ * SETUP      count (type square)*count    STEPPED   side from to destination
+ * STEP       from to                      TURN      goldToMove turnMs(4) totalMs(8)
+ * PUSH_PULL  from to destination          GAME_OVER winner reason
+ * END_TURN                                ERROR     UTF-8 message
+ * RESIGN
+ * </pre>
+ */
+public final class Protocol {
+    public static final int HEADER_BYTES = 3;
+    //Longest frame body either side accepts (a setup of 16 pieces is 34 bytes)
+    public static final int MAX_FRAME = 512;
+
+    public static final byte NEW_GAME = 1;
+    public static final byte JOIN = 2;
+    public static final byte SETUP = 3;
+    public static final byte STEP = 4;
+    public static final byte PUSH_PULL = 5;
+    public static final byte END_TURN = 6;
+    public static final byte RESIGN = 7;
+
+    public static final byte GAME = 16;
+    public static final byte STEPPED = 18;
+    public static final byte TURN = 19;
+    public static final byte GAME_OVER = 20;
+    public static final byte ERROR = 21;
+
+    public static final int GOLD = 0;
+    public static final int SILVER = 1;
+    //Winner of a drawn or aborted game
+    public static final int NO_WINNER = 0xFF;
+    public static final int NO_SQUARE = 0xFF;
+
+    //GAME_OVER reasons
+    public static final int REASON_RULES = 0;
+    public static final int REASON_TIMEOUT = 1;
+    public static final int REASON_RESIGN = 2;
+    public static final int REASON_DISCONNECT = 3;
+
+    private Protocol() {
+    }
+
+    /**
+     * Frame received from the server, decoded. Only the fields of its type are set.
+     */
+    public static final class Event {
+        public final byte type;
+        public final long gameId;
+        //GAME, SETUP, STEPPED: side of the player; GAME_OVER: winner or NO_WINNER
+        public final int side;
+        public final int from;
+        public final int to;
+        public final int destination;
+        public final boolean goldToMove;
+        public final int turnMs;
+        public final long totalMs;
+        public final int reason;
+        //SETUP: type ordinal and square of every piece, interleaved
+        public final byte[] pieces;
+        public final String message;
+
+        private Event(byte type, long gameId, int side, int from, int to, int destination, boolean goldToMove,
+                      int turnMs, long totalMs, int reason, byte[] pieces, String message) {
+            this.type = type;
+            this.gameId = gameId;
+            this.side = side;
+            this.from = from;
+            this.to = to;
+            this.destination = destination;
+            this.goldToMove = goldToMove;
+            this.turnMs = turnMs;
+            this.totalMs = totalMs;
+            this.reason = reason;
+            this.pieces = pieces;
+            this.message = message;
+        }
+
+        @Override
+        public String toString() {
+            switch (type) {
+                case GAME: return "GAME " + gameId + " side " + side;
+                case SETUP: return "SETUP side " + side + " " + (pieces.length / 2) + " pieces";
+                case STEPPED: return "STEPPED side " + side + " " + from + "-" + to
+                        + (destination == NO_SQUARE ? "" : ">" + destination);
+                case TURN: return "TURN " + (goldToMove ? "gold" : "silver") + " " + turnMs + "/" + totalMs + " ms";
+                case GAME_OVER: return "GAME_OVER winner " + side + " reason " + reason;
+                case ERROR: return "ERROR " + message;
+                default: return "frame " + type;
+            }
+        }
+    }
+
+    //Client commands, each returned ready to write
+
+    public static ByteBuffer newGame(GameMode mode) {
+        return frame(NEW_GAME, 1).put((byte) mode.ordinal()).flip();
+    }
+
+    public static ByteBuffer join(long id) {
+        return frame(JOIN, 8).putLong(id).flip();
+    }
+
+    /**
+     * @param pieces type ordinal and square of every piece, interleaved
+     */
+    public static ByteBuffer setup(byte[] pieces) {
+        return frame(SETUP, 1 + pieces.length).put((byte) (pieces.length / 2)).put(pieces).flip();
+    }
+
+    public static ByteBuffer step(int from, int to) {
+        return frame(STEP, 2).put((byte) from).put((byte) to).flip();
+    }
+
+    public static ByteBuffer pushPull(int from, int to, int destination) {
+        return frame(PUSH_PULL, 3).put((byte) from).put((byte) to).put((byte) destination).flip();
+    }
+
+    public static ByteBuffer endTurn() {
+        return frame(END_TURN, 0).flip();
+    }
+
+    public static ByteBuffer resign() {
+        return frame(RESIGN, 0).flip();
+    }
+
+    //Server events
+
+    public static ByteBuffer game(long id, int side) {
+        return frame(GAME, 9).putLong(id).put((byte) side).flip();
+    }
+
+    public static ByteBuffer setupDone(int side, byte[] pieces) {
+        return frame(SETUP, 2 + pieces.length).put((byte) side).put((byte) (pieces.length / 2)).put(pieces).flip();
+    }
+
+    public static ByteBuffer stepped(int side, int from, int to, int destination) {
+        return frame(STEPPED, 4).put((byte) side).put((byte) from).put((byte) to).put((byte) destination).flip();
+    }
+
+    public static ByteBuffer turn(boolean goldToMove, int turnMs, long totalMs) {
+        return frame(TURN, 13).put((byte) (goldToMove ? 1 : 0)).putInt(turnMs).putLong(totalMs).flip();
+    }
+
+    public static ByteBuffer gameOver(int winner, int reason) {
+        return frame(GAME_OVER, 2).put((byte) winner).put((byte) reason).flip();
+    }
+
+    public static ByteBuffer error(String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(text.length, MAX_FRAME - 1);
+        return frame(ERROR, length).put(text, 0, length).flip();
+    }
+
+    /**
+     * Decodes a server frame.
+     *
+     * @param type frame type
+     * @param body payload, consumed by the call
+     * @throws IllegalArgumentException if the type is unknown or the payload is too short
+     */
+    public static Event decode(byte type, ByteBuffer body) {
+        try {
+            switch (type) {
+                case GAME:
+                    return new Event(type, body.getLong(), body.get() & 0xFF, NO_SQUARE, NO_SQUARE, NO_SQUARE,
+                            false, 0, 0, 0, null, null);
+                case SETUP: {
+                    int side = body.get() & 0xFF;
+                    byte[] pieces = new byte[2 * (body.get() & 0xFF)];
+                    body.get(pieces);
+                    return new Event(type, 0, side, NO_SQUARE, NO_SQUARE, NO_SQUARE, false, 0, 0, 0, pieces, null);
+                }
+                case STEPPED:
+                    return new Event(type, 0, body.get() & 0xFF, body.get() & 0xFF, body.get() & 0xFF,
+                            body.get() & 0xFF, false, 0, 0, 0, null, null);
+                case TURN:
+                    return new Event(type, 0, 0, NO_SQUARE, NO_SQUARE, NO_SQUARE, body.get() != 0, body.getInt(),
+                            body.getLong(), 0, null, null);
+                case GAME_OVER:
+                    return new Event(type, 0, body.get() & 0xFF, NO_SQUARE, NO_SQUARE, NO_SQUARE, false, 0, 0,
+                            body.get() & 0xFF, null, null);
+                case ERROR: {
+                    byte[] text = new byte[body.remaining()];
+                    body.get(text);
+                    return new Event(type, 0, 0, NO_SQUARE, NO_SQUARE, NO_SQUARE, false, 0, 0, 0, null,
+                            new String(text, StandardCharsets.UTF_8));
+                }
+                default:
+                    throw new IllegalArgumentException("Unknown frame type " + type);
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated frame of type " + type, e);
+        }
+    }
+
+    /**
+     * Encodes a setup in saved-game notation ("Ra1 Rb1 ... Ch2") as piece bytes.
+     *
+     * @throws IllegalArgumentException if a piece is malformed
+     */
+    public static byte[] pieces(String setup) {
+        String[] tokens = setup.trim().split("\\s+");
+        byte[] pieces = new byte[2 * tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            String t = tokens[i];
+            if (t.length() != 3) throw new IllegalArgumentException("Invalid setup piece: " + t);
+            pieces[2 * i] = (byte) FigureType.fromLetter(t.substring(0, 1)).ordinal();
+            pieces[2 * i + 1] = (byte) square(t.substring(1));
+        }
+        return pieces;
+    }
+
+    /**
+     * Decodes piece bytes into setup tokens for {@link logic.Game#addSetupMove}.
+     *
+     * @param gold true for gold's upper-case letters
+     * @throws IllegalArgumentException if a type or square is out of range
+     */
+    public static List<String> setupTokens(byte[] pieces, boolean gold) {
+        FigureType[] types = FigureType.values();
+        List<String> tokens = new ArrayList<>(pieces.length / 2);
+        for (int i = 0; i + 1 < pieces.length; i += 2) {
+            int type = pieces[i], sq = pieces[i + 1] & 0xFF;
+            if (type < 0 || type >= types.length) throw new IllegalArgumentException("Unknown piece " + type);
+            if (sq >= 64) throw new IllegalArgumentException("Invalid square " + sq);
+            char code = types[type].getCode();
+            char letter = gold ? Character.toUpperCase(code) : code;
+            tokens.add("" + letter + (char) ('a' + sq % 8) + (char) ('8' - sq / 8));
+        }
+        return tokens;
+    }
+
+    /**
+     * @param coord file and rank, e.g. "a1"
+     * @return square index
+     * @throws IllegalArgumentException if the coordinate is off the board
+     */
+    public static int square(String coord) {
+        int col = coord.charAt(0) - 'a';
+        int row = '8' - coord.charAt(1);
+        if (coord.length() != 2 || col < 0 || col > 7 || row < 0 || row > 7) {
+            throw new IllegalArgumentException("Invalid square: " + coord);
+        }
+        return row * 8 + col;
+    }
+
+    private static ByteBuffer frame(byte type, int bodyBytes) {
+        ByteBuffer frame = ByteBuffer.allocate(HEADER_BYTES + bodyBytes);
+        return frame.putShort((short) (1 + bodyBytes)).put(type);
+    }
+}
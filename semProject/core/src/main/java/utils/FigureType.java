@@ -24,6 +24,13 @@ public enum FigureType {
         this.canBePushPull = canBePushPull;
     }
 
+    /**
+     * @return lower-case notation letter of this type ('e', 'm', 'h', 'd', 'c', 'r')
+     */
+    public char getCode() {
+        return code;
+    }
+
     /**
      * @return int strength value (higher means stronger)
      */
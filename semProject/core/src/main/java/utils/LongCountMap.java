@@ -0,0 +1,138 @@
+package utils;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from {@code long} keys (position hashes) to occurrence counts, without boxing.
+ * <p>Linear probing in a power-of-two table that doubles when it is half full. A key whose count drops to zero is
+ * removed with backward-shift deletion, so lookups never have to skip tombstones.</p>
+ */
+public class LongCountMap {
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    /**
+     * Creates a map with 64 slots
+     */
+    public LongCountMap() {
+        this(64);
+    }
+
+    /**
+     * @param capacity initial number of slots, rounded up to a power of two
+     */
+    public LongCountMap(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        keys = new long[cap];
+        counts = new int[cap];
+    }
+
+    /**
+     * Copies another map.
+     *
+     * @param other map to copy
+     */
+    public LongCountMap(LongCountMap other) {
+        keys = other.keys.clone();
+        counts = other.counts.clone();
+        size = other.size;
+    }
+
+    /**
+     * @return occurrences of the key, 0 if absent
+     */
+    public int count(long key) {
+        int mask = keys.length - 1;
+        for (int i = mix(key) & mask; counts[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) return counts[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Adds one occurrence of the key.
+     *
+     * @return the new count
+     */
+    public int increment(long key) {
+        if (2 * (size + 1) > keys.length) grow();
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (counts[i] != 0) {
+            if (keys[i] == key) return ++counts[i];
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        counts[i] = 1;
+        size++;
+        return 1;
+    }
+
+    /**
+     * Removes one occurrence of the key; the key disappears when its count reaches 0.
+     *
+     * @return the new count
+     * @throws IllegalStateException if the key is absent
+     */
+    public int decrement(long key) {
+        int mask = keys.length - 1;
+        int i = mix(key) & mask;
+        while (counts[i] != 0 && keys[i] != key) i = (i + 1) & mask;
+        if (counts[i] == 0) {
+            throw new IllegalStateException("Key not present: " + key);
+        }
+        if (--counts[i] > 0) return counts[i];
+
+        //Shift later entries of the probe chain back into the hole
+        size--;
+        int hole = i;
+        for (int j = (hole + 1) & mask; counts[j] != 0; j = (j + 1) & mask) {
+            int home = mix(keys[j]) & mask;
+            //Move the entry unless its home lies cyclically in (hole, j]
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                keys[hole] = keys[j];
+                counts[hole] = counts[j];
+                counts[j] = 0;
+                hole = j;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return number of distinct keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Removes all keys.
+     */
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[oldKeys.length * 2];
+        counts = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldCounts[j] == 0) continue;
+            int i = mix(oldKeys[j]) & mask;
+            while (counts[i] != 0) i = (i + 1) & mask;
+            keys[i] = oldKeys[j];
+            counts[i] = oldCounts[j];
+        }
+    }
+
+    private static int mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,109 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.PipedReader;
+import java.io.PipedWriter;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the AEI command loop
+ */
+public class AeiAdapterTest {
+    //Gold rabbit on a6 can reach its goal, elephants and rabbits elsewhere
+    private static final String POSITION = "[" +
+            "        " +
+            "        " +
+            "R       " +
+            "        " +
+            "    e   " +
+            "       r" +
+            "   E    " +
+            "        " + "]";
+
+    @Test
+    public void commandLoop_answersHandshakeAndPlaysGoalMove() throws Exception {
+        PipedWriter pipe = new PipedWriter();
+        BufferedReader in = new BufferedReader(new PipedReader(pipe));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        AeiAdapter adapter = new AeiAdapter(in, out);
+        Thread loop = new Thread(() -> {
+            try {
+                adapter.run();
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        loop.start();
+
+        PrintWriter cmd = new PrintWriter(pipe, true);
+        cmd.println("aei");
+        cmd.println("isready");
+        cmd.println("setposition g " + POSITION);
+        cmd.println("setoption name depth value 2");
+        cmd.println("go");
+        String output = awaitOutput(bytes, "bestmove");
+        cmd.println("quit");
+        loop.join(5000);
+
+        assertTrue(output.contains("protocol-version 1"));
+        assertTrue(output.contains("aeiok"));
+        assertTrue(output.contains("readyok"));
+        assertTrue(output.contains("info depth 1"));
+        assertTrue(output.contains("bestmove Ra6n Ra7n"), output);
+        assertFalse(loop.isAlive());
+    }
+
+    @Test
+    public void stop_rightAfterGoInfiniteStillSendsBestMove() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, StandardCharsets.UTF_8);
+        AeiAdapter adapter = new AeiAdapter(new BufferedReader(new java.io.StringReader("")), out);
+        adapter.execute("setposition g " + POSITION);
+        for (int i = 0; i < 20; i++) {
+            adapter.execute("go infinite");
+            adapter.execute("stop");
+            String output = awaitOutput(bytes, "bestmove");
+            assertTrue(output.contains("bestmove"), "search " + i + " was not stopped");
+            adapter.execute("newgame");
+            adapter.execute("setposition g " + POSITION);
+            bytes.reset();
+        }
+    }
+
+    @Test
+    public void makeMove_rejectsShortSetupTokens() {
+        AeiAdapter adapter = new AeiAdapter(new BufferedReader(new java.io.StringReader("")), System.out);
+        adapter.execute("newgame");
+        assertThrows(IllegalArgumentException.class, () -> adapter.execute("makemove Ra1 R"));
+        assertThrows(IllegalArgumentException.class, () -> adapter.execute("makemove Ra9"));
+        adapter.execute("makemove Ra1 Rb1");
+    }
+
+    @Test
+    public void moveTime_usesReserveShareAndTurnLimit() {
+        AeiAdapter adapter = new AeiAdapter(new BufferedReader(new java.io.StringReader("")), System.out);
+        adapter.execute("setoption name tcmove value 10");
+        adapter.execute("setoption name greserve value 100");
+        assertEquals(18000, adapter.moveTimeMs());
+        adapter.execute("setoption name tcturntime value 5");
+        assertEquals(4500, adapter.moveTimeMs());
+    }
+
+    private static String awaitOutput(ByteArrayOutputStream bytes, String marker) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 20_000;
+        while (System.currentTimeMillis() < deadline) {
+            String s = bytes.toString(StandardCharsets.UTF_8);
+            if (s.contains(marker)) return s;
+            Thread.sleep(20);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package ai;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the batch evaluator
+ */
+public class BatchEvaluatorTest {
+
+    @Test
+    public void evaluate_matchesEvaluatorWithoutTheFrozenTerm() {
+        Evaluator evaluator = new Evaluator(Evaluator.DEFAULT_WEIGHTS);
+        BatchEvaluator batchEvaluator = new BatchEvaluator(Evaluator.DEFAULT_WEIGHTS, false);
+        Random random = new Random(3);
+        EngineBoard[] boards = new EngineBoard[37];
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(boards.length);
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = BatchBenchmark.randomPosition(random);
+            batch.add(boards[i]);
+        }
+        int[] scores = new int[boards.length];
+        batchEvaluator.evaluate(batch, scores);
+
+        for (int i = 0; i < boards.length; i++) {
+            EngineBoard b = boards[i];
+            int[] gold = evaluator.features(b, EngineBoard.GOLD);
+            int[] silver = evaluator.features(b, EngineBoard.SILVER);
+            int expected = evaluator.material(b, EngineBoard.GOLD) - evaluator.material(b, EngineBoard.SILVER);
+            for (int f = 0; f < Evaluator.WEIGHT_COUNT; f++) {
+                if (f != Evaluator.W_FROZEN) expected += gold[f] - silver[f];
+            }
+            assertEquals(expected, scores[i], "board " + i);
+        }
+        assertThrows(IllegalStateException.class, () -> batch.add(boards[0]));
+    }
+
+    @Test
+    public void vectorLoop_givesTheScalarScores() {
+        int[] weights = {130, 70, 90, 100};
+        BatchEvaluator.Batch batch = BatchBenchmark.randomBatch(1000, 5);
+        int[] scalar = new int[batch.size()];
+        int[] vector = new int[batch.size()];
+        new BatchEvaluator(weights, false).evaluate(batch, scalar);
+        BatchEvaluator vectorized = new BatchEvaluator(weights, true);
+        assertEquals(BatchEvaluator.VECTOR_AVAILABLE, vectorized.isVectorized());
+        vectorized.evaluate(batch, vector);
+        assertArrayEquals(scalar, vector);
+    }
+}
@@ -0,0 +1,91 @@
+package ai;
+
+import logic.Board;
+import logic.Game;
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the engine bitboard position
+ */
+public class EngineBoardTest {
+
+    private static int kind(boolean gold, FigureType type) {
+        return Zobrist.kind(gold, type);
+    }
+
+    @Test
+    public void makeAndUndo_restoresPositionAndHash() {
+        EngineBoard b = new EngineBoard();
+        b.put(kind(true, FigureType.ELEPHANT), 27);
+        b.put(kind(false, FigureType.CAT), 19);
+        b.put(kind(false, FigureType.RABBIT), 26);
+        long start = b.hash();
+        String diagram = b.toString();
+
+        int[] steps = new int[EngineBoard.MAX_STEPS];
+        int n = b.generateSteps(steps);
+        assertTrue(n > 0);
+        for (int i = 0; i < n; i++) {
+            b.makeStep(steps[i]);
+            b.endTurn();
+            b.undo();
+            b.undo();
+            assertEquals(start, b.hash());
+            assertEquals(diagram, b.toString());
+        }
+    }
+
+    @Test
+    public void pushOntoUnsupportedTrap_capturesVictim() {
+        EngineBoard b = new EngineBoard();
+        //Gold elephant on c4 pushes silver cat from c5 ... c6 is a trap (row 2, col 2 = square 18)
+        b.put(kind(true, FigureType.ELEPHANT), 34);
+        b.put(kind(false, FigureType.CAT), 26);
+        int push = b.parseStep("Ec4n>c6");
+        assertNotEquals(-1, push);
+        b.makeStep(push);
+        assertEquals(EngineBoard.EMPTY, b.pieceAt(18));
+        assertEquals(kind(true, FigureType.ELEPHANT), b.pieceAt(26));
+        assertEquals(2, b.stepsTaken());
+        b.undo();
+        assertEquals(kind(false, FigureType.CAT), b.pieceAt(26));
+    }
+
+    @Test
+    public void hash_matchesGamePositionHash() {
+        Game game = new Game(utils.GameMode.CLASSIC);
+        Board board = game.getBoard();
+        board.setFigureAt(6, 0, new figures.Figure(FigureType.RABBIT, true));
+        board.setFigureAt(1, 4, new figures.Figure(FigureType.HORSE, false));
+        assertEquals(game.getPositionHash(), EngineBoard.from(game).hash());
+        game.switchPlayer();
+        assertEquals(game.getPositionHash(), EngineBoard.from(game).hash());
+    }
+
+    @Test
+    public void mirror_tracksMirrorHashAndMirroredSteps() {
+        EngineBoard b = new EngineBoard();
+        b.put(kind(true, FigureType.ELEPHANT), 34);
+        b.put(kind(false, FigureType.CAT), 26);
+        b.put(kind(false, FigureType.RABBIT), 9);
+        EngineBoard m = b.mirror();
+        assertEquals(b.mirrorHash(), m.hash());
+        assertEquals(b.canonicalHash(), m.canonicalHash());
+
+        for (String token : new String[]{"Ec4n>c6", "Ec5w"}) {
+            b.makeStep(b.parseStep(token));
+            int mirrored = m.parseStep(logic.Notation.mirror(token));
+            assertNotEquals(-1, mirrored, token);
+            m.makeStep(mirrored);
+            assertEquals(b.mirrorHash(), m.hash(), token);
+        }
+        b.endTurn();
+        m.endTurn();
+        assertEquals(b.canonicalHash(), m.canonicalHash());
+        assertEquals(b.mirror().hash(), m.hash());
+    }
+}
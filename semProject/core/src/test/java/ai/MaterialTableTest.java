@@ -0,0 +1,59 @@
+package ai;
+
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the material lookup table and the material keys kept by the engine board
+ */
+public class MaterialTableTest {
+
+    @Test
+    public void balance_isAntisymmetricAndRabbitsGainValueWhenScarce() {
+        MaterialTable table = MaterialTable.getDefault();
+        int full = MaterialTable.key(new int[]{1, 1, 2, 2, 2, 8});
+        int noCamel = MaterialTable.key(new int[]{1, 0, 2, 2, 2, 8});
+        assertEquals(0, table.balance(full, full));
+        assertEquals(-table.balance(noCamel, full), table.balance(full, noCamel));
+        int oneRabbit = table.balance(MaterialTable.key(new int[]{1, 1, 2, 2, 2, 7}), full);
+        assertTrue(table.balance(noCamel, full) < 4 * oneRabbit);
+
+        int lostFirst = table.balance(full, MaterialTable.key(new int[]{1, 1, 2, 2, 2, 7}));
+        int lostLast = table.balance(MaterialTable.key(new int[]{1, 1, 2, 2, 2, 1}),
+                MaterialTable.key(new int[]{1, 1, 2, 2, 2, 0}));
+        assertTrue(lostLast > lostFirst, lostLast + " vs " + lostFirst);
+
+        int[] counts = new int[EngineBoard.TYPES];
+        MaterialTable.counts(noCamel, counts);
+        assertArrayEquals(new int[]{1, 0, 2, 2, 2, 8}, counts);
+        assertThrows(IllegalArgumentException.class, () -> MaterialTable.key(new int[]{2, 1, 2, 2, 2, 8}));
+    }
+
+    @Test
+    public void engineBoard_tracksKeysThroughCapturesAndUndo() {
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 27);
+        b.put(Zobrist.kind(false, FigureType.CAT), 26);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 63);
+        int silverBefore = b.materialKey(EngineBoard.SILVER);
+        assertEquals(MaterialTable.key(new int[]{0, 0, 0, 0, 1, 0}), silverBefore);
+
+        //The elephant on d5 pushes the cat from c5 onto the unguarded c6 trap
+        int push = b.parseStep("Ed5w>c6");
+        assertNotEquals(-1, push);
+        b.makeStep(push);
+        assertEquals(0, b.materialKey(EngineBoard.SILVER));
+        b.undo();
+        assertEquals(silverBefore, b.materialKey(EngineBoard.SILVER));
+
+        assertTrue(b.hasLegalArmies());
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 0);
+        assertFalse(b.hasLegalArmies());
+        assertTrue(new EngineBoard(b).materialKey(EngineBoard.GOLD) > 0);
+        b.remove(0);
+        assertTrue(b.hasLegalArmies());
+    }
+}
@@ -0,0 +1,118 @@
+package ai;
+
+import logic.Board;
+import logic.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for building and reading the memory-mapped opening book
+ */
+public class OpeningBookTest {
+    static final String GOLD_SETUP = "Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2";
+    static final String SILVER_SETUP = "ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7";
+
+    @TempDir
+    Path dir;
+
+    private Path buildBook() throws IOException {
+        return buildBook(false);
+    }
+
+    private Path buildBook(boolean symmetric) throws IOException {
+        Files.write(dir.resolve("g1.txt"), List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP,
+                "2g Ea2n Ea3n Ea4n -", "2s eh7s eh6s - -"));
+        Files.write(dir.resolve("g2.txt"), List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP,
+                "2g Ea2n Ea3n Ea4n -", "2s mg7s - - -"));
+        Path out = dir.resolve("test.book");
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_MAX_TURNS);
+        builder.setSymmetric(symmetric);
+        builder.addDirectory(dir);
+        builder.write(out);
+        return out;
+    }
+
+    @Test
+    public void lookup_returnsWeightedTurnsForReachedPositions() throws IOException {
+        OpeningBook book = OpeningBook.open(buildBook());
+
+        Game game = new Game(GameMode.CLASSIC);
+        game.addSetupMove(Arrays.asList(GOLD_SETUP.split(" ")), true);
+        game.addSetupMove(Arrays.asList(SILVER_SETUP.split(" ")), false);
+
+        List<OpeningBook.Entry> goldTurns = book.lookup(game.getPositionHash());
+        assertEquals(1, goldTurns.size());
+        assertEquals("Ea2n Ea3n Ea4n", goldTurns.get(0).move);
+        assertEquals(2, goldTurns.get(0).weight);
+
+        for (String token : goldTurns.get(0).move.split(" ")) game.playToken(token);
+        game.switchPlayer();
+        assertEquals(2, book.lookup(game.getPositionHash()).size());
+
+        assertTrue(book.lookup(game.getPositionHash() ^ 1L).isEmpty());
+        assertNull(book.pick(12345L, new Random(1)));
+    }
+
+    @Test
+    public void applySetup_placesSilverSetupFromBook() throws IOException {
+        OpeningBook book = OpeningBook.open(buildBook());
+        Board board = new Board();
+        //A gold setup that was never recorded falls back to any silver setup
+        board.setFigureAt(7, 0, new figures.Figure(utils.FigureType.RABBIT, true));
+
+        assertTrue(book.applySetup(board, false, new Random(1)));
+        assertEquals(utils.FigureType.ELEPHANT, board.getFigureAt(1, 7).getType());
+        assertFalse(board.getFigureAt(1, 7).isGold());
+    }
+
+    @Test
+    public void applySetup_rejectsMalformedSetupAndLeavesBoard() throws IOException {
+        //The silver elephant is placed outside silver's home rows
+        Files.write(dir.resolve("bad.txt"), List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP.replace("eh7", "eh5")));
+        Path out = dir.resolve("bad.book");
+        OpeningBookBuilder builder = new OpeningBookBuilder(OpeningBookBuilder.DEFAULT_MAX_TURNS);
+        builder.addDirectory(dir);
+        builder.write(out);
+        OpeningBook book = OpeningBook.open(out);
+        Board board = new Board();
+        board.setFigureAt(7, 0, new figures.Figure(utils.FigureType.RABBIT, true));
+
+        assertFalse(book.applySetup(board, false, new Random(1)));
+        for (int col = 0; col < Board.SIZE; col++) {
+            assertNull(board.getFigureAt(0, col));
+            assertNull(board.getFigureAt(1, col));
+        }
+    }
+
+    @Test
+    public void symmetricBook_servesMirroredPositionsFromOneEntry() throws IOException {
+        OpeningBook book = OpeningBook.open(buildBook(true));
+        assertTrue(book.isSymmetric());
+
+        for (boolean mirrored : new boolean[]{false, true}) {
+            Game game = new Game(GameMode.CLASSIC);
+            String gold = mirrored ? OpeningBook.mirrorText(GOLD_SETUP) : GOLD_SETUP;
+            String silver = mirrored ? OpeningBook.mirrorText(SILVER_SETUP) : SILVER_SETUP;
+            game.addSetupMove(Arrays.asList(gold.split(" ")), true);
+            game.addSetupMove(Arrays.asList(silver.split(" ")), false);
+
+            OpeningBook.Entry turn = book.pick(game.getBoard(), true, new Random(1));
+            assertEquals(mirrored ? "Eh2n Eh3n Eh4n" : "Ea2n Ea3n Ea4n", turn.move);
+            assertEquals(2, turn.weight);
+        }
+
+        Board board = new Board();
+        assertTrue(book.applySetup(board, true, new Random(1)));
+        assertEquals(utils.FigureType.ELEPHANT, board.getFigureAt(6, 0).getType());
+    }
+}
@@ -0,0 +1,76 @@
+package ai;
+
+import logic.Game;
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the perft move generation counter
+ */
+public class PerftTest {
+
+    @Test
+    public void startPosition_parallelCountsMatchSingleThreaded() {
+        Perft perft = new Perft(Perft.startPosition());
+        assertEquals(25394, perft.steps(4));
+        assertEquals(perft.steps(5), perft.stepsParallel(5));
+        assertEquals(3353, perft.turns(1));
+        assertEquals(perft.turns(1), perft.turnsParallel(1));
+    }
+
+    @Test
+    public void contactPosition_stepsMatchGameRules() {
+        EngineBoard b = new EngineBoard();
+        //Elephants, a dog and a cat in contact near the c6 trap, rabbits on both sides
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 27);
+        b.put(Zobrist.kind(true, FigureType.DOG), 34);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 50);
+        b.put(Zobrist.kind(false, FigureType.CAT), 19);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 26);
+        b.put(Zobrist.kind(false, FigureType.ELEPHANT), 36);
+        b.put(Zobrist.kind(false, FigureType.HORSE), 35);
+        assertEquals(0, new Perft(b).verify(4));
+    }
+
+    @Test
+    public void restrictedTurns_matchExhaustiveStepSequences() {
+        EngineBoard b = new EngineBoard();
+        //Two gold dogs and a rabbit next to the c6 trap, silver pieces to push and pull
+        b.put(Zobrist.kind(true, FigureType.DOG), 27);
+        b.put(Zobrist.kind(true, FigureType.DOG), 29);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 28);
+        b.put(Zobrist.kind(false, FigureType.CAT), 19);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 26);
+        b.put(Zobrist.kind(false, FigureType.ELEPHANT), 4);
+        long[] moverSets = {1L << 27, 1L << 28, 1L << 27 | 1L << 29, 1L << 27 | 1L << 28 | 1L << 29};
+        for (long movers : moverSets) {
+            Set<Long> expected = new HashSet<>();
+            endPositions(b, b.hash(), movers, expected);
+            Set<Long> generated = new HashSet<>();
+            for (Turn t : new TurnGenerator().generate(b, movers)) generated.add(t.hash() ^ Zobrist.SILVER_TO_MOVE);
+            assertEquals(expected, generated, "movers " + Long.toBinaryString(movers));
+        }
+    }
+
+    //Every changed end position of the step sequences that move only the given pieces, without pruning
+    private static void endPositions(EngineBoard b, long start, long movers, Set<Long> out) {
+        int[] steps = new int[EngineBoard.MAX_STEPS];
+        int n = b.generateSteps(steps);
+        for (int i = 0; i < n; i++) {
+            long from = 1L << Step.from(steps[i]);
+            if ((movers & from) == 0) continue;
+            b.makeStep(steps[i]);
+            if (b.hash() != start) out.add(b.hash());
+            if (b.stepsTaken() < Game.MAX_TURNS_STEPS) {
+                endPositions(b, start, movers & ~from | 1L << Step.to(steps[i]), out);
+            }
+            b.undo();
+        }
+    }
+}
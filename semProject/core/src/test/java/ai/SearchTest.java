@@ -0,0 +1,183 @@
+package ai;
+
+import figures.Figure;
+import logic.Board;
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the turn search and the setup optimizer
+ */
+public class SearchTest {
+
+    @Test
+    public void search_findsGoalInOneTurn() {
+        EngineBoard b = new EngineBoard();
+        //Gold rabbit on a6 reaches a8 in two steps
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 16);
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 59);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 47);
+        long hash = b.hash();
+
+        SearchResult result = new Search(new Evaluator(), 16).search(b, SearchLimits.depth(2));
+        assertTrue(result.score > Evaluator.WIN_THRESHOLD, "score " + result.score);
+        assertEquals(hash, b.hash());
+
+        result.best.play(b);
+        assertEquals(EngineBoard.GOLD, b.winner());
+    }
+
+    @Test
+    public void search_returnsAtOnceWhenStoppedBeforeItStarts() {
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 59);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 55);
+        b.put(Zobrist.kind(false, FigureType.ELEPHANT), 4);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 7);
+        Search search = new Search(new Evaluator(), 16);
+        //No depth, node or time limit: only the stop flag ends the search
+        SearchResult result = assertTimeoutPreemptively(java.time.Duration.ofSeconds(10),
+                () -> search.search(b, new SearchLimits(0, 0, 0), new AtomicBoolean(true)));
+        assertNotNull(result.best);
+    }
+
+    @Test
+    public void quiescence_seesTrapCaptureBeyondHorizon() {
+        EngineBoard b = new EngineBoard();
+        //Silver to move; the gold camel on c5 can push the silver horse on c4 into the c3 trap next turn
+        b.put(Zobrist.kind(true, FigureType.CAMEL), 26);
+        b.put(Zobrist.kind(false, FigureType.HORSE), 34);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 63);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 0);
+        b.setSideToMove(EngineBoard.SILVER);
+        assertNotEquals(0, Tactics.captureThreat(b, EngineBoard.GOLD));
+        assertEquals(0, Tactics.goalThreat(b, EngineBoard.GOLD));
+
+        Search plain = new Search(new Evaluator(), 16);
+        plain.setEnabled(Search.Feature.QUIESCENCE, false);
+        SearchResult withoutQs = plain.search(b, SearchLimits.depth(1));
+        assertEquals(0, plain.quiescenceNodes());
+
+        Search search = new Search(new Evaluator(), 16);
+        SearchResult withQs = search.search(b, SearchLimits.depth(1));
+        assertTrue(search.quiescenceNodes() > 0);
+        //The horse steps away from the trap instead of ignoring the threat
+        EngineBoard after = new EngineBoard(b);
+        withQs.best.play(after);
+        assertEquals(1, Long.bitCount(after.pieces(Zobrist.kind(false, FigureType.HORSE))));
+        assertTrue(withQs.score <= withoutQs.score);
+    }
+
+    @Test
+    public void searchFeatures_countTheirWorkAndKeepTheWin() {
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 43);
+        b.put(Zobrist.kind(true, FigureType.CAMEL), 44);
+        b.put(Zobrist.kind(true, FigureType.HORSE), 50);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 56);
+        b.put(Zobrist.kind(false, FigureType.CAMEL), 19);
+        b.put(Zobrist.kind(false, FigureType.HORSE), 10);
+        b.put(Zobrist.kind(false, FigureType.DOG), 13);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 7);
+
+        Search all = new Search(new Evaluator(), 16);
+        all.search(b, SearchLimits.depth(2));
+        Search.Statistics stats = all.statistics();
+        assertTrue(stats.lmrReductions > 0, stats.toString());
+        assertTrue(stats.nullMoveTries > 0, stats.toString());
+
+        Search none = new Search(new Evaluator(), 16);
+        for (Search.Feature f : Search.Feature.values()) none.setEnabled(f, false);
+        none.search(b, SearchLimits.depth(2));
+        Search.Statistics plain = none.statistics();
+        assertEquals(0, plain.pvsResearches + plain.aspirationFailures + plain.lmrReductions + plain.nullMoveTries);
+        assertTrue(stats.nodes < plain.nodes, stats + " vs " + plain);
+
+        //The gold rabbit on a6 still finds its way to the goal
+        EngineBoard goal = new EngineBoard();
+        goal.put(Zobrist.kind(true, FigureType.RABBIT), 16);
+        goal.put(Zobrist.kind(true, FigureType.ELEPHANT), 59);
+        goal.put(Zobrist.kind(false, FigureType.RABBIT), 47);
+        assertTrue(all.search(goal, SearchLimits.depth(3)).score > Evaluator.WIN_THRESHOLD);
+    }
+
+    @Test
+    public void analyze_returnsTopLinesBestFirst() {
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 43);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 56);
+        b.put(Zobrist.kind(false, FigureType.CAMEL), 19);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 7);
+        long hash = b.hash();
+
+        List<Integer> depths = new ArrayList<>();
+        List<SearchResult> lines = new Search(new Evaluator(), 16).analyze(b, SearchLimits.depth(2), 3,
+                r -> depths.add(r.get(0).depth));
+        assertEquals(List.of(1, 2), depths);
+        assertEquals(hash, b.hash());
+        assertEquals(3, lines.size());
+        for (int i = 1; i < lines.size(); i++) {
+            assertTrue(lines.get(i - 1).score >= lines.get(i).score);
+            assertNotEquals(lines.get(i - 1).notation, lines.get(i).notation);
+        }
+        for (SearchResult r : lines) {
+            assertEquals(r.notation, r.pv.get(0));
+            assertTrue(r.pv.size() <= 2);
+        }
+
+        SearchResult single = new Search(new Evaluator(), 16).search(b, SearchLimits.depth(2));
+        assertEquals(single.score, lines.get(0).score);
+    }
+
+    @Test
+    public void symmetricHashing_reusesEntriesOfTheMirrorImage() {
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 43);
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 56);
+        b.put(Zobrist.kind(false, FigureType.CAMEL), 19);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 7);
+        EngineBoard mirror = b.mirror();
+
+        Search search = new Search(new Evaluator(), 16);
+        search.setSymmetricHashing(true);
+        SearchResult first = search.search(b, SearchLimits.depth(2));
+        SearchResult second = search.search(mirror, SearchLimits.depth(2));
+        SearchResult plain = new Search(new Evaluator(), 16).search(b.mirror(), SearchLimits.depth(2));
+
+        assertEquals(plain.score, first.score);
+        assertEquals(first.score, second.score);
+        assertTrue(second.nodes < plain.nodes, second.nodes + " vs " + plain.nodes);
+    }
+
+    @Test
+    public void setupOptimizer_placesFullSilverSetup() {
+        Board board = new Board();
+        FigureType[] back = {FigureType.CAT, FigureType.DOG, FigureType.HORSE, FigureType.CAMEL,
+                FigureType.ELEPHANT, FigureType.HORSE, FigureType.DOG, FigureType.CAT};
+        for (int c = 0; c < Board.SIZE; c++) {
+            board.setFigureAt(6, c, new Figure(back[c], true));
+            board.setFigureAt(7, c, new Figure(FigureType.RABBIT, true));
+        }
+
+        new SetupOptimizer(200, 2, new Evaluator()).placeSilver(board);
+
+        int[] counts = new int[FigureType.values().length];
+        for (int r = 0; r < 2; r++) {
+            for (int c = 0; c < Board.SIZE; c++) {
+                assertNotNull(board.getFigureAt(r, c));
+                assertFalse(board.getFigureAt(r, c).isGold());
+                counts[board.getFigureAt(r, c).getType().ordinal()]++;
+            }
+        }
+        assertEquals(1, counts[FigureType.ELEPHANT.ordinal()]);
+        assertEquals(8, counts[FigureType.RABBIT.ordinal()]);
+        assertThrows(IllegalArgumentException.class, () -> new SetupOptimizer(10).placeSilver(board));
+    }
+}
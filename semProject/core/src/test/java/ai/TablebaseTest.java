@@ -0,0 +1,51 @@
+package ai;
+
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.FigureType;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Generates a small table and probes it through the memory-mapped reader
+ */
+public class TablebaseTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    public void rabbitRace_probesWinsAndLosses() throws IOException {
+        TablebaseGenerator generator = new TablebaseGenerator();
+        generator.generate(Tablebase.parseSignature("Rvr"));
+        generator.writeAll(dir);
+        Tablebase tb = Tablebase.open(dir);
+        //Rvr plus the tables reached by capturing either rabbit
+        assertEquals(3, tb.size());
+
+        //Gold rabbit on a7 steps to the goal and ends the turn
+        EngineBoard b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 8);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 39);
+        assertEquals(2, tb.probe(b));
+
+        //Gold rabbit on a2 cannot stop the silver rabbit on h2 from reaching h1
+        b = new EngineBoard();
+        b.put(Zobrist.kind(true, FigureType.RABBIT), 48);
+        b.put(Zobrist.kind(false, FigureType.RABBIT), 55);
+        assertTrue(tb.probe(b) < 0);
+
+        b.put(Zobrist.kind(true, FigureType.ELEPHANT), 0);
+        assertEquals(Tablebase.MISSING, tb.probe(b));
+    }
+
+    @Test
+    public void signatureNames_roundTrip() {
+        int sig = Tablebase.parseSignature("ERvr");
+        assertEquals("ERvr", Tablebase.signatureName(sig));
+        assertThrows(IllegalArgumentException.class, () -> Tablebase.parseSignature("EMHDvr"));
+    }
+}
@@ -0,0 +1,80 @@
+package ai;
+
+import logic.Game;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.GameMode;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the headless tournament runner
+ */
+public class TournamentTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void run_playsAllGamesAndWritesLoadableRecords() throws Exception {
+        Tournament tournament = new Tournament(Tournament.Engine.parse("a"),
+                Tournament.Engine.parse("b:depth=1,weights=50/100/100/100"), 2);
+        tournament.setSeed(42);
+        tournament.setMaxTurns(30);
+        tournament.setOutputDirectory(dir);
+        Tournament.Report report = tournament.run(2);
+
+        assertEquals(2, report.games);
+        assertEquals(2, report.wins[0] + report.wins[1] + report.draws);
+        assertTrue(report.nodes[0] > 0 && report.nodes[1] > 0);
+
+        for (String name : List.of("game-0001.txt", "game-0002.txt")) {
+            Path file = dir.resolve(name);
+            List<String> lines = Files.readAllLines(file);
+            EngineBoard replay = replay(lines);
+            Game loaded = Game.loadFromFile(file.toString(), GameMode.CLASSIC);
+            assertEquals(replay.toBoard().getHash(), loaded.getBoard().getHash(), name);
+        }
+    }
+
+    @Test
+    public void engineParse_rejectsUnknownOption() {
+        assertEquals(3, Tournament.Engine.parse("x:depth=3").limits.depth);
+        assertEquals(1, Tournament.Engine.parse("x").limits.depth);
+        assertThrows(IllegalArgumentException.class, () -> Tournament.Engine.parse("x:speed=3"));
+        assertTrue(Tournament.Engine.parse("x:disable=quiescence").disabled.contains(Search.Feature.QUIESCENCE));
+        assertThrows(IllegalArgumentException.class, () -> Tournament.Engine.parse("x:disable=magic"));
+    }
+
+    /**
+     * Replays a game file on an engine board, checking that every step is legal.
+     */
+    private static EngineBoard replay(List<String> lines) {
+        EngineBoard b = new EngineBoard();
+        for (String line : lines) {
+            String[] parts = line.split("\\s+");
+            if (parts[0].equals("1g") || parts[0].equals("1s")) {
+                for (int i = 1; i < parts.length; i++) {
+                    String t = parts[i];
+                    int side = Character.isUpperCase(t.charAt(0)) ? EngineBoard.GOLD : EngineBoard.SILVER;
+                    int type = utils.FigureType.fromLetter("" + t.charAt(0)).ordinal();
+                    int sq = (7 - (t.charAt(2) - '1')) * 8 + (t.charAt(1) - 'a');
+                    b.put(EngineBoard.kind(side, type), sq);
+                }
+                continue;
+            }
+            for (int i = 1; i < parts.length; i++) {
+                if (parts[i].equals("-") || parts[i].endsWith("x")) continue;
+                int step = b.parseStep(parts[i]);
+                assertNotEquals(-1, step, line);
+                b.makeStep(step);
+            }
+            b.endTurn();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,75 @@
+package ai;
+
+import logic.Zobrist;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.FigureType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the evaluation weight tuner and the weights file
+ */
+public class TunerTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void tune_raisesTheWeightOfAFeatureThatPredictsResults() {
+        Tuner tuner = new Tuner();
+        Random random = new Random(7);
+        for (int i = 0; i < 200; i++) {
+            //The side whose rabbit stands further forward wins
+            boolean goldAhead = i % 2 == 0;
+            int goldRow = goldAhead ? 5 : 6, silverRow = goldAhead ? 1 : 2;
+            EngineBoard b = new EngineBoard();
+            b.put(Zobrist.kind(true, FigureType.RABBIT), goldRow * 8 + random.nextInt(8));
+            b.put(Zobrist.kind(false, FigureType.RABBIT), silverRow * 8 + random.nextInt(8));
+            b.put(Zobrist.kind(true, FigureType.ELEPHANT), 63);
+            b.put(Zobrist.kind(false, FigureType.ELEPHANT), 0);
+            assertTrue(Tuner.quiet(b));
+            tuner.add(b, goldAhead ? 1 : 0);
+        }
+        int[] start = {0, 100, 100, 100};
+        tuner.fitScale(start);
+        double before = tuner.error(start);
+        int[] tuned = tuner.tune(start, 200);
+
+        assertTrue(tuned[Evaluator.W_RABBIT_ADVANCE] > 50, "rabbit weight " + tuned[Evaluator.W_RABBIT_ADVANCE]);
+        assertTrue(tuner.error(tuned) < before);
+    }
+
+    @Test
+    public void addGames_keepsQuietTurnStartsWithTheResult() throws IOException {
+        Path game = dir.resolve("g.txt");
+        Files.write(game, List.of("1g " + OpeningBookTest.GOLD_SETUP, "1s " + OpeningBookTest.SILVER_SETUP,
+                "2g Ea2n Ea3n Ea4n -", "2s eh7s eh6s - -", "3g Ea5n - - -"));
+        Tuner tuner = new Tuner();
+        tuner.addGames(List.of(game));
+        assertEquals(3, tuner.size());
+        //An unfinished game counts as a draw, which the balanced material without positional terms predicts exactly
+        assertEquals(0, tuner.error(new int[Evaluator.WEIGHT_COUNT]), 1e-9);
+    }
+
+    @Test
+    public void weightsFile_roundTripsAndRejectsUnknownKeys() throws IOException {
+        Path file = dir.resolve("test.weights");
+        Evaluator.saveWeights(file, new int[]{120, 90, 80, 110}, "test");
+        assertArrayEquals(new int[]{120, 90, 80, 110}, Evaluator.loadWeights(file));
+
+        Files.write(file, List.of("trapControl=70"));
+        assertArrayEquals(new int[]{100, 70, 100, 100}, Evaluator.loadWeights(file));
+
+        Files.write(file, List.of("speed=3"));
+        assertThrows(IllegalArgumentException.class, () -> Evaluator.loadWeights(file));
+        assertThrows(IllegalArgumentException.class,
+                () -> Tournament.Engine.parse("x:weightsfile=" + dir.resolve("missing")));
+    }
+}
@@ -77,4 +77,29 @@ public class BoardTest {
         board.setFigureAt(5, 6, new Figure(FigureType.RABBIT, false)); //Adjacent friend
         assertFalse(board.isFrozen(6, 6));
     }
+
+    @Test
+    public void testHash_IncrementalMatchesFullRecompute() {
+        assertEquals(0L, board.getHash());
+        board.setFigureAt(4, 4, new Figure(FigureType.ELEPHANT, true));
+        board.setFigureAt(3, 3, new Figure(FigureType.RABBIT, false));
+        board.setFigureAt(4, 4, new Figure(FigureType.CAMEL, true));
+        assertEquals(Zobrist.hash(board, true), board.getHash());
+        board.setFigureAt(4, 4, null);
+        board.setFigureAt(3, 3, null);
+        assertEquals(0L, board.getHash());
+    }
+
+    @Test
+    public void testMirrorHash_MatchesMirroredPlacement() {
+        Board mirrored = new Board();
+        board.setFigureAt(4, 1, new Figure(FigureType.ELEPHANT, true));
+        mirrored.setFigureAt(4, 6, new Figure(FigureType.ELEPHANT, true));
+        board.setFigureAt(2, 7, new Figure(FigureType.DOG, false));
+        mirrored.setFigureAt(2, 0, new Figure(FigureType.DOG, false));
+        assertEquals(mirrored.getHash(), board.getMirrorHash());
+        assertEquals(Zobrist.mirrorHash(board, true), board.getMirrorHash());
+        assertEquals(mirrored.getCanonicalHash(), board.getCanonicalHash());
+        assertNotEquals(board.getHash(), mirrored.getHash());
+    }
 }
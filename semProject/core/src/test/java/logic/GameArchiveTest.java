@@ -0,0 +1,91 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GameArchive class
+ */
+public class GameArchiveTest {
+    private static final String SETUP = "1g Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2\n"
+            + "1s ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7\n";
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void forEach_loadsEveryGameInFileOrder() throws Exception {
+        StringBuilder archive = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            archive.append(SETUP);
+            //Game i has i % 3 + 1 turn lines
+            for (int t = 0; t <= i % 3; t++) {
+                archive.append(t % 2 == 0 ? "2g Ea2n Ea3s - -\n" : "2s eh7s eh6n - -\n");
+            }
+            if (i % 10 == 0) archive.append("\n");
+        }
+        Path file = dir.resolve("archive.txt");
+        Files.writeString(file, archive);
+
+        List<GameArchive.Entry> entries = new ArrayList<>();
+        assertEquals(50, GameArchive.forEach(file, GameMode.CLASSIC, entries::add));
+        for (int i = 0; i < 50; i++) {
+            GameArchive.Entry e = entries.get(i);
+            assertEquals(i, e.index);
+            assertNull(e.error, e.toString());
+            assertEquals(32 + 2 * (i % 3 + 1) + i % 3, e.game.getJournal().size(), e.toString());
+        }
+    }
+
+    @Test
+    public void stream_reportsMalformedGamesAndContinues() throws Exception {
+        Path file = dir.resolve("archive.txt");
+        Files.writeString(file, SETUP + "2g Ea2n - - -\n" + SETUP + "2g Ea2q - - -\n" + SETUP);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (Stream<GameArchive.Entry> s = GameArchive.open(file, GameMode.CLASSIC, pool, 1).stream()) {
+            List<GameArchive.Entry> entries = s.toList();
+            assertEquals(3, entries.size());
+            assertNotNull(entries.get(0).game);
+            assertNull(entries.get(1).game);
+            assertTrue(entries.get(1).error.startsWith("Line 3"), entries.get(1).error);
+            assertEquals(SETUP.length() + "2g Ea2n - - -\n".length(), entries.get(1).offset);
+            assertNotNull(entries.get(2).game);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void next_remapsRecordsThatCrossTheWindow() throws Exception {
+        Path file = dir.resolve("archive.txt");
+        String game = SETUP + "2g Ea2n Ea3s - -\n";
+        Files.writeString(file, game.repeat(10));
+        ForkJoinPool pool = new ForkJoinPool(1);
+        //Each window holds one and a half records
+        try (GameArchive archive = GameArchive.open(file, GameMode.CLASSIC, pool, 3, game.length() * 3 / 2)) {
+            GameArchive.Entry entry;
+            int count = 0;
+            while ((entry = archive.next()) != null) {
+                assertNull(entry.error, entry.toString());
+                assertEquals((long) count++ * game.length(), entry.offset);
+            }
+            assertEquals(10, count);
+        }
+        try (GameArchive archive = GameArchive.open(file, GameMode.CLASSIC, pool, 3, game.length() / 2)) {
+            assertThrows(IOException.class, archive::next, "Record longer than the window");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.GameMode;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GameDatabase and GameDatabaseBuilder classes
+ */
+public class GameDatabaseTest {
+    private static final String SETUP = "1g Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2\n"
+            + "1s ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7\n";
+    private static final String[] GAMES = {
+            SETUP + "2g Ea2n Ea3n - -\n2s eh7s eh6s - -\n3g Ea4e Eb4s Hc2n Hc3e\n",
+            SETUP + "2g Ea2n - - -\n2s mg7s - - -\n",
+            SETUP + "2g Dd2n Dd3n Dd4n Dd5e\n2s dd7s dd6s - -\n3g Ea2n - - -\n"
+    };
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void find_returnsEveryTurnStartOfEveryGame() throws Exception {
+        GameDatabaseBuilder builder = new GameDatabaseBuilder();
+        List<Game> games = new ArrayList<>();
+        for (String record : GAMES) {
+            Game game = Game.replayTrusted(new BufferedReader(new StringReader(record)), GameMode.CLASSIC);
+            builder.add(game.getJournal());
+            games.add(game);
+        }
+        Path file = dir.resolve("games.db");
+        builder.write(file);
+
+        GameDatabase db = GameDatabase.open(file);
+        assertEquals(GAMES.length, db.games());
+        assertEquals(3 + 2 + 3, db.positions());
+        for (int g = 0; g < GAMES.length; g++) {
+            assertArrayEquals(games.get(g).getJournal().toArray(), db.codes(g));
+            int game = g;
+            Game.replay(new BufferedReader(new StringReader(GAMES[g])), GameMode.CLASSIC, turn -> {
+                List<GameDatabase.Hit> hits = db.find(turn.getPositionHash());
+                int size = turn.getJournal().size();
+                assertTrue(hits.stream().anyMatch(h -> h.game == game && h.event == size),
+                        "game " + game + " event " + size + ": " + hits);
+            });
+        }
+        //Every game starts from the same setup
+        Game start = Game.replayTrusted(new BufferedReader(new StringReader(SETUP)), GameMode.CLASSIC);
+        assertEquals(3, db.count(start.getPositionHash()));
+        assertEquals(List.of(0, 1, 2), db.find(start.getPositionHash()).stream().map(h -> h.game).toList());
+        assertTrue(db.find(start.getPositionHash() ^ Zobrist.SILVER_TO_MOVE).isEmpty());
+    }
+
+    @Test
+    public void addArchive_skipsMalformedRecords() throws Exception {
+        Path archive = dir.resolve("archive.txt");
+        Files.writeString(archive, GAMES[0] + SETUP + "2g Ea2q - - -\n" + GAMES[1]);
+        GameDatabaseBuilder builder = new GameDatabaseBuilder();
+        builder.addArchive(archive);
+        assertEquals(2, builder.games());
+        assertEquals(1, builder.rejected());
+
+        Path file = dir.resolve("games.db");
+        builder.write(file);
+        GameDatabase db = GameDatabase.open(file);
+        StringBuilder tokens = new StringBuilder();
+        for (String token : db.journal(1).tokens()) tokens.append(token).append(' ');
+        assertTrue(tokens.toString().contains("Ea2n - - - mg7s"), tokens.toString());
+    }
+
+    @Test
+    public void open_rejectsOtherFiles() throws Exception {
+        Path file = dir.resolve("other.db");
+        Files.write(file, new byte[64]);
+        assertThrows(IllegalArgumentException.class, () -> GameDatabase.open(file));
+    }
+}
@@ -0,0 +1,148 @@
+package logic;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.FigureType;
+import utils.GameMode;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the GameJournal class
+ */
+public class GameJournalTest {
+    private static final String GOLD_SETUP = "Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2";
+    private static final String SILVER_SETUP = "ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7";
+
+    @TempDir
+    Path dir;
+
+    private Game game;
+
+    @BeforeEach
+    public void setUp() {
+        game = new Game(GameMode.CLASSIC);
+        game.addSetupMove(Arrays.asList(GOLD_SETUP.split(" ")), true);
+        game.addSetupMove(Arrays.asList(SILVER_SETUP.split(" ")), false);
+    }
+
+    @Test
+    public void journal_recordsStepsCapturesAndTurnEnds() {
+        game.playToken("Ea2n");
+        //The horse is alone on the c3 trap
+        assertEquals(List.of("Hc2n", "Hc3x"), game.playToken("Hc2n"));
+        game.endTurnEarly();
+
+        GameJournal journal = game.getJournal();
+        assertEquals(32 + 4, journal.size());
+        int capture = journal.event(34);
+        assertEquals(StepCodec.CAPTURE, StepCodec.type(capture));
+        assertEquals(Zobrist.kind(true, FigureType.HORSE), StepCodec.kind(capture));
+        assertEquals(5 * Board.SIZE + 2, StepCodec.from(capture));
+        int turnEnd = journal.event(35);
+        assertEquals(StepCodec.TURN_END, StepCodec.type(turnEnd));
+        assertTrue(StepCodec.isGold(turnEnd));
+        assertEquals(2, StepCodec.from(turnEnd));
+
+        assertEquals(List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP, "Ea2n", "Hc2n", "Hc3x", "-", "-"),
+                game.getRawHistory());
+    }
+
+    @Test
+    public void undo_removesStepTogetherWithItsCapture() {
+        game.playToken("Ea2n");
+        game.playToken("Hc2n");
+        assertTrue(game.undo());
+        assertEquals(List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP, "Ea2n"), game.getRawHistory());
+        assertNotNull(game.getBoard().getFigureAt(6, 2), "Horse should be back on c2");
+    }
+
+    @Test
+    public void saveAndLoad_roundTripsTheJournal() throws Exception {
+        game.playToken("Ea2n");
+        game.playToken("Hc2n");
+        game.endTurnEarly();
+        game.playToken("ca7s");
+        game.playToken("dd7s");
+        game.endTurnEarly();
+        Path file = dir.resolve("game.txt");
+        game.saveHistoryToFile(file.toString());
+        assertEquals(List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP, "2g Ea2n Hc2n - - Hc3x", "2s ca7s dd7s - -"),
+                Files.readAllLines(file));
+
+        Game loaded = Game.loadFromFile(file.toString(), GameMode.CLASSIC);
+        assertEquals(game.getBoard().getHash(), loaded.getBoard().getHash());
+        //The unfinished turn of the loaded game has no turn end yet
+        assertEquals(game.getRawHistory().subList(0, 9), loaded.getRawHistory());
+    }
+
+    @Test
+    public void saveAndLoad_keepsTurnsEndedBySkips() throws Exception {
+        game.playToken("Ea2n");
+        for (int i = 0; i < 3; i++) {
+            game.skipStep();
+        }
+        assertFalse(game.getCurrentPlayer().isGold(), "The fourth step ends the turn");
+        game.playToken("ca7s");
+        game.endTurnEarly();
+        game.playToken("Ea3n");
+        Path file = dir.resolve("game.txt");
+        game.saveHistoryToFile(file.toString());
+        assertEquals(List.of("1g " + GOLD_SETUP, "1s " + SILVER_SETUP, "2g Ea2n - - -", "2s ca7s - - -", "3g Ea3n - - -"),
+                Files.readAllLines(file));
+
+        Game loaded;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            loaded = Game.replayTrusted(reader, GameMode.CLASSIC);
+        }
+        //Both record the two turn ends; skipped steps reload as unused ones
+        assertEquals(game.getJournal().size(), loaded.getJournal().size());
+        assertEquals(game.getSnapshot(), loaded.getSnapshot());
+        assertEquals(2, loaded.getPositionCounts().size());
+    }
+
+    @Test
+    public void replayTrusted_buildsTheSameGameAsTheValidatingReplay() throws Exception {
+        game.playToken("Ea2n");
+        game.playToken("Hc2n");
+        game.endTurnEarly();
+        game.playToken("ca7s");
+        game.playToken("dd7s");
+        game.endTurnEarly();
+        game.playToken("Ea3n");
+        Path file = dir.resolve("game.txt");
+        game.saveHistoryToFile(file.toString());
+
+        Game checked = Game.loadFromFile(file.toString(), GameMode.CLASSIC);
+        Game trusted;
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            trusted = Game.replayTrusted(reader, GameMode.CLASSIC);
+        }
+        assertArrayEquals(checked.getJournal().toArray(), trusted.getJournal().toArray());
+        assertEquals(checked.getSnapshot(), trusted.getSnapshot());
+        //Both recorded the two turn ends for the repetition rule
+        assertEquals(2, trusted.getPositionCounts().size());
+        assertEquals(checked.getPositionCounts().size(), trusted.getPositionCounts().size());
+    }
+
+    @Test
+    public void replayTrusted_reportsBadTokensWithTheirLine() {
+        String record = "1g " + GOLD_SETUP + "\n1s " + SILVER_SETUP + "\n2g Ea2n Ea3q - -\n";
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> Game.replayTrusted(new BufferedReader(new StringReader(record)), GameMode.CLASSIC));
+        assertTrue(ex.getMessage().startsWith("Line 3:"), ex.getMessage());
+
+        //The elephant has left a2
+        String moved = "1g " + GOLD_SETUP + "\n1s " + SILVER_SETUP + "\n2g Ea2n Ea2n - -\n";
+        assertThrows(IllegalArgumentException.class,
+                () -> Game.replayTrusted(new BufferedReader(new StringReader(moved)), GameMode.CLASSIC));
+    }
+}
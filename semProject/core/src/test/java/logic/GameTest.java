@@ -0,0 +1,278 @@
+package logic;
+
+import figures.Figure;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+import utils.GameMode;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Game class
+ */
+public class GameTest {
+    private Game game;
+    private Board board;
+
+    @BeforeEach
+    public void setUp() {
+        game = new Game(GameMode.CLASSIC);
+        board = game.getBoard();
+        //Clear any initial pieces for isolated testes
+        for (int row = 0; row < Board.SIZE; row++) {
+            for (int col = 0; col < Board.SIZE; col++) {
+                board.setFigureAt(row, col, null);
+            }
+        }
+    }
+
+    @Test
+    public void initialState_shouldHaveGoldToMoveAndCorrectMode() {
+        assertTrue(game.getCurrentPlayer().isGold(), "Gold should move first");
+        assertEquals(GameMode.CLASSIC, game.getMode(), "Game mode should be CLASSIC");
+    }
+
+    @Test
+    public void step_nullFrom_throwsNullPointerException(){
+        assertThrows(NullPointerException.class, () -> game.step(null, new Position(1,1)));
+    }
+
+    @Test
+    public void step_invalidFrom_nullPointerOrIllegalArgument() {
+        //Null from should cause NullPointerException due to getRow() usage
+        assertThrows(NullPointerException.class, () -> game.step(null, new Position(0,0)));
+        //Empty cell causes IllegalArgumentException
+        Position p = new Position(3,3);
+        assertThrows(IllegalArgumentException.class, () -> game.step(p, new Position(3,4)));
+    }
+
+    @Test
+    public void step_wrongPlayerPiece_throwsIllegalArgumentException() {
+        // Place a silver piece but gold's turn
+        Figure enemy = new Figure(FigureType.CAT, false);
+        board.setFigureAt(5,5, enemy);
+        assertThrows(IllegalArgumentException.class, () -> game.step(new Position(5,5), new Position(5,6)));
+    }
+
+
+    @Test
+    public void step_emptyFromCell_throwsIllegalArgumentException(){
+        Position from = new Position(3,3);
+        Position to = new Position(3, 4);
+        //No figures placed at from
+        assertThrows(IllegalArgumentException.class, () -> game.step(from, to));
+    }
+
+    @Test
+    public void step_invalidDistance_throwsIllegalArgumentException() {
+        Figure fig = new Figure(FigureType.DOG, true);
+        board.setFigureAt(4,4, fig);
+        // Move two squares
+        assertFalse(game.stepIsLegal(new Position(4,4), new Position(6,4)));
+        assertThrows(IllegalArgumentException.class, () -> game.step(new Position(4,4), new Position(6,4)));
+    }
+
+
+    @Test
+    public void stepIsLegal_variousScenarios() {
+        Figure rabbit = new Figure(FigureType.RABBIT, true);
+        board.setFigureAt(5,5, rabbit);
+        // Legal forward move
+        assertTrue(game.stepIsLegal(new Position(5,5), new Position(4,5)));
+        // Illegal backward for rabbit
+        assertFalse(game.stepIsLegal(new Position(5,5), new Position(6,5)));
+        // Out of bounds move
+        assertFalse(game.stepIsLegal(new Position(5,5), new Position(5,8)));
+        // Empty source
+        assertFalse(game.stepIsLegal(new Position(0,0), new Position(0,1)));
+    }
+
+    @Test
+    public void skipStep_flipsAfterMaxSteps() {
+        board.setFigureAt(6, 0, new Figure(FigureType.RABBIT, true));
+        //Initially gold
+        assertTrue(game.getCurrentPlayer().isGold());
+        game.step(new Position(6, 0), new Position(5, 0));
+        for (int i = 1; i < Game.MAX_TURNS_STEPS; i++) {
+            game.skipStep();
+        }
+        //After max steps, should flip
+        assertFalse(game.getCurrentPlayer().isGold());
+    }
+
+    @Test
+    public void skipStep_onlySkips_throwsIllegalArgumentException() {
+        for (int i = 1; i < Game.MAX_TURNS_STEPS; i++) {
+            game.skipStep();
+        }
+        //A turn of skips leaves the position unchanged
+        assertThrows(IllegalArgumentException.class, () -> game.skipStep());
+        assertTrue(game.getCurrentPlayer().isGold());
+    }
+
+    @Test
+    public void endTurnEarly_resetsAndSwitchesPlayer() {
+        board.setFigureAt(6, 0, new Figure(FigureType.RABBIT, true));
+        //A turn without any step is a pass and not allowed
+        assertThrows(IllegalArgumentException.class, () -> game.endTurnEarly());
+        assertTrue(game.getCurrentPlayer().isGold());
+
+        game.step(new Position(6, 0), new Position(5, 0));
+        List<String> fillers = game.endTurnEarly();
+        //Should return a "-" token for every unused step
+        assertEquals(Game.MAX_TURNS_STEPS - 1, fillers.size());
+        assertTrue(fillers.stream().allMatch(s -> s.equals("-")));
+        //Current player should have switched
+        assertFalse(game.getCurrentPlayer().isGold());
+        //Step counter should be reset
+        assertEquals(Game.MAX_TURNS_STEPS, game.getTurnsSteps());
+    }
+
+    @Test
+    public void endTurnEarly_unchangedPosition_throwsIllegalArgumentException() {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        board.setFigureAt(6, 0, new Figure(FigureType.RABBIT, true));
+        //A step and its inverse leave the position unchanged
+        game.step(new Position(4, 4), new Position(4, 5));
+        game.step(new Position(4, 5), new Position(4, 4));
+        assertFalse(game.turnChangesPosition());
+        assertThrows(IllegalArgumentException.class, () -> game.endTurnEarly());
+        assertTrue(game.getCurrentPlayer().isGold());
+
+        game.step(new Position(6, 0), new Position(5, 0));
+        assertTrue(game.turnChangesPosition());
+        game.endTurnEarly();
+        assertFalse(game.getCurrentPlayer().isGold());
+    }
+
+    @Test
+    public void undo_restoresTurnStartForPositionCheck() {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        game.step(new Position(4, 4), new Position(4, 5));
+        game.undo();
+        game.step(new Position(4, 4), new Position(3, 4));
+        game.step(new Position(3, 4), new Position(4, 4));
+        assertFalse(game.turnChangesPosition());
+    }
+
+    @Test
+    public void endTurnEarly_thirdRepetition_throwsAndUndoRollsBack() {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        board.setFigureAt(1, 1, new Figure(FigureType.DOG, false));
+        long start = game.getPositionHash();
+        Position[][] cycle = {
+                {new Position(4, 4), new Position(4, 5)}, {new Position(1, 1), new Position(1, 2)},
+                {new Position(4, 5), new Position(4, 4)}, {new Position(1, 2), new Position(1, 1)}
+        };
+        for (int round = 0; round < 2; round++) {
+            for (Position[] move : cycle) {
+                game.step(move[0], move[1]);
+                game.endTurnEarly();
+            }
+        }
+        assertEquals(2, game.repetitionCount(start));
+
+        game.step(cycle[0][0], cycle[0][1]);
+        assertThrows(IllegalArgumentException.class, () -> game.endTurnEarly());
+
+        //Undo the rejected step and the last silver step, crossing one turn end
+        game.undo();
+        game.undo();
+        assertEquals(1, game.repetitionCount(start));
+        assertFalse(game.getCurrentPlayer().isGold());
+    }
+
+    @Test
+    public void skipStep_thirdRepetition_throwsAndKeepsTheTurn() {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        board.setFigureAt(1, 1, new Figure(FigureType.DOG, false));
+        long start = game.getPositionHash();
+        Position[][] cycle = {
+                {new Position(4, 4), new Position(4, 5)}, {new Position(1, 1), new Position(1, 2)},
+                {new Position(4, 5), new Position(4, 4)}, {new Position(1, 2), new Position(1, 1)}
+        };
+        //Every turn is one step and three skips
+        for (int round = 0; round < 2; round++) {
+            for (Position[] move : cycle) {
+                game.step(move[0], move[1]);
+                for (int i = 1; i < Game.MAX_TURNS_STEPS; i++) {
+                    game.skipStep();
+                }
+            }
+        }
+        assertEquals(2, game.repetitionCount(start));
+
+        game.step(cycle[0][0], cycle[0][1]);
+        game.skipStep();
+        game.skipStep();
+        assertThrows(IllegalArgumentException.class, () -> game.skipStep());
+        assertTrue(game.getCurrentPlayer().isGold());
+        assertEquals(1, game.getTurnsSteps());
+        assertEquals(2, game.repetitionCount(start));
+    }
+
+    @Test
+    public void getSnapshot_followsStepsTurnEndsAndUndo() {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        board.setFigureAt(1, 1, new Figure(FigureType.CAT, false));
+        game.switchPlayer();
+        game.switchPlayer();
+        PositionSnapshot start = game.getSnapshot();
+        assertEquals(Zobrist.kind(true, FigureType.DOG), start.kindAt(4 * Board.SIZE + 4));
+        assertEquals(game.getPositionHash(), start.hash);
+
+        game.step(new Position(4, 4), new Position(3, 4));
+        PositionSnapshot stepped = game.getSnapshot();
+        assertTrue(stepped.sequence > start.sequence);
+        assertEquals(1, stepped.stepsTaken);
+        assertEquals(-1, stepped.kindAt(4 * Board.SIZE + 4));
+        assertNotNull(stepped.getFigureAt(3, 4));
+        //Published snapshots never change
+        assertEquals(FigureType.DOG, start.getFigureAt(4, 4).getType());
+
+        game.endTurnEarly();
+        assertFalse(game.getSnapshot().goldToMove);
+        assertEquals(0, game.getSnapshot().stepsTaken);
+
+        game.undo();
+        assertEquals(start, game.getSnapshot());
+        assertEquals(start.hash, game.getPositionHash());
+    }
+
+    @Test
+    public void getSnapshot_isConsistentForReadersOnOtherThreads() throws Exception {
+        board.setFigureAt(4, 4, new Figure(FigureType.DOG, true));
+        board.setFigureAt(4, 0, new Figure(FigureType.HORSE, true));
+        board.setFigureAt(1, 1, new Figure(FigureType.CAT, false));
+        game.switchPlayer();
+        game.switchPlayer();
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            long last = 0;
+            while (!done.get()) {
+                PositionSnapshot s = game.getSnapshot();
+                if (s.sequence < last) failure.set("sequence went back");
+                if (Long.bitCount(s.side(true)) != 2 || Long.bitCount(s.side(false)) != 1) {
+                    failure.set("torn position " + s);
+                }
+                last = s.sequence;
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 20_000; i++) {
+            game.step(new Position(4, 4), new Position(4, 5));
+            game.step(new Position(4, 5), new Position(4, 4));
+            game.undo();
+            game.undo();
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+}
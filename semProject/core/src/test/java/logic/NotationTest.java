@@ -0,0 +1,51 @@
+package logic;
+
+import figures.Figure;
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the Notation class
+ */
+public class NotationTest {
+
+    @Test
+    public void format_usesTheFigureTypeCodes() {
+        Position b2 = new Position(6, 1), b3 = new Position(5, 1);
+        assertEquals("Mb2n", Notation.formatSimple(new Figure(FigureType.CAMEL, true), b2, b3));
+        assertEquals("cb2n", Notation.formatSimple(new Figure(FigureType.CAT, false), b2, b3));
+        assertEquals("mb3x", Notation.formatCapture(new Figure(FigureType.CAMEL, false), b3));
+    }
+
+    @Test
+    public void parse_readsEveryTokenShape() {
+        Notation.Move push = Notation.parse(new StringBuilder("Ee2n>e4"));
+        assertEquals('>', push.action);
+        assertEquals(new Position(5, 4), push.getTo());
+        assertEquals(new Position(4, 4), push.getDestination());
+        assertEquals("Ee2n>e4", push.toString());
+
+        Notation.Move capture = Notation.parse("mc6x");
+        assertEquals('x', capture.action);
+        assertNull(capture.getTo());
+        assertEquals("-", Notation.parse("-").toString());
+    }
+
+    @Test
+    public void parse_rejectsInvalidTokens() {
+        for (String token : new String[]{"", "Ra", "Xa2n", "Ra9n", "Ra1w", "Ra2q", "Ee2n=e4", "Ee2n>e"}) {
+            assertThrows(IllegalArgumentException.class, () -> Notation.parse(token), token);
+        }
+    }
+
+    @Test
+    public void append_writesIntoTheGivenBuilder() {
+        StringBuilder sb = new StringBuilder("2g ");
+        int rabbit = Zobrist.kind(true, FigureType.RABBIT);
+        Notation.appendSimple(sb, rabbit, 6 * Board.SIZE, 5 * Board.SIZE).append(' ');
+        Notation.appendPull(sb, Zobrist.kind(true, FigureType.ELEPHANT), 36, 44, 28);
+        assertEquals("2g Ra2n Ee4s<e5", sb.toString());
+    }
+}
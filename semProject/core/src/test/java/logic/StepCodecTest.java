@@ -0,0 +1,66 @@
+package logic;
+
+import org.junit.jupiter.api.Test;
+import utils.FigureType;
+
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the StepCodec class
+ */
+public class StepCodecTest {
+
+    @Test
+    public void encode_decodesEveryFieldOfStepsPushesAndPulls() {
+        //e2 is row 6, col 4
+        int e2 = 6 * Board.SIZE + 4;
+        int step = StepCodec.encode("Ee2n") & 0xFFFF;
+        assertEquals(StepCodec.STEP, StepCodec.type(step));
+        assertEquals(Zobrist.kind(true, FigureType.ELEPHANT), StepCodec.kind(step));
+        assertEquals(e2, StepCodec.from(step));
+        assertEquals(e2 - Board.SIZE, StepCodec.to(step));
+
+        int push = StepCodec.encode("Ee2n>e4") & 0xFFFF;
+        assertEquals(StepCodec.PUSH, StepCodec.type(push));
+        assertEquals(e2 - Board.SIZE, StepCodec.to(push));
+        assertEquals(e2 - 2 * Board.SIZE, StepCodec.destination(push));
+        assertEquals(2, StepCodec.cost(push));
+
+        int pull = StepCodec.encode("hd7s<c7") & 0xFFFF;
+        assertEquals(StepCodec.PULL, StepCodec.type(pull));
+        assertFalse(StepCodec.isGold(pull));
+        assertEquals(2 * Board.SIZE + 3, StepCodec.to(pull));
+        assertEquals(Board.SIZE + 2, StepCodec.destination(pull));
+    }
+
+    @Test
+    public void token_roundTripsThroughEncode() {
+        for (String token : new String[]{"Ra3n", "rh8s", "Dd4e", "hb5w", "Ee2n>e4", "Hc3w<c4", "Hc3x", "ec6x"}) {
+            assertEquals(token, StepCodec.token(StepCodec.encode(token)), token);
+        }
+    }
+
+    @Test
+    public void encode_rejectsInvalidTokens() {
+        assertThrows(IllegalArgumentException.class, () -> StepCodec.encode("-"));
+        assertThrows(IllegalArgumentException.class, () -> StepCodec.encode("Ra1w"), "Off the board");
+        assertThrows(IllegalArgumentException.class, () -> StepCodec.encode("Ra9n"));
+        assertThrows(IllegalArgumentException.class, () -> StepCodec.encode("Ee2n>e5"), "Not adjacent");
+    }
+
+    @Test
+    public void journalOfCodes_writesTheSameNotation() throws Exception {
+        short[] codes = {
+                StepCodec.setup(Zobrist.kind(true, FigureType.RABBIT), 7 * Board.SIZE),
+                StepCodec.setup(Zobrist.kind(false, FigureType.RABBIT), 0),
+                StepCodec.encode("Ra1n"),
+                StepCodec.turnEnd(true, 3),
+                StepCodec.encode("ra8s"),
+        };
+        StringWriter out = new StringWriter();
+        GameJournal.of(codes).write(out);
+        assertEquals("1g Ra1\n1s ra8\n2g Ra1n - - -\n2s ra8s - - -\n", out.toString());
+    }
+}
@@ -0,0 +1,133 @@
+package server;
+
+import ai.SearchLimits;
+import ai.SearchResult;
+import logic.Game;
+import org.junit.jupiter.api.Test;
+import utils.GameMode;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for hosting games in a game manager
+ */
+public class GameManagerTest {
+    private static final String GOLD_SETUP = "Ra1 Rb1 Rc1 Rd1 Re1 Rf1 Rg1 Rh1 Ea2 Mb2 Hc2 Dd2 De2 Hf2 Cg2 Ch2";
+    private static final String SILVER_SETUP = "ra8 rb8 rc8 rd8 re8 rf8 rg8 rh8 ca7 cb7 hc7 dd7 de7 hf7 mg7 eh7";
+
+    private static Void setup(Game game) {
+        game.addSetupMove(Arrays.asList(GOLD_SETUP.split(" ")), true);
+        game.addSetupMove(Arrays.asList(SILVER_SETUP.split(" ")), false);
+        return null;
+    }
+
+    @Test
+    public void submit_runsCommandsOfOneSessionInOrderWithoutOverlap() throws Exception {
+        try (GameManager manager = new GameManager(10, 1, SearchLimits.depth(1))) {
+            GameSession session = manager.create(GameSession.Kind.HUMAN_VS_AI, GameMode.CLASSIC);
+            AtomicInteger running = new AtomicInteger();
+            List<Integer> order = new ArrayList<>();
+            List<CompletableFuture<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int n = i;
+                results.add(session.submit(g -> {
+                    assertEquals(1, running.incrementAndGet());
+                    order.add(n);
+                    running.decrementAndGet();
+                    return n;
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) assertEquals(i, results.get(i).get());
+            for (int i = 0; i < order.size(); i++) assertEquals(i, order.get(i));
+            assertEquals(200, session.metrics().commands);
+            assertEquals(0, session.metrics().failedCommands);
+        }
+    }
+
+    @Test
+    public void submit_survivesCommandsThrowingErrors() throws Exception {
+        try (GameManager manager = new GameManager(10, 1, SearchLimits.depth(1))) {
+            GameSession session = manager.create(GameSession.Kind.ANALYSIS, GameMode.CLASSIC);
+            CompletableFuture<Object> failed = session.submit(g -> {
+                throw new StackOverflowError();
+            });
+            ExecutionException ex = assertThrows(ExecutionException.class, failed::get);
+            assertInstanceOf(StackOverflowError.class, ex.getCause());
+            assertEquals(1, session.submit(g -> 1).get());
+            assertEquals(1, session.metrics().failedCommands);
+        }
+    }
+
+    @Test
+    public void evictIdle_keepsSessionsWithARunningCommand() throws Exception {
+        try (GameManager manager = new GameManager(10, 1, SearchLimits.depth(1))) {
+            GameSession session = manager.create(GameSession.Kind.ANALYSIS, GameMode.CLASSIC);
+            CompletableFuture<Void> release = new CompletableFuture<>();
+            CompletableFuture<Void> started = new CompletableFuture<>();
+            CompletableFuture<Object> running = session.submit(g -> {
+                started.complete(null);
+                return release.join();
+            });
+            started.get();
+            Thread.sleep(5);
+            assertEquals(0, manager.evictIdle(0));
+            release.complete(null);
+            running.get();
+            //The session counts as busy until its drain has finished
+            for (int i = 0; i < 100 && manager.evictIdle(0) == 0; i++) Thread.sleep(10);
+            assertEquals(0, manager.size());
+        }
+    }
+
+    @Test
+    public void playAiTurn_playsLegalTurnsAndRejectsStartedTurns() throws Exception {
+        try (GameManager manager = new GameManager(10, 2, SearchLimits.depth(1))) {
+            GameSession session = manager.create(GameSession.Kind.AI_VS_AI, GameMode.CLASSIC);
+            session.submit(GameManagerTest::setup);
+
+            SearchResult gold = session.playAiTurn().get();
+            assertNotNull(gold.best);
+            assertFalse(session.submit(g -> g.getCurrentPlayer().isGold()).get());
+            SearchResult silver = session.playAiTurn().get();
+            assertNotNull(silver.best);
+            //Two setups and four tokens per turn, fillers included
+            assertEquals(10, session.submit(g -> g.getRawHistory().size()).get());
+
+            session.submit(g -> g.playToken(g.legalStepTokens().get(0)));
+            ExecutionException ex = assertThrows(ExecutionException.class, () -> session.playAiTurn().get());
+            assertInstanceOf(IllegalStateException.class, ex.getCause());
+            assertEquals(1, session.metrics().failedCommands);
+        }
+    }
+
+    @Test
+    public void create_holdsThousandsOfIdleSessionsUpToTheLimit() throws Exception {
+        int limit = 10_000;
+        try (GameManager manager = new GameManager(limit, 1, SearchLimits.depth(1))) {
+            List<CompletableFuture<Void>> setups = new ArrayList<>();
+            for (int i = 0; i < limit; i++) {
+                setups.add(manager.create(GameSession.Kind.ANALYSIS, GameMode.CLASSIC).submit(GameManagerTest::setup));
+            }
+            CompletableFuture.allOf(setups.toArray(new CompletableFuture[0])).get();
+            assertThrows(IllegalStateException.class,
+                    () -> manager.create(GameSession.Kind.ANALYSIS, GameMode.CLASSIC));
+
+            GameManager.Metrics metrics = manager.metrics();
+            assertEquals(limit, metrics.sessions);
+            assertEquals(limit, metrics.commands);
+            assertTrue(metrics.estimatedBytes >= limit * GameSession.BASE_BYTES);
+
+            assertTrue(manager.close(1));
+            assertNotNull(manager.create(GameSession.Kind.ANALYSIS, GameMode.CLASSIC));
+            assertEquals(limit, manager.evictIdle(-1));
+            assertEquals(0, manager.size());
+        }
+    }
+}
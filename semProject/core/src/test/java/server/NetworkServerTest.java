@@ -0,0 +1,151 @@
+package server;
+
+import ai.SearchLimits;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import utils.GameMode;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for network play over loopback
+ */
+public class NetworkServerTest {
+    private GameManager manager;
+    private NetworkServer server;
+    private InetSocketAddress address;
+
+    @BeforeEach
+    public void start() throws IOException {
+        manager = new GameManager(10, 1, SearchLimits.depth(1));
+        server = new NetworkServer(manager, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port());
+    }
+
+    @AfterEach
+    public void stop() {
+        server.close();
+        manager.close();
+    }
+
+    @Test
+    public void play_sendsStepsAndTurnsToBothPlayers() throws IOException {
+        try (NetworkClient gold = new NetworkClient(address); NetworkClient silver = new NetworkClient(address)) {
+            long id = gold.newGame(GameMode.CLASSIC).gameId;
+            gold.setup(NetworkBenchmark.GOLD_SETUP);
+            assertEquals(Protocol.SETUP, gold.next().type);
+
+            assertEquals(Protocol.SILVER, silver.join(id).side);
+            //Setups made before joining are replayed
+            Protocol.Event replayed = silver.next();
+            assertEquals(Protocol.SETUP, replayed.type);
+            assertEquals(Protocol.GOLD, replayed.side);
+
+            silver.setup("ra8 rb8");
+            assertEquals(Protocol.ERROR, silver.next().type);
+            silver.setup(NetworkBenchmark.SILVER_SETUP);
+            assertEquals(Protocol.SILVER, silver.next().side);
+            assertEquals(Protocol.SILVER, gold.next().side);
+
+            //Ea2n
+            gold.step(48, 40);
+            for (NetworkClient client : new NetworkClient[]{gold, silver}) {
+                Protocol.Event stepped = client.next();
+                assertEquals(Protocol.STEPPED, stepped.type);
+                assertEquals(48, stepped.from);
+                assertEquals(40, stepped.to);
+                assertEquals(Protocol.NO_SQUARE, stepped.destination);
+            }
+            silver.step(8, 16);
+            assertEquals("Not your turn", silver.next().message);
+            gold.step(40, 48);
+            gold.next();
+            silver.next();
+            gold.endTurn();
+            assertEquals("The turn must change the position", gold.next().message);
+
+            gold.step(49, 41);
+            gold.next();
+            silver.next();
+            gold.endTurn();
+            for (NetworkClient client : new NetworkClient[]{gold, silver}) {
+                Protocol.Event turn = client.next();
+                assertEquals(Protocol.TURN, turn.type);
+                assertFalse(turn.goldToMove);
+            }
+
+            silver.resign();
+            for (NetworkClient client : new NetworkClient[]{gold, silver}) {
+                Protocol.Event over = client.next();
+                assertEquals(Protocol.GAME_OVER, over.type);
+                assertEquals(Protocol.GOLD, over.side);
+                assertEquals(Protocol.REASON_RESIGN, over.reason);
+            }
+            gold.step(41, 33);
+            assertEquals("Game is over", gold.next().message);
+        }
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    public void pushPull_rejectsIllegalPushes() throws IOException {
+        try (NetworkClient gold = new NetworkClient(address); NetworkClient silver = new NetworkClient(address)) {
+            silver.join(gold.newGame(GameMode.CLASSIC).gameId);
+            //Silver sets up only after gold's setup is done
+            gold.setup(NetworkBenchmark.GOLD_SETUP);
+            assertEquals(Protocol.SETUP, gold.next().type);
+            assertEquals(Protocol.SETUP, silver.next().type);
+            silver.setup(NetworkBenchmark.SILVER_SETUP);
+            assertEquals(Protocol.SETUP, gold.next().type);
+            assertEquals(Protocol.SETUP, silver.next().type);
+
+            //Rd1 "pushing" gold's own dog from d2 to d3
+            gold.pushPull(59, 51, 43);
+            assertEquals(Protocol.ERROR, gold.next().type);
+            //Ea2 pushing onto an empty square
+            gold.pushPull(48, 40, 32);
+            assertEquals(Protocol.ERROR, gold.next().type);
+
+            //The game is unchanged: the elephant still steps and silver sees only that step
+            gold.step(48, 40);
+            for (NetworkClient client : new NetworkClient[]{gold, silver}) {
+                Protocol.Event stepped = client.next();
+                assertEquals(Protocol.STEPPED, stepped.type);
+                assertEquals(48, stepped.from);
+            }
+        }
+    }
+
+    @Test
+    public void disconnect_losesTheGame() throws IOException {
+        try (NetworkClient silver = new NetworkClient(address)) {
+            long id;
+            try (NetworkClient gold = new NetworkClient(address)) {
+                id = gold.newGame(GameMode.FAST).gameId;
+                silver.join(id);
+            }
+            Protocol.Event over = silver.next();
+            assertEquals(Protocol.GAME_OVER, over.type);
+            assertEquals(Protocol.SILVER, over.side);
+            assertEquals(Protocol.REASON_DISCONNECT, over.reason);
+
+            try (NetworkClient late = new NetworkClient(address)) {
+                assertThrows(IllegalStateException.class, () -> late.join(id));
+            }
+        }
+    }
+
+    @Test
+    public void benchmark_playsRandomGamesWithoutErrors() throws Exception {
+        NetworkBenchmark.Result result = NetworkBenchmark.run(4, 10);
+        assertEquals(4, result.games);
+        assertTrue(result.steps >= 4 * 10);
+        assertTrue(result.percentileMicros(99) >= result.percentileMicros(50));
+    }
+}
@@ -0,0 +1,48 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the open-addressing count map
+ */
+public class LongCountMapTest {
+
+    @Test
+    public void randomOperations_matchHashMap() {
+        LongCountMap map = new LongCountMap(16);
+        Map<Long, Integer> expected = new HashMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 20000; i++) {
+            //Few distinct keys so counts grow and entries are removed often
+            long key = random.nextInt(300) * 0x9E3779B97F4A7C15L;
+            int current = expected.getOrDefault(key, 0);
+            if (current > 0 && random.nextBoolean()) {
+                assertEquals(current - 1, map.decrement(key));
+                if (current == 1) expected.remove(key);
+                else expected.put(key, current - 1);
+            } else {
+                assertEquals(current + 1, map.increment(key));
+                expected.put(key, current + 1);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int k = 0; k < 300; k++) {
+            long key = k * 0x9E3779B97F4A7C15L;
+            assertEquals(expected.getOrDefault(key, 0).intValue(), map.count(key));
+        }
+    }
+
+    @Test
+    public void decrement_absentKey_throwsIllegalStateException() {
+        LongCountMap map = new LongCountMap();
+        map.increment(0L);
+        assertEquals(1, map.count(0L));
+        assertThrows(IllegalStateException.class, () -> map.decrement(5L));
+    }
+}
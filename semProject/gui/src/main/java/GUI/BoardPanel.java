@@ -1,5 +1,9 @@
 package GUI;
 
+import ai.EngineBoard;
+import ai.OpeningBook;
+import ai.Turn;
+import ai.TurnGenerator;
 import logic.*;
 import figures.Figure;
 
@@ -8,9 +12,9 @@ import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Stack;
+import java.util.concurrent.ExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -19,7 +23,6 @@ import utils.FigureType;
 import utils.GameMode;
 import utils.StepResult;
 
-import static logic.Game.MAX_TURNS_STEPS;
 
 /**
  * JPanel responsible for drawing the game board and figures.
@@ -166,14 +169,20 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
             revalidate();
             repaint();
 
-            btnPrevMove.setEnabled(!game.getRawHistory().isEmpty());
+            btnPrevMove.setEnabled(game.getJournal().size() > 0);
 
-            log.info("Undo complete: history size={}, current player={}", game.getRawHistory().size(), game.getCurrentPlayer().isGold() ? "Gold" : "Silver");
+            log.info("Undo complete: journal size={}, current player={}", game.getJournal().size(), game.getCurrentPlayer().isGold() ? "Gold" : "Silver");
         });
 
         btnEndTurn.addActionListener(e -> {
             log.info("End turn button clicked");
-            List<String> fillers = BoardPanel.this.game.endTurnEarly();
+            List<String> fillers;
+            try {
+                fillers = BoardPanel.this.game.endTurnEarly();
+            } catch (IllegalArgumentException ex) {
+                JOptionPane.showMessageDialog(this, ex.getMessage());
+                return;
+            }
             fillers.forEach(undoStack::push);
 
             selected = null;
@@ -235,6 +244,7 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
      */
     private void installTimerListeners() {
         GameTimer timer = game.getTimer();
+        timer.setCallbackExecutor(SwingUtilities::invokeLater);
         timer.setTimerListener(new GameTimer.TimerListener() {
             @Override
             public void onTimeUpdate(long milliseconds, boolean isGold) {
@@ -300,7 +310,7 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
 
     /**
      * Triggers an AI turn (for human-vs-AI mode).
-     * Selects a random legal move or moves, plays them, and ends turn.
+     * Selects a random legal turn, plays its steps, and ends turn.
      */
     private void startAITurn() {
         aiTimer = new Timer(500, null);
@@ -310,33 +320,94 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
             if (game.isGameOver() || game.getCurrentPlayer().isGold() == humanPlaysGold) {
                 return;
             }
-            int movesToDo = new java.util.Random().nextInt(MAX_TURNS_STEPS) + 1;
-            for (int i = 0; i < movesToDo && !game.isGameOver(); i++) {
-                boolean aiIsGold = game.getCurrentPlayer().isGold();
-                List<MoveOption> opts = AILogic.collectAllMoves(game, aiIsGold);
-                if (opts.isEmpty()) break;
-
-                MoveOption pick = opts.get(new java.util.Random().nextInt(opts.size()));
-                StepResult res = game.step(pick.from, pick.to);
-
-                if (res.type != ActionType.SIMPLE) {
-                    List<Position> choices = res.options;
-                    Position dest = choices.get(new java.util.Random().nextInt(choices.size()));
-                    res = game.resolveStep(pick.from, pick.to, dest);
-                }
-
-                res.notation.forEach(undoStack::push);
+            if (playBookTurn()) {
+                updateStatus();
+                repaint();
+                return;
             }
-            List<String> fillers = game.endTurnEarly();
-            fillers.forEach(undoStack::push);
-            updateStatus();
-            repaint();
+            playRandomTurn();
         });
         aiTimer.setRepeats(false);
         aiTimer.setInitialDelay(500);
         aiTimer.start();
     }
 
+    /**
+     * Plays a random distinct turn, so the turn always changes the position and never repeats it too often. The
+     * turns are listed off the event dispatch thread; the pick is dropped if the game changed in the meantime.
+     */
+    private void playRandomTurn() {
+        EngineBoard position = EngineBoard.from(game);
+        long positionHash = game.getPositionHash();
+        int journalSize = game.getJournal().size();
+        new SwingWorker<List<Turn>, Void>() {
+            @Override
+            protected List<Turn> doInBackground() {
+                return new TurnGenerator().generate(position);
+            }
+
+            @Override
+            protected void done() {
+                List<Turn> turns;
+                try {
+                    turns = get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    log.error("AI turn generation failed: {}", ex.getMessage(), ex);
+                    return;
+                }
+                if (game.isGameOver() || game.getPositionHash() != positionHash
+                        || game.getJournal().size() != journalSize) {
+                    log.info("Game changed while the AI was thinking, turn dropped");
+                    return;
+                }
+                turns.removeIf(t -> game.repetitionCount(t.hash()) >= Game.MAX_REPETITIONS - 1);
+                if (turns.isEmpty()) {
+                    log.warn("AI has no legal turn");
+                    return;
+                }
+                Turn pick = turns.get(new java.util.Random().nextInt(turns.size()));
+                try {
+                    for (String token : pick.tokens(position)) {
+                        game.playToken(token).forEach(undoStack::push);
+                    }
+                    game.endTurnEarly().forEach(undoStack::push);
+                } catch (IllegalArgumentException | IllegalStateException ex) {
+                    log.warn("AI turn {} rejected: {}", pick.toNotation(position), ex.getMessage());
+                }
+                updateStatus();
+                repaint();
+            }
+        }.execute();
+    }
+
+    /**
+     * Plays the AI turn from the opening book if the current position is in it.
+     *
+     * @return true if a book turn was played and the turn ended
+     */
+    private boolean playBookTurn() {
+        OpeningBook book = OpeningBook.getDefault();
+        if (book == null) return false;
+        OpeningBook.Entry entry = book.pick(game.getBoard(), game.getCurrentPlayer().isGold(), new java.util.Random());
+        if (entry == null) return false;
+        //Steps of a rejected book turn are taken back, so the fallback starts from the turn start
+        int undoDepth = game.getUndoDepth();
+        int tokens = undoStack.size();
+        try {
+            for (String token : entry.move.split(" ")) {
+                game.playToken(token).forEach(undoStack::push);
+            }
+            game.endTurnEarly().forEach(undoStack::push);
+        } catch (IllegalArgumentException | IllegalStateException ex) {
+            log.warn("Book turn {} rejected: {}", entry.move, ex.getMessage());
+            while (game.getUndoDepth() > undoDepth) game.undo();
+            undoStack.setSize(tokens);
+            return false;
+        }
+        log.info("AI played book turn {}", entry.move);
+        return true;
+    }
+
     /**
      * Custom painting: draws the board, coordinates, figures, highlights, and dragged piece
      *
@@ -611,53 +682,3 @@ public class BoardPanel extends JPanel implements MouseListener, MouseMotionList
     }
 
 }
-
-/**
- * Simple data class representing a possible move option for AI.
- */
-class MoveOption {
-    public final Position from, to;
-
-    public MoveOption(Position from, Position to) {
-        this.from = from;
-        this.to = to;
-    }
-}
-
-/**
- * Utility logic for AI: collects all possible legal moves for a given color.
- */
-class AILogic {
-    /**
-     * Collects all simple legal moves for the specified color (gold or silver).
-     *
-     * @param game   the current game instance
-     * @param isGold true to collect moves for gold, false for silver
-     * @return a list of MoveOption objects representing all legal moves
-     */
-    public static List<MoveOption> collectAllMoves(Game game, boolean isGold) {
-        List<MoveOption> all = new ArrayList<>();
-        Board b = game.getBoard();
-        for (int r = 0; r < Board.SIZE; r++) {
-            for (int c = 0; c < Board.SIZE; c++) {
-                Position from = new Position(r, c);
-                Figure f = b.getFigureAt(r, c);
-                if (f != null && f.isGold() == isGold) {
-                    for (Position to : List.of(
-                            new Position(r + 1, c),
-                            new Position(r - 1, c),
-                            new Position(r, c + 1),
-                            new Position(r, c - 1)
-                    )) {
-                        if (to.getRow() >= 0 && to.getRow() < Board.SIZE
-                                && to.getCol() >= 0 && to.getCol() < Board.SIZE
-                                && game.stepIsLegal(from, to)) {
-                            all.add(new MoveOption(from, to));
-                        }
-                    }
-                }
-            }
-        }
-        return all;
-    }
-}
@@ -1,8 +1,11 @@
 package GUI;
 
+import ai.OpeningBook;
+import ai.SetupOptimizer;
 import figures.Figure;
 import logic.Board;
 import logic.Game;
+import logic.Notation;
 import utils.FigureType;
 import utils.GameMode;
 
@@ -21,6 +24,8 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
@@ -385,9 +390,57 @@ public class GameWindow extends JFrame {
         pack();
     }
 
+    /**
+     * Runs the {@link SetupOptimizer} for silver off the event dispatch thread, on a copy of the board, and starts
+     * the game with its setup when it is done.
+     *
+     * @param board    board with the gold setup placed
+     * @param btnStart start button, disabled while the optimizer runs
+     */
+    private void placeSilverInBackground(Board board, JButton btnStart) {
+        Board work = new Board();
+        work.restore(board.snapshot(true, 0, 0));
+        btnStart.setEnabled(false);
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                new SetupOptimizer(SetupOptimizer.DEFAULT_BUDGET_MS).placeSilver(work);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                try {
+                    get();
+                } catch (InterruptedException | ExecutionException ex) {
+                    log.error("Silver setup failed: {}", ex.getMessage(), ex);
+                    JOptionPane.showMessageDialog(GameWindow.this, "Silver setup failed: " + ex.getMessage(),
+                            "Setup Error", JOptionPane.ERROR_MESSAGE);
+                    btnStart.setEnabled(true);
+                    return;
+                }
+                startSinglePlayerGame(work);
+            }
+        }.execute();
+    }
+
+    /**
+     * Starts a game against the AI from a board with both setups placed.
+     */
+    private void startSinglePlayerGame(Board board) {
+        List<String> goldSetup = buildSetupNotation(board.getBoardMatrix(), true);
+        List<String> silverSetup = buildSetupNotation(board.getBoardMatrix(), false);
+        game = new Game(mode);
+        game.addSetupMove(goldSetup, true);
+        game.addSetupMove(silverSetup, false);
+        startGameWithBoard();
+    }
+
     /**
      * Displays the single-player setup screen for gold piece placement (AI mode).
-     * Silver pieces are randomized after gold setup.
+     * Silver pieces are taken from the opening book, chosen by the {@link SetupOptimizer} or randomized after gold setup.
      */
     private void showSinglePlayerSetup() {
         final int TOTAL = 16;
@@ -407,6 +460,7 @@ public class GameWindow extends JFrame {
         status.setBorder(BorderFactory.createEmptyBorder(10, 0, 10, 0));
         JButton btnStart = new JButton("Start Game");
         btnStart.setEnabled(false);
+        JCheckBox randomSilver = new JCheckBox("Random silver setup");
 
         Board b = new Board();
         b.clear();
@@ -465,18 +519,22 @@ public class GameWindow extends JFrame {
                         b.setFigureAt(row, col, customSetup[row][col]);
                 }
             }
-            b.randomizeSilver();
-            List<String> goldSetup = buildSetupNotation(b.getBoardMatrix(), true);
-            List<String> silverSetup = buildSetupNotation(b.getBoardMatrix(), false);
-            game = new Game(mode);
-            game.addSetupMove(goldSetup, true);
-            game.addSetupMove(silverSetup, false);
-            startGameWithBoard();
+            OpeningBook book = OpeningBook.getDefault();
+            if (book == null || !book.applySetup(b, false, new Random())) {
+                if (randomSilver.isSelected()) {
+                    b.randomizeSilver();
+                } else {
+                    placeSilverInBackground(b, btnStart);
+                    return;
+                }
+            }
+            startSinglePlayerGame(b);
         });
         JPanel wrap = new JPanel(new BorderLayout());
         wrap.add(status, BorderLayout.NORTH);
         wrap.add(panel, BorderLayout.CENTER);
         JPanel south = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        south.add(randomSilver);
         south.add(btnStart);
         wrap.add(south, BorderLayout.SOUTH);
 
@@ -589,9 +647,7 @@ public class GameWindow extends JFrame {
             for (int col = 0; col < Board.SIZE; col++) {
                 Figure f = setup[row][col];
                 if (f != null && f.isGold() == gold) {
-                    char pieceChar = gold
-                            ? Character.toUpperCase(f.getType().name().charAt(0))
-                            : Character.toLowerCase(f.getType().name().charAt(0));
+                    char pieceChar = Notation.pieceChar(f);
                     char file = (char) ('a' + col);
                     char rank = (char) ('1' + (Board.SIZE - 1 - row));
                     res.add("" + pieceChar + file + rank);